@@ -13,6 +13,7 @@ DROP TABLE IF EXISTS REQUESTOR;
 DROP TABLE IF EXISTS CA;
 DROP TABLE IF EXISTS CRL;
 DROP TABLE IF EXISTS CERT;
+DROP TABLE IF EXISTS REVJOURNAL;
 
 -- changeset xipki:1
 CREATE TABLE DBSCHEMA (
@@ -102,3 +103,27 @@ ALTER TABLE CERT ADD CONSTRAINT FK_CERT_REQUESTOR1 FOREIGN KEY (RID) REFERENCES
 ALTER TABLE CERT ADD CONSTRAINT FK_CERT_PROFILE1 FOREIGN KEY (PID) REFERENCES PROFILE (ID)
     ON UPDATE NO ACTION ON DELETE NO ACTION;
 
+-- changeset xipki:5
+CREATE INDEX IDX_CA_LUPDATE ON CERT(CA_ID, LUPDATE);
+
+-- changeset xipki:6
+CREATE INDEX IDX_CA_REV ON CERT(CA_ID, REV, ID);
+
+CREATE TABLE REVJOURNAL (
+    ID BIGINT NOT NULL,
+    CA_ID SMALLINT NOT NULL,
+    CERT_ID BIGINT NOT NULL COMMENT 'ID of the certificate in table CERT',
+    ETIME BIGINT NOT NULL COMMENT 'event time, seconds since January 1, 1970, 00:00:00 GMT',
+    EVENT SMALLINT NOT NULL COMMENT '1: revoke, 2: suspend, 3: unsuspend, 4: remove',
+    SN VARCHAR(40) NOT NULL COMMENT 'serial number',
+    NAFTER BIGINT NOT NULL COMMENT 'notAfter, seconds since January 1, 1970, 00:00:00 GMT',
+    PREV_REV SMALLINT NOT NULL COMMENT 'whether the certificate was revoked before the event',
+    RR SMALLINT NULL COMMENT 'revocation reason',
+    RT BIGINT NULL COMMENT 'revocation time, seconds since January 1, 1970, 00:00:00 GMT',
+    RIT BIGINT NULL COMMENT 'revocation invalidity time, seconds since January 1, 1970, 00:00:00 GMT',
+    CONSTRAINT PK_REVJOURNAL PRIMARY KEY (ID)
+);
+
+CREATE INDEX IDX_REVJOURNAL_CA_ETIME ON REVJOURNAL(CA_ID, ETIME);
+
+ALTER TABLE CRL ADD COLUMN JOURNAL_ID BIGINT NULL COMMENT 'maximal ID of the CA in table REVJOURNAL before the generation of the full CRL';
@@ -75,3 +75,5 @@ ALTER TABLE ISSUER ADD CONSTRAINT FK_ISSUER_CRL1
     FOREIGN KEY (CRL_ID) REFERENCES CRL_INFO (ID)
     ON UPDATE NO ACTION ON DELETE NO ACTION;
 
+-- changeset xipki:3
+CREATE INDEX IDX_IID_LUPDATE ON CERT(IID, LUPDATE);
@@ -13,6 +13,7 @@ DROP TABLE IF EXISTS REQUESTOR;
 DROP TABLE IF EXISTS CA;
 DROP TABLE IF EXISTS CRL;
 DROP TABLE IF EXISTS CERT;
+DROP TABLE IF EXISTS REVJOURNAL;
 
 -- changeset xipki:1
 CREATE TABLE DBSCHEMA (
@@ -130,3 +131,38 @@ ALTER TABLE CERT ADD CONSTRAINT FK_CERT_CA1 FOREIGN KEY (CA_ID) REFERENCES CA (I
 ALTER TABLE CERT ADD CONSTRAINT FK_CERT_REQUESTOR1 FOREIGN KEY (RID) REFERENCES REQUESTOR (ID);
 ALTER TABLE CERT ADD CONSTRAINT FK_CERT_PROFILE1 FOREIGN KEY (PID) REFERENCES PROFILE (ID);
 
+-- changeset xipki:5
+CREATE INDEX IDX_CA_LUPDATE ON CERT(CA_ID, LUPDATE);
+
+-- changeset xipki:6
+CREATE INDEX IDX_CA_REV ON CERT(CA_ID, REV, ID);
+
+CREATE TABLE REVJOURNAL (
+    ID NUMBER(38, 0) NOT NULL,
+    CA_ID NUMBER(5) NOT NULL,
+    CERT_ID NUMBER(38, 0) NOT NULL,
+    ETIME NUMBER(38, 0) NOT NULL,
+    EVENT NUMBER(5) NOT NULL,
+    SN VARCHAR2(40) NOT NULL,
+    NAFTER NUMBER(38, 0) NOT NULL,
+    PREV_REV NUMBER(5) NOT NULL,
+    RR NUMBER(5),
+    RT NUMBER(38, 0),
+    RIT NUMBER(38, 0),
+    CONSTRAINT PK_REVJOURNAL PRIMARY KEY (ID)
+);
+
+COMMENT ON COLUMN REVJOURNAL.CERT_ID IS 'ID of the certificate in table CERT';
+COMMENT ON COLUMN REVJOURNAL.ETIME IS 'event time, seconds since January 1, 1970, 00:00:00 GMT';
+COMMENT ON COLUMN REVJOURNAL.EVENT IS '1: revoke, 2: suspend, 3: unsuspend, 4: remove';
+COMMENT ON COLUMN REVJOURNAL.SN IS 'serial number';
+COMMENT ON COLUMN REVJOURNAL.NAFTER IS 'notAfter, seconds since January 1, 1970, 00:00:00 GMT';
+COMMENT ON COLUMN REVJOURNAL.PREV_REV IS 'whether the certificate was revoked before the event';
+COMMENT ON COLUMN REVJOURNAL.RR IS 'revocation reason';
+COMMENT ON COLUMN REVJOURNAL.RT IS 'revocation time, seconds since January 1, 1970, 00:00:00 GMT';
+COMMENT ON COLUMN REVJOURNAL.RIT IS 'revocation invalidity time, seconds since January 1, 1970, 00:00:00 GMT';
+
+CREATE INDEX IDX_REVJOURNAL_CA_ETIME ON REVJOURNAL(CA_ID, ETIME);
+
+ALTER TABLE CRL ADD JOURNAL_ID NUMBER(38, 0);
+COMMENT ON COLUMN CRL.JOURNAL_ID IS 'maximal ID of the CA in table REVJOURNAL before the generation of the full CRL';
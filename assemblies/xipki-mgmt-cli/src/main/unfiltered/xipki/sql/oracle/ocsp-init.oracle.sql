@@ -94,3 +94,5 @@ ALTER TABLE CERT ADD CONSTRAINT FK_CERT_CRL1
 ALTER TABLE ISSUER ADD CONSTRAINT FK_ISSUER_CRL1
     FOREIGN KEY (CRL_ID) REFERENCES CRL_INFO (ID);
 
+-- changeset xipki:3
+CREATE INDEX IDX_IID_LUPDATE ON CERT(IID, LUPDATE);
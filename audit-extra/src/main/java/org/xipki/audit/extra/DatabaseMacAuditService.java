@@ -26,6 +26,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
+import java.util.List;
 
 /**
  * Database-based MAC protected audit service.
@@ -80,21 +81,10 @@ public class DatabaseMacAuditService extends MacAuditService {
   protected void storeLog(
           Instant date, long thisId, int eventType, String levelText,
           long previousId, String message, String thisTag) {
-    String logMessage = message.length() <= maxMessageLength
-        ? message : message.substring(0, maxMessageLength - 4) + " ...";
-
     try {
       PreparedStatement ps = datasource.prepareStatement(SQL_ADD_AUDIT);
       try {
-        int idx = 1;
-        ps.setInt   (idx++, shardId);
-        ps.setLong  (idx++, thisId);
-        ps.setString(idx++, formatDate(date));
-        ps.setString(idx++, levelText);
-        ps.setInt   (idx++, eventType);
-        ps.setLong  (idx++, previousId);
-        ps.setString(idx++, logMessage);
-        ps.setString(idx, thisTag);
+        setParams(ps, date, thisId, eventType, levelText, previousId, message, thisTag);
         ps.executeUpdate();
       } catch (SQLException ex) {
         throw datasource.translate(SQL_ADD_AUDIT, ex);
@@ -106,6 +96,78 @@ public class DatabaseMacAuditService extends MacAuditService {
     }
   }
 
+  /**
+   * Stores all entries in one JDBC batch and transaction. Throws exception if the transaction
+   * has been rolled back, so that the sequencer can retry the batch.
+   */
+  @Override
+  protected void storeLogs(List<LogEntry> entries) {
+    Connection conn;
+    try {
+      conn = datasource.getConnection();
+    } catch (DataAccessException ex) {
+      throw new IllegalStateException("could not store " + entries.size() + " audit events", ex);
+    }
+
+    PreparedStatement ps = null;
+    Boolean origAutoCommit = null;
+    boolean succ = false;
+    try {
+      origAutoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+
+      ps = datasource.prepareStatement(conn, SQL_ADD_AUDIT);
+      for (LogEntry m : entries) {
+        setParams(ps, m.getDate(), m.getId(), m.getEventType(), m.getLevelText(),
+            m.getPreviousId(), m.getMessage(), m.getTag());
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      conn.commit();
+      succ = true;
+    } catch (SQLException ex) {
+      throw new IllegalStateException("could not store " + entries.size() + " audit events",
+          datasource.translate(SQL_ADD_AUDIT, ex));
+    } catch (DataAccessException ex) {
+      throw new IllegalStateException("could not store " + entries.size() + " audit events", ex);
+    } finally {
+      try {
+        if (!succ && origAutoCommit != null) {
+          conn.rollback();
+        }
+
+        if (origAutoCommit != null) {
+          conn.setAutoCommit(origAutoCommit);
+        }
+      } catch (SQLException ex) {
+        LogUtil.error(LOG, datasource.translate(SQL_ADD_AUDIT, ex), "could not rollback or recover AutoCommit");
+      }
+
+      if (ps == null) {
+        datasource.returnConnection(conn);
+      } else {
+        datasource.releaseResources(ps, null);
+      }
+    }
+  } // method storeLogs
+
+  private void setParams(
+      PreparedStatement ps, Instant date, long thisId, int eventType, String levelText,
+      long previousId, String message, String thisTag) throws SQLException {
+    String logMessage = message.length() <= maxMessageLength
+        ? message : message.substring(0, maxMessageLength - 4) + " ...";
+
+    int idx = 1;
+    ps.setInt   (idx++, shardId);
+    ps.setLong  (idx++, thisId);
+    ps.setString(idx++, formatDate(date));
+    ps.setString(idx++, levelText);
+    ps.setInt   (idx++, eventType);
+    ps.setLong  (idx++, previousId);
+    ps.setString(idx++, logMessage);
+    ps.setString(idx, thisTag);
+  }
+
   @Override
   protected void doExtraInit(ConfPairs confPairs) throws InvalidConfException {
     String dataSourceFile = confPairs.value(KEY_DATASOURCE);
@@ -0,0 +1,225 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.audit.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.util.IoUtil;
+import org.xipki.util.LogUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Audit log file writer with daily and size-based rotation.
+ * <p>
+ * The lines are encoded into a reusable direct buffer and written through a {@link FileChannel}.
+ * The file size is tracked in memory and the start of the next day is precomputed, so that no
+ * system call is required per line to decide whether to roll over. The buffer is written to the
+ * file if it is full, by {@link #flush()}, or, either inline or by a background thread, if the
+ * last flush is older than the flush interval.
+ * <p>
+ * The files are named &lt;prefix&gt;yyyy.MM.dd&lt;suffix&gt;, files rolled over because of the
+ * size get the additional postfix -&lt;n&gt; before the suffix.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+final class AuditFileWriter implements Closeable {
+
+  private static final Logger LOG = LoggerFactory.getLogger(AuditFileWriter.class);
+
+  private final ZoneId timeZone = ZoneId.systemDefault();
+
+  private final File logDir;
+
+  private final String fileNamePrefix;
+
+  private final String fileNameSuffix;
+
+  /**
+   * Maximal size of a file, 0 for no size-based rotation.
+   */
+  private final long maxFileSize;
+
+  private final long flushIntervalMs;
+
+  private final ByteBuffer buffer;
+
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+      .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+  private final ScheduledExecutorService flusher;
+
+  private FileChannel channel;
+
+  private File file;
+
+  private String fileCoreName;
+
+  private long size;
+
+  private long nextDayStartMs;
+
+  private long lastFlushedMs;
+
+  /**
+   * Constructor.
+   * @param logDir the directory of the log files.
+   * @param fileNamePrefix the prefix of the file names.
+   * @param fileNameSuffix the suffix of the file names.
+   * @param maxFileSize the maximal size of a file, 0 for no size-based rotation.
+   * @param bufferSize the size of the buffer.
+   * @param flushIntervalMs the maximal time in milliseconds a line stays in the buffer.
+   * @param backgroundFlush whether the buffer is flushed by a background thread. If false,
+   *        the buffer is flushed while writing the next line.
+   * @throws IOException if the file could not be opened.
+   */
+  AuditFileWriter(File logDir, String fileNamePrefix, String fileNameSuffix, long maxFileSize,
+                  int bufferSize, long flushIntervalMs, boolean backgroundFlush) throws IOException {
+    this.logDir = logDir;
+    this.fileNamePrefix = fileNamePrefix;
+    this.fileNameSuffix = fileNameSuffix;
+    this.maxFileSize = maxFileSize;
+    this.flushIntervalMs = flushIntervalMs;
+    this.buffer = ByteBuffer.allocateDirect(bufferSize);
+
+    long now = System.currentTimeMillis();
+    open(now);
+    this.lastFlushedMs = now;
+
+    if (backgroundFlush && flushIntervalMs > 0) {
+      flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "audit-flusher");
+        t.setDaemon(true);
+        return t;
+      });
+      flusher.scheduleWithFixedDelay(() -> {
+        try {
+          flush();
+        } catch (Throwable t) {
+          LogUtil.error(LOG, t, "error flushing audit file");
+        }
+      }, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    } else {
+      flusher = null;
+    }
+  } // constructor
+
+  /**
+   * Writes the line followed by a line break.
+   * @param epochMillis time of the event, used to decide the rotation.
+   * @param line the line.
+   * @throws IOException if error occurs.
+   */
+  synchronized void write(long epochMillis, CharSequence line) throws IOException {
+    if (epochMillis >= nextDayStartMs || (maxFileSize > 0 && size >= maxFileSize)) {
+      rotate(epochMillis);
+    }
+
+    CharBuffer in = CharBuffer.wrap(line);
+    while (true) {
+      int pos = buffer.position();
+      CoderResult cr = encoder.encode(in, buffer, true);
+      size += buffer.position() - pos;
+      if (cr.isOverflow()) {
+        writeBuffer();
+      } else {
+        break;
+      }
+    }
+    encoder.reset();
+
+    if (!buffer.hasRemaining()) {
+      writeBuffer();
+    }
+    buffer.put((byte) '\n');
+    size++;
+
+    if (flusher == null && epochMillis - lastFlushedMs >= flushIntervalMs) {
+      writeBuffer();
+      lastFlushedMs = epochMillis;
+    }
+  } // method write
+
+  /**
+   * Writes the buffered lines to the file.
+   * @throws IOException if error occurs.
+   */
+  synchronized void flush() throws IOException {
+    writeBuffer();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    if (flusher != null) {
+      flusher.shutdown();
+    }
+
+    if (channel != null) {
+      try {
+        writeBuffer();
+      } finally {
+        channel.close();
+        channel = null;
+      }
+    }
+  }
+
+  private void writeBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  private void rotate(long epochMillis) throws IOException {
+    writeBuffer();
+    channel.close();
+
+    if (epochMillis < nextDayStartMs) {
+      // rotation because of the size
+      for (int i = 1; ; i++) {
+        File renameTo = new File(logDir, fileCoreName + "-" + i + fileNameSuffix);
+        if (!renameTo.exists()) {
+          IoUtil.renameTo(file, renameTo);
+          break;
+        }
+      }
+    }
+
+    open(epochMillis);
+  } // method rotate
+
+  private void open(long epochMillis) throws IOException {
+    LocalDate day = Instant.ofEpochMilli(epochMillis).atZone(timeZone).toLocalDate();
+    this.nextDayStartMs = day.plusDays(1).atStartOfDay(timeZone).toInstant().toEpochMilli();
+
+    int month = day.getMonthValue();
+    int dayOfMonth = day.getDayOfMonth();
+    this.fileCoreName = fileNamePrefix + day.getYear() + "." + (month < 10 ? "0" + month : month)
+        + "." + (dayOfMonth < 10 ? "0" + dayOfMonth : dayOfMonth);
+    this.file = new File(logDir, fileCoreName + fileNameSuffix);
+    this.channel = FileChannel.open(file.toPath(),
+        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    this.size = channel.size();
+  } // method open
+
+}
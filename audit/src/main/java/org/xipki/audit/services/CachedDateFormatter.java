@@ -0,0 +1,64 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.audit.services;
+
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Formats the time in the pattern yyyy.MM.dd-HH:mm:ss.SSS. The part up to the seconds is
+ * formatted only once per second, only the milliseconds are appended for each call.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+final class CachedDateFormatter {
+
+  private static final class Cached {
+
+    private final long epochSecond;
+
+    private final String text;
+
+    private Cached(long epochSecond, String text) {
+      this.epochSecond = epochSecond;
+      this.text = text;
+    }
+
+  } // class Cached
+
+  private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy.MM.dd-HH:mm:ss.");
+
+  private final ZoneId timeZone;
+
+  private volatile Cached cached = new Cached(Long.MIN_VALUE, null);
+
+  CachedDateFormatter(ZoneId timeZone) {
+    this.timeZone = timeZone;
+  }
+
+  String format(long epochMillis) {
+    return appendTo(new StringBuilder(23), epochMillis).toString();
+  }
+
+  StringBuilder appendTo(StringBuilder sb, long epochMillis) {
+    long epochSecond = Math.floorDiv(epochMillis, 1000);
+    Cached c = cached;
+    if (c.epochSecond != epochSecond) {
+      c = new Cached(epochSecond, DTF.format(Instant.ofEpochSecond(epochSecond).atZone(timeZone)));
+      cached = c;
+    }
+
+    int ms = (int) Math.floorMod(epochMillis, 1000);
+    sb.append(c.text);
+    if (ms < 100) {
+      sb.append(ms < 10 ? "00" : "0");
+    }
+    return sb.append(ms);
+  } // method appendTo
+
+}
@@ -10,26 +10,15 @@ import org.xipki.audit.AuditLevel;
 import org.xipki.audit.AuditService;
 import org.xipki.audit.PciAuditEvent;
 import org.xipki.util.ConfPairs;
-import org.xipki.util.DateUtil;
 import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.StringUtil;
 import org.xipki.util.exception.InvalidConfException;
 
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.time.Clock;
-import java.time.Instant;
 import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.Locale;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * The embedded audit service.
@@ -44,31 +33,27 @@ public class EmbedAuditService implements AuditService {
 
   public static final String KEY_SIZE = "size";
 
-  private static final String DELIM = " | ";
-
-  private static final Logger LOG = LoggerFactory.getLogger(EmbedAuditService.class);
-
-  private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy.MM.dd-HH:mm:ss.SSS");
+  /**
+   * Maximal time in seconds an event stays in the buffer, default 10.
+   */
+  public static final String KEY_FLUSH_INTERVAL = "flush-interval";
 
-  private final ZoneId timeZone = ZoneId.systemDefault();
+  /**
+   * Whether the buffer is flushed by a background thread, default false.
+   */
+  public static final String KEY_BACKGROUND_FLUSH = "background-flush";
 
-  private File logDir;
+  private static final int BUFFER_SIZE = 64 * 1024;
 
-  private String logFileNamePrefix;
+  private static final String DELIM = " | ";
 
-  private String logFileNameSuffix;
+  private static final Logger LOG = LoggerFactory.getLogger(EmbedAuditService.class);
 
-  private Instant lastMsOfToday;
+  private final CachedDateFormatter dateFormatter = new CachedDateFormatter(ZoneId.systemDefault());
 
   private int maxFileSize;
 
-  private OutputStreamWriter writer;
-
-  private Path writerPath;
-
-  private String writerFileCoreName;
-
-  private final AtomicLong lastFlushed = new AtomicLong();
+  private AuditFileWriter writer;
 
   public EmbedAuditService() {
   }
@@ -109,26 +94,29 @@ public class EmbedAuditService implements AuditService {
     logFilePath = IoUtil.expandFilepath(logFilePath, true);
 
     File logFile = new File(logFilePath).getAbsoluteFile();
-    this.logDir = logFile.getParentFile();
+    File logDir = logFile.getParentFile();
     try {
-      IoUtil.mkdirs(this.logDir);
+      IoUtil.mkdirs(logDir);
     } catch (IOException e) {
-      throw new InvalidConfException("error mkdirs for " + this.logDir.getPath());
+      throw new InvalidConfException("error mkdirs for " + logDir.getPath());
     }
 
     String fileName = logFile.getName();
     int idx = fileName.lastIndexOf('.');
-    logFileNameSuffix = idx == -1 ? "" : fileName.substring(idx);
+    String logFileNameSuffix = idx == -1 ? "" : fileName.substring(idx);
 
     String prefix = idx == -1 ? fileName : fileName.substring(0, idx);
-    this.logFileNamePrefix = prefix + "_";
 
-    // analyze the existing log files
-    ZonedDateTime now = ZonedDateTime.now();
-    int yyyyMMddNow = DateUtil.getYyyyMMdd(now);
-    this.lastMsOfToday = DateUtil.getLastMsOfDay(now);
+    str = conf.value(KEY_FLUSH_INTERVAL);
+    int flushInterval = (str == null) ? 10 : Integer.parseInt(str);
+    boolean backgroundFlush = Boolean.parseBoolean(conf.value(KEY_BACKGROUND_FLUSH));
 
-    this.writer = buildWriter(yyyyMMddNow);
+    try {
+      this.writer = new AuditFileWriter(logDir, prefix + "_", logFileNameSuffix, maxFileSize,
+          BUFFER_SIZE, flushInterval * 1000L, backgroundFlush);
+    } catch (IOException ex) {
+      throw new InvalidConfException("error opening audit file in " + logDir.getPath() + ": " + ex.getMessage());
+    }
   }
 
   @Override
@@ -142,73 +130,21 @@ public class EmbedAuditService implements AuditService {
   }
 
   protected void storeLog(int eventType, AuditLevel level, String message) {
-    Instant date = Instant.now();
-
-    String payload = DTF.format(date.atZone(timeZone)) + DELIM + level.getText() + DELIM + eventType + DELIM + message;
+    long now = System.currentTimeMillis();
+    StringBuilder payload = new StringBuilder(40 + message.length());
+    dateFormatter.appendTo(payload, now)
+        .append(DELIM).append(level.getText()).append(DELIM).append(eventType).append(DELIM).append(message);
 
     try {
-      long size = Files.size(writerPath);
-      if (date.isAfter(lastMsOfToday) || size >= maxFileSize) {
-        Instant oldLastOfToday = lastMsOfToday;
-
-        ZonedDateTime now = ZonedDateTime.ofInstant(date, ZoneId.systemDefault());
-        int yyyyMMddNow = DateUtil.getYyyyMMdd(now);
-        lastMsOfToday = DateUtil.getLastMsOfDay(now);
-        writer.flush();
-        writer.close();
-
-        if (oldLastOfToday == lastMsOfToday) {
-          for (int i = 1; ;i++) {
-            File renameTo = new File(logDir, writerFileCoreName + "-" + i + logFileNameSuffix);
-            if (!renameTo.exists()) {
-              IoUtil.renameTo(writerPath.toFile(), renameTo);
-              break;
-            }
-          }
-        }
-
-        writer = buildWriter(yyyyMMddNow);
-      }
-
-      writer.write(payload);
-      writer.write('\n');
-
-      long now = Clock.systemUTC().millis();
-      if (now > lastFlushed.get() + 10000) { // 10 seconds
-        writer.flush();
-        lastFlushed.set(now);
-      }
+      writer.write(now, payload);
     } catch (Exception ex) {
       LogUtil.error(LOG, ex);
     }
   }
 
-  private OutputStreamWriter buildWriter(int yyyyMMdd) {
-    this.writerFileCoreName = buildFileCoreName(yyyyMMdd);
-    File currentLogFile = new File(logDir, writerFileCoreName + logFileNameSuffix);
-    OutputStream fw;
-    try {
-      fw = new FileOutputStream(currentLogFile, true);
-    } catch (IOException ex) {
-      throw new IllegalStateException("error opening file " + currentLogFile.getPath());
-    }
-
-    this.writerPath = currentLogFile.toPath();
-    return new OutputStreamWriter(fw);
-  }
-
-  private String buildFileCoreName(int yyyyMMdd) {
-    int year = yyyyMMdd / 10000;
-    int month = yyyyMMdd % 10000 / 100;
-    int day = yyyyMMdd % 100;
-    String dateStr = year + "." + (month < 10 ? "0" + month : month) + "." + (day < 10 ? "0" + day : day);
-    return logFileNamePrefix + dateStr;
-  }
-
   @Override
   public void close() throws Exception {
     if (writer != null) {
-      writer.flush();
       writer.close();
     }
   }
@@ -14,18 +14,15 @@ import org.xipki.util.exception.InvalidConfException;
 
 import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.OutputStream;
-import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.time.Instant;
-import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.List;
 import java.util.StringTokenizer;
 
 /**
@@ -41,15 +38,17 @@ public class FileMacAuditService extends MacAuditService {
 
   public static final String KEY_FILE = "file";
 
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final long FLUSH_INTERVAL_MS = 10000;
+
   private File logDir;
 
   private String logFileNamePrefix;
 
   private String logFileNameSuffix;
 
-  private Instant lastMsOfToday;
-
-  private OutputStreamWriter writer;
+  private AuditFileWriter writer;
 
   private Path integrityFilePath;
 
@@ -62,25 +61,36 @@ public class FileMacAuditService extends MacAuditService {
   @Override
   protected void storeLog(Instant date, long thisId, int eventType, String levelText,
                           long previousId, String message, String thisTag) {
-    String logLine = formatDate(date) + DELIM + levelText + DELIM + eventType + DELIM + shardId +
-        DELIM + thisId + DELIM + previousId + DELIM + thisTag + DELIM + message;
-
     try {
-      if (date.isAfter(lastMsOfToday)) {
-        ZonedDateTime now = ZonedDateTime.ofInstant(date, ZoneId.systemDefault());
-        int yyyyMMddNow = DateUtil.getYyyyMMdd(now);
-        lastMsOfToday = DateUtil.getLastMsOfDay(now);
-        writer.close();
-        writer = buildWriter(yyyyMMddNow);
-      }
-
-      writer.write(logLine);
-      writer.write('\n');
+      writer.write(date.toEpochMilli(), buildLogLine(date, thisId, eventType, levelText, previousId, message, thisTag));
     } catch (Exception ex) {
       LogUtil.error(LOG, ex);
     }
   }
 
+  /**
+   * Writes all entries and flushes once per batch. Throws exception if the entries could not be
+   * written, so that the sequencer can retry the batch.
+   */
+  @Override
+  protected void storeLogs(List<LogEntry> entries) {
+    try {
+      for (LogEntry m : entries) {
+        writer.write(m.getDate().toEpochMilli(), buildLogLine(m.getDate(), m.getId(), m.getEventType(),
+            m.getLevelText(), m.getPreviousId(), m.getMessage(), m.getTag()));
+      }
+      writer.flush();
+    } catch (IOException ex) {
+      throw new IllegalStateException("could not write " + entries.size() + " audit events", ex);
+    }
+  }
+
+  private String buildLogLine(Instant date, long thisId, int eventType, String levelText,
+                              long previousId, String message, String thisTag) {
+    return formatDate(date) + DELIM + levelText + DELIM + eventType + DELIM + shardId +
+        DELIM + thisId + DELIM + previousId + DELIM + thisTag + DELIM + message;
+  }
+
   @Override
   protected void storeIntegrity(String integrityText) {
     if (integrityText != null) {
@@ -124,7 +134,6 @@ public class FileMacAuditService extends MacAuditService {
     ZonedDateTime now = ZonedDateTime.now();
 
     int yyyyMMddNow = DateUtil.getYyyyMMdd(now);
-    this.lastMsOfToday = DateUtil.getLastMsOfDay(now);
 
     File[] existingLogFiles = logDir.listFiles();
     int latestYyyyMMdd = 0;
@@ -191,19 +200,13 @@ public class FileMacAuditService extends MacAuditService {
     }
 
     verify(id.get(), previousTag, integrityText, confPairs);
-    this.writer = buildWriter(yyyyMMddNow);
-  }
-
-  private OutputStreamWriter buildWriter(int yyyyMMdd) {
-    File currentLogFile = new File(logDir, buildFilename(yyyyMMdd));
-    OutputStream fw;
     try {
-      fw = new FileOutputStream(currentLogFile, true);
+      // no size-based rotation, the buffer is flushed before the integrity text is stored.
+      this.writer = new AuditFileWriter(logDir, logFileNamePrefix, logFileNameSuffix, 0,
+          BUFFER_SIZE, FLUSH_INTERVAL_MS, false);
     } catch (IOException ex) {
-      throw new IllegalStateException("error opening file " + currentLogFile.getPath());
+      throw new IllegalStateException("error opening audit file in " + logDir.getPath(), ex);
     }
-
-    return new OutputStreamWriter(fw);
   }
 
   private String buildFilename(int yyyyMMdd) {
@@ -217,7 +220,6 @@ public class FileMacAuditService extends MacAuditService {
   @Override
   public void doClose() throws Exception {
     if (writer != null) {
-      writer.flush();
       writer.close();
     }
   }
@@ -8,9 +8,11 @@ import org.slf4j.LoggerFactory;
 import org.xipki.audit.AuditEvent;
 import org.xipki.audit.AuditLevel;
 import org.xipki.audit.AuditService;
+import org.xipki.audit.AuditServiceRuntimeException;
 import org.xipki.audit.PciAuditEvent;
 import org.xipki.util.Base64;
 import org.xipki.util.ConfPairs;
+import org.xipki.util.LogUtil;
 import org.xipki.util.StringUtil;
 import org.xipki.util.exception.InvalidConfException;
 
@@ -28,12 +30,24 @@ import java.security.spec.InvalidKeySpecException;
 import java.security.spec.KeySpec;
 import java.time.Instant;
 import java.time.ZoneId;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.StringTokenizer;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
 
 /**
  * The Mac protected audit service.
+ * <p>
+ * If the property {@link #KEY_ASYNC} is set to {@code true}, the events are put into a lock-free
+ * ring buffer and a single sequencer thread assigns the ids, computes the MAC chain and stores the
+ * events in batches (group commit). With the durability {@code flush} (default) the logging thread
+ * waits until the event has been stored, with {@code none} it returns immediately. A batch that could
+ * not be stored is retried; if it still fails, the events are dropped (and logged as error), and the
+ * waiting logging threads get an {@link AuditServiceRuntimeException}.
  *
  * @author Lijun Liao (xipki)
  * @since 6.0.0
@@ -41,6 +55,93 @@ import java.util.concurrent.atomic.AtomicLong;
 
 public abstract class MacAuditService implements AuditService {
 
+  /**
+   * Audit entry with computed tag, to be stored.
+   */
+  protected static class LogEntry {
+
+    private final Instant date;
+
+    private final long id;
+
+    private final int eventType;
+
+    private final String levelText;
+
+    private final long previousId;
+
+    private final String message;
+
+    private final String tag;
+
+    private LogEntry(Instant date, long id, int eventType, String levelText,
+                     long previousId, String message, String tag) {
+      this.date = date;
+      this.id = id;
+      this.eventType = eventType;
+      this.levelText = levelText;
+      this.previousId = previousId;
+      this.message = message;
+      this.tag = tag;
+    }
+
+    public Instant getDate() {
+      return date;
+    }
+
+    public long getId() {
+      return id;
+    }
+
+    public int getEventType() {
+      return eventType;
+    }
+
+    public String getLevelText() {
+      return levelText;
+    }
+
+    public long getPreviousId() {
+      return previousId;
+    }
+
+    public String getMessage() {
+      return message;
+    }
+
+    public String getTag() {
+      return tag;
+    }
+
+  } // class LogEntry
+
+  private static class PendingEvent {
+
+    private static final int PENDING = 0;
+
+    private static final int STORED = 1;
+
+    private static final int FAILED = 2;
+
+    private final Instant date;
+
+    private final int eventType;
+
+    private final String levelText;
+
+    private final String message;
+
+    private volatile int state = PENDING;
+
+    private PendingEvent(Instant date, int eventType, String levelText, String message) {
+      this.date = date;
+      this.eventType = eventType;
+      this.levelText = levelText;
+      this.message = message;
+    }
+
+  } // class PendingEvent
+
   public static final String KEY_SHARD_ID = "shard-id";
 
   public static final String KEY_ALGO = "algo";
@@ -55,6 +156,18 @@ public abstract class MacAuditService implements AuditService {
 
   public static final String KEY_ENC_INTERVAL = "enc-interval";
 
+  public static final String KEY_ASYNC = "async";
+
+  public static final String KEY_DURABILITY = "durability";
+
+  public static final String KEY_QUEUE_SIZE = "queue-size";
+
+  public static final String KEY_BATCH_SIZE = "batch-size";
+
+  public static final String DURABILITY_FLUSH = "flush";
+
+  public static final String DURABILITY_NONE = "none";
+
   private static final int ALGO_ID_HMAC_SHA256 = 1;
 
   private static final String VERSION_V1 = "v1";
@@ -63,11 +176,13 @@ public abstract class MacAuditService implements AuditService {
 
   private static final String INNER_DELIM = ":";
 
-  private static final Logger LOG = LoggerFactory.getLogger(MacAuditService.class);
+  private static final int MAX_STORE_ATTEMPTS = 5;
+
+  private static final long RETRY_INITIAL_DELAY_MS = 100;
 
-  private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy.MM.dd-HH:mm:ss.SSS");
+  private static final Logger LOG = LoggerFactory.getLogger(MacAuditService.class);
 
-  private final ZoneId timeZone = ZoneId.systemDefault();
+  private final CachedDateFormatter dateFormatter = new CachedDateFormatter(ZoneId.systemDefault());
 
   protected int shardId;
 
@@ -91,11 +206,39 @@ public abstract class MacAuditService implements AuditService {
 
   private int encInterval;
 
+  private MpscRingBuffer<PendingEvent> ringBuffer;
+
+  private int batchSize;
+
+  private boolean waitForFlush;
+
+  private Thread sequencer;
+
+  private volatile boolean sequencerParked;
+
+  private volatile boolean sequencerTerminated;
+
+  private volatile boolean closed;
+
+  /**
+   * Signalled by the sequencer after each batch, the logging threads waiting for their events to
+   * be stored await it.
+   */
+  private final ReentrantLock storedLock = new ReentrantLock();
+
+  private final Condition stored = storedLock.newCondition();
+
+  /**
+   * Whether the integrity text covering the stored entries could not be stored, only accessed by the
+   * sequencer thread and after its termination.
+   */
+  private boolean integrityPending;
+
   public MacAuditService() {
   }
 
   protected String formatDate(Instant date) {
-    return DTF.format(date.atZone(timeZone));
+    return dateFormatter.format(date.toEpochMilli());
   }
 
   private String buildMacPayload(Instant date, long thisId, int eventType, String levelText,
@@ -108,6 +251,17 @@ public abstract class MacAuditService implements AuditService {
           Instant date, long thisId, int eventType, String levelText,
           long previousId, String message, String thisTag);
 
+  /**
+   * Stores the entries in the given order. Called only by the sequencer thread in the asynchronous mode.
+   * Overwrite this method to store all entries at once, e.g. in one database transaction.
+   * @param entries the entries to be stored.
+   */
+  protected void storeLogs(List<LogEntry> entries) {
+    for (LogEntry m : entries) {
+      storeLog(m.date, m.id, m.eventType, m.levelText, m.previousId, m.message, m.tag);
+    }
+  }
+
   protected abstract void storeIntegrity(String integrityText);
 
   protected abstract void doClose() throws Exception;
@@ -248,7 +402,31 @@ public abstract class MacAuditService implements AuditService {
 
     this.rnd = new SecureRandom();
     doExtraInit(conf);
-  }
+
+    if (Boolean.parseBoolean(conf.value(KEY_ASYNC))) {
+      str = conf.value(KEY_DURABILITY);
+      if (str == null || DURABILITY_FLUSH.equalsIgnoreCase(str)) {
+        waitForFlush = true;
+      } else if (DURABILITY_NONE.equalsIgnoreCase(str)) {
+        waitForFlush = false;
+      } else {
+        throw new InvalidConfException("invalid " + KEY_DURABILITY + " " + str);
+      }
+
+      str = conf.value(KEY_QUEUE_SIZE);
+      int queueSize = (str == null) ? 8192 : Integer.parseInt(str);
+      str = conf.value(KEY_BATCH_SIZE);
+      batchSize = (str == null) ? 100 : Integer.parseInt(str);
+      if (queueSize < 1 || batchSize < 1) {
+        throw new InvalidConfException(KEY_QUEUE_SIZE + " and " + KEY_BATCH_SIZE + " must be positive");
+      }
+
+      ringBuffer = new MpscRingBuffer<>(queueSize);
+      sequencer = new Thread(this::runSequencer, "audit-sequencer");
+      sequencer.setDaemon(true);
+      sequencer.start();
+    }
+  } // method init
 
   @Override
   public void logEvent(AuditEvent event) {
@@ -260,11 +438,72 @@ public abstract class MacAuditService implements AuditService {
     log(AuditService.PCI_AUDIT_EVENT, event.getLevel(), event.toTextMessage());
   }
 
-  private synchronized void log(int eventType, AuditLevel level, String message) {
-    Instant date = Instant.now();
+  private void log(int eventType, AuditLevel level, String message) {
+    if (ringBuffer == null) {
+      logSync(eventType, level.getText(), message);
+      return;
+    }
+
+    PendingEvent event = new PendingEvent(Instant.now(), eventType, level.getText(), message);
+    if (!ringBuffer.put(event)) {
+      LOG.error("audit service is closed, dropped event: {}", message);
+      return;
+    }
+
+    if (sequencerParked) {
+      LockSupport.unpark(sequencer);
+    }
+
+    if (waitForFlush) {
+      awaitStored(event);
+      if (event.state == PendingEvent.FAILED) {
+        throw new AuditServiceRuntimeException("could not store audit event");
+      }
+    }
+  } // method log
+
+  private void awaitStored(PendingEvent event) {
+    storedLock.lock();
+    try {
+      while (event.state == PendingEvent.PENDING) {
+        if (sequencerTerminated) {
+          throw new AuditServiceRuntimeException("audit sequencer terminated, event not stored");
+        }
+        stored.await();
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new AuditServiceRuntimeException("interrupted while waiting for the audit event to be stored");
+    } finally {
+      storedLock.unlock();
+    }
+  } // method awaitStored
+
+  private void signalStored() {
+    storedLock.lock();
+    try {
+      stored.signalAll();
+    } finally {
+      storedLock.unlock();
+    }
+  }
+
+  private synchronized void logSync(int eventType, String levelText, String message) {
+    LogEntry entry = nextEntry(Instant.now(), eventType, levelText, message);
+    storeLog(entry.date, entry.id, eventType, levelText, entry.previousId, message, entry.tag);
+    if (encInterval <= 1 || entry.id % encInterval == 0) {
+      String integrityText = buildIntegrityText();
+      storeIntegrity(integrityText);
+    }
+  }
+
+  /**
+   * Assigns the next id and computes the chained tag. Called either under the lock or by the
+   * sequencer thread.
+   */
+  private LogEntry nextEntry(Instant date, int eventType, String levelText, String message) {
     long previousId = id.get();
     long thisId = id.incrementAndGet();
-    String levelText = level.getText();
 
     String payload = buildMacPayload(date, thisId, eventType, levelText, previousId, previousTag, message);
 
@@ -275,12 +514,111 @@ public abstract class MacAuditService implements AuditService {
     String tagWithMeta = tagPrefix + Base64.encodeToString(tag);
     this.previousTag = tagWithMeta;
 
-    storeLog(date, thisId, eventType, levelText, previousId, message, tagWithMeta);
-    if (encInterval <= 1 || thisId % encInterval == 0) {
-      String integrityText = buildIntegrityText();
-      storeIntegrity(integrityText);
+    return new LogEntry(date, thisId, eventType, levelText, previousId, message, tagWithMeta);
+  } // method nextEntry
+
+  private void runSequencer() {
+    List<PendingEvent> events = new ArrayList<>(batchSize);
+    List<LogEntry> entries = new ArrayList<>(batchSize);
+
+    try {
+      while (true) {
+        events.clear();
+        if (ringBuffer.drainTo(events, batchSize) == 0) {
+          // all events accepted before the close have been stored.
+          if (ringBuffer.isClosedAndEmpty()) {
+            break;
+          }
+
+          sequencerParked = true;
+          if (ringBuffer.isEmpty()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(10));
+          }
+          sequencerParked = false;
+          continue;
+        }
+
+        int state = storeBatch(events, entries) ? PendingEvent.STORED : PendingEvent.FAILED;
+        for (PendingEvent event : events) {
+          event.state = state;
+        }
+
+        if (waitForFlush) {
+          signalStored();
+        }
+      }
+    } finally {
+      // the producers waiting for a free slot or for their events must not wait for ever.
+      ringBuffer.terminate();
+      sequencerTerminated = true;
+      signalStored();
     }
-  }
+  } // method runSequencer
+
+  /**
+   * Stores the batch, retries it if failed. The id and the previous tag are advanced only if the
+   * entries have been stored.
+   * @return whether the entries and the integrity text (if due) have been stored.
+   */
+  private boolean storeBatch(List<PendingEvent> events, List<LogEntry> entries) {
+    final long prevId = id.get();
+    final String prevTag = previousTag;
+
+    boolean logsStored = false;
+    boolean integrityDue = integrityPending;
+    long delay = RETRY_INITIAL_DELAY_MS;
+
+    for (int attempt = 1; ; attempt++) {
+      try {
+        if (!logsStored) {
+          entries.clear();
+          for (PendingEvent event : events) {
+            LogEntry entry = nextEntry(event.date, event.eventType, event.levelText, event.message);
+            entries.add(entry);
+            if (encInterval <= 1 || entry.id % encInterval == 0) {
+              integrityDue = true;
+            }
+          }
+
+          storeLogs(entries);
+          logsStored = true;
+        }
+
+        if (integrityDue) {
+          // one integrity text per batch, it covers the last entry of the batch.
+          storeIntegrity(buildIntegrityText());
+        }
+
+        integrityPending = false;
+        return true;
+      } catch (Throwable t) {
+        if (!logsStored) {
+          // the entries have not been stored, reuse the id and chain the next entry to the last stored one.
+          id.set(prevId);
+          previousTag = prevTag;
+        }
+
+        // no retry if closed, the service shall terminate timely.
+        if (attempt >= MAX_STORE_ATTEMPTS || closed) {
+          if (logsStored) {
+            integrityPending = true;
+            LogUtil.error(LOG, t, "could not store the integrity text");
+          } else {
+            LogUtil.error(LOG, t, "could not store " + events.size() + " audit events, dropped them");
+            for (PendingEvent event : events) {
+              LOG.error("dropped audit event: {}", event.message);
+            }
+          }
+          return false;
+        }
+
+        LogUtil.warn(LOG, t, "error storing " + events.size() + " audit events (attempt " + attempt
+            + "), retry in " + delay + " ms");
+        LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(delay));
+        delay <<= 1;
+      }
+    }
+  } // method storeBatch
 
   private String buildIntegrityText() {
     byte[] plaintext = StringUtil.toUtf8Bytes(VERSION_V1 + DELIM + shardId + DELIM + id.get() + DELIM + previousTag);
@@ -300,7 +638,16 @@ public abstract class MacAuditService implements AuditService {
 
   @Override
   public final void close() throws Exception {
-    if (!(encInterval <= 1 | id.get() % encInterval == 0)) {
+    if (sequencer != null) {
+      closed = true;
+      // rejects the following events, those accepted before are still stored.
+      ringBuffer.close();
+      LockSupport.unpark(sequencer);
+      // the sequencer stores all pending events before it terminates.
+      sequencer.join();
+    }
+
+    if (integrityPending || !(encInterval <= 1 | id.get() % encInterval == 0)) {
       String integrityText = buildIntegrityText();
       storeIntegrity(integrityText);
     }
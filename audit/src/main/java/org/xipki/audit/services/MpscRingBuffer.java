@@ -0,0 +1,165 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.audit.services;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lock-free bounded ring buffer with multiple producers and a single consumer.
+ * <p>
+ * A producer claims a sequence number by incrementing the tail, writes the element into the
+ * slot and then publishes the sequence number of the slot. The consumer takes the elements
+ * in the order of the sequence numbers. If the buffer is full, the producers spin until the
+ * consumer frees a slot or the consumer has terminated.
+ * <p>
+ * {@link #close()} marks the tail as closed in the same atomic operation with which the
+ * producers claim the sequence numbers. Hence every element is either rejected or has been
+ * claimed before the close, and the latter is consumed before {@link #isClosedAndEmpty()}
+ * returns {@code true}.
+ *
+ * @param <E> the type of the elements.
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+final class MpscRingBuffer<E> {
+
+  /**
+   * Set in the tail if the buffer is closed.
+   */
+  private static final long CLOSED = Long.MIN_VALUE;
+
+  private final Object[] buffer;
+
+  /**
+   * Sequence number of the element currently published in each slot.
+   */
+  private final AtomicLongArray published;
+
+  private final int mask;
+
+  /**
+   * Next sequence number to be claimed, with the bit {@link #CLOSED} set if closed.
+   */
+  private final AtomicLong tail = new AtomicLong();
+
+  /**
+   * Sequence number of the next element to be consumed, only written by the consumer.
+   */
+  private volatile long head;
+
+  /**
+   * Number of the elements claimed before the close, -1 if not closed.
+   */
+  private volatile long numClaimedBeforeClose = -1;
+
+  private volatile boolean consumerTerminated;
+
+  MpscRingBuffer(int minCapacity) {
+    int capacity = 1;
+    while (capacity < minCapacity) {
+      capacity <<= 1;
+    }
+
+    this.buffer = new Object[capacity];
+    this.mask = capacity - 1;
+    this.published = new AtomicLongArray(capacity);
+    for (int i = 0; i < capacity; i++) {
+      published.set(i, -1);
+    }
+  }
+
+  /**
+   * Puts the element, waits if the buffer is full.
+   * @param element the element.
+   * @return whether the element has been put, {@code false} if the buffer is closed or the
+   *         consumer has terminated.
+   */
+  boolean put(E element) {
+    if (consumerTerminated) {
+      return false;
+    }
+
+    long seq = tail.getAndIncrement();
+    if (seq < 0) {
+      // closed
+      return false;
+    }
+
+    while (seq - head >= buffer.length) {
+      if (consumerTerminated) {
+        // the slot will never be freed.
+        return false;
+      }
+      LockSupport.parkNanos(1000);
+    }
+
+    int idx = (int) (seq & mask);
+    buffer[idx] = element;
+    published.set(idx, seq);
+    return true;
+  } // method put
+
+  /**
+   * Takes at most maxElements published elements in order. Must be called by the consumer only.
+   * @param out the list to which the elements are added.
+   * @param maxElements the maximal number of elements to take.
+   * @return the number of elements taken.
+   */
+  @SuppressWarnings("unchecked")
+  int drainTo(List<E> out, int maxElements) {
+    long h = head;
+    int n = 0;
+    while (n < maxElements) {
+      int idx = (int) (h & mask);
+      if (published.get(idx) != h) {
+        break;
+      }
+
+      out.add((E) buffer[idx]);
+      buffer[idx] = null;
+      h++;
+      n++;
+    }
+
+    // frees the slots
+    head = h;
+    return n;
+  } // method drainTo
+
+  boolean isEmpty() {
+    return published.get((int) (head & mask)) != head;
+  }
+
+  /**
+   * Returns whether the buffer is closed and all elements put before have been consumed. Must
+   * be called by the consumer only.
+   * @return whether the consumer may terminate.
+   */
+  boolean isClosedAndEmpty() {
+    long n = numClaimedBeforeClose;
+    return n != -1 && head == n;
+  }
+
+  /**
+   * Closes the buffer, the following {@link #put(Object)} are rejected. The elements put before
+   * are still to be consumed.
+   */
+  synchronized void close() {
+    if (numClaimedBeforeClose == -1) {
+      numClaimedBeforeClose = tail.getAndAdd(CLOSED);
+    }
+  }
+
+  /**
+   * Must be called by the consumer when it terminates, so that the producers waiting for a free
+   * slot return.
+   */
+  void terminate() {
+    consumerTerminated = true;
+  }
+
+}
@@ -0,0 +1,154 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.audit.services;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Test of {@link AuditFileWriter} and {@link CachedDateFormatter}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class AuditFileWriterTest {
+
+  private static final DateTimeFormatter FILE_DATE = DateTimeFormatter.ofPattern("yyyy.MM.dd");
+
+  private File dir;
+
+  @Before
+  public void createDir() throws IOException {
+    dir = Files.createTempDirectory("audit").toFile();
+  }
+
+  @After
+  public void deleteDir() {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  @Test
+  public void linesAreBuffered() throws Exception {
+    long now = System.currentTimeMillis();
+    File file = new File(dir, "audit-" + fileDate(now) + ".log");
+
+    // lines longer than the buffer, and multi-byte characters crossing the buffer boundary.
+    String longLine = repeat("0123456789", 10);
+    String utf8Line = repeat("ä中", 20);
+    try (AuditFileWriter writer = new AuditFileWriter(dir, "audit-", ".log", 0, 16, 3_600_000, false)) {
+      writer.write(now, "line1");
+      // the buffer is not flushed within the flush interval.
+      Assert.assertEquals(0, file.length());
+
+      writer.write(now, longLine);
+      writer.write(now, utf8Line);
+      writer.flush();
+      Assert.assertEquals(Arrays.asList("line1", longLine, utf8Line), readLines(file));
+
+      // the flush interval has elapsed, the line is written inline.
+      writer.write(now + 2 * 3_600_000, "line4");
+      Assert.assertEquals(4, readLines(file).size());
+    }
+  } // method linesAreBuffered
+
+  @Test
+  public void closeFlushes() throws Exception {
+    long now = System.currentTimeMillis();
+    File file = new File(dir, "audit-" + fileDate(now) + ".log");
+    AuditFileWriter writer = new AuditFileWriter(dir, "audit-", ".log", 0, 1024, 3_600_000, true);
+    writer.write(now, "line1");
+    writer.close();
+    Assert.assertEquals(Collections.singletonList("line1"), readLines(file));
+
+    // the existing file is appended.
+    writer = new AuditFileWriter(dir, "audit-", ".log", 0, 1024, 3_600_000, false);
+    writer.write(now, "line2");
+    writer.close();
+    Assert.assertEquals(Arrays.asList("line1", "line2"), readLines(file));
+  } // method closeFlushes
+
+  @Test
+  public void rotateBySize() throws Exception {
+    long now = System.currentTimeMillis();
+    String coreName = "audit-" + fileDate(now);
+    try (AuditFileWriter writer = new AuditFileWriter(dir, "audit-", ".log", 20, 1024, 0, false)) {
+      // 10 bytes per line, the file is rolled over once it reaches 20 bytes.
+      for (int i = 0; i < 5; i++) {
+        writer.write(now, "line-" + i + "...");
+      }
+    }
+
+    Assert.assertEquals(Arrays.asList("line-0...", "line-1..."), readLines(new File(dir, coreName + "-1.log")));
+    Assert.assertEquals(Arrays.asList("line-2...", "line-3..."), readLines(new File(dir, coreName + "-2.log")));
+    Assert.assertEquals(Collections.singletonList("line-4..."), readLines(new File(dir, coreName + ".log")));
+  } // method rotateBySize
+
+  @Test
+  public void rotateByDay() throws Exception {
+    long now = System.currentTimeMillis();
+    long tomorrow = now + 24L * 3600 * 1000;
+    try (AuditFileWriter writer = new AuditFileWriter(dir, "audit-", ".log", 0, 1024, 3_600_000, false)) {
+      writer.write(now, "today");
+      writer.write(tomorrow, "tomorrow");
+    }
+
+    Assert.assertEquals(Collections.singletonList("today"),
+        readLines(new File(dir, "audit-" + fileDate(now) + ".log")));
+    Assert.assertEquals(Collections.singletonList("tomorrow"),
+        readLines(new File(dir, "audit-" + fileDate(tomorrow) + ".log")));
+  } // method rotateByDay
+
+  @Test
+  public void cachedDateFormatter() {
+    ZoneId zone = ZoneId.of("Europe/Berlin");
+    DateTimeFormatter dtf = DateTimeFormatter.ofPattern("yyyy.MM.dd-HH:mm:ss.SSS").withZone(zone);
+    CachedDateFormatter formatter = new CachedDateFormatter(zone);
+
+    long base = Instant.parse("2024-03-31T00:59:59Z").toEpochMilli();
+    // same second, next second across the change of the daylight saving time, and before 1970.
+    long[] times = {base, base + 7, base + 99, base + 999, base + 1000, base + 1001, -1, -1001, 0};
+    for (long time : times) {
+      Assert.assertEquals(dtf.format(Instant.ofEpochMilli(time)), formatter.format(time));
+    }
+
+    StringBuilder sb = new StringBuilder("[");
+    formatter.appendTo(sb, base + 5).append(']');
+    Assert.assertEquals("[2024.03.31-01:59:59.005]", sb.toString());
+  } // method cachedDateFormatter
+
+  private static String fileDate(long epochMillis) {
+    return FILE_DATE.format(Instant.ofEpochMilli(epochMillis).atZone(ZoneId.systemDefault()));
+  }
+
+  private static List<String> readLines(File file) throws IOException {
+    return Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+  }
+
+  private static String repeat(String str, int times) {
+    StringBuilder sb = new StringBuilder(str.length() * times);
+    for (int i = 0; i < times; i++) {
+      sb.append(str);
+    }
+    return sb.toString();
+  }
+
+}
@@ -0,0 +1,178 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.audit.services;
+
+import org.xipki.util.BenchmarkExecutor;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Benchmark of the audit write throughput: {@link AuditFileWriter} with {@link CachedDateFormatter}
+ * against the writer used before, which formats the full date and queries the file size for
+ * each line.
+ * <p>
+ * This is not a JUnit test, run {@link #main(String[])} with the test classpath:
+ * <pre>
+ *   AuditWriteBenchmark [buffered|baseline] [threads] [duration]
+ * </pre>
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class AuditWriteBenchmark extends BenchmarkExecutor {
+
+  private interface LineWriter {
+
+    void write(long epochMillis, String message) throws IOException;
+
+    void close() throws IOException;
+
+  } // interface LineWriter
+
+  /**
+   * The {@link AuditFileWriter} with the date formatted by {@link CachedDateFormatter}.
+   */
+  private static class BufferedLineWriter implements LineWriter {
+
+    private final CachedDateFormatter dateFormatter = new CachedDateFormatter(ZoneId.systemDefault());
+
+    private final AuditFileWriter writer;
+
+    BufferedLineWriter(File dir) throws IOException {
+      this.writer = new AuditFileWriter(dir, "audit_", ".log", 0, 64 * 1024, 10_000, false);
+    }
+
+    @Override
+    public void write(long epochMillis, String message) throws IOException {
+      StringBuilder sb = new StringBuilder(40 + message.length());
+      dateFormatter.appendTo(sb, epochMillis).append(DELIM).append("INFO").append(DELIM).append(1)
+          .append(DELIM).append(message);
+      writer.write(epochMillis, sb);
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+
+  } // class BufferedLineWriter
+
+  /**
+   * The writer used before {@link AuditFileWriter}.
+   */
+  private static class BaselineLineWriter implements LineWriter {
+
+    private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy.MM.dd-HH:mm:ss.SSS");
+
+    private final ZoneId timeZone = ZoneId.systemDefault();
+
+    private final Path path;
+
+    private final OutputStreamWriter writer;
+
+    private long lastFlushed;
+
+    BaselineLineWriter(File dir) throws IOException {
+      File file = new File(dir, "audit_baseline.log");
+      this.path = file.toPath();
+      this.writer = new OutputStreamWriter(new FileOutputStream(file, true), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void write(long epochMillis, String message) throws IOException {
+      String payload = DTF.format(Instant.ofEpochMilli(epochMillis).atZone(timeZone))
+          + DELIM + "INFO" + DELIM + 1 + DELIM + message;
+      // the size was queried to decide the size-based rotation.
+      Files.size(path);
+      writer.write(payload);
+      writer.write('\n');
+
+      if (epochMillis > lastFlushed + 10_000) {
+        writer.flush();
+        lastFlushed = epochMillis;
+      }
+    }
+
+    @Override
+    public void close() throws IOException {
+      writer.close();
+    }
+
+  } // class BaselineLineWriter
+
+  private class Tester implements Runnable {
+
+    private static final int BATCH = 100;
+
+    @Override
+    public void run() {
+      while (!stop() && getErrorAccount() < 1) {
+        try {
+          for (int i = 0; i < BATCH; i++) {
+            writer.write(System.currentTimeMillis(), MESSAGE);
+          }
+          account(BATCH, 0);
+        } catch (IOException ex) {
+          System.err.println("error writing audit line: " + ex.getMessage());
+          account(BATCH, BATCH);
+        }
+      }
+    }
+
+  } // class Tester
+
+  private static final String DELIM = " | ";
+
+  private static final String MESSAGE = "CA | ENROLL | tid=ZGVhZGJlZWY | profile=tls | "
+      + "subject=CN=www.example.com,O=example | status=successful";
+
+  private final File dir;
+
+  private final LineWriter writer;
+
+  public AuditWriteBenchmark(boolean buffered) throws IOException {
+    super("audit write, " + (buffered ? "AuditFileWriter" : "baseline"));
+    this.dir = Files.createTempDirectory("audit-benchmark").toFile();
+    this.writer = buffered ? new BufferedLineWriter(dir) : new BaselineLineWriter(dir);
+  }
+
+  @Override
+  protected Runnable getTester() {
+    return new Tester();
+  }
+
+  @Override
+  public void close() {
+    try {
+      writer.close();
+    } catch (IOException ex) {
+      System.err.println("error closing audit writer: " + ex.getMessage());
+    }
+
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File file : files) {
+        file.delete();
+      }
+    }
+    dir.delete();
+  }
+
+  public static void main(String[] args) throws Exception {
+    boolean buffered = args.length < 1 || !"baseline".equalsIgnoreCase(args[0]);
+    int threads = args.length < 2 ? 4 : Integer.parseInt(args[1]);
+    String duration = args.length < 3 ? "10s" : args[2];
+
+    new AuditWriteBenchmark(buffered).setThreads(threads).setDuration(duration).setUnit("lines").execute();
+  }
+
+}
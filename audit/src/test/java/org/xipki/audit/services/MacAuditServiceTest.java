@@ -0,0 +1,296 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.audit.services;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.audit.AuditEvent;
+import org.xipki.audit.AuditLevel;
+import org.xipki.audit.AuditServiceRuntimeException;
+import org.xipki.util.ConfPairs;
+import org.xipki.util.exception.InvalidConfException;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test of the asynchronous mode of {@link MacAuditService}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class MacAuditServiceTest {
+
+  private static class MemoryMacAuditService extends MacAuditService {
+
+    private final List<long[]> ids = new ArrayList<>();
+
+    private final List<String> tags = new ArrayList<>();
+
+    private final List<String> messages = new ArrayList<>();
+
+    private volatile int logFailures;
+
+    private volatile int integrityFailures;
+
+    private volatile String integrityText;
+
+    private ConfPairs conf;
+
+    @Override
+    public void init(ConfPairs conf) throws InvalidConfException {
+      this.conf = conf;
+      super.init(conf);
+    }
+
+    @Override
+    protected synchronized void storeLog(Instant date, long thisId, int eventType, String levelText,
+                                         long previousId, String message, String thisTag) {
+      ids.add(new long[]{thisId, previousId});
+      tags.add(thisTag);
+      messages.add(message);
+    }
+
+    @Override
+    protected void storeLogs(List<LogEntry> entries) {
+      if (logFailures > 0) {
+        logFailures--;
+        throw new IllegalStateException("storeLogs failed");
+      }
+      super.storeLogs(entries);
+    }
+
+    @Override
+    protected void storeIntegrity(String integrityText) {
+      if (integrityFailures > 0) {
+        integrityFailures--;
+        throw new IllegalStateException("storeIntegrity failed");
+      }
+      this.integrityText = integrityText;
+    }
+
+    @Override
+    protected void doClose() {
+    }
+
+    synchronized void assertChain(int expectedSize) {
+      Assert.assertEquals("number of entries", expectedSize, ids.size());
+      for (int i = 0; i < ids.size(); i++) {
+        Assert.assertEquals("id", i + 1, ids.get(i)[0]);
+        Assert.assertEquals("previousId", i, ids.get(i)[1]);
+      }
+
+      if (expectedSize > 0) {
+        // throws exception if the integrity text does not cover the last entry.
+        verify(expectedSize, tags.get(expectedSize - 1), integrityText, conf);
+      }
+    }
+
+  } // class MemoryMacAuditService
+
+  @Test
+  public void storeConcurrentEventsInOrder() throws Exception {
+    MemoryMacAuditService service = newService("8", "4");
+
+    final int numThreads = 4;
+    final int numEvents = 50;
+    Thread[] threads = new Thread[numThreads];
+    for (int i = 0; i < numThreads; i++) {
+      final String prefix = "t" + i + "-";
+      threads[i] = new Thread(() -> {
+        for (int j = 0; j < numEvents; j++) {
+          service.logEvent(newEvent(prefix + j));
+        }
+      });
+      threads[i].start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    service.close();
+
+    service.assertChain(numThreads * numEvents);
+
+    // the events of one thread are stored in the order they have been logged.
+    for (int i = 0; i < numThreads; i++) {
+      String prefix = "t" + i + "-";
+      int next = 0;
+      for (String message : service.messages) {
+        if (message.contains(" " + prefix)) {
+          Assert.assertTrue("order of " + prefix, message.endsWith(" " + prefix + next));
+          next++;
+        }
+      }
+      Assert.assertEquals(numEvents, next);
+    }
+  }
+
+  @Test
+  public void retryFailedBatch() throws Exception {
+    MemoryMacAuditService service = newService(null, null);
+    service.logFailures = 2;
+    service.logEvent(newEvent("event-1"));
+    Assert.assertEquals(0, service.logFailures);
+    service.logEvent(newEvent("event-2"));
+    service.close();
+
+    service.assertChain(2);
+  }
+
+  @Test
+  public void failedBatchFailsWaiters() throws Exception {
+    MemoryMacAuditService service = newService(null, null);
+    service.logFailures = Integer.MAX_VALUE;
+    try {
+      service.logEvent(newEvent("event-1"));
+      Assert.fail("AuditServiceRuntimeException expected");
+    } catch (AuditServiceRuntimeException ex) {
+      // expected
+    }
+
+    // the next event gets the id of the dropped one and is chained to the last stored entry.
+    service.logFailures = 0;
+    service.logEvent(newEvent("event-2"));
+    service.close();
+
+    service.assertChain(1);
+    Assert.assertTrue(service.messages.get(0).contains("event-2"));
+  }
+
+  @Test
+  public void failedIntegrityIsStoredWithNextBatch() throws Exception {
+    MemoryMacAuditService service = newService(null, null);
+    service.integrityFailures = Integer.MAX_VALUE;
+    try {
+      service.logEvent(newEvent("event-1"));
+      Assert.fail("AuditServiceRuntimeException expected");
+    } catch (AuditServiceRuntimeException ex) {
+      // expected
+    }
+
+    // the entry has been stored, the id is not reused.
+    service.integrityFailures = 0;
+    service.logEvent(newEvent("event-2"));
+    service.close();
+
+    service.assertChain(2);
+  }
+
+  @Test
+  public void logAfterCloseDoesNotHang() throws Exception {
+    MemoryMacAuditService service = newService(null, null);
+    service.logEvent(newEvent("event-1"));
+    service.close();
+
+    Thread thread = new Thread(() -> service.logEvent(newEvent("event-2")));
+    thread.start();
+    thread.join(5000);
+    Assert.assertFalse("logEvent hangs after close", thread.isAlive());
+
+    service.assertChain(1);
+  }
+
+  @Test
+  public void putReturnsWhenConsumerTerminated() throws Exception {
+    MpscRingBuffer<String> buffer = new MpscRingBuffer<>(1);
+    Assert.assertTrue(buffer.put("a"));
+
+    AtomicBoolean result = new AtomicBoolean(true);
+    Thread producer = new Thread(() -> result.set(buffer.put("b")));
+    producer.start();
+    producer.join(200);
+    Assert.assertTrue("producer shall wait while the buffer is full", producer.isAlive());
+
+    // the consumer terminates
+    buffer.terminate();
+    producer.join(5000);
+    Assert.assertFalse("producer hangs after the consumer terminated", producer.isAlive());
+    Assert.assertFalse(result.get());
+    Assert.assertFalse(buffer.put("c"));
+  }
+
+  @Test
+  public void closeKeepsAcceptedElements() throws Exception {
+    MpscRingBuffer<String> buffer = new MpscRingBuffer<>(4);
+    Assert.assertTrue(buffer.put("a"));
+    Assert.assertTrue(buffer.put("b"));
+    buffer.close();
+    Assert.assertFalse(buffer.put("c"));
+    Assert.assertFalse(buffer.isClosedAndEmpty());
+
+    List<String> out = new ArrayList<>();
+    Assert.assertEquals(2, buffer.drainTo(out, 10));
+    Assert.assertEquals(Arrays.asList("a", "b"), out);
+    Assert.assertTrue(buffer.isClosedAndEmpty());
+  }
+
+  @Test
+  public void noElementLostWhileClosing() throws Exception {
+    for (int round = 0; round < 20; round++) {
+      MpscRingBuffer<Integer> buffer = new MpscRingBuffer<>(16);
+      AtomicInteger accepted = new AtomicInteger();
+
+      Thread[] producers = new Thread[4];
+      for (int i = 0; i < producers.length; i++) {
+        producers[i] = new Thread(() -> {
+          while (buffer.put(1)) {
+            accepted.incrementAndGet();
+          }
+        });
+        producers[i].start();
+      }
+
+      int[] consumed = new int[1];
+      Thread consumer = new Thread(() -> {
+        List<Integer> out = new ArrayList<>();
+        while (!buffer.isClosedAndEmpty()) {
+          out.clear();
+          consumed[0] += buffer.drainTo(out, 8);
+        }
+        buffer.terminate();
+      });
+      consumer.start();
+
+      Thread.sleep(5);
+      buffer.close();
+
+      consumer.join(5000);
+      Assert.assertFalse("consumer hangs after close", consumer.isAlive());
+      for (Thread producer : producers) {
+        producer.join(5000);
+        Assert.assertFalse("producer hangs after close", producer.isAlive());
+      }
+      Assert.assertEquals("round " + round, accepted.get(), consumed[0]);
+    }
+  } // method noElementLostWhileClosing
+
+  private static MemoryMacAuditService newService(String queueSize, String batchSize) throws Exception {
+    ConfPairs conf = new ConfPairs()
+        .putPair(MacAuditService.KEY_KEYID, "key-1")
+        .putPair(MacAuditService.KEY_PASSWORD, "1234")
+        .putPair(MacAuditService.KEY_ASYNC, "true");
+    if (queueSize != null) {
+      conf.putPair(MacAuditService.KEY_QUEUE_SIZE, queueSize);
+    }
+    if (batchSize != null) {
+      conf.putPair(MacAuditService.KEY_BATCH_SIZE, batchSize);
+    }
+
+    MemoryMacAuditService service = new MemoryMacAuditService();
+    service.init(conf);
+    return service;
+  }
+
+  private static AuditEvent newEvent(String name) {
+    AuditEvent event = new AuditEvent("test");
+    event.setLevel(AuditLevel.INFO);
+    event.setEventType(name);
+    return event;
+  }
+
+}
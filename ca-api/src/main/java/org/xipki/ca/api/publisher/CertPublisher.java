@@ -4,13 +4,20 @@
 package org.xipki.ca.api.publisher;
 
 import org.bouncycastle.cert.X509CRLHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.CertificateInfo;
 import org.xipki.ca.api.DataSourceMap;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.X509Cert;
+import org.xipki.security.util.X509Util;
+import org.xipki.util.LogUtil;
 
 import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.security.cert.CRLException;
 
 /**
  * Defines how to publish the certificates and CRLs. All CertPublisher classes must extend this
@@ -22,6 +29,8 @@ import java.io.Closeable;
 
 public abstract class CertPublisher implements Closeable {
 
+  private static final Logger LOG = LoggerFactory.getLogger(CertPublisher.class);
+
   protected CertPublisher() {
   }
 
@@ -110,6 +119,28 @@ public abstract class CertPublisher implements Closeable {
    */
   public abstract boolean crlAdded(X509Cert caCert, X509CRLHolder crl);
 
+  /**
+   * Publishes a CRL contained in a file. This default implementation parses the CRL and calls
+   * {@link #crlAdded(X509Cert, X509CRLHolder)}. Publishers which do not need the parsed CRL should
+   * overwrite this method, so that the CRL is not held in memory.
+   *
+   * @param caCert
+   *          CA certificate. Must not be {@code null}.
+   * @param crlFile
+   *          File containing the DER encoded CRL to be published. Must not be {@code null}.
+   * @return whether the CRL is published.
+   */
+  public boolean crlAdded(X509Cert caCert, File crlFile) {
+    X509CRLHolder crl;
+    try {
+      crl = X509Util.parseCrl(crlFile);
+    } catch (IOException | CRLException ex) {
+      LogUtil.error(LOG, ex, "could not parse CRL file " + crlFile.getPath());
+      return false;
+    }
+    return crlAdded(caCert, crl);
+  } // method crlAdded
+
   /**
    * Publishes the revocation of a CA.
    *
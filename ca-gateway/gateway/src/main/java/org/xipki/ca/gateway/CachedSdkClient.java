@@ -0,0 +1,265 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.gateway;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.util.encoders.Hex;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.gateway.conf.GatewayConf;
+import org.xipki.ca.sdk.CertprofileInfoResponse;
+import org.xipki.ca.sdk.SdkClient;
+import org.xipki.ca.sdk.SdkClientConf;
+import org.xipki.ca.sdk.SdkErrorResponseException;
+import org.xipki.pki.ErrorCode;
+import org.xipki.util.Args;
+import org.xipki.util.LogUtil;
+import org.xipki.util.exception.ObjectCreationException;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+
+/**
+ * {@link SdkClient} which caches the read-only objects (CA certificates, current CRLs and
+ * certificate profile information) fetched from the CA.
+ * <p>
+ * A cached CRL expires at the earlier of its TTL and its nextUpdate, and is dropped when
+ * a new CRL is generated via this client. Concurrent misses of the same object are
+ * de-duplicated, only one request is sent to the CA. A load which is in progress while the
+ * object is dropped does not put its result into the cache. Errors are not cached.
+ * <p>
+ * The cached byte arrays are shared by all callers and must not be modified.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+
+public class CachedSdkClient extends SdkClient {
+
+  private static class CacheEntry {
+
+    private final Object value;
+
+    private final long expiresAt;
+
+    CacheEntry(Object value, long expiresAt) {
+      this.value = value;
+      this.expiresAt = expiresAt;
+    }
+
+  } // class CacheEntry
+
+  private static class CrlInfo {
+
+    private final byte[] crl;
+
+    private final BigInteger crlNumber;
+
+    private final Instant nextUpdate;
+
+    CrlInfo(byte[] crl, BigInteger crlNumber, Instant nextUpdate) {
+      this.crl = crl;
+      this.crlNumber = crlNumber;
+      this.nextUpdate = nextUpdate;
+    }
+
+  } // class CrlInfo
+
+  private interface Loader<T> {
+
+    T load() throws SdkErrorResponseException;
+
+  } // interface Loader
+
+  private static final Logger LOG = LoggerFactory.getLogger(CachedSdkClient.class);
+
+  private final long caCertsTtlMs;
+
+  private final long crlTtlMs;
+
+  private final long profileInfoTtlMs;
+
+  private final ConcurrentHashMap<String, CacheEntry> cache = new ConcurrentHashMap<>();
+
+  private final ConcurrentHashMap<String, CompletableFuture<Object>> inflight = new ConcurrentHashMap<>();
+
+  public CachedSdkClient(SdkClientConf conf, GatewayConf.SdkCacheConf cacheConf) throws ObjectCreationException {
+    super(conf);
+    Args.notNull(cacheConf, "cacheConf");
+    this.caCertsTtlMs = cacheConf.getCaCertsTtlSeconds() * 1000L;
+    this.crlTtlMs = cacheConf.getCrlTtlSeconds() * 1000L;
+    this.profileInfoTtlMs = cacheConf.getProfileInfoTtlSeconds() * 1000L;
+  }
+
+  CachedSdkClient(String serverUrl, GatewayConf.SdkCacheConf cacheConf) {
+    super(serverUrl, null, null);
+    Args.notNull(cacheConf, "cacheConf");
+    this.caCertsTtlMs = cacheConf.getCaCertsTtlSeconds() * 1000L;
+    this.crlTtlMs = cacheConf.getCrlTtlSeconds() * 1000L;
+    this.profileInfoTtlMs = cacheConf.getProfileInfoTtlSeconds() * 1000L;
+  }
+
+  @Override
+  public byte[] cacert(String ca) throws SdkErrorResponseException {
+    return get("cacert:" + ca, caCertsTtlMs, () -> super.cacert(ca));
+  }
+
+  @Override
+  public byte[][] cacerts(String ca) throws SdkErrorResponseException {
+    return get("cacerts:" + ca, caCertsTtlMs, () -> super.cacerts(ca));
+  }
+
+  @Override
+  public byte[] cacertBySubject(byte[] subject) throws SdkErrorResponseException {
+    return get("cacert2:" + Hex.toHexString(subject), caCertsTtlMs, () -> super.cacertBySubject(subject));
+  }
+
+  @Override
+  public byte[][] cacertsBySubject(byte[] subject) throws SdkErrorResponseException {
+    return get("cacerts2:" + Hex.toHexString(subject), caCertsTtlMs, () -> super.cacertsBySubject(subject));
+  }
+
+  @Override
+  public CertprofileInfoResponse profileInfo(String ca, String profileName) throws SdkErrorResponseException {
+    return get("profileinfo:" + ca + ":" + profileName, profileInfoTtlMs, () -> super.profileInfo(ca, profileName));
+  }
+
+  @Override
+  public byte[] generateCrl(String ca, String crldp) throws SdkErrorResponseException {
+    byte[] crl = super.generateCrl(ca, crldp);
+    // the current CRL has been replaced.
+    invalidate(crlKey(ca));
+    return crl;
+  }
+
+  @Override
+  public byte[] currentCrl(String ca, BigInteger crlNumber, Instant thisUpdate, String crlDp)
+      throws SdkErrorResponseException {
+    if (thisUpdate != null || crlDp != null) {
+      return super.currentCrl(ca, crlNumber, thisUpdate, crlDp);
+    }
+
+    if (crlNumber != null) {
+      // serve the request from the cache only if the cached CRL is the requested one.
+      CacheEntry entry = cache.get(crlKey(ca));
+      if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+        CrlInfo crlInfo = (CrlInfo) entry.value;
+        if (crlNumber.equals(crlInfo.crlNumber)) {
+          return crlInfo.crl;
+        }
+      }
+      return super.currentCrl(ca, crlNumber, null, null);
+    }
+
+    CrlInfo crlInfo = get(crlKey(ca), crlTtlMs, () -> parseCrl(super.currentCrl(ca, null, null, null)));
+    return crlInfo == null ? null : crlInfo.crl;
+  } // method currentCrl
+
+  /**
+   * Drops the cached object. The load in progress (if any) is detached, so that its result,
+   * which may be stale, is not put into the cache, and the next miss loads the object again.
+   */
+  private void invalidate(String key) {
+    // cache.remove() and the check in get() both run under the lock of the key in inflight.
+    inflight.compute(key, (k, loading) -> {
+      cache.remove(k);
+      return null;
+    });
+  } // method invalidate
+
+  private static String crlKey(String ca) {
+    return "crl:" + ca;
+  }
+
+  private static CrlInfo parseCrl(byte[] crl) {
+    if (crl == null) {
+      return null;
+    }
+
+    BigInteger crlNumber = null;
+    Instant nextUpdate = null;
+    try {
+      X509CRLHolder crlHolder = new X509CRLHolder(crl);
+      Extension extn = crlHolder.getExtension(Extension.cRLNumber);
+      if (extn != null) {
+        crlNumber = ASN1Integer.getInstance(extn.getParsedValue()).getPositiveValue();
+      }
+      if (crlHolder.getNextUpdate() != null) {
+        nextUpdate = crlHolder.getNextUpdate().toInstant();
+      }
+    } catch (Exception ex) {
+      // cache it with the TTL only.
+      LogUtil.warn(LOG, ex, "could not parse the CRL");
+    }
+    return new CrlInfo(crl, crlNumber, nextUpdate);
+  } // method parseCrl
+
+  @SuppressWarnings("unchecked")
+  private <T> T get(String key, long ttlMs, Loader<T> loader) throws SdkErrorResponseException {
+    if (ttlMs <= 0) {
+      return loader.load();
+    }
+
+    CacheEntry entry = cache.get(key);
+    if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+      return (T) entry.value;
+    }
+
+    CompletableFuture<Object> future = new CompletableFuture<>();
+    CompletableFuture<Object> loading = inflight.putIfAbsent(key, future);
+    if (loading != null) {
+      // another thread is fetching the same object, wait for its result.
+      try {
+        return (T) loading.get();
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new SdkErrorResponseException(ErrorCode.SYSTEM_FAILURE, "interrupted");
+      } catch (ExecutionException ex) {
+        Throwable cause = ex.getCause();
+        if (cause instanceof SdkErrorResponseException) {
+          throw (SdkErrorResponseException) cause;
+        } else if (cause instanceof RuntimeException) {
+          throw (RuntimeException) cause;
+        } else {
+          throw new SdkErrorResponseException(ErrorCode.SYSTEM_FAILURE, cause.getMessage());
+        }
+      }
+    }
+
+    try {
+      T value = loader.load();
+      long expiresAt = System.currentTimeMillis() + ttlMs;
+      if (value instanceof CrlInfo) {
+        Instant nextUpdate = ((CrlInfo) value).nextUpdate;
+        if (nextUpdate != null) {
+          expiresAt = Math.min(expiresAt, nextUpdate.toEpochMilli());
+        }
+      }
+
+      if (value != null) {
+        CacheEntry newEntry = new CacheEntry(value, expiresAt);
+        // cache it only if this load has not been detached by invalidate().
+        inflight.computeIfPresent(key, (k, current) -> {
+          if (current == future) {
+            cache.put(k, newEntry);
+          }
+          return current;
+        });
+      }
+      future.complete(value);
+      return value;
+    } catch (SdkErrorResponseException | RuntimeException ex) {
+      future.completeExceptionally(ex);
+      throw ex;
+    } finally {
+      inflight.remove(key, future);
+    }
+  } // method get
+
+}
@@ -30,6 +30,7 @@ import org.xipki.ca.gateway.scep.ScepHttpServlet;
 import org.xipki.ca.gateway.scep.ScepProtocolConf;
 import org.xipki.ca.gateway.scep.ScepResponder;
 import org.xipki.ca.sdk.SdkClient;
+import org.xipki.ca.sdk.SdkClientConf;
 import org.xipki.security.ConcurrentContentSigner;
 import org.xipki.security.Securities;
 import org.xipki.security.X509Cert;
@@ -79,6 +80,8 @@ public class GatewayHttpFilter implements XiHttpFilter {
 
   private Securities securities;
 
+  private GatewayConf.SdkCacheConf sdkCacheConf;
+
   static {
     LOG.info("XiPKI CA Protocol Gateway version {}", StringUtil.getBundleVersion(AcmeResponder.class));
   }
@@ -107,7 +110,8 @@ public class GatewayHttpFilter implements XiHttpFilter {
       throw new InvalidConfException("could not init AuditService");
     }
 
-    SdkClient gSdkClient = new SdkClient(gatewayConf.getSdkClient());
+    sdkCacheConf = gatewayConf.getSdkCache();
+    SdkClient gSdkClient = newSdkClient(gatewayConf.getSdkClient());
     boolean gLogReqResp = gatewayConf.isLogReqResp();
     String reverseProxyMode = gatewayConf.getReverseProxyMode();
     PopControl gPopControl = new PopControl(gatewayConf.getPop());
@@ -145,6 +149,10 @@ public class GatewayHttpFilter implements XiHttpFilter {
     GatewayUtil.auditLogPciEvent(LOG, "Gateway", true, "START");
   }
 
+  private SdkClient newSdkClient(SdkClientConf conf) throws ObjectCreationException {
+    return sdkCacheConf == null ? new SdkClient(conf) : new CachedSdkClient(conf, sdkCacheConf);
+  }
+
   private void initAcme(boolean gLogReqResp, SdkClient gSdkClient, PopControl gPopControl) {
     try {
       AcmeProtocolConf pconf = AcmeProtocolConf.readConfFromFile(IoUtil.expandFilepath(ACME_CFG, true));
@@ -155,7 +163,7 @@ public class GatewayHttpFilter implements XiHttpFilter {
 
       SdkClient sdkClient = gSdkClient;
       if (pconf.getSdkClient() != null) {
-        sdkClient = new SdkClient(pconf.getSdkClient());
+        sdkClient = newSdkClient(pconf.getSdkClient());
         sdkClient.setLogReqResp(logReqResp);
       }
 
@@ -184,7 +192,7 @@ public class GatewayHttpFilter implements XiHttpFilter {
 
       SdkClient sdkClient = gSdkClient;
       if (pconf.getSdkClient() != null) {
-        sdkClient = new SdkClient(pconf.getSdkClient());
+        sdkClient = newSdkClient(pconf.getSdkClient());
         sdkClient.setLogReqResp(logReqResp);
       }
 
@@ -217,7 +225,7 @@ public class GatewayHttpFilter implements XiHttpFilter {
 
       SdkClient sdkClient = gSdkClient;
       if (pconf.getSdkClient() != null) {
-        sdkClient = new SdkClient(pconf.getSdkClient());
+        sdkClient = newSdkClient(pconf.getSdkClient());
         sdkClient.setLogReqResp(logReqResp);
       }
 
@@ -249,7 +257,7 @@ public class GatewayHttpFilter implements XiHttpFilter {
 
       SdkClient sdkClient = gSdkClient;
       if (pconf.getSdkClient() != null) {
-        sdkClient = new SdkClient(pconf.getSdkClient());
+        sdkClient = newSdkClient(pconf.getSdkClient());
         sdkClient.setLogReqResp(logReqResp);
       }
 
@@ -281,7 +289,7 @@ public class GatewayHttpFilter implements XiHttpFilter {
 
       SdkClient sdkClient = gSdkClient;
       if (pconf.getSdkClient() != null) {
-        sdkClient = new SdkClient(pconf.getSdkClient());
+        sdkClient = newSdkClient(pconf.getSdkClient());
         sdkClient.setLogReqResp(logReqResp);
       }
 
@@ -12,12 +12,12 @@ import org.xipki.ca.gateway.acme.type.ChallengeStatus;
 import org.xipki.ca.gateway.acme.type.OrderStatus;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.security.util.DrbgRandom;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.Base64Url;
 import org.xipki.util.CompareUtil;
 
-import java.security.SecureRandom;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -68,7 +68,7 @@ public class AcmeDataSource {
 
   private final DataSourceWrapper dataSource;
 
-  private final SecureRandom rnd = new SecureRandom();
+  private final DrbgRandom rnd = DrbgRandom.getInstance();
 
   private IdChecker idChecker;
 
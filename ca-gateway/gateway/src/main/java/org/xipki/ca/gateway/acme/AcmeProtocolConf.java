@@ -73,6 +73,26 @@ public class AcmeProtocolConf extends ProtocolConf {
 
     private int syncDbSeconds = 60;
 
+    /**
+     * Number of threads to validate the challenges.
+     */
+    private int validatorThreads = 20;
+
+    /**
+     * Number of threads to enroll the certificates.
+     */
+    private int enrollerThreads = 10;
+
+    /**
+     * Timeout of the connection to (and DNS query for) the client host during the validation.
+     */
+    private int validationTimeoutSeconds = 10;
+
+    /**
+     * Maximal number of concurrent validations of challenges for the same host.
+     */
+    private int maxValidationsPerHost = 2;
+
     private String dbConf;
 
     // optional. If not set, any valid email address will be accepted.
@@ -111,6 +131,38 @@ public class AcmeProtocolConf extends ProtocolConf {
       this.syncDbSeconds = syncDbSeconds;
     }
 
+    public int getValidatorThreads() {
+      return validatorThreads;
+    }
+
+    public void setValidatorThreads(int validatorThreads) {
+      this.validatorThreads = validatorThreads;
+    }
+
+    public int getEnrollerThreads() {
+      return enrollerThreads;
+    }
+
+    public void setEnrollerThreads(int enrollerThreads) {
+      this.enrollerThreads = enrollerThreads;
+    }
+
+    public int getValidationTimeoutSeconds() {
+      return validationTimeoutSeconds;
+    }
+
+    public void setValidationTimeoutSeconds(int validationTimeoutSeconds) {
+      this.validationTimeoutSeconds = validationTimeoutSeconds;
+    }
+
+    public int getMaxValidationsPerHost() {
+      return maxValidationsPerHost;
+    }
+
+    public void setMaxValidationsPerHost(int maxValidationsPerHost) {
+      this.maxValidationsPerHost = maxValidationsPerHost;
+    }
+
     public int getCacheSize() {
       return cacheSize;
     }
@@ -208,6 +260,18 @@ public class AcmeProtocolConf extends ProtocolConf {
         throw new InvalidConfException("syncDbSeconds must be not less than 1");
       }
 
+      if (validatorThreads < 1 || enrollerThreads < 1) {
+        throw new InvalidConfException("validatorThreads and enrollerThreads must be not less than 1");
+      }
+
+      if (validationTimeoutSeconds < 1) {
+        throw new InvalidConfException("validationTimeoutSeconds must be not less than 1");
+      }
+
+      if (maxValidationsPerHost < 1) {
+        throw new InvalidConfException("maxValidationsPerHost must be not less than 1");
+      }
+
       if (nonceNumBytes < 12) {
         throw new InvalidConfException("nonceNumBytes must be not less than 12");
       }
@@ -51,6 +51,7 @@ import org.xipki.security.CrlReason;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.SecurityFactory;
 import org.xipki.security.SignAlgo;
+import org.xipki.security.util.DrbgRandom;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.Base64Url;
@@ -74,7 +75,6 @@ import java.nio.charset.StandardCharsets;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
-import java.security.SecureRandom;
 import java.security.Signature;
 import java.security.SignatureException;
 import java.security.spec.InvalidKeySpecException;
@@ -208,7 +208,7 @@ public class AcmeResponder {
 
   private final Set<String> challengeTypes;
 
-  private final SecureRandom rnd;
+  private final DrbgRandom rnd;
 
   private final AcmeRepo repo;
 
@@ -357,7 +357,7 @@ public class AcmeResponder {
       }
     }
 
-    rnd = new SecureRandom();
+    rnd = DrbgRandom.getInstance();
 
     if (conf.getDbConf() == null) {
       throw new InvalidConfException("dbConf is not specified");
@@ -372,8 +372,9 @@ public class AcmeResponder {
       throw new InvalidConfException("could not initialize database", ex);
     }
 
-    this.challengeValidator = new ChallengeValidator(repo);
-    this.certEnroller = new CertEnroller(repo, sdk);
+    this.challengeValidator = new ChallengeValidator(repo, conf.getValidatorThreads(),
+        conf.getValidationTimeoutSeconds(), conf.getMaxValidationsPerHost());
+    this.certEnroller = new CertEnroller(repo, sdk, conf.getEnrollerThreads());
   }
 
   private static String addQuoteSign(String text) {
@@ -398,6 +399,14 @@ public class AcmeResponder {
     repo.start();
   }
 
+  public AcmeWorker.Metrics getValidationMetrics() {
+    return challengeValidator.getMetrics();
+  }
+
+  public AcmeWorker.Metrics getEnrollmentMetrics() {
+    return certEnroller.getMetrics();
+  }
+
   public void close() {
     challengeValidator.close();
     certEnroller.close();
@@ -1126,8 +1135,10 @@ public class AcmeResponder {
 
         LOG.info("finalized order {}", order.idText());
 
-        return buildSuccJsonResp(SC_OK, order.toResponse(baseUrl))
+        HttpResponse ret = buildSuccJsonResp(SC_OK, order.toResponse(baseUrl))
             .putHeader(HDR_LOCATION, order.getLocation(baseUrl));
+        certEnroller.submit(order.getId());
+        return ret;
       }
       case CMD_cert: {
         String id = tokens[1];
@@ -1199,6 +1210,9 @@ public class AcmeResponder {
         HttpResponse ret = buildSuccJsonResp(SC_OK, resp);//.putHeader(HDR_RETRY_AFTER, "2"); // wait for 2 seconds
         String authzUrl = chall2.getChallenge().getAuthz().getUrl(baseUrl);
         ret.putHeader(HDR_LINK, "<" + authzUrl + ">;rel=\"up\"");
+        if (status == ChallengeStatus.pending) {
+          challengeValidator.submit(challId);
+        }
         return ret;
       }
       default: {
@@ -0,0 +1,291 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.gateway.acme;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.util.Args;
+import org.xipki.util.LogUtil;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Work queue processed by a bounded pool, virtual threads are used if available (Java 21+).
+ * <p>
+ * The tasks are submitted directly by the {@link AcmeResponder} via {@link #submit(Object)}.
+ * Since the tasks are not persisted, {@link #run()} periodically sweeps the repository for
+ * tasks which are not processed yet, e.g. those saved in the database before a restart.
+ * The same task is never processed concurrently, and the tasks with the same
+ * {@link #serialKey(Object)} are processed one after another. The queue of the pool is bounded,
+ * a task rejected because of a full queue is submitted again by the next sweep.
+ *
+ * @param <K> the type of the task identifier.
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+public abstract class AcmeWorker<K> implements Runnable {
+
+  /**
+   * Latency (from the submission to the completion) of the tasks.
+   */
+  public static class Metrics {
+
+    private final LongAdder succeeded = new LongAdder();
+
+    private final LongAdder failed = new LongAdder();
+
+    private final LongAdder totalNanos = new LongAdder();
+
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    void record(boolean success, long nanos) {
+      (success ? succeeded : failed).increment();
+      totalNanos.add(nanos);
+      maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getSucceeded() {
+      return succeeded.sum();
+    }
+
+    public long getFailed() {
+      return failed.sum();
+    }
+
+    public long getAverageMillis() {
+      long count = getSucceeded() + getFailed();
+      return count == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalNanos.sum() / count);
+    }
+
+    public long getMaxMillis() {
+      return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+    }
+
+    @Override
+    public String toString() {
+      return "succeeded=" + getSucceeded() + ", failed=" + getFailed()
+          + ", avg=" + getAverageMillis() + "ms, max=" + getMaxMillis() + "ms";
+    }
+
+  } // class Metrics
+
+  private static class Task<K> {
+
+    private final K id;
+
+    private final long submitted;
+
+    private Task(K id, long submitted) {
+      this.id = id;
+      this.submitted = submitted;
+    }
+
+  } // class Task
+
+  private static final Logger LOG = LoggerFactory.getLogger(AcmeWorker.class);
+
+  private static final int DEFAULT_QUEUE_SIZE = 10000;
+
+  private static final long SWEEP_INTERVAL_MS = 5000;
+
+  private static final long LOG_METRICS_INTERVAL_MS = 5 * 60 * 1000;
+
+  private final String name;
+
+  private final ThreadPoolExecutor executor;
+
+  private final Set<K> inProgress = ConcurrentHashMap.newKeySet();
+
+  /**
+   * The tasks waiting for the running task with the same serial key. A key is present as long as
+   * a task with this key is queued or running.
+   */
+  private final ConcurrentHashMap<Object, ArrayDeque<Task<K>>> serialQueues = new ConcurrentHashMap<>();
+
+  private final Metrics metrics = new Metrics();
+
+  private volatile boolean stopMe;
+
+  AcmeWorker(String name, int threads) {
+    this(name, threads, DEFAULT_QUEUE_SIZE);
+  }
+
+  AcmeWorker(String name, int threads, int queueSize) {
+    this.name = Args.notBlank(name, "name");
+    Args.positive(threads, "threads");
+    Args.positive(queueSize, "queueSize");
+    this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(queueSize), newThreadFactory(name));
+    this.executor.allowCoreThreadTimeOut(true);
+  }
+
+  /**
+   * Returns the identifiers of the tasks to be processed.
+   * @return the identifiers.
+   * @throws AcmeSystemException if error occurs.
+   */
+  protected abstract Iterator<K> getTasks() throws AcmeSystemException;
+
+  /**
+   * Processes the task.
+   * @param id the task identifier.
+   * @return {@code true} if succeeded, {@code false} if failed, and {@code null} if the task
+   *         has not been processed (e.g. has been processed before or is postponed).
+   * @throws AcmeSystemException if error occurs.
+   */
+  protected abstract Boolean process(K id) throws AcmeSystemException;
+
+  /**
+   * Returns the key of the task. The tasks with the same key are processed one after another.
+   * @param id the task identifier.
+   * @return the key, defaults to the task identifier.
+   */
+  protected Object serialKey(K id) {
+    return id;
+  }
+
+  public Metrics getMetrics() {
+    return metrics;
+  }
+
+  /**
+   * Submits the task. Ignored if the task is already queued or being processed.
+   * @param id the task identifier.
+   */
+  public void submit(K id) {
+    if (stopMe || id == null || !inProgress.add(id)) {
+      return;
+    }
+
+    Task<K> task = new Task<>(id, System.nanoTime());
+    Object key = serialKey(id);
+    boolean[] first = new boolean[1];
+    serialQueues.compute(key, (k, queue) -> {
+      if (queue == null) {
+        first[0] = true;
+        return new ArrayDeque<>(2);
+      } else {
+        // processed after the running task with the same key.
+        queue.add(task);
+        return queue;
+      }
+    });
+
+    if (first[0]) {
+      execute(key, task);
+    }
+  } // method submit
+
+  private void execute(Object key, Task<K> task) {
+    while (task != null) {
+      Task<K> thisTask = task;
+      try {
+        executor.execute(() -> runTask(key, thisTask));
+        return;
+      } catch (RejectedExecutionException ex) {
+        // queue is full or the worker is closed, will be submitted again by the next sweep.
+        inProgress.remove(thisTask.id);
+        task = pollNext(key);
+      }
+    }
+  } // method execute
+
+  private void runTask(Object key, Task<K> task) {
+    Boolean success = null;
+    try {
+      success = process(task.id);
+    } catch (Throwable t) {
+      success = false;
+      LogUtil.error(LOG, t, name + ": error processing " + task.id);
+    } finally {
+      inProgress.remove(task.id);
+      if (success != null) {
+        metrics.record(success, System.nanoTime() - task.submitted);
+      }
+    }
+
+    execute(key, pollNext(key));
+  } // method runTask
+
+  private Task<K> pollNext(Object key) {
+    AtomicReference<Task<K>> next = new AtomicReference<>();
+    serialQueues.computeIfPresent(key, (k, queue) -> {
+      next.set(queue.poll());
+      return next.get() == null ? null : queue;
+    });
+    return next.get();
+  } // method pollNext
+
+  @Override
+  public void run() {
+    long lastLogged = System.currentTimeMillis();
+    String lastMetrics = metrics.toString();
+
+    while (!stopMe) {
+      try {
+        Iterator<K> ids = getTasks();
+        while (ids.hasNext()) {
+          submit(ids.next());
+        }
+      } catch (Throwable t) {
+        LogUtil.error(LOG, t, name + ": unexpected error");
+      }
+
+      long now = System.currentTimeMillis();
+      if (now - lastLogged >= LOG_METRICS_INTERVAL_MS) {
+        lastLogged = now;
+        String text = metrics.toString();
+        if (!text.equals(lastMetrics)) {
+          lastMetrics = text;
+          LOG.info("{}: {}", name, text);
+        }
+      }
+
+      try {
+        Thread.sleep(SWEEP_INTERVAL_MS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        LOG.info("{}: interrupted, stop sweeping", name);
+        break;
+      }
+    }
+  } // method run
+
+  public void close() {
+    stopMe = true;
+    executor.shutdownNow();
+  }
+
+  private static ThreadFactory newThreadFactory(String name) {
+    try {
+      // Thread.ofVirtual().name(name + "-", 0).factory(), available since Java 21
+      Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name + "-", 0L);
+      return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+    } catch (Exception ex) {
+      LOG.debug("virtual threads are not available, use platform threads");
+    }
+
+    AtomicInteger index = new AtomicInteger();
+    return r -> {
+      Thread t = new Thread(r, name + "-" + index.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    };
+  } // method newThreadFactory
+
+}
@@ -28,7 +28,7 @@ import java.util.Iterator;
  *
  * @author Lijun Liao (xipki)
  */
-public class CertEnroller implements Runnable {
+public class CertEnroller extends AcmeWorker<Long> {
 
   private static final Logger LOG = LoggerFactory.getLogger(CertEnroller.class);
 
@@ -36,122 +36,107 @@ public class CertEnroller implements Runnable {
 
   private final SdkClient sdk;
 
-  public CertEnroller(AcmeRepo repo, SdkClient sdk) {
+  public CertEnroller(AcmeRepo repo, SdkClient sdk, int threads) {
+    super("certEnroller", threads);
     this.repo = Args.notNull(repo, "repo");
     this.sdk = Args.notNull(sdk, "sdk");
   }
 
-  private boolean stopMe;
-
   @Override
-  public void run() {
-    while (!stopMe) {
-      try {
-        singleRun();
-      } catch (Throwable t) {
-        LogUtil.error(LOG, t, "expected error");
-      }
+  protected Iterator<Long> getTasks() throws AcmeSystemException {
+    return repo.getOrdersToEnroll();
+  }
 
-      try {
-        Thread.sleep(1000); // sleep for 1 second.
-      } catch (InterruptedException e) {
-      }
+  @Override
+  protected Boolean process(Long orderId) throws AcmeSystemException {
+    String orderIdStr = AcmeUtils.toBase64(orderId) + " (" + orderId + ")";
+    LOG.info("try to enroll certificate for order {}", orderIdStr);
+
+    AcmeOrder order = repo.getOrder(orderId);
+    if (order == null) {
+      LOG.error("found no order for id {}", orderIdStr);
+      return null;
     }
-  }
 
-  public void singleRun() throws AcmeSystemException {
-    Iterator<Long> orderIds = repo.getOrdersToEnroll();
+    if (order.getStatus() != OrderStatus.processing) {
+      // has been enrolled before.
+      return null;
+    }
 
-    while (orderIds.hasNext()) {
-      Long orderId = orderIds.next();
-      if (orderId == null) {
-        continue;
-      }
+    byte[] csr = order.getCsr();
+    if (csr == null) {
+      // if the order is read from database, csr is null in the object, even present in the database
+      csr = repo.getCsr(orderId);
+    }
 
-      String orderIdStr = AcmeUtils.toBase64(orderId) + " (" + orderId + ")";
-      LOG.info("try to enroll certificate for order {}", orderIdStr);
+    if (csr == null) {
+      LOG.error("found not CSR for order {}", orderIdStr);
+      return null;
+    }
 
-      AcmeOrder order = repo.getOrder(orderId);
-      if (order == null) {
-        LOG.error("found no order for id {}", orderIdStr);
-        continue;
-      }
+    EnrollCertsRequest.Entry entry = new EnrollCertsRequest.Entry();
+    CertReqMeta certReqMeta = order.getCertReqMeta();
+    entry.setNotBefore(certReqMeta.getNotBefore());
+    entry.setNotAfter(certReqMeta.getNotAfter());
+    entry.setCertprofile(certReqMeta.getCertProfile());
 
-      byte[] csr = order.getCsr();
-      if (csr == null) {
-        // if the order is read from database, csr is null in the object, even present in the database
-        csr = repo.getCsr(orderId);
-      }
+    if (certReqMeta.getSubject() == null) {
+      entry.setP10req(csr);
+    } else {
+      entry.setSubject(new X500NameType(certReqMeta.getSubject()));
 
-      if (csr == null) {
-        LOG.error("found not CSR for order {}", orderIdStr);
-        continue;
+      CertificationRequest p10Req;
+      try {
+        p10Req = GatewayUtil.parseCsrInRequest(csr);
+        Extensions extensions = X509Util.getExtensions(p10Req.getCertificationRequestInfo());
+        if (extensions != null) {
+          entry.setExtensions(extensions.getEncoded());
+        }
+        entry.setSubjectPublicKey(p10Req.getCertificationRequestInfo().getSubjectPublicKeyInfo().getEncoded());
+      } catch (IOException | OperationException e) {
+        throw new AcmeSystemException(e);
       }
+    }
 
-      EnrollCertsRequest.Entry entry = new EnrollCertsRequest.Entry();
-      CertReqMeta certReqMeta = order.getCertReqMeta();
-      entry.setNotBefore(certReqMeta.getNotBefore());
-      entry.setNotAfter(certReqMeta.getNotAfter());
-      entry.setCertprofile(certReqMeta.getCertProfile());
-
-      if (certReqMeta.getSubject() == null) {
-        entry.setP10req(csr);
-      } else {
-        entry.setSubject(new X500NameType(certReqMeta.getSubject()));
-
-        CertificationRequest p10Req;
+    EnrollCertsRequest sdkReq = new EnrollCertsRequest();
+    sdkReq.setCaCertMode(CertsMode.NONE);
+    sdkReq.setEntries(new EnrollCertsRequest.Entry[]{entry});
+
+    LOG.info("start enrolling certificate for order {}", orderIdStr);
+    try {
+      EnrollOrPollCertsResponse sdkResp = sdk.enrollCerts(certReqMeta.getCa(), sdkReq);
+      EnrollOrPollCertsResponse.Entry sdkRespEntry = sdkResp.getEntries()[0];
+      byte[] certBytes = sdkRespEntry.getCert();
+      boolean valid = certBytes != null;
+      if (valid) {
+        // check the certificate
         try {
-          p10Req = GatewayUtil.parseCsrInRequest(csr);
-          Extensions extensions = X509Util.getExtensions(p10Req.getCertificationRequestInfo());
-          if (extensions != null) {
-            entry.setExtensions(extensions.getEncoded());
-          }
-          entry.setSubjectPublicKey(p10Req.getCertificationRequestInfo().getSubjectPublicKeyInfo().getEncoded());
-        } catch (IOException | OperationException e) {
-          throw new AcmeSystemException(e);
+          Certificate.getInstance(certBytes);
+        } catch (Exception ex) {
+          LogUtil.error(LOG, ex, "Error parsing enrolled certificate for order " + orderIdStr);
+          valid = false;
         }
+      } else {
+        LOG.error("CA returned error for the order {}: {}", orderIdStr, sdkRespEntry.getError());
       }
 
-      EnrollCertsRequest sdkReq = new EnrollCertsRequest();
-      sdkReq.setCaCertMode(CertsMode.NONE);
-      sdkReq.setEntries(new EnrollCertsRequest.Entry[]{entry});
-
-      LOG.info("start enrolling certificate for order {}", orderIdStr);
-      try {
-        EnrollOrPollCertsResponse sdkResp = sdk.enrollCerts(certReqMeta.getCa(), sdkReq);
-        EnrollOrPollCertsResponse.Entry sdkRespEntry = sdkResp.getEntries()[0];
-        byte[] certBytes = sdkRespEntry.getCert();
-        boolean valid = certBytes != null;
-        if (valid) {
-          // check the certificate
-          try {
-            Certificate.getInstance(certBytes);
-          } catch (Exception ex) {
-            LogUtil.error(LOG, ex, "Error parsing enrolled certificate for order " + orderIdStr);
-            valid = false;
-          }
-        } else {
-          LOG.error("CA returned error for the order {}: {}", orderIdStr, sdkRespEntry.getError());
-        }
-
-        if (valid) {
-          LOG.info("enrolled certificate for order {}", orderIdStr);
-          order.setCert(certBytes);
-          order.setStatus(OrderStatus.valid);
-        } else {
-          order.setStatus(OrderStatus.invalid);
-        }
-
-        repo.flushOrderIfNotCached(order);
-      } catch (Throwable t) {
-        LogUtil.error(LOG, t);
+      if (valid) {
+        LOG.info("enrolled certificate for order {}", orderIdStr);
+        order.setCert(certBytes);
+        order.setStatus(OrderStatus.valid);
+      } else {
         order.setStatus(OrderStatus.invalid);
       }
-    }
-  }
 
-  public void close() {
-    stopMe = true;
-  }
+      repo.flushOrderIfNotCached(order);
+      return valid;
+    } catch (Throwable t) {
+      LogUtil.error(LOG, t);
+      order.setStatus(OrderStatus.invalid);
+      return false;
+    }
+  } // method process
 
 }
+
+
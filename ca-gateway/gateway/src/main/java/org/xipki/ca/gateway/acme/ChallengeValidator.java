@@ -10,8 +10,10 @@ import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.asn1.x509.GeneralNames;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xbill.DNS.ExtendedResolver;
 import org.xbill.DNS.Lookup;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.Resolver;
 import org.xbill.DNS.TXTRecord;
 import org.xbill.DNS.TextParseException;
 import org.xbill.DNS.Type;
@@ -19,8 +21,6 @@ import org.xipki.ca.gateway.acme.type.ChallengeStatus;
 import org.xipki.util.Args;
 import org.xipki.util.Base64Url;
 import org.xipki.util.LogUtil;
-import org.xipki.util.http.HttpRespContent;
-import org.xipki.util.http.XiHttpClient;
 
 import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLParameters;
@@ -31,21 +31,28 @@ import javax.net.ssl.TrustManager;
 import javax.net.ssl.X509TrustManager;
 import java.io.IOException;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
 import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
 import java.security.KeyManagementException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.Certificate;
 import java.security.cert.X509Certificate;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  *
  * @author Lijun Liao (xipki)
  */
-public class ChallengeValidator implements Runnable {
+public class ChallengeValidator extends AcmeWorker<ChallId> {
 
   private static final TrustManager trustAll = new X509TrustManager() {
     @Override
@@ -62,191 +69,234 @@ public class ChallengeValidator implements Runnable {
     }
   };
 
-  private static final Logger LOG = LoggerFactory.getLogger(CertEnroller.class);
+  private static final Logger LOG = LoggerFactory.getLogger(ChallengeValidator.class);
 
   private final AcmeRepo repo;
 
-  public ChallengeValidator(AcmeRepo repo) {
+  private final Duration timeout;
+
+  private final int maxValidationsPerHost;
+
+  private final ConcurrentHashMap<String, Integer> hostValidations = new ConcurrentHashMap<>();
+
+  private final HttpClient httpClient;
+
+  private final Resolver dnsResolver;
+
+  public ChallengeValidator(AcmeRepo repo, int threads, int timeoutSeconds, int maxValidationsPerHost) {
+    super("challengeValidator", threads);
     this.repo = Args.notNull(repo, "repo");
+    this.timeout = Duration.ofSeconds(Args.positive(timeoutSeconds, "timeoutSeconds"));
+    this.maxValidationsPerHost = Args.positive(maxValidationsPerHost, "maxValidationsPerHost");
+    this.httpClient = HttpClient.newBuilder().connectTimeout(timeout)
+        .followRedirects(HttpClient.Redirect.NORMAL).build();
+    ExtendedResolver resolver = new ExtendedResolver();
+    resolver.setTimeout(timeout);
+    this.dnsResolver = resolver;
   }
 
-  private boolean stopMe;
+  @Override
+  protected Iterator<ChallId> getTasks() throws AcmeSystemException {
+    return repo.getChallengesToValidate();
+  }
 
+  /**
+   * The challenges of one order are validated one after another, since the validation updates
+   * the order.
+   */
   @Override
-  public void run() {
-    while (!stopMe) {
-      try {
-        singleRun();
-      } catch (Throwable t) {
-        LogUtil.error(LOG, t, "expected error");
-      }
+  protected Object serialKey(ChallId challId) {
+    return challId.getOrderId();
+  }
 
-      try {
-        Thread.sleep(1000); // sleep for 1 second.
-      } catch (InterruptedException e) {
-      }
+  @Override
+  protected Boolean process(ChallId challId) throws AcmeSystemException {
+    AcmeChallenge2 chall2 = repo.getChallenge(challId);
+    if (chall2 == null || chall2.getChallenge().getStatus() != ChallengeStatus.processing) {
+      return null;
+    }
+
+    String host = chall2.getIdentifier().getValue();
+    if (host.startsWith("*.")) {
+      host = host.substring(2);
     }
+
+    if (!acquireHost(host)) {
+      // will be validated in the next sweep.
+      LOG.debug("too many concurrent validations for host {}, postpone challenge {}", host, challId);
+      return null;
+    }
+
+    try {
+      return validate(challId, chall2);
+    } finally {
+      releaseHost(host);
+    }
+  } // method process
+
+  private boolean acquireHost(String host) {
+    boolean[] acquired = new boolean[1];
+    hostValidations.compute(host, (k, count) -> {
+      int c = count == null ? 0 : count;
+      acquired[0] = c < maxValidationsPerHost;
+      return acquired[0] ? c + 1 : c;
+    });
+    return acquired[0];
   }
 
-  public void singleRun() throws AcmeSystemException {
-    Iterator<ChallId> challIds = repo.getChallengesToValidate();
+  private void releaseHost(String host) {
+    hostValidations.computeIfPresent(host, (k, count) -> count <= 1 ? null : count - 1);
+  }
 
-    while (challIds.hasNext()) {
-      ChallId challId = challIds.next();
-      if (challId == null) {
-        continue;
-      }
+  private boolean validate(ChallId challId, AcmeChallenge2 chall2) throws AcmeSystemException {
+    LOG.info("validate challenge {}", challId);
 
-      LOG.info("validate challenge {}", challId);
+    AcmeChallenge chall = chall2.getChallenge();
+    String type = chall.getType();
+    String receivedAuthorization = null;
+    AcmeIdentifier identifier = chall2.getIdentifier();
 
-      AcmeChallenge2 chall2 = repo.getChallenge(challId);
-      if (chall2 == null) {
-        continue;
+    if (LOG.isDebugEnabled()) {
+      String host = identifier.getValue();
+      if (host.startsWith("*.")) {
+        host = host.substring(2);
       }
 
-      AcmeChallenge chall = chall2.getChallenge();
-      String type = chall.getType();
-      String receivedAuthorization = null;
-      AcmeIdentifier identifier = chall2.getIdentifier();
-      // boolean authorizationValid = false;
+      try {
+        InetAddress inetAddr = InetAddress.getByName(host);
+        LOG.debug("type={}, host={}, InetAddress={}", type, host, inetAddr);
+      } catch (UnknownHostException e) {
+        LOG.debug("type={}, host={}, UnknownHostException", type, host);
+      }
+    }
 
-      if (LOG.isDebugEnabled()) {
+    switch (type) {
+      case AcmeConstants.HTTP_01: {
         String host = identifier.getValue();
-        if (host.startsWith("*.")) {
-          host = host.substring(2);
-        }
-
+        // host = "localhost:9081";
+        String url = "http://" + host + "/.well-known/acme-challenge/" + chall.getToken();
         try {
-          InetAddress inetAddr = InetAddress.getByName(host);
-          LOG.debug("type={}, host={}, InetAddress={}", type, host, inetAddr);
-        } catch (UnknownHostException e) {
-          LOG.debug("type={}, host={}, UnknownHostException", type, host);
+          HttpRequest request = HttpRequest.newBuilder(URI.create(url)).timeout(timeout).GET().build();
+          HttpResponse<byte[]> authzResp = httpClient.send(request, HttpResponse.BodyHandlers.ofByteArray());
+          receivedAuthorization = new String(authzResp.body(), StandardCharsets.UTF_8);
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+          throw new AcmeSystemException(ex);
+        } catch (IOException | IllegalArgumentException ex) {
+          String message = "error while validating challenge " + challId + " for identifier " + identifier;
+          LogUtil.error(LOG, ex, message);
         }
+        break;
       }
-
-      switch (type) {
-        case AcmeConstants.HTTP_01: {
-          String host = identifier.getValue();
-          // host = "localhost:9081";
-          String url = "http://" + host + "/.well-known/acme-challenge/" + chall.getToken();
-          try {
-            org.xipki.util.http.XiHttpClient client = new XiHttpClient();
-            HttpRespContent authzResp = client.httpGet(url);
-            receivedAuthorization = new String(authzResp.getContent(), StandardCharsets.UTF_8);
-          } catch (IOException ex) {
-            String message = "error while validating challenge " + challId + " for identifier " + identifier;
-            LogUtil.error(LOG, ex, message);
+      case AcmeConstants.TLS_ALPN_01: {
+        Certificate[] certs = null;
+        try {
+          SSLContext sslContext = SSLContext.getInstance("TLS");
+          sslContext.init(null, new TrustManager[]{trustAll}, null);
+          SSLSocketFactory factory = sslContext.getSocketFactory();
+          try (SSLSocket socket = (SSLSocket) factory.createSocket()) {
+            int timeoutMs = (int) timeout.toMillis();
+            socket.connect(new InetSocketAddress(identifier.getValue(), 443), timeoutMs);
+            socket.setSoTimeout(timeoutMs);
+            SSLParameters params = socket.getSSLParameters();
+            params.setApplicationProtocols(new String[]{"acme-tls/1.0"});
+            params.setProtocols(new String[]{"TLSv1.2", "TLSv1.3"});
+            socket.setSSLParameters(params);
+
+            SSLSession session = socket.getSession();
+            certs = session.getPeerCertificates();
           }
-          break;
+        } catch (NoSuchAlgorithmException | IOException | KeyManagementException ex) {
+          String message = "error while validating challenge " + challId + " for identifier " + identifier;
+          LogUtil.error(LOG, ex, message);
         }
-        case AcmeConstants.TLS_ALPN_01: {
-          Certificate[] certs = null;
-          try {
-            SSLContext sslContext = SSLContext.getInstance("TLS");
-            sslContext.init(null, new TrustManager[]{trustAll}, null);
-            SSLSocketFactory factory = sslContext.getSocketFactory();
-            try (SSLSocket socket = (SSLSocket) factory.createSocket(identifier.getValue(), 443)) {
-              SSLParameters params = socket.getSSLParameters();
-              params.setApplicationProtocols(new String[]{"acme-tls/1.0"});
-              params.setProtocols(new String[]{"TLSv1.2", "TLSv1.3"});
-              socket.setSSLParameters(params);
-
-              SSLSession session = socket.getSession();
-              certs = session.getPeerCertificates();
-            }
-          } catch (NoSuchAlgorithmException | IOException | KeyManagementException ex) {
-            String message = "error while validating challenge " + challId + " for identifier " + identifier;
-            LogUtil.error(LOG, ex, message);
-          }
 
-          boolean match = certs != null && certs.length > 0 && certs[0] instanceof X509Certificate;
-          // check the SAN
+        boolean match = certs != null && certs.length > 0 && certs[0] instanceof X509Certificate;
+        // check the SAN
+        if (match) {
+          X509Certificate cert = (X509Certificate) certs[0];
+          byte[] extnValue = cert.getExtensionValue(Extension.subjectAlternativeName.getId());
+          byte[] octets = ASN1OctetString.getInstance(extnValue).getOctets();
+          GeneralNames generalNames = GeneralNames.getInstance(octets);
+          GeneralName[] names = generalNames.getNames();
+          match = (names != null && names.length == 1 && names[0].getTagNo() == GeneralName.dNSName);
           if (match) {
-            X509Certificate cert = (X509Certificate) certs[0];
-            byte[] extnValue = cert.getExtensionValue(Extension.subjectAlternativeName.getId());
-            byte[] octets = ASN1OctetString.getInstance(extnValue).getOctets();
-            GeneralNames generalNames = GeneralNames.getInstance(octets);
-            GeneralName[] names = generalNames.getNames();
-            match = (names != null && names.length == 1 && names[0].getTagNo() == GeneralName.dNSName);
-            if (match) {
-              String sanValue = ASN1IA5String.getInstance(names[0].getName()).getString();
-              match = identifier.getValue().equals(sanValue);
-            }
+            String sanValue = ASN1IA5String.getInstance(names[0].getName()).getString();
+            match = identifier.getValue().equals(sanValue);
           }
+        }
 
+        if (match) {
+          X509Certificate cert = (X509Certificate) certs[0];
+          // check the critical extension id_pe_acmeIdentifier
+          match = cert.getCriticalExtensionOIDs().contains(AcmeConstants.id_pe_acmeIdentifier);
           if (match) {
-            X509Certificate cert = (X509Certificate) certs[0];
-            // check the critical extension id_pe_acmeIdentifier
-            match = cert.getCriticalExtensionOIDs().contains(AcmeConstants.id_pe_acmeIdentifier);
-            if (match) {
-              byte[] extnValue = cert.getExtensionValue(AcmeConstants.id_pe_acmeIdentifier);
-              byte[] octets = ASN1OctetString.getInstance(extnValue).getOctets();
-              byte[] value = ASN1OctetString.getInstance(octets).getOctets();
-              receivedAuthorization = Base64Url.encodeToStringNoPadding(value);
-            }
+            byte[] extnValue = cert.getExtensionValue(AcmeConstants.id_pe_acmeIdentifier);
+            byte[] octets = ASN1OctetString.getInstance(extnValue).getOctets();
+            byte[] value = ASN1OctetString.getInstance(octets).getOctets();
+            receivedAuthorization = Base64Url.encodeToStringNoPadding(value);
           }
-          break;
         }
-        case AcmeConstants.DNS_01: {
-          String host = identifier.getValue();
-          if (host.startsWith("*.")) {
-            host = host.substring(2);
-          }
-
-          LOG.debug("dns-01: host='{}'", identifier.getValue());
-          Record[] records = null;
-          try {
-            records = new Lookup(host, Type.TXT).run();
-          } catch (TextParseException ex) {
-            String message = "error while validating challenge " + challId + " for identifier " + identifier;
-            LogUtil.error(LOG, ex, message);
-          }
+        break;
+      }
+      case AcmeConstants.DNS_01: {
+        String host = identifier.getValue();
+        if (host.startsWith("*.")) {
+          host = host.substring(2);
+        }
 
-          String expectedName = "_acme-challenge." + host + ".";
-          if (records != null) {
-            for (Record record : records) {
-              TXTRecord txt = (TXTRecord) record;
-              String name = txt.getName().toString();
-              if (!expectedName.equals(name)) {
-                continue;
-              }
+        LOG.debug("dns-01: host='{}'", identifier.getValue());
+        Record[] records = null;
+        try {
+          Lookup lookup = new Lookup(host, Type.TXT);
+          lookup.setResolver(dnsResolver);
+          records = lookup.run();
+        } catch (TextParseException ex) {
+          String message = "error while validating challenge " + challId + " for identifier " + identifier;
+          LogUtil.error(LOG, ex, message);
+        }
 
-              receivedAuthorization = txt.getStrings().get(0);
+        String expectedName = "_acme-challenge." + host + ".";
+        if (records != null) {
+          for (Record record : records) {
+            TXTRecord txt = (TXTRecord) record;
+            String name = txt.getName().toString();
+            if (!expectedName.equals(name)) {
+              continue;
             }
+
+            receivedAuthorization = txt.getStrings().get(0);
           }
-          break;
-        }
-        default: {
-          throw new RuntimeException("should not reach here, unknown challenge type '" + type + "'");
         }
+        break;
       }
-
-      boolean authorizationValid = false;
-      if (receivedAuthorization != null) {
-        authorizationValid = chall.getExpectedAuthorization().equals(receivedAuthorization.trim());
+      default: {
+        throw new RuntimeException("should not reach here, unknown challenge type '" + type + "'");
       }
+    }
 
-      if (authorizationValid) {
-        LOG.info("validated challenge {}/{} for identifier {}/{}", chall.getType(), challId,
-            identifier.getType(), identifier.getValue());
-        chall.setValidated(Instant.now().truncatedTo(ChronoUnit.SECONDS));
-        chall.setStatus(ChallengeStatus.valid);
-      } else {
-        LOG.warn("validation failed for challenge {}/{} for identifier {}/{}: received='{}', expected='{}'",
-            chall.getType(), challId, identifier.getType(), identifier.getValue(),
-            receivedAuthorization, chall.getExpectedAuthorization());
-        chall.setStatus(ChallengeStatus.invalid);
-      }
+    boolean authorizationValid = false;
+    if (receivedAuthorization != null) {
+      authorizationValid = chall.getExpectedAuthorization().equals(receivedAuthorization.trim());
+    }
 
-      if (chall.getAuthz() != null && chall.getAuthz().getOrder() != null) {
-        repo.flushOrderIfNotCached(chall.getAuthz().getOrder());
-      }
+    if (authorizationValid) {
+      LOG.info("validated challenge {}/{} for identifier {}/{}", chall.getType(), challId,
+          identifier.getType(), identifier.getValue());
+      chall.setValidated(Instant.now().truncatedTo(ChronoUnit.SECONDS));
+      chall.setStatus(ChallengeStatus.valid);
+    } else {
+      LOG.warn("validation failed for challenge {}/{} for identifier {}/{}: received='{}', expected='{}'",
+          chall.getType(), challId, identifier.getType(), identifier.getValue(),
+          receivedAuthorization, chall.getExpectedAuthorization());
+      chall.setStatus(ChallengeStatus.invalid);
     }
 
-  }
+    if (chall.getAuthz() != null && chall.getAuthz().getOrder() != null) {
+      repo.flushOrderIfNotCached(chall.getAuthz().getOrder());
+    }
 
-  public void close() {
-    stopMe = true;
-  }
+    return authorizationValid;
+  } // method validate
 
 }
@@ -5,6 +5,7 @@ package org.xipki.ca.gateway.acme;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.xipki.security.util.DrbgRandom;
 import org.xipki.util.Base64Url;
 import org.xipki.util.LogUtil;
 
@@ -17,7 +18,6 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.security.SecureRandom;
 import java.time.Clock;
 import java.util.Map;
 import java.util.StringTokenizer;
@@ -41,7 +41,7 @@ public class NonceManager {
   // default to 10 minutes
   private long validityMs = 10L * 60 * 1000;
 
-  private final SecureRandom rnd = new SecureRandom();
+  private final DrbgRandom rnd = DrbgRandom.getInstance();
 
   public NonceManager(int nonceNumBytes) {
     this.nonceNumBytes = nonceNumBytes;
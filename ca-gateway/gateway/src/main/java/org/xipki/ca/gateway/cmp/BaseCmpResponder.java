@@ -88,6 +88,7 @@ import org.xipki.security.HashAlgo;
 import org.xipki.security.SecurityFactory;
 import org.xipki.security.SignAlgo;
 import org.xipki.security.X509Cert;
+import org.xipki.security.util.DrbgRandom;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
 import org.xipki.util.LogUtil;
@@ -104,7 +105,6 @@ import java.security.InvalidAlgorithmParameterException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
 import java.security.PublicKey;
-import java.security.SecureRandom;
 import java.security.interfaces.ECPublicKey;
 import java.security.interfaces.RSAPublicKey;
 import java.text.ParseException;
@@ -161,7 +161,7 @@ public abstract class BaseCmpResponder {
 
   protected final SecurityFactory securityFactory;
 
-  private final SecureRandom random = new SecureRandom();
+  private final DrbgRandom random = DrbgRandom.getInstance();
 
   protected final SdkClient sdk;
 
@@ -75,6 +75,60 @@ public class GatewayConf extends ValidableConf {
     }
   }
 
+  /**
+   * Configuration of the gateway-side cache of the read-only objects fetched from the CA.
+   * @since 6.5.4
+   */
+  public static class SdkCacheConf extends ValidableConf {
+
+    /**
+     * Time to live in seconds of the CA certificate (chains).
+     */
+    private int caCertsTtlSeconds = 600;
+
+    /**
+     * Time to live in seconds of the current CRL. A CRL is never cached after its nextUpdate.
+     */
+    private int crlTtlSeconds = 300;
+
+    /**
+     * Time to live in seconds of the certificate profile information.
+     */
+    private int profileInfoTtlSeconds = 600;
+
+    public int getCaCertsTtlSeconds() {
+      return caCertsTtlSeconds;
+    }
+
+    public void setCaCertsTtlSeconds(int caCertsTtlSeconds) {
+      this.caCertsTtlSeconds = caCertsTtlSeconds;
+    }
+
+    public int getCrlTtlSeconds() {
+      return crlTtlSeconds;
+    }
+
+    public void setCrlTtlSeconds(int crlTtlSeconds) {
+      this.crlTtlSeconds = crlTtlSeconds;
+    }
+
+    public int getProfileInfoTtlSeconds() {
+      return profileInfoTtlSeconds;
+    }
+
+    public void setProfileInfoTtlSeconds(int profileInfoTtlSeconds) {
+      this.profileInfoTtlSeconds = profileInfoTtlSeconds;
+    }
+
+    @Override
+    public void validate() throws InvalidConfException {
+      if (caCertsTtlSeconds < 0 || crlTtlSeconds < 0 || profileInfoTtlSeconds < 0) {
+        throw new InvalidConfException("TTL of the sdkCache must be not negative");
+      }
+    }
+
+  } // class SdkCacheConf
+
   private SupportedProtocols protocols;
 
   private boolean logReqResp;
@@ -85,6 +139,8 @@ public class GatewayConf extends ValidableConf {
 
   private SdkClientConf sdkClient;
 
+  private SdkCacheConf sdkCache;
+
   private Audits.AuditConf audit;
 
   private Securities.SecurityConf security;
@@ -144,6 +200,14 @@ public class GatewayConf extends ValidableConf {
     this.security = security;
   }
 
+  public SdkCacheConf getSdkCache() {
+    return sdkCache;
+  }
+
+  public void setSdkCache(SdkCacheConf sdkCache) {
+    this.sdkCache = sdkCache;
+  }
+
   public SupportedProtocols getProtocols() {
     return protocols;
   }
@@ -159,6 +223,7 @@ public class GatewayConf extends ValidableConf {
     notNull(pop, "pop");
     notNull(sdkClient, "sdkClient");
     notNull(security, "security");
+    validate(sdkCache);
   }
 
 }
@@ -0,0 +1,120 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.gateway;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.gateway.conf.GatewayConf;
+import org.xipki.ca.sdk.CrlResponse;
+import org.xipki.ca.sdk.SdkConstants;
+import org.xipki.ca.sdk.SdkErrorResponseException;
+import org.xipki.ca.sdk.SdkRequest;
+import org.xipki.pki.ErrorCode;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * JUnit test case of {@link CachedSdkClient}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CachedSdkClientTest {
+
+  /**
+   * Simulates the CA, the CRL is not parseable and is cached with the TTL only.
+   */
+  private static class TestClient extends CachedSdkClient {
+
+    private volatile String currentCrl = "crl-1";
+
+    private final AtomicInteger crlRequests = new AtomicInteger();
+
+    private volatile CountDownLatch crlRequestStarted;
+
+    private volatile CountDownLatch releaseCrlRequest;
+
+    TestClient() {
+      super("https://localhost/ca/", new GatewayConf.SdkCacheConf());
+    }
+
+    @Override
+    public byte[] send(String ca, String command, SdkRequest request) throws SdkErrorResponseException {
+      try {
+        if (SdkConstants.CMD_gen_crl.equals(command)) {
+          currentCrl = "crl-" + (Integer.parseInt(currentCrl.substring(4)) + 1);
+          return new CrlResponse(currentCrl.getBytes(StandardCharsets.UTF_8)).encode();
+        } else if (SdkConstants.CMD_crl.equals(command)) {
+          crlRequests.incrementAndGet();
+          // the CRL is read before the request waits.
+          byte[] crl = currentCrl.getBytes(StandardCharsets.UTF_8);
+          if (crlRequestStarted != null) {
+            crlRequestStarted.countDown();
+            if (!releaseCrlRequest.await(10, TimeUnit.SECONDS)) {
+              throw new SdkErrorResponseException(ErrorCode.SYSTEM_FAILURE, "timeout");
+            }
+          }
+          return new CrlResponse(crl).encode();
+        } else {
+          throw new SdkErrorResponseException(ErrorCode.SYSTEM_FAILURE, "unexpected command " + command);
+        }
+      } catch (SdkErrorResponseException ex) {
+        throw ex;
+      } catch (Exception ex) {
+        throw new SdkErrorResponseException(ErrorCode.SYSTEM_FAILURE, ex.getMessage());
+      }
+    }
+
+  } // class TestClient
+
+  @Test
+  public void crlIsCached() throws Exception {
+    TestClient client = new TestClient();
+    Assert.assertEquals("crl-1", currentCrl(client));
+    Assert.assertEquals("crl-1", currentCrl(client));
+    Assert.assertEquals(1, client.crlRequests.get());
+
+    client.generateCrl("ca1", null);
+    Assert.assertEquals("crl-2", currentCrl(client));
+    Assert.assertEquals(2, client.crlRequests.get());
+  }
+
+  @Test
+  public void inflightLoadDoesNotCacheStaleCrl() throws Exception {
+    TestClient client = new TestClient();
+    client.crlRequestStarted = new CountDownLatch(1);
+    client.releaseCrlRequest = new CountDownLatch(1);
+
+    AtomicReference<String> loaded = new AtomicReference<>();
+    Thread loader = new Thread(() -> {
+      try {
+        loaded.set(currentCrl(client));
+      } catch (SdkErrorResponseException ex) {
+        loaded.set(ex.getMessage());
+      }
+    });
+    loader.start();
+
+    // the new CRL is generated while the old one is being loaded.
+    Assert.assertTrue(client.crlRequestStarted.await(10, TimeUnit.SECONDS));
+    client.crlRequestStarted = null;
+    client.generateCrl("ca1", null);
+    client.releaseCrlRequest.countDown();
+    loader.join(10000);
+    Assert.assertEquals("crl-1", loaded.get());
+
+    // the stale CRL crl-1 has not been cached.
+    Assert.assertEquals("crl-2", currentCrl(client));
+    Assert.assertEquals("crl-2", currentCrl(client));
+    Assert.assertEquals(2, client.crlRequests.get());
+  }
+
+  private static String currentCrl(TestClient client) throws SdkErrorResponseException {
+    return new String(client.currentCrl("ca1", null, null, null), StandardCharsets.UTF_8);
+  }
+
+}
@@ -0,0 +1,162 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.gateway.acme;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit test case of {@link AcmeWorker}.
+ * @author Lijun Liao (xipki)
+ */
+public class AcmeWorkerTest {
+
+  private static class TestWorker extends AcmeWorker<Integer> {
+
+    private final int keyDivisor;
+
+    private final CountDownLatch release;
+
+    private final List<Integer> processed = Collections.synchronizedList(new ArrayList<>());
+
+    private final ConcurrentHashMap<Integer, AtomicInteger> running = new ConcurrentHashMap<>();
+
+    private final AtomicBoolean concurrentSameKey = new AtomicBoolean();
+
+    TestWorker(int threads, int queueSize, int keyDivisor, CountDownLatch release) {
+      super("test", threads, queueSize);
+      this.keyDivisor = keyDivisor;
+      this.release = release;
+    }
+
+    @Override
+    protected Iterator<Integer> getTasks() {
+      return Collections.emptyIterator();
+    }
+
+    @Override
+    protected Object serialKey(Integer id) {
+      return id / keyDivisor;
+    }
+
+    @Override
+    protected Boolean process(Integer id) throws AcmeSystemException {
+      AtomicInteger counter = running.computeIfAbsent(id / keyDivisor, k -> new AtomicInteger());
+      if (counter.incrementAndGet() > 1) {
+        concurrentSameKey.set(true);
+      }
+
+      try {
+        if (release != null && !release.await(10, TimeUnit.SECONDS)) {
+          throw new AcmeSystemException("timeout");
+        }
+        Thread.sleep(1);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+        throw new AcmeSystemException(ex);
+      } finally {
+        counter.decrementAndGet();
+      }
+
+      processed.add(id);
+      return true;
+    }
+
+  } // class TestWorker
+
+  @Test
+  public void tasksWithSameKeyAreSerialized() throws Exception {
+    TestWorker worker = new TestWorker(8, 100, 10, null);
+    try {
+      for (int i = 0; i < 40; i++) {
+        worker.submit(i);
+      }
+
+      awaitProcessed(worker, 40);
+      Assert.assertFalse("tasks with the same key processed concurrently", worker.concurrentSameKey.get());
+
+      // the tasks with the same key are processed in the order of submission.
+      List<Integer> processed = new ArrayList<>(worker.processed);
+      for (int key = 0; key < 4; key++) {
+        int last = -1;
+        for (Integer id : processed) {
+          if (id / 10 == key) {
+            Assert.assertTrue("order of key " + key, id > last);
+            last = id;
+          }
+        }
+      }
+    } finally {
+      worker.close();
+    }
+  }
+
+  @Test
+  public void queueIsBounded() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    TestWorker worker = new TestWorker(1, 2, 1, release);
+    try {
+      // 1 running, 2 queued, the others are rejected.
+      for (int i = 0; i < 10; i++) {
+        worker.submit(i);
+      }
+
+      release.countDown();
+      awaitProcessed(worker, 3);
+      Thread.sleep(100);
+      Assert.assertEquals(3, worker.processed.size());
+
+      // the rejected tasks can be submitted again, e.g. by the next sweep.
+      for (int i = 3; i < 10; i++) {
+        worker.submit(i);
+        awaitProcessed(worker, i + 1);
+      }
+    } finally {
+      worker.close();
+    }
+  }
+
+  @Test
+  public void runStopsWhenInterrupted() throws Exception {
+    TestWorker worker = new TestWorker(1, 1, 1, null);
+    AtomicBoolean interrupted = new AtomicBoolean();
+    Thread thread = new Thread(() -> {
+      worker.run();
+      interrupted.set(Thread.currentThread().isInterrupted());
+    });
+
+    try {
+      thread.start();
+      Thread.sleep(100);
+      thread.interrupt();
+      thread.join(5000);
+
+      Assert.assertFalse("run() does not terminate", thread.isAlive());
+      Assert.assertTrue("interrupt flag not restored", interrupted.get());
+    } finally {
+      worker.close();
+    }
+  }
+
+  private static void awaitProcessed(TestWorker worker, int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 10000;
+    while (worker.processed.size() < count) {
+      if (System.currentTimeMillis() > deadline) {
+        Assert.fail("processed only " + worker.processed.size() + " of " + count + " tasks");
+      }
+      Thread.sleep(5);
+    }
+  }
+
+}
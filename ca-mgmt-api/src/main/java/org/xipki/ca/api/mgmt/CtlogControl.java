@@ -34,8 +34,24 @@ public class CtlogControl {
    */
   public static final String KEY_SSLCONTEXT_NAME = "sslcontext.name";
 
+  /**
+   * Number of SCTs required, defaults to the number of servers.
+   */
+  public static final String KEY_QUORUM = "quorum";
+
+  /**
+   * Timeout in seconds of the submission to each CT Log server, defaults to 10.
+   */
+  public static final String KEY_TIMEOUT = "timeout";
+
+  private static final int DFLT_TIMEOUT = 10;
+
   private boolean enabled;
 
+  private int quorum;
+
+  private int timeout;
+
   private String sslContextName;
 
   private List<String> servers;
@@ -61,6 +77,16 @@ public class CtlogControl {
       throw new InvalidConfException(KEY_SERVERS + " is not specified");
     }
 
+    quorum = getInt(pairs, KEY_QUORUM, servers.size());
+    if (quorum < 1 || quorum > servers.size()) {
+      throw new InvalidConfException(KEY_QUORUM + " must be between 1 and the number of servers");
+    }
+
+    timeout = getInt(pairs, KEY_TIMEOUT, DFLT_TIMEOUT);
+    if (timeout < 1) {
+      throw new InvalidConfException(KEY_TIMEOUT + " must be positive");
+    }
+
     this.confPairs = pairs;
   } // constructor
 
@@ -73,6 +99,8 @@ public class CtlogControl {
         .putPair(KEY_SERVERS, StringUtil.collectionAsString(servers, ";"));
 
     this.servers = servers;
+    this.quorum = servers.size();
+    this.timeout = DFLT_TIMEOUT;
 
     this.sslContextName = sslContextName;
     if (sslContextName != null) {
@@ -110,6 +138,14 @@ public class CtlogControl {
     this.servers = servers;
   }
 
+  public int getQuorum() {
+    return quorum;
+  }
+
+  public int getTimeout() {
+    return timeout;
+  }
+
   public void setEnabled(boolean enabled) {
     this.enabled = enabled;
   }
@@ -131,7 +167,9 @@ public class CtlogControl {
   public String toString(boolean verbose) {
     String str = "  enabled:          " + enabled +
         "\n  SSL context name: " + sslContextName +
-        "\n  Servers:          " + servers;
+        "\n  Servers:          " + servers +
+        "\n  Quorum:           " + quorum +
+        "\n  Timeout:          " + timeout + "s";
     if (verbose) {
       str += "\n  Encoded:          " + getConf();
     }
@@ -156,4 +194,17 @@ public class CtlogControl {
     return ret;
   } // method getBoolean
 
+  private static int getInt(ConfPairs pairs, String key, int defaultValue) throws InvalidConfException {
+    String str = pairs.value(key);
+    if (StringUtil.isBlank(str)) {
+      return defaultValue;
+    }
+
+    try {
+      return Integer.parseInt(str.trim());
+    } catch (NumberFormatException ex) {
+      throw new InvalidConfException("invalid " + key + ": " + str);
+    }
+  } // method getInt
+
 }
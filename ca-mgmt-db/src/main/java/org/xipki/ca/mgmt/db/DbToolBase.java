@@ -133,6 +133,10 @@ public class DbToolBase implements Closeable {
     return datasource.tableExists(connection, table);
   }
 
+  public boolean isBinaryColumn(String table, String column) throws DataAccessException {
+    return datasource.isBinaryColumn(connection, table, column);
+  }
+
   protected Savepoint setSavepoint() throws DataAccessException {
     try {
       return connection.setSavepoint();
@@ -212,7 +212,9 @@ class DigestDiff {
   private static Map<Integer, byte[]> getCas(DataSourceWrapper datasource, DbType dbType)
       throws DataAccessException {
     // get a list of available CAs in the target database
-    String sql = "SELECT ID,CERT FROM " + (dbType == DbType.XIPKI_OCSP_v4 ? "ISSUER" : "CA");
+    String tblCa = (dbType == DbType.XIPKI_OCSP_v4) ? "ISSUER" : "CA";
+    String sql = "SELECT ID,CERT FROM " + tblCa;
+    boolean binaryCert = datasource.isBinaryColumn(null, tblCa, "CERT");
 
     PreparedStatement stmt = datasource.prepareStatement(sql);
     Map<Integer, byte[]> caIdCertMap = new HashMap<>(5);
@@ -220,7 +222,7 @@ class DigestDiff {
     try {
       rs = stmt.executeQuery();
       while (rs.next()) {
-        caIdCertMap.put(rs.getInt("ID"), Base64.decodeFast(rs.getString("CERT")));
+        caIdCertMap.put(rs.getInt("ID"), binaryCert ? rs.getBytes("CERT") : Base64.decodeFast(rs.getString("CERT")));
       }
     } catch (SQLException ex) {
       throw datasource.translate(sql, ex);
@@ -231,6 +233,33 @@ class DigestDiff {
     return caIdCertMap;
   } // method getCas
 
+  /**
+   * Whether the column (CERT.HASH in the OCSP database, CERT.CERT in the CA database) from which
+   * the hash value is read stores binary instead of base64-encoded text.
+   */
+  static boolean isBinaryHashColumn(DataSourceWrapper datasource, DbType dbType) throws DataAccessException {
+    return datasource.isBinaryColumn(null, "CERT", (dbType == DbType.XIPKI_OCSP_v4) ? "HASH" : "CERT");
+  }
+
+  static String getBase64HashValue(ResultSet rs, DbType dbType, HashAlgo certhashAlgo, boolean binaryColumn)
+      throws SQLException {
+    if (dbType == DbType.XIPKI_OCSP_v4) {
+      if (binaryColumn) {
+        byte[] hash = rs.getBytes("HASH");
+        return hash == null ? null : Base64.encodeToString(hash);
+      } else {
+        return rs.getString("HASH");
+      }
+    }
+
+    if (certhashAlgo == HashAlgo.SHA1) {
+      return rs.getString("SHA1");
+    } else {
+      byte[] encodedCert = binaryColumn ? rs.getBytes("CERT") : Base64.decodeFast(rs.getString("CERT"));
+      return certhashAlgo.base64Hash(encodedCert);
+    }
+  } // method getBase64HashValue
+
   public static DbType detectDbType(DataSourceWrapper datasource)
       throws DataAccessException {
     Connection conn = datasource.getConnection();
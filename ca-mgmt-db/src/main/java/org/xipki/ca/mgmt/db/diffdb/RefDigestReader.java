@@ -12,7 +12,6 @@ import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
-import org.xipki.util.Base64;
 import org.xipki.util.StringUtil;
 
 import java.io.Closeable;
@@ -71,6 +70,8 @@ class RefDigestReader implements Closeable {
 
   private HashAlgo certhashAlgo;
 
+  private boolean binaryHashColumn;
+
   private class Retriever implements Runnable {
 
     private PreparedStatement selectCertStmt;
@@ -118,10 +119,7 @@ class RefDigestReader implements Closeable {
             lastProcessedId = id;
           }
 
-          String hash = (dbType == DbType.XIPKI_OCSP_v4) ? rs.getString("HASH")
-                        : (certhashAlgo == HashAlgo.SHA1)
-                            ? rs.getString("SHA1")
-                            : certhashAlgo.base64Hash(Base64.decodeFast(rs.getString("CERT")));
+          String hash = DigestDiff.getBase64HashValue(rs, dbType, certhashAlgo, binaryHashColumn);
 
           BigInteger serial = new BigInteger(rs.getString("SN"), 16);
           boolean revoked = rs.getBoolean("REV");
@@ -178,6 +176,7 @@ class RefDigestReader implements Closeable {
     this.conn = datasource.getConnection();
     this.dbType = dbType;
     this.certhashAlgo = certhashAlgo;
+    this.binaryHashColumn = DigestDiff.isBinaryHashColumn(datasource, dbType);
 
     String coreSql;
     if (dbType == DbType.XIPKI_OCSP_v4) {
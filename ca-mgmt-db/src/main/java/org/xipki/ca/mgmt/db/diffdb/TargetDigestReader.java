@@ -7,7 +7,6 @@ import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.HashAlgo;
 import org.xipki.util.Args;
-import org.xipki.util.Base64;
 import org.xipki.util.ProcessLog;
 import org.xipki.util.StringUtil;
 
@@ -134,6 +133,8 @@ class TargetDigestReader implements Closeable {
 
   private final HashAlgo certhashAlgo;
 
+  private final boolean binaryHashColumn;
+
   private final DataSourceWrapper datasource;
 
   private final int numPerSelect;
@@ -166,6 +167,7 @@ class TargetDigestReader implements Closeable {
     this.stopMe = Args.notNull(stopMe, "stopMe");
     this.datasource = Args.notNull(datasource, "datasource");
     this.certhashAlgo = Args.notNull(certHashAlgo, "certhashAlgo");
+    this.binaryHashColumn = DigestDiff.isBinaryHashColumn(datasource, dbType);
 
     if (dbType == DbType.XIPKI_OCSP_v4) {
       String certHashAlgoInDb = datasource.getFirstStringValue(
@@ -349,14 +351,6 @@ class TargetDigestReader implements Closeable {
   } // method awaitTerminiation
 
   private String getBase64HashValue(ResultSet rs) throws SQLException {
-    if (dbType == DbType.XIPKI_OCSP_v4) {
-      return rs.getString("HASH");
-    }
-    if (certhashAlgo == HashAlgo.SHA1) {
-      return rs.getString("SHA1");
-    } else {
-      byte[] encodedCert = Base64.decodeFast(rs.getString("CERT"));
-      return certhashAlgo.base64Hash(encodedCert);
-    }
-  } // method getBase64HashValue
+    return DigestDiff.getBase64HashValue(rs, dbType, certhashAlgo, binaryHashColumn);
+  }
 }
@@ -6,8 +6,12 @@ package org.xipki.ca.mgmt.db.port;
 import org.slf4j.Logger;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.security.HashAlgo;
+import org.xipki.util.Base64;
 import org.xipki.util.SqlUtil;
 
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
@@ -29,9 +33,26 @@ abstract class AbstractOcspCertstoreDbImporter extends DbPorter {
   protected static final String SQL_ADD_CERT = SqlUtil.buildInsertSql("CERT",
       "ID,IID,SN,LUPDATE,NBEFORE,NAFTER,REV,RR,RT,RIT,HASH,SUBJECT,CRL_ID");
 
+  private final boolean binaryCertHash;
+
   AbstractOcspCertstoreDbImporter(DataSourceWrapper datasource, String srcDir, AtomicBoolean stopMe)
       throws Exception {
     super(datasource, srcDir, stopMe);
+    this.binaryCertHash = isBinaryColumn("CERT", "HASH");
+  }
+
+  /**
+   * Sets the certificate hash, either as binary or as base64-encoded text, depending on
+   * the type of the column CERT.HASH.
+   */
+  protected void setCertHash(PreparedStatement ps, int index, String b64CertHash) throws SQLException {
+    if (b64CertHash == null) {
+      ps.setNull(index, binaryCertHash ? Types.VARBINARY : Types.VARCHAR);
+    } else if (binaryCertHash) {
+      ps.setBytes(index, Base64.decode(b64CertHash));
+    } else {
+      ps.setString(index, b64CertHash);
+    }
   }
 
   protected String sha1(byte[] data) {
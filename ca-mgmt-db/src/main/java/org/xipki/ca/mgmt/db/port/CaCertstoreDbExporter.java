@@ -58,6 +58,9 @@ class CaCertstoreDbExporter extends DbPorter {
 
   private final boolean resume;
 
+  // whether the column CERT.CERT is of binary type.
+  private final boolean binaryCert;
+
   CaCertstoreDbExporter(
       DataSourceWrapper datasource, String baseDir, int numCertsInBundle,
       int numCertsPerSelect, boolean resume, AtomicBoolean stopMe)
@@ -67,6 +70,7 @@ class CaCertstoreDbExporter extends DbPorter {
     this.numCertsInBundle = Args.positive(numCertsInBundle, "numCertsInBundle");
     this.numCertsPerSelect = Args.positive(numCertsPerSelect, "numCertsPerSelect");
     this.resume = resume;
+    this.binaryCert = isBinaryColumn("CERT", "CERT");
   } // constructor
 
   public void export() throws Exception {
@@ -308,7 +312,7 @@ class CaCertstoreDbExporter extends DbPorter {
           }
 
           if (CaDbEntryType.CERT == type) {
-            byte[] certBytes = Base64.decodeFast(rs.getString("CERT"));
+            byte[] certBytes = binaryCert ? rs.getBytes("CERT") : Base64.decodeFast(rs.getString("CERT"));
             String privateKey = null;
             if (dbSchemaVersion >= 7) {
               privateKey = rs.getString("PRIVATE_KEY");
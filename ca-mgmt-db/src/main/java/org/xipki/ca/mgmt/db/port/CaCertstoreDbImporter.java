@@ -62,11 +62,15 @@ class CaCertstoreDbImporter extends DbPorter {
 
   private final int numCertsPerCommit;
 
+  // whether the column CERT.CERT is of binary type.
+  private final boolean binaryCert;
+
   CaCertstoreDbImporter(DataSourceWrapper datasource, String srcDir, int numCertsPerCommit,
       boolean resume, AtomicBoolean stopMe) throws Exception {
     super(datasource, srcDir, stopMe);
 
     this.numCertsPerCommit = Args.positive(numCertsPerCommit, "numCertsPerCommit");
+    this.binaryCert = isBinaryColumn("CERT", "CERT");
 
     File processLogFile = new File(baseDir, DbPorter.IMPORT_PROCESS_LOG_FILENAME);
     if (resume) {
@@ -438,7 +442,11 @@ class CaCertstoreDbImporter extends DbPorter {
           stmt.setString(idx++, b64Sha1FpCert);
           stmt.setString(idx++, cert.getRs());
           stmt.setInt(idx++, cert.getCrlScope());
-          stmt.setString(idx++, Base64.encodeToString(encodedCert));
+          if (binaryCert) {
+            stmt.setBytes(idx++, encodedCert);
+          } else {
+            stmt.setString(idx++, Base64.encodeToString(encodedCert));
+          }
           stmt.setString(idx, privateKey);
           stmt.addBatch();
         } catch (SQLException ex) {
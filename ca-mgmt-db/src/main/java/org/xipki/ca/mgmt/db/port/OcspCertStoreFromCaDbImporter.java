@@ -390,7 +390,7 @@ class OcspCertStoreFromCaDbImporter extends AbstractOcspCertstoreDbImporter {
               setLong(psCert, idx++, cert.getRt());
               setLong(psCert, idx++, cert.getRit());
 
-              psCert.setString(idx++, certhash);
+              setCertHash(psCert, idx++, certhash);
               psCert.setString(idx++, subject);
               psCert.setNull(idx, Types.INTEGER);
 
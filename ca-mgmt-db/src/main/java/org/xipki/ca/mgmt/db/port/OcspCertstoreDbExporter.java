@@ -9,6 +9,7 @@ import org.xipki.ca.api.mgmt.CaJson;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.util.Args;
+import org.xipki.util.Base64;
 import org.xipki.util.IoUtil;
 import org.xipki.util.ProcessLog;
 import org.xipki.util.StringUtil;
@@ -50,6 +51,8 @@ class OcspCertstoreDbExporter extends DbPorter {
 
   private final boolean resume;
 
+  private final boolean binaryCertHash;
+
   OcspCertstoreDbExporter(DataSourceWrapper datasource, String baseDir, int numCertsInBundle,
                           int numCertsPerSelect, boolean resume, AtomicBoolean stopMe)
       throws Exception {
@@ -65,6 +68,7 @@ class OcspCertstoreDbExporter extends DbPorter {
       }
     }
     this.resume = resume;
+    this.binaryCertHash = isBinaryColumn("CERT", "HASH");
   } // constructor
 
   public void export() throws Exception {
@@ -310,7 +314,7 @@ class OcspCertstoreDbExporter extends DbPorter {
             }
           }
 
-          String hash = rs.getString("HASH");
+          String hash = binaryCertHash ? encodeBase64(rs.getBytes("HASH")) : rs.getString("HASH");
           if (hash != null) {
             cert.setHash(hash);
           }
@@ -411,4 +415,8 @@ class OcspCertstoreDbExporter extends DbPorter {
     zipOutStream.close();
   } // method finalizeZip
 
+  private static String encodeBase64(byte[] bytes) {
+    return bytes == null ? null : Base64.encodeToString(bytes);
+  }
+
 }
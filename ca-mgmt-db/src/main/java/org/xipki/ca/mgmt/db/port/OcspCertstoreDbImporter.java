@@ -314,7 +314,7 @@ class OcspCertstoreDbImporter extends AbstractOcspCertstoreDbImporter {
           setInt(psCert, idx++, cert.getRr());
           setLong(psCert, idx++, cert.getRt());
           setLong(psCert, idx++, cert.getRit());
-          psCert.setString(idx++, cert.getHash());
+          setCertHash(psCert, idx++, cert.getHash());
           psCert.setString(idx++, cert.getSubject());
           if (cert.getCrlId() == null) {
             psCert.setNull(idx, Types.INTEGER);
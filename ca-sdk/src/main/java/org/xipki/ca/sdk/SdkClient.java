@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.pki.ErrorCode;
 import org.xipki.security.KeyCertBytesPair;
+import org.xipki.util.Args;
 import org.xipki.util.LogUtil;
 import org.xipki.util.StringUtil;
 import org.xipki.util.exception.DecodeException;
@@ -21,8 +22,10 @@ import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.math.BigInteger;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import static org.xipki.ca.sdk.SdkConstants.CMD_cacert;
 import static org.xipki.ca.sdk.SdkConstants.CMD_cacert2;
@@ -66,7 +69,10 @@ public class SdkClient {
   public SdkClient(SdkClientConf conf) throws ObjectCreationException {
     this.serverUrl = conf.getServerUrl();
     SslContextConf sdkSslConf = SslContextConf.ofSslConf(conf.getSsl());
-    this.client = new XiHttpClient(sdkSslConf.getSslSocketFactory(), sdkSslConf.getHostnameVerifier());
+    this.client = conf.isPooledTransport()
+        ? new XiHttpClient(sdkSslConf, conf.getMaxConcurrentRequests(),
+            Duration.ofSeconds(conf.getConnectTimeoutSeconds()), Duration.ofSeconds(conf.getRequestTimeoutSeconds()))
+        : new XiHttpClient(sdkSslConf.getSslSocketFactory(), sdkSslConf.getHostnameVerifier());
   }
 
   public SdkClient(String serverUrl, SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
@@ -74,6 +80,11 @@ public class SdkClient {
     this.client = new XiHttpClient(sslSocketFactory, hostnameVerifier);
   }
 
+  SdkClient(String serverUrl, XiHttpClient client) {
+    this.serverUrl = serverUrl;
+    this.client = Args.notNull(client, "client");
+  }
+
   public void setLogReqResp(boolean logReqResp) {
     this.logReqResp = logReqResp;
   }
@@ -108,6 +119,58 @@ public class SdkClient {
       }
     }
 
+    return parseResponse(resp);
+  } // method send
+
+  /**
+   * Sends the request asynchronously. Only with the pooled transport the request is really sent
+   * asynchronously. The response is parsed as by {@link #send(String, String, SdkRequest)}, and the
+   * future completes exceptionally with the {@link SdkErrorResponseException} thrown by it.
+   *
+   * @param ca the CA name, may be {@code null}.
+   * @param command the command.
+   * @param request the request, must not be {@code null}.
+   * @return the future of the response.
+   * @since 6.5.4
+   */
+  public CompletableFuture<byte[]> sendAsync(String ca, String command, SdkRequest request) {
+    byte[] encodedReq;
+    try {
+      encodedReq = Args.notNull(request, "request").encode();
+    } catch (EncodeException e) {
+      LogUtil.warn(LOG, e, e.getMessage());
+      return CompletableFuture.failedFuture(
+          new SdkErrorResponseException(ErrorCode.CLIENT_REQUEST_ENCODE_ERROR, e.getMessage()));
+    }
+
+    String url = (ca == null ? serverUrl + "-/" : serverUrl + ca + "/") + command;
+    CompletableFuture<byte[]> ret = new CompletableFuture<>();
+    client.httpPostAsync(url, CONTENT_TYPE_CBOR, encodedReq).whenComplete((resp, ex) -> {
+      if (logReqResp && LOG.isDebugEnabled()) {
+        LogUtil.logReqResp("SDK Gateway", LOG, logReqResp, true, command,
+            encodedReq, resp == null ? null : resp.getContent());
+      }
+
+      try {
+        // the same as XiHttpClient.httpPost with the expected content type in send().
+        if (ex != null || (resp.isOK() && !CONTENT_TYPE_CBOR.equalsIgnoreCase(resp.getContentType()))) {
+          if (ex != null) {
+            LOG.debug("IO error sending request to the CA", ex);
+          } else {
+            LOG.debug("bad response: mime type {} not supported!", resp.getContentType());
+          }
+          throw new SdkErrorResponseException(ErrorCode.SYSTEM_UNAVAILABLE, "IO error sending request to the CA");
+        }
+
+        ret.complete(parseResponse(resp));
+      } catch (SdkErrorResponseException | RuntimeException e) {
+        ret.completeExceptionally(e);
+      }
+    });
+    return ret;
+  } // method sendAsync
+
+  private static byte[] parseResponse(HttpRespContent resp) throws SdkErrorResponseException {
     if (resp.isOK()) {
       return resp.getContent();
     }
@@ -122,7 +185,7 @@ public class SdkClient {
         throw new SdkErrorResponseException(ErrorCode.CLIENT_RESPONSE_DECODE_ERROR, e.getMessage());
       }
     }
-  } // method send
+  } // method parseResponse
 
   public boolean healthy(String ca) {
     try {
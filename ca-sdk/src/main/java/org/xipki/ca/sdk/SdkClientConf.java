@@ -22,6 +22,30 @@ public class SdkClientConf {
 
   private SslConf ssl;
 
+  /**
+   * Whether to use the pooled, keep-alive and HTTP/2-capable transport.
+   * @since 6.5.4
+   */
+  private boolean pooledTransport;
+
+  /**
+   * Maximal number of concurrent requests of the pooled transport.
+   * @since 6.5.4
+   */
+  private int maxConcurrentRequests = 100;
+
+  /**
+   * Timeout in seconds to establish a connection of the pooled transport.
+   * @since 6.5.4
+   */
+  private int connectTimeoutSeconds = 10;
+
+  /**
+   * Timeout in seconds to receive the response of the pooled transport.
+   * @since 6.5.4
+   */
+  private int requestTimeoutSeconds = 60;
+
   public String getServerUrl() {
     return serverUrl;
   }
@@ -38,10 +62,51 @@ public class SdkClientConf {
     this.ssl = ssl;
   }
 
+  public boolean isPooledTransport() {
+    return pooledTransport;
+  }
+
+  public void setPooledTransport(boolean pooledTransport) {
+    this.pooledTransport = pooledTransport;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  public void setMaxConcurrentRequests(int maxConcurrentRequests) {
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  public int getConnectTimeoutSeconds() {
+    return connectTimeoutSeconds;
+  }
+
+  public void setConnectTimeoutSeconds(int connectTimeoutSeconds) {
+    this.connectTimeoutSeconds = connectTimeoutSeconds;
+  }
+
+  public int getRequestTimeoutSeconds() {
+    return requestTimeoutSeconds;
+  }
+
+  public void setRequestTimeoutSeconds(int requestTimeoutSeconds) {
+    this.requestTimeoutSeconds = requestTimeoutSeconds;
+  }
+
   public void validate() throws InvalidConfException {
     if (ssl == null) {
       throw new InvalidConfException("ssl must not be null");
     }
+    if (maxConcurrentRequests < 1) {
+      throw new InvalidConfException("maxConcurrentRequests must be positive");
+    }
+    if (connectTimeoutSeconds < 1) {
+      throw new InvalidConfException("connectTimeoutSeconds must be positive");
+    }
+    if (requestTimeoutSeconds < 1) {
+      throw new InvalidConfException("requestTimeoutSeconds must be positive");
+    }
     ssl.validate();
   }
 
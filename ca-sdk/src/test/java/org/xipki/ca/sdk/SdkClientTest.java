@@ -0,0 +1,144 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.sdk;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.pki.ErrorCode;
+import org.xipki.util.http.XiHttpClient;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit test case of {@link SdkClient#sendAsync(String, String, SdkRequest)}, which must parse
+ * the responses and map the errors as {@link SdkClient#send(String, String, SdkRequest)}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class SdkClientTest {
+
+  private static final SdkRequest REQUEST = new CaIdentifierRequest(new byte[20], null, null);
+
+  private static HttpServer server;
+
+  private static SdkClient pooledClient;
+
+  private static SdkClient client;
+
+  @BeforeClass
+  public static void startServer() throws Exception {
+    byte[] errorResponse = new ErrorResponse("tid-1", ErrorCode.UNKNOWN_CERT_PROFILE, "unknown profile").encode();
+
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/", exchange -> {
+      try {
+        String path = exchange.getRequestURI().getPath();
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        int status = 200;
+        String contentType = "application/cbor";
+        if (path.endsWith("/error")) {
+          status = 400;
+          body = errorResponse;
+        } else if (path.endsWith("/empty-error")) {
+          status = 500;
+          body = null;
+        } else if (path.endsWith("/text")) {
+          contentType = "text/plain";
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, body == null ? -1 : body.length);
+        if (body != null) {
+          try (OutputStream os = exchange.getResponseBody()) {
+            os.write(body);
+          }
+        }
+      } finally {
+        exchange.close();
+      }
+    });
+    server.start();
+
+    String url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/";
+    pooledClient = new SdkClient(url, new XiHttpClient(null, 4));
+    client = new SdkClient(url, null, null);
+  }
+
+  @AfterClass
+  public static void stopServer() {
+    if (server != null) {
+      server.stop(0);
+    }
+  }
+
+  @Test
+  public void successfulResponse() throws Exception {
+    byte[] expected = REQUEST.encode();
+    for (SdkClient c : new SdkClient[]{pooledClient, client}) {
+      Assert.assertArrayEquals(expected, c.send("ca1", "echo", REQUEST));
+      Assert.assertArrayEquals(expected, c.sendAsync("ca1", "echo", REQUEST).get(10, TimeUnit.SECONDS));
+      Assert.assertArrayEquals(expected, c.sendAsync(null, "echo", REQUEST).get(10, TimeUnit.SECONDS));
+    }
+  }
+
+  @Test
+  public void errorResponse() throws Exception {
+    for (SdkClient c : new SdkClient[]{pooledClient, client}) {
+      ErrorResponse resp = assertSameError(c, "error");
+      Assert.assertEquals(ErrorCode.UNKNOWN_CERT_PROFILE, resp.getCode());
+      Assert.assertEquals("unknown profile", resp.getMessage());
+      Assert.assertEquals("tid-1", resp.getTransactionId());
+
+      // the empty body is not a valid error response.
+      Assert.assertEquals(ErrorCode.CLIENT_RESPONSE_DECODE_ERROR, assertSameError(c, "empty-error").getCode());
+      // the content type of the response is not CBOR.
+      Assert.assertEquals(ErrorCode.SYSTEM_UNAVAILABLE, assertSameError(c, "text").getCode());
+    }
+  }
+
+  @Test
+  public void unreachableServer() throws Exception {
+    // a port on which no server is listening.
+    int port;
+    try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+      port = socket.getLocalPort();
+    }
+
+    SdkClient c = new SdkClient("http://127.0.0.1:" + port + "/", new XiHttpClient(null, 1));
+    Assert.assertEquals(ErrorCode.SYSTEM_UNAVAILABLE, assertSameError(c, "echo").getCode());
+  }
+
+  private static ErrorResponse assertSameError(SdkClient c, String command) throws Exception {
+    ErrorResponse syncResp = null;
+    try {
+      c.send("ca1", command, REQUEST);
+      Assert.fail("SdkErrorResponseException expected");
+    } catch (SdkErrorResponseException ex) {
+      syncResp = ex.getErrorResponse();
+    }
+
+    try {
+      c.sendAsync("ca1", command, REQUEST).get(10, TimeUnit.SECONDS);
+      Assert.fail("ExecutionException expected");
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause().toString(), ex.getCause() instanceof SdkErrorResponseException);
+      ErrorResponse asyncResp = ((SdkErrorResponseException) ex.getCause()).getErrorResponse();
+      Assert.assertEquals(syncResp.getCode(), asyncResp.getCode());
+      Assert.assertEquals(syncResp.getMessage(), asyncResp.getMessage());
+      Assert.assertEquals(syncResp.getTransactionId(), asyncResp.getTransactionId());
+    }
+    return syncResp;
+  }
+
+}
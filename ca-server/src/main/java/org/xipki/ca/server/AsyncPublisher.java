@@ -0,0 +1,510 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.server.CaServerConf.AsyncPublisherConf;
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+import org.xipki.util.LogUtil;
+import org.xipki.util.StringUtil;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Passes the events of one CA to one publisher in a background thread.
+ * <p>
+ * The events are appended to a journal before they are queued, and the sequence number of
+ * the last processed event is saved in a checkpoint file after each batch. The journal is
+ * forced to the storage device before {@link #enqueue(EntryType, long, String)} returns. After a restart,
+ * the events after the checkpoint are published again. Since the events reference the
+ * certificates in the CA database, a repeated event publishes the current state.
+ * <p>
+ * A failed event is retried with exponential backoff, the following events wait to keep the
+ * order. After the maximal number of retries, the event is moved to the dead-letter file.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+
+class AsyncPublisher implements Closeable {
+
+  enum EntryType {
+    // certificate added, id is the certificate ID in the CA database.
+    ADD,
+    // certificate revoked, id is the certificate ID in the CA database.
+    REVOKE,
+    // certificate unrevoked, id is the certificate ID in the CA database.
+    UNREVOKE,
+    // certificate removed, id is the certificate ID, data is the certificate.
+    REMOVE,
+    // CRL added, id is the CRL number.
+    CRL
+  } // class EntryType
+
+  static class Entry {
+
+    private final long seq;
+
+    private final EntryType type;
+
+    private final long id;
+
+    private final String data;
+
+    // true if the event is not taken from the queue, accessed only by the worker.
+    private boolean recovered;
+
+    Entry(long seq, EntryType type, long id, String data) {
+      this.seq = seq;
+      this.type = Args.notNull(type, "type");
+      this.id = id;
+      this.data = data;
+    }
+
+    long getSeq() {
+      return seq;
+    }
+
+    EntryType getType() {
+      return type;
+    }
+
+    long getId() {
+      return id;
+    }
+
+    String getData() {
+      return data;
+    }
+
+    String encode() {
+      return seq + ";" + type + ";" + id + ";" + (data == null ? "" : data);
+    }
+
+    static Entry decode(String line) {
+      String[] tokens = line.split(";", -1);
+      if (tokens.length != 4) {
+        throw new IllegalArgumentException("invalid journal entry '" + line + "'");
+      }
+
+      return new Entry(Long.parseLong(tokens[0]), EntryType.valueOf(tokens[1]),
+          Long.parseLong(tokens[2]), tokens[3].isEmpty() ? null : tokens[3]);
+    }
+
+  } // class Entry
+
+  /**
+   * Passes an event to the publisher.
+   */
+  interface Deliverer {
+
+    /**
+     * Passes the event to the publisher.
+     *
+     * @param publisherName name of the publisher.
+     * @param entry the event.
+     * @return true if successful or the event is obsolete, false to retry.
+     */
+    boolean deliver(String publisherName, Entry entry);
+
+  } // interface Deliverer
+
+  private class Worker implements Runnable {
+
+    @Override
+    public void run() {
+      List<Entry> batch = new ArrayList<>(batchSize);
+      // sequence number of the last processed event which is not saved in the checkpoint file.
+      long pendingCheckpoint = -1;
+
+      while (!stopMe) {
+        int processed = 0;
+        try {
+          if (pendingCheckpoint != -1) {
+            writeCheckpoint(pendingCheckpoint);
+            pendingCheckpoint = -1;
+          }
+
+          Entry first = recovered.isEmpty() ? queue.poll(1, TimeUnit.SECONDS) : recovered.removeFirst();
+          if (first == null) {
+            compactJournal();
+            continue;
+          }
+
+          batch.add(first);
+          while (batch.size() < batchSize && !recovered.isEmpty()) {
+            batch.add(recovered.removeFirst());
+          }
+          queue.drainTo(batch, batchSize - batch.size());
+          queuePermits.release(batch.size() - recoveredCount(batch));
+
+          for (Entry entry : batch) {
+            publish(entry);
+            processed++;
+          }
+
+          pendingCheckpoint = batch.get(batch.size() - 1).getSeq();
+          writeCheckpoint(pendingCheckpoint);
+          pendingCheckpoint = -1;
+        } catch (InterruptedException ex) {
+          // the not-processed events will be published after the restart.
+          break;
+        } catch (Throwable th) {
+          LogUtil.error(LOG, th, "error in publisher " + publisherName + " of CA " + caName);
+          if (processed > 0 && pendingCheckpoint == -1) {
+            pendingCheckpoint = batch.get(processed - 1).getSeq();
+          }
+
+          // the not-processed events will be published again, they must not be skipped by the
+          // next checkpoint.
+          for (int i = batch.size() - 1; i >= processed; i--) {
+            Entry entry = batch.get(i);
+            entry.recovered = true;
+            recovered.addFirst(entry);
+          }
+
+          try {
+            TimeUnit.MILLISECONDS.sleep(retryInitialDelayMs);
+          } catch (InterruptedException ex) {
+            break;
+          }
+        } finally {
+          batch.clear();
+        }
+      }
+    } // method run
+
+    private int recoveredCount(List<Entry> batch) {
+      int n = 0;
+      for (Entry entry : batch) {
+        if (entry.recovered) {
+          n++;
+        }
+      }
+      return n;
+    } // method recoveredCount
+
+  } // class Worker
+
+  private static final Logger LOG = LoggerFactory.getLogger(AsyncPublisher.class);
+
+  private static final long MAX_JOURNAL_SIZE = 10L * 1024 * 1024;
+
+  private final String caName;
+
+  private final String publisherName;
+
+  private final Deliverer deliverer;
+
+  private final int batchSize;
+
+  private final int maxRetries;
+
+  private final long retryInitialDelayMs;
+
+  private final long retryMaxDelayMs;
+
+  private final File journalFile;
+
+  private final File checkpointFile;
+
+  private final File deadLetterFile;
+
+  private final BlockingQueue<Entry> queue;
+
+  // free places in the queue, acquired by the producers before they write to the journal.
+  private final Semaphore queuePermits;
+
+  // events read from the journal at startup, accessed only by the worker.
+  private final LinkedList<Entry> recovered = new LinkedList<>();
+
+  // guards journalChannel and nextSeq. Never held while waiting for the worker.
+  private final ReentrantLock journalLock = new ReentrantLock();
+
+  private FileChannel journalChannel;
+
+  private long nextSeq;
+
+  private volatile boolean stopMe;
+
+  private final Thread workerThread;
+
+  AsyncPublisher(String caName, String publisherName, Deliverer deliverer, AsyncPublisherConf conf)
+      throws IOException {
+    this.caName = Args.notBlank(caName, "caName");
+    this.publisherName = Args.notBlank(publisherName, "publisherName");
+    this.deliverer = Args.notNull(deliverer, "deliverer");
+    Args.notNull(conf, "conf");
+
+    this.batchSize = conf.getBatchSize();
+    this.maxRetries = conf.getMaxRetries();
+    this.retryInitialDelayMs = conf.getRetryInitialDelay() * 1000L;
+    this.retryMaxDelayMs = conf.getRetryMaxDelay() * 1000L;
+    this.queue = new ArrayBlockingQueue<>(conf.getQueueSize());
+    this.queuePermits = new Semaphore(conf.getQueueSize());
+
+    File dir = new File(IoUtil.expandFilepath(conf.getJournalDir(), true), caName.toLowerCase());
+    IoUtil.mkdirs(dir);
+    String prefix = publisherName.toLowerCase();
+    this.journalFile = new File(dir, prefix + ".journal");
+    this.checkpointFile = new File(dir, prefix + ".checkpoint");
+    this.deadLetterFile = new File(dir, prefix + ".deadletter");
+
+    long checkpoint = readCheckpoint();
+    this.nextSeq = checkpoint + 1;
+    if (journalFile.exists()) {
+      try (BufferedReader reader = Files.newBufferedReader(journalFile.toPath(), StandardCharsets.UTF_8)) {
+        String line;
+        while ((line = reader.readLine()) != null) {
+          if (line.isEmpty()) {
+            continue;
+          }
+
+          Entry entry;
+          try {
+            entry = Entry.decode(line);
+          } catch (RuntimeException ex) {
+            // the last line may be incomplete after a crash.
+            LOG.warn("ignore invalid entry in journal {}: {}", journalFile.getPath(), ex.getMessage());
+            continue;
+          }
+
+          nextSeq = Math.max(nextSeq, entry.getSeq() + 1);
+          if (entry.getSeq() > checkpoint) {
+            entry.recovered = true;
+            recovered.add(entry);
+          }
+        }
+      }
+    }
+
+    if (!recovered.isEmpty()) {
+      LOG.info("recovered {} pending events of publisher {} for CA {}", recovered.size(), publisherName, caName);
+    }
+
+    this.journalChannel = openJournal(true);
+
+    this.workerThread = new Thread(new Worker(), "publisher-" + caName + "-" + publisherName);
+    this.workerThread.setDaemon(true);
+    this.workerThread.start();
+  } // constructor
+
+  /**
+   * Appends the event to the journal and queues it.
+   * <p>
+   * If the queue is full, waits until the worker has taken events from the queue. The place in
+   * the queue is reserved before the journal lock is acquired, so that the event is queued
+   * without waiting and the order in the queue equals the order in the journal.
+   *
+   * @param type type of the event.
+   * @param id ID of the certificate or CRL number.
+   * @param data additional data, may be {@code null}.
+   * @throws IOException if the event could not be written to the journal, or this publisher is
+   *         closed.
+   * @throws InterruptedException if interrupted while waiting for space in the queue.
+   */
+  void enqueue(EntryType type, long id, String data) throws IOException, InterruptedException {
+    while (!queuePermits.tryAcquire(1, TimeUnit.SECONDS)) {
+      if (stopMe) {
+        throw closedException();
+      }
+    }
+
+    boolean queued = false;
+    try {
+      journalLock.lockInterruptibly();
+      try {
+        if (stopMe || journalChannel == null) {
+          throw closedException();
+        }
+
+        Entry entry = new Entry(nextSeq, type, id, data);
+        ByteBuffer buffer = ByteBuffer.wrap(StringUtil.toUtf8Bytes(entry.encode() + "\n"));
+        while (buffer.hasRemaining()) {
+          journalChannel.write(buffer);
+        }
+        journalChannel.force(false);
+        nextSeq++;
+
+        // never blocks, the place is reserved.
+        queued = queue.offer(entry);
+      } finally {
+        journalLock.unlock();
+      }
+    } finally {
+      if (!queued) {
+        queuePermits.release();
+      }
+    }
+  } // method enqueue
+
+  private IOException closedException() {
+    return new IOException("publisher " + publisherName + " of CA " + caName + " is closed");
+  }
+
+  int getQueueSize() {
+    return recovered.size() + queue.size();
+  }
+
+  /**
+   * Returns and removes all dead letters.
+   *
+   * @return the dead letters.
+   * @throws IOException if the dead-letter file could not be read or deleted.
+   */
+  synchronized List<Entry> takeDeadLetters() throws IOException {
+    List<Entry> entries = new LinkedList<>();
+    if (!deadLetterFile.exists()) {
+      return entries;
+    }
+
+    for (String line : Files.readAllLines(deadLetterFile.toPath(), StandardCharsets.UTF_8)) {
+      if (!line.isEmpty()) {
+        entries.add(Entry.decode(line));
+      }
+    }
+
+    Files.delete(deadLetterFile.toPath());
+    return entries;
+  } // method takeDeadLetters
+
+  @Override
+  public void close() {
+    stopMe = true;
+    workerThread.interrupt();
+    try {
+      workerThread.join(10000);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+
+    journalLock.lock();
+    try {
+      if (journalChannel != null) {
+        journalChannel.close();
+        journalChannel = null;
+      }
+    } catch (IOException ex) {
+      LogUtil.warn(LOG, ex, "could not close journal " + journalFile.getPath());
+    } finally {
+      journalLock.unlock();
+    }
+
+    int pending = getQueueSize();
+    if (pending > 0) {
+      LOG.info("{} pending events of publisher {} for CA {} will be published after the restart",
+          pending, publisherName, caName);
+    }
+  } // method close
+
+  private void publish(Entry entry) throws InterruptedException, IOException {
+    long delay = retryInitialDelayMs;
+    for (int i = 0; ; i++) {
+      boolean successful;
+      try {
+        successful = deliverer.deliver(publisherName, entry);
+      } catch (RuntimeException ex) {
+        LogUtil.warn(LOG, ex, "could not publish " + entry.encode());
+        successful = false;
+      }
+
+      if (successful) {
+        return;
+      }
+
+      if (i >= maxRetries) {
+        break;
+      }
+
+      LOG.warn("could not publish event {} {} to publisher {} of CA {}, retry in {} ms",
+          entry.getType(), entry.getId(), publisherName, caName, delay);
+      TimeUnit.MILLISECONDS.sleep(delay);
+      delay = Math.min(delay * 2, retryMaxDelayMs);
+    }
+
+    LOG.error("could not publish event {} {} to publisher {} of CA {}, moved to dead letters",
+        entry.getType(), entry.getId(), publisherName, caName);
+    // if the dead letter could not be written, the event is published again.
+    addDeadLetters(Collections.singletonList(entry));
+  } // method publish
+
+  synchronized void addDeadLetters(List<Entry> entries) throws IOException {
+    try (Writer writer = Files.newBufferedWriter(deadLetterFile.toPath(), StandardCharsets.UTF_8,
+        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+      for (Entry entry : entries) {
+        writer.write(entry.encode());
+        writer.write('\n');
+      }
+    }
+  } // method addDeadLetters
+
+  /**
+   * Truncates the journal if all events are processed. Only called by the worker.
+   */
+  private void compactJournal() throws IOException {
+    if (journalFile.length() < MAX_JOURNAL_SIZE || !recovered.isEmpty()) {
+      return;
+    }
+
+    // do not wait for the producers, the queue may be full.
+    if (!journalLock.tryLock()) {
+      return;
+    }
+
+    try {
+      if (!queue.isEmpty() || journalChannel == null) {
+        return;
+      }
+
+      // the checkpoint contains the sequence number of the last event in the journal.
+      journalChannel.close();
+      journalChannel = openJournal(false);
+    } finally {
+      journalLock.unlock();
+    }
+  } // method compactJournal
+
+  private FileChannel openJournal(boolean append) throws IOException {
+    return FileChannel.open(journalFile.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        append ? StandardOpenOption.APPEND : StandardOpenOption.TRUNCATE_EXISTING);
+  } // method openJournal
+
+  private long readCheckpoint() throws IOException {
+    if (!checkpointFile.exists()) {
+      return 0;
+    }
+
+    String text = StringUtil.toUtf8String(IoUtil.read(checkpointFile)).trim();
+    return text.isEmpty() ? 0 : Long.parseLong(text);
+  } // method readCheckpoint
+
+  private void writeCheckpoint(long seq) throws IOException {
+    File tmpFile = new File(checkpointFile.getPath() + ".tmp");
+    IoUtil.save(tmpFile, StringUtil.toUtf8Bytes(Long.toString(seq)));
+    Files.move(tmpFile.toPath(), checkpointFile.toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  } // method writeCheckpoint
+
+}
@@ -0,0 +1,155 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ca.api.CertificateInfo;
+import org.xipki.ca.server.X509Ca.OperationExceptionWithIndex;
+import org.xipki.pki.OperationException;
+import org.xipki.util.Args;
+
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.xipki.pki.ErrorCode.BAD_CERT_TEMPLATE;
+import static org.xipki.pki.ErrorCode.SYSTEM_FAILURE;
+
+/**
+ * Issues the certificates of a batch in two phases: First the certificates are built and signed
+ * in parallel, then they are saved at once. If any certificate could not be generated or saved,
+ * no certificate is saved.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+class BatchCertIssuer {
+
+  interface CertGenerator {
+
+    /**
+     * Builds and signs the certificate, called in parallel.
+     * @param index index of the request within the batch.
+     * @return the generated certificate.
+     * @throws OperationException if the certificate could not be generated.
+     */
+    CertificateInfo generateCert(int index) throws OperationException;
+
+  } // interface CertGenerator
+
+  interface CertSaver {
+
+    /**
+     * Saves all certificates, or none of them.
+     * @param certInfos the certificates, in the order of the requests.
+     * @throws OperationException if the certificates could not be saved.
+     */
+    void saveCerts(List<CertificateInfo> certInfos) throws OperationException;
+
+  } // interface CertSaver
+
+  private static final Logger LOG = LoggerFactory.getLogger(BatchCertIssuer.class);
+
+  private BatchCertIssuer() {
+  }
+
+  /**
+   * Generates and saves the certificates.
+   * @param executor the executor to generate the certificates.
+   * @param n number of requests.
+   * @param generator the generator of the certificates.
+   * @param saver the saver of the certificates.
+   * @return the certificates, in the order of the requests.
+   * @throws OperationExceptionWithIndex with the index of the first failed request, or
+   *         {@link OperationExceptionWithIndex#INDEX_ALL} if the certificates could not be saved.
+   */
+  static List<CertificateInfo> issue(ExecutorService executor, int n, CertGenerator generator, CertSaver saver)
+      throws OperationExceptionWithIndex {
+    Args.notNull(executor, "executor");
+    Args.notNull(generator, "generator");
+    Args.notNull(saver, "saver");
+
+    // set after the first failure, the remaining certificates will not be generated.
+    AtomicBoolean aborted = new AtomicBoolean(false);
+
+    List<Future<CertificateInfo>> futures = new ArrayList<>(n);
+    for (int i = 0; i < n; i++) {
+      final int index = i;
+      futures.add(executor.submit(() -> {
+        if (aborted.get()) {
+          return null;
+        }
+
+        try {
+          return generator.generateCert(index);
+        } catch (Throwable th) {
+          aborted.set(true);
+          throw th;
+        }
+      }));
+    }
+
+    // phase 1: build and sign the certificates
+    CertificateInfo[] certInfos = new CertificateInfo[n];
+    OperationExceptionWithIndex exception = null;
+    Set<BigInteger> serialNumbers = new HashSet<>();
+
+    // wait for all tasks, so that none of them is running when this method returns.
+    for (int i = 0; i < n; i++) {
+      OperationException ex = null;
+      try {
+        certInfos[i] = futures.get(i).get();
+        if (certInfos[i] == null) {
+          // not generated after the failure of another request.
+          continue;
+        }
+
+        // the uniqueness of serial numbers within the batch is not checked by the database.
+        if (!serialNumbers.add(certInfos[i].getCert().getCert().getSerialNumber())) {
+          ex = new OperationException(BAD_CERT_TEMPLATE,
+              "serialNumber of request[" + i + "] has been used before.");
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        ex = new OperationException(SYSTEM_FAILURE, "interrupted");
+      } catch (ExecutionException e) {
+        Throwable cause = e.getCause();
+        ex = (cause instanceof OperationException) ? (OperationException) cause
+            : new OperationException(SYSTEM_FAILURE, cause);
+      }
+
+      if (ex != null && exception == null) {
+        exception = (ex instanceof OperationExceptionWithIndex) ? (OperationExceptionWithIndex) ex
+            : new OperationExceptionWithIndex(i, ex);
+        aborted.set(true);
+      }
+    }
+
+    if (exception != null) {
+      LOG.error("could not generate certificate for request[{}], no certificate is saved", exception.getIndex());
+      throw exception;
+    }
+
+    // phase 2: save the certificates at once
+    List<CertificateInfo> certInfoList = Arrays.asList(certInfos);
+    try {
+      saver.saveCerts(certInfoList);
+    } catch (OperationException ex) {
+      LOG.error("could not save the certificates, no certificate is saved");
+      // the whole batch has failed, not the first request.
+      throw new OperationExceptionWithIndex(OperationExceptionWithIndex.INDEX_ALL, ex);
+    }
+
+    return certInfoList;
+  } // method issue
+
+}
@@ -5,8 +5,8 @@ package org.xipki.ca.server;
 
 import org.xipki.ca.api.NameId;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Container of NameId of CA management entries.
@@ -17,21 +17,21 @@ import java.util.Map;
 
 public class CaIdNameMap {
 
-  private final Map<Integer, NameId> idCertprofileMap = new HashMap<>();
+  private final Map<Integer, NameId> idCertprofileMap = new ConcurrentHashMap<>();
 
-  private final Map<Integer, NameId> idPublisherMap = new HashMap<>();
+  private final Map<Integer, NameId> idPublisherMap = new ConcurrentHashMap<>();
 
-  private final Map<Integer, NameId> idRequestorMap = new HashMap<>();
+  private final Map<Integer, NameId> idRequestorMap = new ConcurrentHashMap<>();
 
-  private final Map<Integer, NameId> idCaMap = new HashMap<>();
+  private final Map<Integer, NameId> idCaMap = new ConcurrentHashMap<>();
 
-  private final Map<String, NameId> nameCertprofileMap = new HashMap<>();
+  private final Map<String, NameId> nameCertprofileMap = new ConcurrentHashMap<>();
 
-  private final Map<String, NameId> namePublisherMap = new HashMap<>();
+  private final Map<String, NameId> namePublisherMap = new ConcurrentHashMap<>();
 
-  private final Map<String, NameId> nameRequestorMap = new HashMap<>();
+  private final Map<String, NameId> nameRequestorMap = new ConcurrentHashMap<>();
 
-  private final Map<String, NameId> nameCaMap = new HashMap<>();
+  private final Map<String, NameId> nameCaMap = new ConcurrentHashMap<>();
 
   public void addCertprofile(NameId nameId) {
     idCertprofileMap.put(nameId.getId(), nameId);
@@ -124,6 +124,14 @@ public class CaIdNameMap {
     return ident;
   } // method removeCertprofile
 
+  public NameId removePublisher(int id) {
+    NameId ident = idPublisherMap.remove(id);
+    if (ident != null) {
+      namePublisherMap.remove(ident.getName());
+    }
+    return ident;
+  } // method removePublisher
+
   public NameId removeRequestor(int id) {
     NameId ident = idRequestorMap.remove(id);
     if (ident != null) {
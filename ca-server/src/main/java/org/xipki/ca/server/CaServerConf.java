@@ -109,6 +109,107 @@ public class CaServerConf extends ValidableConf {
 
   } // class CtLogConf
 
+  /**
+   * Configuration of the asynchronous publishing. If configured, the events are passed to the
+   * publishers by a background thread per CA and publisher, instead of by the issuing thread.
+   */
+  public static class AsyncPublisherConf extends ValidableConf {
+
+    /**
+     * Directory of the journals. The pending events are persisted there, and will be
+     * published after the restart.
+     */
+    private String journalDir;
+
+    /**
+     * Maximal number of pending events per CA and publisher. If the queue is full, the
+     * issuing thread waits.
+     */
+    private int queueSize = 10000;
+
+    /**
+     * Maximal number of events processed before the journal checkpoint is updated.
+     */
+    private int batchSize = 100;
+
+    /**
+     * Maximal number of retries of a failed event before it is moved to the dead-letter file.
+     * The dead letters are replayed by the command to republish the certificates.
+     */
+    private int maxRetries = 10;
+
+    /**
+     * Delay in seconds before the first retry, doubled for each further retry.
+     */
+    private int retryInitialDelay = 1;
+
+    /**
+     * Maximal delay in seconds between two retries.
+     */
+    private int retryMaxDelay = 300;
+
+    public String getJournalDir() {
+      return journalDir;
+    }
+
+    public void setJournalDir(String journalDir) {
+      this.journalDir = journalDir;
+    }
+
+    public int getQueueSize() {
+      return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+      this.queueSize = queueSize;
+    }
+
+    public int getBatchSize() {
+      return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+      this.batchSize = batchSize;
+    }
+
+    public int getMaxRetries() {
+      return maxRetries;
+    }
+
+    public void setMaxRetries(int maxRetries) {
+      this.maxRetries = maxRetries;
+    }
+
+    public int getRetryInitialDelay() {
+      return retryInitialDelay;
+    }
+
+    public void setRetryInitialDelay(int retryInitialDelay) {
+      this.retryInitialDelay = retryInitialDelay;
+    }
+
+    public int getRetryMaxDelay() {
+      return retryMaxDelay;
+    }
+
+    public void setRetryMaxDelay(int retryMaxDelay) {
+      this.retryMaxDelay = retryMaxDelay;
+    }
+
+    @Override
+    public void validate() throws InvalidConfException {
+      notBlank(journalDir, "journalDir");
+      if (queueSize < 1 || batchSize < 1) {
+        throw new InvalidConfException("queueSize and batchSize must be positive");
+      }
+
+      if (maxRetries < 0 || retryInitialDelay < 1 || retryMaxDelay < retryInitialDelay) {
+        throw new InvalidConfException("invalid retry configuration");
+      }
+    }
+
+  } // class AsyncPublisherConf
+
   private AuditConf audit;
 
   private SecurityConf security;
@@ -137,6 +238,11 @@ public class CaServerConf extends ValidableConf {
    */
   private int shardId = 0;
 
+  /**
+   * Number of threads to start the CAs in parallel, 0 for the number of available processors.
+   */
+  private int caStartThreads = 0;
+
   private boolean logReqResp;
 
   private String reverseProxyMode;
@@ -147,6 +253,8 @@ public class CaServerConf extends ValidableConf {
 
   private CtLogConf ctLog;
 
+  private AsyncPublisherConf asyncPublisher;
+
   /**
    * list of classes that implement org.xipki.ca.api.profile.CertprofileFactory
    */
@@ -216,6 +324,14 @@ public class CaServerConf extends ValidableConf {
     this.shardId = shardId;
   }
 
+  public int getCaStartThreads() {
+    return caStartThreads;
+  }
+
+  public void setCaStartThreads(int caStartThreads) {
+    this.caStartThreads = caStartThreads;
+  }
+
   public List<String> getCaConfFiles() {
     return caConfFiles;
   }
@@ -302,6 +418,14 @@ public class CaServerConf extends ValidableConf {
     this.ctLog = ctLog;
   }
 
+  public AsyncPublisherConf getAsyncPublisher() {
+    return asyncPublisher;
+  }
+
+  public void setAsyncPublisher(AsyncPublisherConf asyncPublisher) {
+    this.asyncPublisher = asyncPublisher;
+  }
+
   public void initSsl() {
     if (sslContexts == null || sslContexts.isEmpty()) {
       return;
@@ -330,6 +454,10 @@ public class CaServerConf extends ValidableConf {
       throw new InvalidConfException("shardId is not in [0, 127]");
     }
 
+    if (caStartThreads < 0) {
+      throw new InvalidConfException("caStartThreads must not be negative");
+    }
+
     boolean withCaconfDb = false;
     for (DataSourceConf dsConf : datasources) {
       if ("caconf".equals(dsConf.getName())) {
@@ -347,7 +475,7 @@ public class CaServerConf extends ValidableConf {
         throw new InvalidConfException("datasource 'caconf' is not allowed but is configured.");
       }
     }
-    validate(remoteMgmt, security);
+    validate(remoteMgmt, security, asyncPublisher);
     TlsHelper.checkReverseProxyMode(reverseProxyMode);
   }
 
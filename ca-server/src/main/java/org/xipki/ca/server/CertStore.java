@@ -4,7 +4,6 @@
 package org.xipki.ca.server;
 
 import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.cert.X509CRLHolder;
 import org.xipki.ca.api.CertWithDbId;
 import org.xipki.ca.api.CertificateInfo;
 import org.xipki.ca.api.NameId;
@@ -18,8 +17,9 @@ import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.CrlReason;
 import org.xipki.security.X509Cert;
 
+import java.io.File;
+import java.io.IOException;
 import java.math.BigInteger;
-import java.security.cert.CRLException;
 import java.time.Instant;
 import java.util.List;
 
@@ -79,13 +79,44 @@ public interface CertStore {
 
   boolean addCert(CertificateInfo certInfo, boolean saveKeypair);
 
+  /**
+   * Adds the certificates with JDBC batch in one transaction.
+   *
+   * @param certInfos the certificates.
+   * @param saveKeypair whether to save the private keys.
+   * @return true if all certificates are saved, false if none is saved.
+   */
+  boolean addCerts(List<CertificateInfo> certInfos, boolean saveKeypair);
+
   long getMaxFullCrlNumber(NameId ca) throws OperationException;
 
   long getMaxCrlNumber(NameId ca) throws OperationException;
 
   long getThisUpdateOfCurrentCrl(NameId ca, boolean deltaCrl) throws OperationException;
 
-  void addCrl(NameId ca, X509CRLHolder crl) throws OperationException, CRLException;
+  /**
+   * Returns the maximal ID of the entries of the CA in the revocation journal. Must be called
+   * before the revoked certificates of a full CRL are retrieved, the delta CRLs contain the
+   * entries with greater ID.
+   *
+   * @param ca the CA.
+   * @return the maximal ID, 0 if the CA has no entries in the journal, or {@code null} if the
+   *         revocation journal does not exist.
+   * @throws OperationException if database error occurs.
+   */
+  Long getMaxRevJournalId(NameId ca) throws OperationException;
+
+  /**
+   * Saves the CRL.
+   *
+   * @param ca the CA.
+   * @param crlFile file containing the DER encoded CRL. The CRL is streamed to the database.
+   * @param revJournalId the value returned by {@link #getMaxRevJournalId(NameId)} before the
+   *        generation of a full CRL, {@code null} for delta CRLs.
+   * @throws OperationException if database error occurs.
+   * @throws IOException if the CRL could not be read.
+   */
+  void addCrl(NameId ca, File crlFile, Long revJournalId) throws OperationException, IOException;
 
   CertWithRevocationInfo revokeCert(
       NameId ca, BigInteger serialNumber, CertRevocationInfo revInfo, boolean force, CaIdNameMap idNameMap)
@@ -98,7 +129,7 @@ public interface CertStore {
   CertWithDbId unsuspendCert(NameId ca, BigInteger serialNumber, boolean force, CaIdNameMap idNamMap)
       throws OperationException;
 
-  void removeCert(long id) throws OperationException;
+  void removeCert(NameId ca, CertWithRevocationInfo cert) throws OperationException;
 
   long getCountOfCerts(NameId ca, boolean onlyRevoked) throws OperationException;
 
@@ -0,0 +1,184 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Sorts the entries of a CRL by serial number with bounded memory. At most maxEntriesInMemory
+ * entries are held in memory, the sorted runs are written to temporary files and merged.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+class CrlEntrySorter implements Closeable {
+
+  interface EntryConsumer {
+
+    void accept(CertRevInfoWithSerial entry) throws IOException;
+
+  } // interface EntryConsumer
+
+  /**
+   * Reads the entries of a sorted run.
+   */
+  private static class RunReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private CertRevInfoWithSerial current;
+
+    RunReader(File file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+    }
+
+    boolean next() throws IOException {
+      current = readEntry(in);
+      return current != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+  } // class RunReader
+
+  private final int maxEntriesInMemory;
+
+  private final List<CertRevInfoWithSerial> entries;
+
+  private final List<File> runFiles = new ArrayList<>();
+
+  CrlEntrySorter(int maxEntriesInMemory) {
+    this.maxEntriesInMemory = Args.positive(maxEntriesInMemory, "maxEntriesInMemory");
+    this.entries = new ArrayList<>(Math.min(maxEntriesInMemory, 1024));
+  }
+
+  void add(CertRevInfoWithSerial entry) throws IOException {
+    entries.add(Args.notNull(entry, "entry"));
+    if (entries.size() >= maxEntriesInMemory) {
+      writeRun();
+    }
+  }
+
+  int getNumRuns() {
+    return runFiles.size();
+  }
+
+  /**
+   * Passes all entries in the order of their serial numbers to the consumer.
+   *
+   * @param consumer the consumer.
+   * @throws IOException if the temporary files could not be read, or the consumer failed.
+   */
+  void forEachSorted(EntryConsumer consumer) throws IOException {
+    Collections.sort(entries);
+    if (runFiles.isEmpty()) {
+      for (CertRevInfoWithSerial entry : entries) {
+        consumer.accept(entry);
+      }
+      return;
+    }
+
+    if (!entries.isEmpty()) {
+      writeRun();
+    }
+
+    PriorityQueue<RunReader> queue = new PriorityQueue<>(runFiles.size(),
+        (a, b) -> a.current.compareTo(b.current));
+    List<RunReader> readers = new ArrayList<>(runFiles.size());
+    try {
+      for (File runFile : runFiles) {
+        RunReader reader = new RunReader(runFile);
+        readers.add(reader);
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+
+      while (!queue.isEmpty()) {
+        RunReader reader = queue.poll();
+        consumer.accept(reader.current);
+        if (reader.next()) {
+          queue.add(reader);
+        }
+      }
+    } finally {
+      for (RunReader reader : readers) {
+        reader.close();
+      }
+    }
+  } // method forEachSorted
+
+  @Override
+  public void close() {
+    entries.clear();
+    for (File runFile : runFiles) {
+      IoUtil.deleteFile(runFile);
+    }
+    runFiles.clear();
+  }
+
+  private void writeRun() throws IOException {
+    Collections.sort(entries);
+    File runFile = File.createTempFile("crl-run-", ".tmp");
+    runFiles.add(runFile);
+    try (DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(Files.newOutputStream(runFile.toPath())))) {
+      for (CertRevInfoWithSerial entry : entries) {
+        writeEntry(out, entry);
+      }
+    }
+    entries.clear();
+  } // method writeRun
+
+  private static void writeEntry(DataOutputStream out, CertRevInfoWithSerial entry) throws IOException {
+    out.writeLong(entry.getId());
+    byte[] serial = entry.getSerial().toByteArray();
+    out.writeShort(serial.length);
+    out.write(serial);
+    out.writeByte(entry.getReason().getCode());
+    out.writeLong(entry.getRevocationTime().toEpochMilli());
+    Instant invalidityTime = entry.getInvalidityTime();
+    out.writeBoolean(invalidityTime != null);
+    if (invalidityTime != null) {
+      out.writeLong(invalidityTime.toEpochMilli());
+    }
+  } // method writeEntry
+
+  private static CertRevInfoWithSerial readEntry(DataInputStream in) throws IOException {
+    long id;
+    try {
+      id = in.readLong();
+    } catch (EOFException ex) {
+      return null;
+    }
+
+    byte[] serial = new byte[in.readUnsignedShort()];
+    in.readFully(serial);
+    int reason = in.readUnsignedByte();
+    Instant revocationTime = Instant.ofEpochMilli(in.readLong());
+    Instant invalidityTime = in.readBoolean() ? Instant.ofEpochMilli(in.readLong()) : null;
+    return new CertRevInfoWithSerial(id, new BigInteger(serial), reason, revocationTime, invalidityTime);
+  } // method readEntry
+
+}
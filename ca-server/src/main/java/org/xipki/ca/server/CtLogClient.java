@@ -20,7 +20,6 @@ import org.xipki.security.ctlog.CtLog.SignedCertificateTimestampList;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainRequest;
 import org.xipki.security.ctlog.CtLogMessages.AddPreChainResponse;
 import org.xipki.util.Args;
-import org.xipki.util.Curl;
 import org.xipki.util.Curl.CurlResult;
 import org.xipki.util.DefaultCurl;
 import org.xipki.util.Hex;
@@ -28,6 +27,7 @@ import org.xipki.util.JSON;
 import org.xipki.util.StringUtil;
 import org.xipki.util.http.SslContextConf;
 
+import java.io.Closeable;
 import java.io.IOException;
 import java.security.InvalidKeyException;
 import java.security.NoSuchAlgorithmException;
@@ -41,31 +41,86 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Certificate transparency (CT) log client.
+ * <p>
+ * The precertificate is submitted to all CT log servers concurrently, and the SCTs are returned
+ * as soon as the configured quorum of them has been received.
  *
  * @author Lijun Liao (xipki)
  */
-public class CtLogClient {
+public class CtLogClient implements Closeable {
+
+  /**
+   * Public keys found by one {@link CtLogPublicKeyFinder}, indexed by the hex-encoded log ID.
+   */
+  private static class VerifyKeys {
+
+    private final CtLogPublicKeyFinder finder;
+
+    private final ConcurrentHashMap<String, PublicKey> keys = new ConcurrentHashMap<>();
+
+    VerifyKeys(CtLogPublicKeyFinder finder) {
+      this.finder = finder;
+    }
+
+  } // class VerifyKeys
 
   private static final Logger LOG = LoggerFactory.getLogger(CtLogClient.class);
 
-  private final Curl curl;
+  private static final int DFLT_TIMEOUT_SECONDS = 10;
+
+  private final DefaultCurl curl;
 
   private final List<String> addPreChainUrls;
 
+  private final int quorum;
+
+  private final long timeoutMs;
+
+  private final ExecutorService executor;
+
+  /**
+   * Public keys to verify the SCTs, found by the most recently used public key finder.
+   */
+  private volatile VerifyKeys verifyKeys;
+
   public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf) {
+    this(serverUrls, sslContextConf, Args.notEmpty(serverUrls, "serverUrls").size(), DFLT_TIMEOUT_SECONDS);
+  }
+
+  public CtLogClient(List<String> serverUrls, SslContextConf sslContextConf, int quorum, int timeoutSeconds) {
     Args.notEmpty(serverUrls, "serverUrls");
+    this.quorum = Args.range(quorum, "quorum", 1, serverUrls.size());
+    this.timeoutMs = Args.positive(timeoutSeconds, "timeoutSeconds") * 1000L;
 
     this.curl  = new DefaultCurl();
-    ((DefaultCurl) this.curl).setSslContextConf(sslContextConf);
+    this.curl.setSslContextConf(sslContextConf);
+    this.curl.setConnectTimeout((int) timeoutMs);
+    this.curl.setReadTimeout((int) timeoutMs);
+
     this.addPreChainUrls = new ArrayList<>(serverUrls.size());
     for (String m : serverUrls) {
       String addPreChainUrl = m.endsWith("/") ? m + "ct/v1/add-pre-chain/" : m + "/ct/v1/add-pre-chain/";
       this.addPreChainUrls.add(addPreChainUrl);
     }
+
+    AtomicInteger index = new AtomicInteger();
+    this.executor = Executors.newCachedThreadPool(r -> {
+      Thread t = new Thread(r, "ctlog-" + index.getAndIncrement());
+      t.setDaemon(true);
+      return t;
+    });
   } // constructor
 
   public SignedCertificateTimestampList getCtLogScts(
@@ -109,64 +164,152 @@ public class CtLogClient {
       LOG.debug("CTLog Request: {}", StringUtil.toUtf8String(content));
     }
 
-    List<SignedCertificateTimestamp> scts = new ArrayList<>(addPreChainUrls.size());
-    Map<String, String> headers = new HashMap<>();
-    headers.put("content-type", "application/json");
-    for (String url : addPreChainUrls) {
-      CurlResult res;
-      try {
-        res = curl.curlPost(url, false, headers, null, content);
-      } catch (Exception ex) {
-        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error while calling " + url + ": " + ex.getMessage());
+    final int n = addPreChainUrls.size();
+    long deadline = System.currentTimeMillis() + timeoutMs;
+
+    CompletionService<SignedCertificateTimestamp> completionService = new ExecutorCompletionService<>(executor);
+    Map<Future<SignedCertificateTimestamp>, Integer> futures = new HashMap<>(n * 2);
+    for (int i = 0; i < n; i++) {
+      String url = addPreChainUrls.get(i);
+      futures.put(completionService.submit(
+          () -> submit(url, content, issuerKeyHash, preCertTbsCert, publicKeyFinder)), i);
+    }
+
+    SignedCertificateTimestamp[] results = new SignedCertificateTimestamp[n];
+    int succeeded = 0;
+    int failed = 0;
+    String lastError = null;
+
+    try {
+      while (succeeded < quorum && n - failed >= quorum) {
+        long remaining = deadline - System.currentTimeMillis();
+        Future<SignedCertificateTimestamp> future = remaining <= 0 ? null
+            : completionService.poll(remaining, TimeUnit.MILLISECONDS);
+        if (future == null) {
+          lastError = "timeout after " + timeoutMs + " ms";
+          break;
+        }
+
+        try {
+          results[futures.get(future)] = future.get();
+          succeeded++;
+        } catch (ExecutionException ex) {
+          failed++;
+          Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+          lastError = cause.getMessage();
+          LOG.warn("error getting SCT: {}", lastError);
+        }
+      }
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE, "interrupted while waiting for SCTs");
+    } finally {
+      // the remaining submissions are not needed anymore.
+      for (Future<SignedCertificateTimestamp> future : futures.keySet()) {
+        future.cancel(true);
       }
+    }
 
-      byte[] respContent = Optional.ofNullable(res.getContent()).orElseThrow(
-          () -> new OperationException(ErrorCode.SYSTEM_FAILURE,
-                  "server does not return any content while responding " + url));
+    if (succeeded < quorum) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE,
+          "received " + succeeded + " SCTs, but " + quorum + " are required: " + lastError);
+    }
 
-      if (LOG.isDebugEnabled()) {
-        LOG.debug("CTLog Response: {}", StringUtil.toUtf8String(respContent));
+    // keep the order of the configured CT log servers.
+    List<SignedCertificateTimestamp> scts = new ArrayList<>(succeeded);
+    for (SignedCertificateTimestamp sct : results) {
+      if (sct != null) {
+        scts.add(sct);
       }
+    }
 
-      AddPreChainResponse resp = JSON.parseObject(respContent, AddPreChainResponse.class);
+    return new SignedCertificateTimestampList(new SerializedSCT(scts));
+  } // method getCtLogScts
 
-      DigitallySigned ds = DigitallySigned.getInstance(resp.getSignature(), new AtomicInteger(0));
-      byte sctVersion = resp.getSct_version();
-      byte[] logId = resp.getId();
-      String hexLogId = Hex.encodeUpper(logId);
-      long timestamp = resp.getTimestamp();
-      byte[] extensions = resp.getExtensions();
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
 
-      PublicKey verifyKey = publicKeyFinder == null ? null : publicKeyFinder.getPublicKey(logId);
-      if (verifyKey == null) {
-        LOG.warn("could not find CtLog public key 0x{} to verify the SCT", hexLogId);
-      } else {
-        SignatureAndHashAlgorithm algorithm = ds.getAlgorithm();
-        String signAlgo = getSignatureAlgo(algorithm);
+  private SignedCertificateTimestamp submit(
+      String url, byte[] content, byte[] issuerKeyHash, byte[] preCertTbsCert, CtLogPublicKeyFinder publicKeyFinder)
+      throws OperationException {
+    Map<String, String> headers = new HashMap<>();
+    headers.put("content-type", "application/json");
 
-        boolean sigValid;
-        try {
-          Signature sig = Signature.getInstance(signAlgo, "BC");
-          sig.initVerify(verifyKey);
-          CtLog.update(sig, sctVersion, timestamp, extensions, issuerKeyHash, preCertTbsCert);
-          sigValid = sig.verify(ds.getSignature());
-        } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException | SignatureException ex) {
-          throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error verifying SCT signature");
-        }
+    CurlResult res;
+    try {
+      res = curl.curlPost(url, false, headers, null, content);
+    } catch (Exception ex) {
+      throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error while calling " + url + ": " + ex.getMessage());
+    }
 
-        if (sigValid) {
-          LOG.info("verified SCT signature with logId {} and timestamp {}", hexLogId, timestamp);
-        } else {
-          throw new OperationException(ErrorCode.SYSTEM_FAILURE, "SCT signature is invalid");
-        }
+    byte[] respContent = Optional.ofNullable(res.getContent()).orElseThrow(
+        () -> new OperationException(ErrorCode.SYSTEM_FAILURE,
+                "server does not return any content while responding " + url));
+
+    if (LOG.isDebugEnabled()) {
+      LOG.debug("CTLog Response: {}", StringUtil.toUtf8String(respContent));
+    }
+
+    AddPreChainResponse resp = JSON.parseObject(respContent, AddPreChainResponse.class);
+
+    DigitallySigned ds = DigitallySigned.getInstance(resp.getSignature(), new AtomicInteger(0));
+    byte sctVersion = resp.getSct_version();
+    byte[] logId = resp.getId();
+    String hexLogId = Hex.encodeUpper(logId);
+    long timestamp = resp.getTimestamp();
+    byte[] extensions = resp.getExtensions();
+
+    PublicKey verifyKey = getVerifyKey(hexLogId, logId, publicKeyFinder);
+    if (verifyKey == null) {
+      LOG.warn("could not find CtLog public key 0x{} to verify the SCT", hexLogId);
+    } else {
+      SignatureAndHashAlgorithm algorithm = ds.getAlgorithm();
+      String signAlgo = getSignatureAlgo(algorithm);
+
+      boolean sigValid;
+      try {
+        Signature sig = Signature.getInstance(signAlgo, "BC");
+        sig.initVerify(verifyKey);
+        CtLog.update(sig, sctVersion, timestamp, extensions, issuerKeyHash, preCertTbsCert);
+        sigValid = sig.verify(ds.getSignature());
+      } catch (NoSuchAlgorithmException | NoSuchProviderException | InvalidKeyException | SignatureException ex) {
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "error verifying SCT signature");
       }
 
-      SignedCertificateTimestamp sct = new SignedCertificateTimestamp(sctVersion, logId, timestamp, extensions, ds);
-      scts.add(sct);
+      if (sigValid) {
+        LOG.info("verified SCT signature with logId {} and timestamp {}", hexLogId, timestamp);
+      } else {
+        throw new OperationException(ErrorCode.SYSTEM_FAILURE, "SCT signature is invalid");
+      }
     }
 
-    return new SignedCertificateTimestampList(new SerializedSCT(scts));
-  } // method getCtLogScts
+    return new SignedCertificateTimestamp(sctVersion, logId, timestamp, extensions, ds);
+  } // method submit
+
+  PublicKey getVerifyKey(String hexLogId, byte[] logId, CtLogPublicKeyFinder publicKeyFinder) {
+    if (publicKeyFinder == null) {
+      return null;
+    }
+
+    VerifyKeys cache = verifyKeys;
+    if (cache == null || cache.finder != publicKeyFinder) {
+      // the finder has been replaced, e.g. after the reload of the configuration.
+      cache = new VerifyKeys(publicKeyFinder);
+      verifyKeys = cache;
+    }
+
+    PublicKey key = cache.keys.get(hexLogId);
+    if (key == null) {
+      // a miss is not cached.
+      key = publicKeyFinder.getPublicKey(logId);
+      if (key != null) {
+        cache.keys.put(hexLogId, key);
+      }
+    }
+    return key;
+  } // method getVerifyKey
 
   private static String getSignatureAlgo(SignatureAndHashAlgorithm algorithm)
       throws OperationException {
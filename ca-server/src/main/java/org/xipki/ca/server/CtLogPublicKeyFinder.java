@@ -10,6 +10,7 @@ import org.xipki.ca.server.CaServerConf.CtLogConf;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.util.KeyUtil;
 import org.xipki.security.util.X509Util;
+import org.xipki.util.Hex;
 import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 
@@ -17,9 +18,9 @@ import java.io.File;
 import java.io.IOException;
 import java.security.PublicKey;
 import java.security.spec.InvalidKeySpecException;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * CtLog public key finder.
@@ -30,11 +31,10 @@ public class CtLogPublicKeyFinder {
 
   private static final Logger LOG = LoggerFactory.getLogger(CtLogPublicKeyFinder.class);
 
-  private final byte[][] logIds;
-
-  private final PublicKey[] publicKeys;
-
-  private final boolean withPublicKeys;
+  /**
+   * Public keys indexed by the hex-encoded log ID.
+   */
+  private final Map<String, PublicKey> publicKeys;
 
   public CtLogPublicKeyFinder(CtLogConf conf) throws IOException {
     String keydirName = conf.getKeydir();
@@ -49,15 +49,11 @@ public class CtLogPublicKeyFinder {
     }
 
     if (keyFiles == null || keyFiles.length == 0) {
-      this.logIds = null;
-      this.publicKeys = null;
-      this.withPublicKeys = false;
+      this.publicKeys = Collections.emptyMap();
       return;
     }
 
-    final int size = keyFiles.length;
-    List<byte[]> logIdList = new ArrayList<>(size);
-    List<PublicKey> publicKeyList = new ArrayList<>(size);
+    Map<String, PublicKey> keys = new HashMap<>();
 
     for (File m : keyFiles) {
       byte[] keyBytes = IoUtil.read(m, true);
@@ -67,29 +63,18 @@ public class CtLogPublicKeyFinder {
         byte[] logId = HashAlgo.SHA256.hash(spki.getEncoded());
         PublicKey key = KeyUtil.generatePublicKey(spki);
 
-        logIdList.add(logId);
-        publicKeyList.add(key);
+        keys.put(Hex.encode(logId), key);
         LOG.info("loaded CtLog public key {}", m.getName());
       } catch (IOException | InvalidKeySpecException ex) {
         LogUtil.error(LOG, ex, "could not load CtLog public key " + m.getName());
       }
     }
 
-    this.logIds = logIdList.toArray(new byte[0][0]);
-    this.publicKeys = publicKeyList.toArray(new PublicKey[0]);
-    this.withPublicKeys = logIds.length > 0;
+    this.publicKeys = keys;
   }
 
   public PublicKey getPublicKey(byte[] logId) {
-    if (withPublicKeys) {
-      for (int i = 0; i < logIds.length; i++) {
-        if (Arrays.equals(logId, logIds[i])) {
-          return publicKeys[i];
-        }
-      }
-    }
-
-    return null;
+    return publicKeys.isEmpty() ? null : publicKeys.get(Hex.encode(logId));
   }
 
 }
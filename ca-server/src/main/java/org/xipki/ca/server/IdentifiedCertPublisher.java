@@ -16,6 +16,7 @@ import org.xipki.security.X509Cert;
 import org.xipki.util.Args;
 
 import java.io.Closeable;
+import java.io.File;
 
 /**
  * CertPublisher with identifier.
@@ -56,6 +57,10 @@ public class IdentifiedCertPublisher implements Closeable {
     return certPublisher.crlAdded(caCert, crl);
   }
 
+  public boolean crlAdded(X509Cert caCert, File crlFile) {
+    return certPublisher.crlAdded(caCert, crlFile);
+  }
+
   public PublisherEntry getDbEntry() {
     return entry;
   }
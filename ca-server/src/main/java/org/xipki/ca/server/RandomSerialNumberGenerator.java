@@ -3,8 +3,9 @@
 
 package org.xipki.ca.server;
 
+import org.xipki.security.util.DrbgRandom;
+
 import java.math.BigInteger;
-import java.security.SecureRandom;
 
 /**
  * Random serial number generator.
@@ -17,10 +18,10 @@ class RandomSerialNumberGenerator {
 
   private static RandomSerialNumberGenerator instance;
 
-  private final SecureRandom random;
+  private final DrbgRandom random;
 
   private RandomSerialNumberGenerator() {
-    this.random = new SecureRandom();
+    this.random = DrbgRandom.getInstance();
   }
 
   /**
@@ -64,7 +64,11 @@ import java.util.Date;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import static org.xipki.ca.sdk.CaAuditConstants.NAME_message;
 import static org.xipki.ca.sdk.CaAuditConstants.TYPE_gen_cert;
@@ -150,6 +154,11 @@ public class X509Ca extends X509CaModule implements Closeable {
 
   static class OperationExceptionWithIndex extends OperationException {
 
+    /**
+     * Index of an exception which applies to all requests of the batch.
+     */
+    static final int INDEX_ALL = -1;
+
     private final int index;
 
     public OperationExceptionWithIndex(int index, OperationException underlying) {
@@ -187,6 +196,11 @@ public class X509Ca extends X509CaModule implements Closeable {
 
   private final boolean saveKeypair;
 
+  private final Object batchExecutorLock = new Object();
+
+  // executor to generate the certificates of a batch in parallel, created on demand.
+  private ExecutorService batchExecutor;
+
   public X509Ca(CaManagerImpl caManager, CaInfo caInfo, CertStore certstore, CtLogClient ctlogClient)
       throws OperationException {
     super(caInfo);
@@ -402,6 +416,10 @@ public class X509Ca extends X509CaModule implements Closeable {
       }
     }
 
+    if (batch) {
+      return generateCertsInParallel(requestor, gcts, transactionId, event);
+    }
+
     List<CertificateInfo> certInfos = new ArrayList<>(n);
     OperationExceptionWithIndex exception = null;
 
@@ -460,6 +478,70 @@ public class X509Ca extends X509CaModule implements Closeable {
     return certInfos;
   }
 
+  /**
+   * Generates the certificates of a batch in two phases: First the certificates are built and
+   * signed in parallel, then they are saved in one database transaction. If any certificate
+   * could not be generated or saved, no certificate is saved.
+   */
+  private List<CertificateInfo> generateCertsInParallel(
+      RequestorInfo requestor, List<GrantedCertTemplate> gcts, String transactionId, AuditEvent event)
+      throws OperationExceptionWithIndex {
+    final int n = gcts.size();
+    for (GrantedCertTemplate gct : gcts) {
+      LOG.info("     START generateCertificate: CA={}, profile={}, subject='{}'",
+          caIdent.getName(), gct.certprofile.getIdent().getName(), gct.grantedSubjectText);
+    }
+
+    List<CertificateInfo> certInfos;
+    try {
+      certInfos = BatchCertIssuer.issue(getBatchExecutor(), n,
+          index -> generateCert(requestor, index, gcts.get(index), transactionId, event, false),
+          this::saveCerts);
+    } catch (OperationExceptionWithIndex ex) {
+      int index = ex.getIndex();
+      if (index == OperationExceptionWithIndex.INDEX_ALL) {
+        event.addEventData(CaAuditConstants.NAME_message, ex.getMessage());
+        setEventStatus(event, false);
+      } else {
+        GrantedCertTemplate gct = gcts.get(index);
+        LOG.error("    FAILED generateCertificate: CA={}, profile={}, subject='{}'",
+            caIdent.getName(), gct.certprofile.getIdent().getName(), gct.grantedSubjectText);
+      }
+      LogUtil.warn(LOG, ex);
+      throw ex;
+    }
+
+    if (LOG.isInfoEnabled()) {
+      for (int i = 0; i < n; i++) {
+        CertWithDbId cert = certInfos.get(i).getCert();
+        LOG.info("SUCCESSFUL generateCertificate: CA={}, profile={}, subject='{}', serialNumber={}",
+            caIdent.getName(), gcts.get(i).certprofile.getIdent().getName(),
+            cert.getCert().getSubjectText(), cert.getCert().getSerialNumberHex());
+      }
+    }
+
+    return certInfos;
+  } // method generateCertsInParallel
+
+  private ExecutorService getBatchExecutor() {
+    synchronized (batchExecutorLock) {
+      if (batchExecutor == null) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+              Thread thread = new Thread(runnable);
+              thread.setName("batch-issuer-" + caIdent.getName());
+              thread.setDaemon(true);
+              return thread;
+            });
+        // do not keep idle threads for CAs without batch requests.
+        executor.allowCoreThreadTimeOut(true);
+        batchExecutor = executor;
+      }
+      return batchExecutor;
+    }
+  } // method getBatchExecutor
+
   public CertificateInfo generateCert(RequestorInfo requestor, CertTemplateData certTemplate, String transactionId)
       throws OperationException {
     Args.notNull(certTemplate, "certTemplate");
@@ -481,13 +563,24 @@ public class X509Ca extends X509CaModule implements Closeable {
   private CertificateInfo generateCert(
       RequestorInfo requestor, int index, GrantedCertTemplate gct, String transactionId, AuditEvent event)
       throws OperationExceptionWithIndex {
+    return generateCert(requestor, index, gct, transactionId, event, true);
+  }
+
+  private CertificateInfo generateCert(
+      RequestorInfo requestor, int index, GrantedCertTemplate gct, String transactionId, AuditEvent event,
+      boolean save)
+      throws OperationExceptionWithIndex {
     try {
-      CertificateInfo ret = generateCert0(requestor, gct, transactionId, event);
-      setEventStatus(event, ret != null);
+      CertificateInfo ret = generateCert0(requestor, gct, transactionId, event, save);
+      synchronized (event) {
+        setEventStatus(event, ret != null);
+      }
       return ret;
     } catch (OperationException ex) {
-      event.addEventData(gct.auditPrefix() + CaAuditConstants.NAME_message, ex.getMessage());
-      setEventStatus(event, false);
+      synchronized (event) {
+        event.addEventData(gct.auditPrefix() + CaAuditConstants.NAME_message, ex.getMessage());
+        setEventStatus(event, false);
+      }
       if (ex instanceof OperationExceptionWithIndex) {
         throw (OperationExceptionWithIndex) ex;
       } else {
@@ -496,8 +589,14 @@ public class X509Ca extends X509CaModule implements Closeable {
     }
   }
 
+  /**
+   * Generates the certificate.
+   * @param save whether to save the generated certificate. If false, the caller must save it
+   *        via {@link #saveCert(CertificateInfo)}.
+   */
   private CertificateInfo generateCert0(RequestorInfo requestor, GrantedCertTemplate gct,
-                                        String transactionId, AuditEvent event) throws OperationException {
+                                        String transactionId, AuditEvent event, boolean save)
+      throws OperationException {
     Args.notNull(gct, "gct");
 
     IdentifiedCertprofile certprofile = gct.certprofile;
@@ -556,7 +655,10 @@ public class X509Ca extends X509CaModule implements Closeable {
       }
     }
 
-    event.addEventData(auditPrefix + CaAuditConstants.NAME_serial, LogUtil.formatCsn(serialNumber));
+    // the event is shared by the certificates of a batch, which may be generated in parallel.
+    synchronized (event) {
+      event.addEventData(auditPrefix + CaAuditConstants.NAME_serial, LogUtil.formatCsn(serialNumber));
+    }
 
     X509v3CertificateBuilder certBuilder = new X509v3CertificateBuilder(
         caInfo.getPublicCaInfo().getSubject(), serialNumber,
@@ -647,8 +749,8 @@ public class X509Ca extends X509CaModule implements Closeable {
       ret.setTransactionId(transactionId);
       ret.setRequestedSubject(gct.requestedSubject);
 
-      if (saveCert && publisherModule.publishCert(ret, saveKeypair) == 1) {
-        throw new OperationException(SYSTEM_FAILURE, "could not save certificate");
+      if (save) {
+        saveCert(ret);
       }
     } catch (BadCertTemplateException ex) {
       throw new OperationException(BAD_CERT_TEMPLATE, ex);
@@ -666,6 +768,18 @@ public class X509Ca extends X509CaModule implements Closeable {
     return ret;
   } // method generateCertificate0
 
+  private void saveCert(CertificateInfo certInfo) throws OperationException {
+    if (saveCert && publisherModule.publishCert(certInfo, saveKeypair) == 1) {
+      throw new OperationException(SYSTEM_FAILURE, "could not save certificate");
+    }
+  }
+
+  private void saveCerts(List<CertificateInfo> certInfos) throws OperationException {
+    if (saveCert && publisherModule.publishCerts(certInfos, saveKeypair) == 1) {
+      throw new OperationException(SYSTEM_FAILURE, "could not save certificates");
+    }
+  }
+
   public IdentifiedCertprofile getX509Certprofile(String certprofileName) {
     if (certprofileName == null) {
       return null;
@@ -733,6 +847,17 @@ public class X509Ca extends X509CaModule implements Closeable {
   public void close() {
     crlModule.close();
     revokerModule.close();
+    publisherModule.close();
+    if (ctlogClient != null) {
+      ctlogClient.close();
+    }
+
+    synchronized (batchExecutorLock) {
+      if (batchExecutor != null) {
+        batchExecutor.shutdown();
+        batchExecutor = null;
+      }
+    }
 
     ScheduledThreadPoolExecutor executor = caManager.getScheduledThreadPoolExecutor();
     if (executor != null) {
@@ -16,9 +16,7 @@ import org.bouncycastle.asn1.x509.Extensions;
 import org.bouncycastle.asn1.x509.GeneralName;
 import org.bouncycastle.asn1.x509.GeneralNames;
 import org.bouncycastle.asn1.x509.IssuingDistributionPoint;
-import org.bouncycastle.cert.CertIOException;
 import org.bouncycastle.cert.X509CRLHolder;
-import org.bouncycastle.cert.X509v2CRLBuilder;
 import org.xipki.audit.AuditEvent;
 import org.xipki.ca.api.PublicCaInfo;
 import org.xipki.ca.api.mgmt.CrlControl;
@@ -32,16 +30,22 @@ import org.xipki.security.KeyUsage;
 import org.xipki.security.NoIdleSignerException;
 import org.xipki.security.X509Cert;
 import org.xipki.security.XiContentSigner;
+import org.xipki.security.asn1.CrlStreamEncoder;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.DateUtil;
 import org.xipki.util.HourMinute;
+import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 
+import java.io.BufferedOutputStream;
 import java.io.Closeable;
+import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.nio.file.Files;
 import java.security.cert.CRLException;
 import java.time.Duration;
 import java.time.Instant;
@@ -51,7 +55,6 @@ import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
 import java.util.Random;
@@ -83,6 +86,79 @@ import static org.xipki.pki.ErrorCode.SYSTEM_UNAVAILABLE;
 
 public class X509CrlModule extends X509CaModule implements Closeable {
 
+  /**
+   * Adds the revoked certificates to the CRL, applying the {@link CrlControl}.
+   */
+  private class CrlEntryAdder {
+
+    private final CrlStreamEncoder crlEncoder;
+
+    private final CrlControl crlControl;
+
+    private final boolean indirectCrl;
+
+    private final X500Name caSubject;
+
+    private boolean isFirstCrlEntry = true;
+
+    CrlEntryAdder(CrlStreamEncoder crlEncoder, CrlControl crlControl, boolean indirectCrl, X500Name caSubject) {
+      this.crlEncoder = crlEncoder;
+      this.crlControl = crlControl;
+      this.indirectCrl = indirectCrl;
+      this.caSubject = caSubject;
+    }
+
+    void add(CertRevInfoWithSerial revInfo) throws IOException {
+      CrlReason reason = revInfo.getReason();
+      if (crlControl.isExcludeReason() && reason != CrlReason.REMOVE_FROM_CRL) {
+        reason = CrlReason.UNSPECIFIED;
+      }
+
+      Instant revocationTime = revInfo.getRevocationTime();
+      Instant invalidityTime = revInfo.getInvalidityTime();
+
+      switch (crlControl.getInvalidityDateMode()) {
+        case forbidden:
+          invalidityTime = null;
+          break;
+        case optional:
+          break;
+        case required:
+          if (invalidityTime == null) {
+            invalidityTime = revocationTime;
+          }
+          break;
+        default:
+          throw new IllegalStateException("unknown TripleState " + crlControl.getInvalidityDateMode());
+      }
+
+      BigInteger serial = revInfo.getSerial();
+      LOG.debug("added cert ca={} serial={} to CRL", caIdent, serial);
+
+      if (!indirectCrl || !isFirstCrlEntry) {
+        crlEncoder.addEntry(serial, revocationTime, reason.getCode(), invalidityTime);
+        return;
+      }
+
+      List<Extension> extensions = new ArrayList<>(3);
+      if (reason != CrlReason.UNSPECIFIED) {
+        Extension ext = createReasonExtension(reason.getCode());
+        extensions.add(ext);
+      }
+      if (invalidityTime != null) {
+        Extension ext = createInvalidityDateExtension(invalidityTime);
+        extensions.add(ext);
+      }
+
+      Extension ext = createCertificateIssuerExtension(caSubject);
+      extensions.add(ext);
+
+      crlEncoder.addEntry(serial, revocationTime, new Extensions(extensions.toArray(new Extension[0])));
+      isFirstCrlEntry = false;
+    } // method add
+
+  } // class CrlEntryAdder
+
   private class CrlGenerationService implements Runnable {
 
     @Override
@@ -186,6 +262,11 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
   } // class CrlGenerationService
 
+  /**
+   * Maximal number of entries of a full CRL held in memory while sorting them by serial number.
+   */
+  private static final int MAX_CRL_ENTRIES_IN_MEMORY = 10000;
+
   private final X509Cert caCert;
 
   private final int shardId;
@@ -426,6 +507,7 @@ public class X509CrlModule extends X509CaModule implements Closeable {
     }
 
     boolean successful = false;
+    File crlFile = null;
 
     try {
       SignerEntry crlSigner = getCrlSigner();
@@ -434,180 +516,132 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       boolean indirectCrl = (crlSigner != null);
       X500Name crlIssuer = indirectCrl ? crlSigner.getCertificate().getSubject() : pci.getSubject();
 
-      X509v2CRLBuilder crlBuilder = new X509v2CRLBuilder(crlIssuer, Date.from(thisUpdate));
-      if (nextUpdate != null) {
-        crlBuilder.setNextUpdate(Date.from(nextUpdate));
-      }
+      // the revoked certificates and the encoded CRL are written to temporary files, so that the
+      // memory consumption does not grow with the size of the CRL.
+      BigInteger crlNumber;
+      // the delta CRLs contain the journal entries after this ID.
+      Long revJournalId = null;
+      try (CrlStreamEncoder crlEncoder = new CrlStreamEncoder(crlIssuer, thisUpdate, nextUpdate);
+           CrlEntrySorter sorter = new CrlEntrySorter(MAX_CRL_ENTRIES_IN_MEMORY)) {
+        crlFile = File.createTempFile("crl-", ".crl");
+        final int numEntries = 100;
 
-      final int numEntries = 100;
+        CrlControl crlControl = caInfo.getCrlControl();
 
-      CrlControl crlControl = caInfo.getCrlControl();
+        boolean withExpiredCerts = crlControl.isIncludeExpiredcerts();
 
-      boolean withExpiredCerts = crlControl.isIncludeExpiredcerts();
+        // 10 minutes buffer
+        Instant notExpiredAt = withExpiredCerts
+            ? Instant.ofEpochSecond(0) : thisUpdate.minus(600L, ChronoUnit.SECONDS);
 
-      // 10 minutes buffer
-      Instant notExpiredAt = withExpiredCerts
-          ? Instant.ofEpochSecond(0) : thisUpdate.minus(600L, ChronoUnit.SECONDS);
+        CrlEntryAdder entryAdder = new CrlEntryAdder(crlEncoder, crlControl, indirectCrl, pci.getSubject());
 
-      // we have to cache the serial entries to sort them
-      List<CertRevInfoWithSerial> allRevInfos = new LinkedList<>();
+        if (deltaCrl) {
+          List<CertRevInfoWithSerial> revInfos = certstore.getCertsForDeltaCrl(caIdent, baseCrlNumber, notExpiredAt);
+          // sort the list by SerialNumber ASC
+          Collections.sort(revInfos);
+          for (CertRevInfoWithSerial revInfo : revInfos) {
+            entryAdder.add(revInfo);
+          }
+        } else {
+          revJournalId = certstore.getMaxRevJournalId(caIdent);
 
-      if (deltaCrl) {
-        allRevInfos = certstore.getCertsForDeltaCrl(caIdent, baseCrlNumber, notExpiredAt);
-      } else {
-        long startId = 1;
+          // The entries are read in the order of their database ID, and sorted by serial number
+          // with bounded memory.
+          long startId = 1;
 
-        List<CertRevInfoWithSerial> revInfos;
-        do {
-          revInfos = certstore.getRevokedCerts(caIdent, notExpiredAt, startId, numEntries);
-          allRevInfos.addAll(revInfos);
+          List<CertRevInfoWithSerial> revInfos;
+          do {
+            revInfos = certstore.getRevokedCerts(caIdent, notExpiredAt, startId, numEntries);
 
-          long maxId = 1;
-          for (CertRevInfoWithSerial revInfo : revInfos) {
-            if (revInfo.getId() > maxId) {
-              maxId = revInfo.getId();
-            }
-          } // end for
-          startId = maxId + 1;
-        } while (revInfos.size() >= numEntries); // end do
-
-        revInfos.clear();
-      }
+            long maxId = 1;
+            for (CertRevInfoWithSerial revInfo : revInfos) {
+              sorter.add(revInfo);
+              if (revInfo.getId() > maxId) {
+                maxId = revInfo.getId();
+              }
+            } // end for
+            startId = maxId + 1;
+          } while (revInfos.size() >= numEntries); // end do
 
-      if (indirectCrl && allRevInfos.isEmpty()) {
-        // add dummy entry, see https://github.com/xipki/xipki/issues/189
-        Extensions extensions = new Extensions(createCertificateIssuerExtension(pci.getSubject()));
-        crlBuilder.addCRLEntry(BigInteger.ZERO, new Date(0), extensions);
-        LOG.debug("added cert ca={} serial=0 to the indirect CRL", caIdent);
-      } else {
-        // sort the list by SerialNumber ASC
-        Collections.sort(allRevInfos);
+          sorter.forEachSorted(entryAdder::add);
+        }
 
-        boolean isFirstCrlEntry = true;
+        if (indirectCrl && crlEncoder.getNumEntries() == 0) {
+          // add dummy entry, see https://github.com/xipki/xipki/issues/189
+          Extensions extensions = new Extensions(createCertificateIssuerExtension(pci.getSubject()));
+          crlEncoder.addEntry(BigInteger.ZERO, Instant.ofEpochMilli(0), extensions);
+          LOG.debug("added cert ca={} serial=0 to the indirect CRL", caIdent);
+        }
 
-        for (CertRevInfoWithSerial revInfo : allRevInfos) {
-          CrlReason reason = revInfo.getReason();
-          if (crlControl.isExcludeReason() && reason != CrlReason.REMOVE_FROM_CRL) {
-            reason = CrlReason.UNSPECIFIED;
-          }
+        crlNumber = caInfo.nextCrlNumber();
+        event.addEventData(NAME_crl_number, crlNumber);
+        if (baseCrlNumber != null) {
+          event.addEventData(NAME_basecrl_number, baseCrlNumber);
+        }
 
-          Instant revocationTime = revInfo.getRevocationTime();
-          Instant invalidityTime = revInfo.getInvalidityTime();
-
-          switch (crlControl.getInvalidityDateMode()) {
-            case forbidden:
-              invalidityTime = null;
-              break;
-            case optional:
-              break;
-            case required:
-              if (invalidityTime == null) {
-                invalidityTime = revocationTime;
-              }
-              break;
-            default:
-              throw new IllegalStateException("unknown TripleState " + crlControl.getInvalidityDateMode());
+        try {
+          // AuthorityKeyIdentifier
+          byte[] akiValues = indirectCrl
+              ? crlSigner.getCertificate().getSubjectKeyId() : pci.getSubjectKeyIdentifer();
+          AuthorityKeyIdentifier aki = new AuthorityKeyIdentifier(akiValues);
+          crlEncoder.addExtension(Extension.authorityKeyIdentifier, false, aki);
+
+          // add extension CRL Number
+          crlEncoder.addExtension(Extension.cRLNumber, false, new ASN1Integer(crlNumber));
+
+          // IssuingDistributionPoint
+          if (indirectCrl) {
+            IssuingDistributionPoint idp = new IssuingDistributionPoint(
+                null, // distributionPoint,
+                false, // onlyContainsUserCerts,
+                false, // onlyContainsCACerts,
+                null, // onlySomeReasons,
+                true, // indirectCRL,
+                false); // onlyContainsAttributeCerts
+
+            crlEncoder.addExtension(Extension.issuingDistributionPoint, true, idp);
           }
 
-          BigInteger serial = revInfo.getSerial();
-          LOG.debug("added cert ca={} serial={} to CRL", caIdent, serial);
-
-          if (!indirectCrl || !isFirstCrlEntry) {
-            if (invalidityTime != null) {
-              crlBuilder.addCRLEntry(serial, Date.from(revocationTime),
-                  reason.getCode(), Date.from(invalidityTime));
-            } else {
-              crlBuilder.addCRLEntry(serial, Date.from(revocationTime), reason.getCode());
-            }
-            continue;
+          // Delta CRL Indicator
+          if (deltaCrl) {
+            crlEncoder.addExtension(Extension.deltaCRLIndicator, true, new ASN1Integer(baseCrlNumber));
           }
 
-          List<Extension> extensions = new ArrayList<>(3);
-          if (reason != CrlReason.UNSPECIFIED) {
-            Extension ext = createReasonExtension(reason.getCode());
-            extensions.add(ext);
+          // freshestCRL
+          List<String> deltaCrlUris = pci.getCaUris().getDeltaCrlUris();
+          if (control.getDeltaCrlIntervals() > 0 && CollectionUtil.isNotEmpty(deltaCrlUris)) {
+            CRLDistPoint cdp = CaUtil.createCrlDistributionPoints(deltaCrlUris, pci.getSubject(), crlIssuer);
+            crlEncoder.addExtension(Extension.freshestCRL, false, cdp);
           }
-          if (invalidityTime != null) {
-            Extension ext = createInvalidityDateExtension(invalidityTime);
-            extensions.add(ext);
-          }
-
-          Extension ext = createCertificateIssuerExtension(pci.getSubject());
-          extensions.add(ext);
-
-          crlBuilder.addCRLEntry(serial, Date.from(revocationTime),
-              new Extensions(extensions.toArray(new Extension[0])));
-          isFirstCrlEntry = false;
-        }
-
-        allRevInfos.clear(); // free the memory
-      }
-
-      BigInteger crlNumber = caInfo.nextCrlNumber();
-      event.addEventData(NAME_crl_number, crlNumber);
-      if (baseCrlNumber != null) {
-        event.addEventData(NAME_basecrl_number, baseCrlNumber);
-      }
 
-      try {
-        // AuthorityKeyIdentifier
-        byte[] akiValues = indirectCrl
-            ? crlSigner.getCertificate().getSubjectKeyId() : pci.getSubjectKeyIdentifer();
-        AuthorityKeyIdentifier aki = new AuthorityKeyIdentifier(akiValues);
-        crlBuilder.addExtension(Extension.authorityKeyIdentifier, false, aki);
-
-        // add extension CRL Number
-        crlBuilder.addExtension(Extension.cRLNumber, false, new ASN1Integer(crlNumber));
-
-        // IssuingDistributionPoint
-        if (indirectCrl) {
-          IssuingDistributionPoint idp = new IssuingDistributionPoint(
-              null, // distributionPoint,
-              false, // onlyContainsUserCerts,
-              false, // onlyContainsCACerts,
-              null, // onlySomeReasons,
-              true, // indirectCRL,
-              false); // onlyContainsAttributeCerts
-
-          crlBuilder.addExtension(Extension.issuingDistributionPoint, true, idp);
+          if (withExpiredCerts) {
+            DERGeneralizedTime statusSince = new DERGeneralizedTime(Date.from(caCert.getNotBefore()));
+            crlEncoder.addExtension(Extension.expiredCertsOnCRL, false, statusSince);
+          }
+        } catch (IOException ex) {
+          LogUtil.error(LOG, ex, "crlEncoder.addExtension");
+          throw new OperationException(INVALID_EXTENSION, ex);
         }
 
-        // Delta CRL Indicator
-        if (deltaCrl) {
-          crlBuilder.addExtension(Extension.deltaCRLIndicator, true, new ASN1Integer(baseCrlNumber));
-        }
+        ConcurrentContentSigner concurrentSigner = (crlSigner == null)
+            ? caInfo.getSigner(null) : crlSigner.signer();
 
-        // freshestCRL
-        List<String> deltaCrlUris = pci.getCaUris().getDeltaCrlUris();
-        if (control.getDeltaCrlIntervals() > 0 && CollectionUtil.isNotEmpty(deltaCrlUris)) {
-          CRLDistPoint cdp = CaUtil.createCrlDistributionPoints(deltaCrlUris, pci.getSubject(), crlIssuer);
-          crlBuilder.addExtension(Extension.freshestCRL, false, cdp);
+        XiContentSigner signer0;
+        try {
+          signer0 = concurrentSigner.borrowSigner();
+        } catch (NoIdleSignerException ex) {
+          throw new OperationException(SYSTEM_FAILURE, "NoIdleSignerException: " + ex.getMessage());
         }
 
-        if (withExpiredCerts) {
-          DERGeneralizedTime statusSince = new DERGeneralizedTime(Date.from(caCert.getNotBefore()));
-          crlBuilder.addExtension(Extension.expiredCertsOnCRL, false, statusSince);
+        try (OutputStream crlOut = new BufferedOutputStream(Files.newOutputStream(crlFile.toPath()))) {
+          crlEncoder.build(signer0, crlOut);
+        } finally {
+          concurrentSigner.requiteSigner(signer0);
         }
-      } catch (CertIOException ex) {
-        LogUtil.error(LOG, ex, "crlBuilder.addExtension");
-        throw new OperationException(INVALID_EXTENSION, ex);
-      }
-
-      ConcurrentContentSigner concurrentSigner = (crlSigner == null)
-          ? caInfo.getSigner(null) : crlSigner.signer();
-
-      XiContentSigner signer0;
-      try {
-        signer0 = concurrentSigner.borrowSigner();
-      } catch (NoIdleSignerException ex) {
-        throw new OperationException(SYSTEM_FAILURE, "NoIdleSignerException: " + ex.getMessage());
-      }
-
-      X509CRLHolder crl;
-      try {
-        crl = crlBuilder.build(signer0);
-      } finally {
-        concurrentSigner.requiteSigner(signer0);
+      } catch (IOException ex) {
+        LogUtil.error(LOG, ex, "could not encode CRL");
+        throw new OperationException(CRL_FAILURE, ex);
       }
 
       // check again
@@ -623,11 +657,21 @@ public class X509CrlModule extends X509CaModule implements Closeable {
 
       caInfo.setNextCrlNumber(crlNumber.longValue() + 1);
       caManager.commitNextCrlNo(caIdent, caInfo.getNextCrlNumber());
-      publisher.publishCrl(crl);
+      publisher.publishCrl(crlFile, crlNumber, thisUpdate, revJournalId);
+
+      // only the CRL generated on demand is returned to the requestor.
+      X509CRLHolder crl = null;
+      if (!scheduled) {
+        try {
+          crl = X509Util.parseCrl(crlFile);
+        } catch (IOException | CRLException ex) {
+          throw new OperationException(CRL_FAILURE, ex);
+        }
+      }
 
       successful = true;
       LOG.info("SUCCESSFUL generateCrl: ca={}, crlNumber={}, thisUpdate={}", caIdent.getName(),
-          crlNumber, crl.getThisUpdate());
+          crlNumber, thisUpdate);
 
       if (!deltaCrl) {
         // clean up the CRL
@@ -635,6 +679,10 @@ public class X509CrlModule extends X509CaModule implements Closeable {
       }
       return crl;
     } finally {
+      if (crlFile != null) {
+        IoUtil.deleteFile(crlFile);
+      }
+
       if (!successful) {
         LOG.info("    FAILED generateCrl: ca={}", caIdent.getName());
       }
@@ -9,16 +9,25 @@ import org.xipki.ca.api.CertificateInfo;
 import org.xipki.ca.api.NameId;
 import org.xipki.ca.api.mgmt.CaStatus;
 import org.xipki.ca.api.mgmt.CertWithRevocationInfo;
+import org.xipki.ca.server.AsyncPublisher.EntryType;
+import org.xipki.ca.server.CaServerConf.AsyncPublisherConf;
 import org.xipki.ca.server.mgmt.CaManagerImpl;
 import org.xipki.security.CertRevocationInfo;
 import org.xipki.security.X509Cert;
+import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.LogUtil;
 
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * X509CA publisher module.
@@ -26,7 +35,7 @@ import java.util.List;
  * @author Lijun Liao (xipki)
  */
 
-class X509PublisherModule extends X509CaModule {
+class X509PublisherModule extends X509CaModule implements Closeable, AsyncPublisher.Deliverer {
 
   private final CertStore certstore;
 
@@ -34,15 +43,24 @@ class X509PublisherModule extends X509CaModule {
 
   private final CaManagerImpl caManager;
 
+  private final AsyncPublisherConf asyncPublisherConf;
+
+  // publisher name to the asynchronous publisher, null if the events are published synchronously.
+  private final ConcurrentHashMap<String, AsyncPublisher> asyncPublishers;
+
   X509PublisherModule(CaManagerImpl caManager, CaInfo caInfo, CertStore certstore) {
     super(caInfo);
 
     this.caManager = Args.notNull(caManager, "caManager");
     this.caIdNameMap = caManager.idNameMap();
     this.certstore = Args.notNull(certstore, "certstore");
+    this.asyncPublisherConf = caManager.getAsyncPublisherConf();
+    this.asyncPublishers = asyncPublisherConf == null ? null : new ConcurrentHashMap<>();
 
     for (IdentifiedCertPublisher publisher : publishers()) {
       publisher.caAdded(caCert);
+      // publish the pending events of the last run.
+      getAsyncPublisher(publisher);
     }
   } // constructor
 
@@ -62,9 +80,50 @@ class X509PublisherModule extends X509CaModule {
       return 1;
     }
 
+    return publishToPublishers(certInfo) ? 0 : 2;
+  } // method publishCert0
+
+  /**
+   * Saves the certificates in one database transaction, and then publishes them.
+   *
+   * @param certInfos the certificates.
+   * @param saveKeypair whether to save the private keys.
+   * @return 0 if successful, 1 if no certificate is saved, 2 if the certificates are saved
+   *         but some are not published.
+   */
+  int publishCerts(List<CertificateInfo> certInfos, boolean saveKeypair) {
+    List<CertificateInfo> newCertInfos = new ArrayList<>(Args.notNull(certInfos, "certInfos").size());
+    for (CertificateInfo certInfo : certInfos) {
+      if (!certInfo.isAlreadyIssued()) {
+        newCertInfos.add(certInfo);
+      }
+    }
+
+    if (newCertInfos.isEmpty()) {
+      return 0;
+    }
+
+    if (!certstore.addCerts(newCertInfos, saveKeypair)) {
+      return 1;
+    }
+
+    boolean allPublished = true;
+    for (CertificateInfo certInfo : newCertInfos) {
+      if (!publishToPublishers(certInfo)) {
+        allPublished = false;
+      }
+    }
+    return allPublished ? 0 : 2;
+  } // method publishCerts
+
+  private boolean publishToPublishers(CertificateInfo certInfo) {
     List<String> failedPublishers = null;
 
     for (IdentifiedCertPublisher publisher : publishers()) {
+      if (enqueue(publisher, EntryType.ADD, certInfo.getCert().getCertId(), null)) {
+        continue;
+      }
+
       boolean successful;
       try {
         successful = publisher.certificateAdded(certInfo);
@@ -81,15 +140,15 @@ class X509PublisherModule extends X509CaModule {
     } // end for
 
     if (failedPublishers == null) {
-      return 0;
+      return true;
     }
 
     if (LOG.isWarnEnabled()) {
       LOG.warn("could not publish to publishers {}: {}", failedPublishers,
           Base64.encodeToString(certInfo.getCert().getCert().getEncoded(), true));
     }
-    return 2;
-  } // method publishCert0
+    return false;
+  } // method publishToPublishers
 
   boolean republishCerts(List<String> publisherNames, int numThreads) {
     List<IdentifiedCertPublisher> publishers;
@@ -153,25 +212,33 @@ class X509PublisherModule extends X509CaModule {
 
       CertRepublisher republisher = new CertRepublisher(caIdent, caCert,
           caIdNameMap, certstore, publishers, onlyRevokedCerts, numThreads);
-      return republisher.republish();
+      boolean successful = republisher.republish();
+      if (successful && asyncPublishers != null) {
+        successful = replayDeadLetters(publishers);
+      }
+      return successful;
     } finally {
       caInfo.setStatus(status);
     }
   } // method republishCerts
 
-  void publishCrl(X509CRLHolder crl) {
+  void publishCrl(File crlFile, BigInteger crlNumber, Instant thisUpdate, Long revJournalId) {
     try {
-      certstore.addCrl(caIdent, crl);
+      certstore.addCrl(caIdent, crlFile, revJournalId);
     } catch (Exception ex) {
       LOG.error("could not add CRL ca={}, thisUpdate={}: {}, ",
-          caIdent.getName(), crl.getThisUpdate(), ex.getMessage());
+          caIdent.getName(), thisUpdate, ex.getMessage());
       LOG.debug("Exception", ex);
       return;
     }
 
     for (IdentifiedCertPublisher publisher : publishers()) {
+      if (crlNumber != null && enqueue(publisher, EntryType.CRL, crlNumber.longValue(), null)) {
+        continue;
+      }
+
       try {
-        publisher.crlAdded(caCert, crl);
+        publisher.crlAdded(caCert, crlFile);
       } catch (RuntimeException ex) {
         LogUtil.error(LOG, ex, "could not publish CRL to the publisher " + publisher.getIdent());
       }
@@ -181,6 +248,12 @@ class X509PublisherModule extends X509CaModule {
   boolean publishCertRemoved(CertWithDbId certToRemove) {
     boolean successful = true;
     for (IdentifiedCertPublisher publisher : publishers()) {
+      // the certificate will be removed from the database, it is contained in the event.
+      if (enqueue(publisher, EntryType.REMOVE, certToRemove.getCertId(),
+          Base64.encodeToString(certToRemove.getCert().getEncoded()))) {
+        continue;
+      }
+
       boolean singleSuccessful;
       try {
         singleSuccessful = publisher.certificateRemoved(caCert, certToRemove);
@@ -207,6 +280,10 @@ class X509PublisherModule extends X509CaModule {
 
   void publishCertRevoked(CertWithRevocationInfo revokedCert) {
     for (IdentifiedCertPublisher publisher : publishers()) {
+      if (enqueue(publisher, EntryType.REVOKE, revokedCert.getCert().getCertId(), null)) {
+        continue;
+      }
+
       boolean successful;
       try {
         successful = publisher.certificateRevoked(caCert, revokedCert.getCert(),
@@ -224,6 +301,10 @@ class X509PublisherModule extends X509CaModule {
   void publishCertUnrevoked(CertWithDbId unrevokedCert) {
     List<String> failedPublishers = null;
     for (IdentifiedCertPublisher publisher : publishers()) {
+      if (enqueue(publisher, EntryType.UNREVOKE, unrevokedCert.getCertId(), null)) {
+        continue;
+      }
+
       boolean successful;
       try {
         successful = publisher.certificateUnrevoked(caCert, unrevokedCert);
@@ -279,6 +360,173 @@ class X509PublisherModule extends X509CaModule {
     return succ;
   }
 
+  @Override
+  public boolean deliver(String publisherName, AsyncPublisher.Entry entry) {
+    IdentifiedCertPublisher publisher = null;
+    for (IdentifiedCertPublisher p : publishers()) {
+      if (p.getIdent().getName().equals(publisherName)) {
+        publisher = p;
+        break;
+      }
+    }
+
+    if (publisher == null) {
+      LOG.warn("publisher {} is not assigned to CA {}, ignore event {} {}",
+          publisherName, caIdent.getName(), entry.getType(), entry.getId());
+      return true;
+    }
+
+    try {
+      switch (entry.getType()) {
+        case REMOVE: {
+          CertWithDbId cert = new CertWithDbId(X509Util.parseCert(Base64.decode(entry.getData())));
+          cert.setCertId(entry.getId());
+          return publisher.certificateRemoved(caCert, cert);
+        }
+        case CRL: {
+          byte[] encodedCrl = certstore.getEncodedCrl(caIdent, BigInteger.valueOf(entry.getId()));
+          // the CRL may have been cleaned up in the meantime.
+          return encodedCrl == null || publisher.crlAdded(caCert, new X509CRLHolder(encodedCrl));
+        }
+        default: {
+          CertificateInfo certInfo = certstore.getCertForId(caIdent, caCert, entry.getId(), caIdNameMap);
+          if (certInfo == null) {
+            // removed in the meantime, will be handled by the event REMOVE.
+            return true;
+          }
+
+          if (entry.getType() == EntryType.ADD) {
+            return publisher.certificateAdded(certInfo);
+          }
+
+          // REVOKE or UNREVOKE: publish the current revocation status.
+          if (certInfo.isRevoked()) {
+            NameId profile = certInfo.getProfile();
+            return publisher.certificateRevoked(caCert, certInfo.getCert(),
+                profile == null ? null : profile.getName(), certInfo.getRevocationInfo());
+          } else {
+            return publisher.certificateUnrevoked(caCert, certInfo.getCert());
+          }
+        }
+      }
+    } catch (Exception ex) {
+      LogUtil.warn(LOG, ex, "could not publish event " + entry.getType() + " " + entry.getId()
+          + " to publisher " + publisherName);
+      return false;
+    }
+  } // method deliver
+
+  @Override
+  public void close() {
+    if (asyncPublishers == null) {
+      return;
+    }
+
+    synchronized (asyncPublishers) {
+      for (AsyncPublisher asyncPublisher : asyncPublishers.values()) {
+        asyncPublisher.close();
+      }
+      asyncPublishers.clear();
+    }
+  } // method close
+
+  private AsyncPublisher getAsyncPublisher(IdentifiedCertPublisher publisher) {
+    if (asyncPublishers == null) {
+      return null;
+    }
+
+    String name = publisher.getIdent().getName();
+    AsyncPublisher asyncPublisher = asyncPublishers.get(name);
+    if (asyncPublisher != null) {
+      return asyncPublisher;
+    }
+
+    synchronized (asyncPublishers) {
+      asyncPublisher = asyncPublishers.get(name);
+      if (asyncPublisher == null) {
+        try {
+          asyncPublisher = new AsyncPublisher(caIdent.getName(), name, this, asyncPublisherConf);
+        } catch (IOException | RuntimeException ex) {
+          LogUtil.error(LOG, ex, "could not start asynchronous publisher " + name + " for CA "
+              + caIdent.getName() + ", publish synchronously");
+          return null;
+        }
+        asyncPublishers.put(name, asyncPublisher);
+      }
+      return asyncPublisher;
+    }
+  } // method getAsyncPublisher
+
+  /**
+   * Queues the event for the asynchronous publishing.
+   *
+   * @return true if queued, false if the event must be published synchronously.
+   */
+  private boolean enqueue(IdentifiedCertPublisher publisher, EntryType type, Long id, String data) {
+    AsyncPublisher asyncPublisher = getAsyncPublisher(publisher);
+    if (asyncPublisher == null || id == null) {
+      return false;
+    }
+
+    try {
+      asyncPublisher.enqueue(type, id, data);
+      return true;
+    } catch (IOException ex) {
+      LogUtil.error(LOG, ex, "could not queue event " + type + " " + id + " for publisher "
+          + publisher.getIdent().getName() + ", publish synchronously");
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      LOG.error("interrupted while queuing event {} {} for publisher {}, publish synchronously",
+          type, id, publisher.getIdent().getName());
+    }
+    return false;
+  } // method enqueue
+
+  /**
+   * Replays the dead letters after all certificates have been republished. The events ADD
+   * are covered by the republishing, the other events are published again.
+   */
+  private boolean replayDeadLetters(List<IdentifiedCertPublisher> publishers) {
+    boolean successful = true;
+    for (IdentifiedCertPublisher publisher : publishers) {
+      String name = publisher.getIdent().getName();
+      AsyncPublisher asyncPublisher = asyncPublishers.get(name);
+      if (asyncPublisher == null) {
+        continue;
+      }
+
+      List<AsyncPublisher.Entry> entries;
+      try {
+        entries = asyncPublisher.takeDeadLetters();
+      } catch (IOException ex) {
+        LogUtil.error(LOG, ex, "could not read dead letters of publisher " + name);
+        successful = false;
+        continue;
+      }
+
+      List<AsyncPublisher.Entry> failedEntries = new ArrayList<>();
+      for (AsyncPublisher.Entry entry : entries) {
+        if (entry.getType() != EntryType.ADD && !deliver(name, entry)) {
+          failedEntries.add(entry);
+        }
+      }
+
+      LOG.info("replayed {} dead letters of publisher {} for CA {}, {} failed",
+          entries.size(), name, caIdent.getName(), failedEntries.size());
+
+      if (!failedEntries.isEmpty()) {
+        successful = false;
+        try {
+          asyncPublisher.addDeadLetters(failedEntries);
+        } catch (IOException ex) {
+          LogUtil.error(LOG, ex, "could not save dead letters of publisher " + name);
+        }
+      }
+    }
+
+    return successful;
+  } // method replayDeadLetters
+
   private List<IdentifiedCertPublisher> publishers() {
     return caManager.getIdentifiedPublishersForCa(caIdent.getName());
   }
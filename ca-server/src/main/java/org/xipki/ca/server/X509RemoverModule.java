@@ -135,7 +135,7 @@ public class X509RemoverModule extends X509CaModule implements Closeable {
         return null;
       }
 
-      certstore.removeCert(certWithRevInfo.getCert().getCertId());
+      certstore.removeCert(caIdent, certWithRevInfo);
       successful = (certToRemove != null);
       return certToRemove;
     } finally {
@@ -6,11 +6,9 @@ package org.xipki.ca.server.db;
 import org.bouncycastle.asn1.ASN1Integer;
 import org.bouncycastle.asn1.x500.RDN;
 import org.bouncycastle.asn1.x500.X500Name;
-import org.bouncycastle.asn1.x509.CertificateList;
 import org.bouncycastle.asn1.x509.Extension;
 import org.bouncycastle.asn1.x509.Extensions;
-import org.bouncycastle.asn1.x509.TBSCertList.CRLEntry;
-import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.crypto.ExtendedDigest;
 import org.bouncycastle.util.Pack;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,11 +36,12 @@ import org.xipki.security.CrlReason;
 import org.xipki.security.FpIdCalculator;
 import org.xipki.security.HashAlgo;
 import org.xipki.security.X509Cert;
+import org.xipki.security.asn1.CrlStreamParser;
 import org.xipki.security.util.X509Util;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
-import org.xipki.util.DateUtil;
 import org.xipki.util.Hex;
+import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.LruCache;
 import org.xipki.util.SqlUtil;
@@ -52,11 +51,17 @@ import javax.crypto.NoSuchPaddingException;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.GCMParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.io.BufferedOutputStream;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Reader;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.security.NoSuchAlgorithmException;
 import java.security.NoSuchProviderException;
-import java.security.cert.CRLException;
 import java.security.cert.CertificateException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -65,9 +70,7 @@ import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
-import java.util.Date;
-import java.util.Enumeration;
-import java.util.HashSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -92,8 +95,28 @@ import static org.xipki.pki.ErrorCode.SYSTEM_FAILURE;
 
 public class DbCertStore extends QueryExecutor implements CertStore {
 
+  /**
+   * Consumer of the serial numbers of the base CRL, in batches.
+   */
+  interface SerialNumbersConsumer {
+
+    void accept(List<BigInteger> snList) throws SQLException;
+
+  } // interface SerialNumbersConsumer
+
   private static final Logger LOG = LoggerFactory.getLogger(DbCertStore.class);
 
+  /**
+   * Journal entries are kept one day longer than required by the delta CRLs of the latest full CRL.
+   */
+  private static final long REVJOURNAL_RETENTION_SECONDS = 24L * 3600;
+
+  /**
+   * The journal IDs are not in the order of the commits. The entries with events within this period
+   * before the base CRL are read again and reconciled against the base CRL.
+   */
+  private static final long REVJOURNAL_OVERLAP_SECONDS = 600;
+
   private final String sqlCertForId;
 
   private final String sqlCertWithRevInfo;
@@ -147,10 +170,33 @@ public class DbCertStore extends QueryExecutor implements CertStore {
 
   private static final String SQL_REMOVE_CERT_FOR_ID = "DELETE FROM CERT WHERE ID=?";
 
+  private static final String SQL_UNSUSPEND_CERT = "UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE ID=?";
+
+  private static final String SQL_ADD_REVJOURNAL =
+      SqlUtil.buildInsertSql("REVJOURNAL", "ID,CA_ID,CERT_ID,ETIME,EVENT,SN,NAFTER,PREV_REV,RR,RT,RIT");
+
+  private static final String SQL_CLEANUP_REVJOURNAL = "DELETE FROM REVJOURNAL WHERE CA_ID=? AND ETIME<?";
+
+  private static final String SQL_CRL_THISUPDATE = "SELECT THISUPDATE FROM CRL WHERE CA_ID=? AND CRL_NO=?";
+
+  private static final String SQL_CRL_JOURNAL_ID =
+      "SELECT JOURNAL_ID,THISUPDATE FROM CRL WHERE CA_ID=? AND CRL_NO=?";
+
+  private static final String SQL_MIN_REVJOURNAL_ID_SINCE =
+      "SELECT MIN(ID) FROM REVJOURNAL WHERE CA_ID=? AND ETIME>=?";
+
+  private static final String SQL_MAX_REVJOURNAL_ID = "SELECT MAX(ID) FROM REVJOURNAL WHERE CA_ID=?";
+
   private final int dbSchemaVersion;
 
   private final int maxX500nameLen;
 
+  // whether the column CERT.CERT is of binary type.
+  private final boolean binaryCert;
+
+  // whether the revocation journal (table REVJOURNAL) exists.
+  private final boolean revJournal;
+
   private final String keypairEncAlg = "AES/GCM/NoPadding";
 
   private final int keypairEncAlgId = 1;
@@ -187,11 +233,18 @@ public class DbCertStore extends QueryExecutor implements CertStore {
         "REQ_SUBJECT,CRL_SCOPE,CERT,PRIVATE_KEY";
     this.SQL_ADD_CERT = SqlUtil.buildInsertSql("CERT", addCertSql);
 
-    this.SQL_ADD_CRL = SqlUtil.buildInsertSql("CRL", "ID,CA_ID,CRL_NO,THISUPDATE,NEXTUPDATE," +
-        "DELTACRL,BASECRL_NO,CRL_SCOPE,SHA1,CRL");
-
     updateDbInfo();
 
+    this.binaryCert = datasource.isBinaryColumn(null, "CERT", "CERT");
+    LOG.info("table CERT uses {} column CERT", binaryCert ? "binary" : "text");
+
+    this.revJournal = datasource.tableExists(null, "REVJOURNAL");
+    LOG.info("revocation journal (table REVJOURNAL) {}", revJournal ? "exists" : "does not exist");
+
+    // the column CRL.JOURNAL_ID is created together with the table REVJOURNAL.
+    this.SQL_ADD_CRL = SqlUtil.buildInsertSql("CRL", "ID,CA_ID,CRL_NO,THISUPDATE,NEXTUPDATE," +
+        "DELTACRL,BASECRL_NO,CRL_SCOPE,SHA1,CRL" + (revJournal ? ",JOURNAL_ID" : ""));
+
     this.idGenerator = Args.notNull(idGenerator, "idGenerator");
 
     this.sqlCertForId = buildSelectFirstSql("PID,RID,REV,RR,RT,RIT,CERT FROM CERT WHERE ID=?");
@@ -363,93 +416,145 @@ public class DbCertStore extends QueryExecutor implements CertStore {
 
     Args.notNull(certInfo, "certInfo");
 
-    byte[] encodedCert = null;
-
     try {
-      String privateKeyInfo = null;
-      CertWithDbId cert = certInfo.getCert();
-      String tid = certInfo.getTransactionId();
-      X500Name reqSubject = certInfo.getRequestedSubject();
-
       final long certId = idGenerator.nextId();
-      if (saveKeypair && certInfo.getPrivateKey() != null) {
-        // we use certId as the nonce
-        byte[] nonce = new byte[12];
-        Pack.longToBigEndian(certId, nonce, 4);
-        byte[] encodedPrivateKey = certInfo.getPrivateKey().getEncoded();
-        Cipher cipher = Cipher.getInstance(keypairEncAlg, keypairEncProvider);
-        GCMParameterSpec spec = new GCMParameterSpec(96, nonce);
-        cipher.init(Cipher.ENCRYPT_MODE, keypairEncKey, spec);
-        byte[] encrypted = cipher.doFinal(encodedPrivateKey);
-        privateKeyInfo = keypairEncAlgId + ":" + keypairEncKeyId + ":"
-                + Base64.encodeToString(nonce) + ":" + Base64.encodeToString(encrypted);
-      }
-
-      String subjectText = X509Util.cutText(cert.getCert().getSubjectText(), maxX500nameLen);
-      long fpSubject = X509Util.fpCanonicalizedName(cert.getCert().getSubject());
+      execUpdatePrepStmt0(SQL_ADD_CERT, buildAddCertParams(certInfo, saveKeypair, certId));
+      certInfo.getCert().setCertId(certId);
+    } catch (Exception ex) {
+      logAddCertError(certInfo, ex);
+      return false;
+    }
 
-      byte[] san = cert.getCert().getSubjectAltNames();
-      Long fpSan = san == null ? null : FpIdCalculator.hash(san);
+    return true;
+  } // method addCert
 
-      String reqSubjectText = null;
-      Long fpReqSubject = null;
-      if (reqSubject != null) {
-        fpReqSubject = X509Util.fpCanonicalizedName(reqSubject);
-        if (fpSubject == fpReqSubject) {
-          fpReqSubject = null;
-        } else {
-          reqSubjectText = X509Util.cutX500Name(CaUtil.sortX509Name(reqSubject), maxX500nameLen);
+  @Override
+  public boolean addCerts(List<CertificateInfo> certInfos, boolean saveKeypair) {
+    Args.notEmpty(certInfos, "certInfos");
+    if (certInfos.size() == 1) {
+      return addCert(certInfos.get(0), saveKeypair);
+    }
+
+    if (saveKeypair && keypairEncKey == null) {
+      for (CertificateInfo certInfo : certInfos) {
+        if (certInfo.getPrivateKey() != null) {
+          LOG.error("no keypair encryption key is configured");
+          // no key encryption is configured
+          return false;
         }
       }
+    }
 
-      encodedCert = cert.getCert().getEncoded();
-      String b64FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
-
-      X509Cert cert0 = cert.getCert();
-      boolean isEeCert = cert0.getBasicConstraints() == -1;
-
-      List<SqlColumn2> columns = new ArrayList<>(20);
-
-      columns.add(col2Long(certId));
-      // currentTimeSeconds
-      columns.add(col2Long(Instant.now().getEpochSecond()));
-      columns.add(col2Str(cert0.getSerialNumber().toString(16)));
-      columns.add(col2Str(subjectText));
-      columns.add(col2Long(fpSubject));
-      columns.add(col2Long(fpReqSubject));
-      columns.add(col2Long(fpSan));
-      // notBeforeSeconds
-      columns.add(col2Long(cert0.getNotBefore().getEpochSecond()));
-      // notAfterSeconds
-      columns.add(col2Long(cert0.getNotAfter().getEpochSecond()));
-      columns.add(col2Bool(false));
-
-      columns.add(col2Int(certInfo.getProfile().getId()));
-      columns.add(col2Int(certInfo.getIssuer().getId()));
-      columns.add(col2Int(certInfo.getRequestor().getId()));
-
-      columns.add(col2Int(isEeCert ? 1 : 0));
-      columns.add(col2Str(tid));
-      columns.add(col2Str(b64FpCert));
-      columns.add(col2Str(reqSubjectText));
-      // in this version we set CRL_SCOPE to fixed value 0
-      columns.add(col2Int(0));
-      columns.add(col2Str(Base64.encodeToString(encodedCert)));
-      columns.add(col2Str(privateKeyInfo));
-
-      execUpdatePrepStmt0(SQL_ADD_CERT, columns.toArray(new SqlColumn2[0]));
-
-      cert.setCertId(certId);
-    } catch (Exception ex) {
-      LOG.error("could not save certificate {}: {}. Message: {}",
-          certInfo.getCert().getCert().getSubject(),
-          encodedCert == null ? "null" : Base64.encodeToString(encodedCert, true), ex.getMessage());
+    long[] certIds = new long[certInfos.size()];
+    List<SqlColumn2[]> paramsList = new ArrayList<>(certInfos.size());
+    for (int i = 0; i < certIds.length; i++) {
+      CertificateInfo certInfo = certInfos.get(i);
+      certIds[i] = idGenerator.nextId();
+      try {
+        paramsList.add(buildAddCertParams(certInfo, saveKeypair, certIds[i]));
+      } catch (Exception ex) {
+        logAddCertError(certInfo, ex);
+        return false;
+      }
+    }
+
+    try {
+      execBatchPrepStmt(SQL_ADD_CERT, paramsList);
+    } catch (DataAccessException ex) {
+      LOG.error("could not save {} certificates in batch, none is saved. Message: {}",
+          certInfos.size(), ex.getMessage());
       LOG.debug("error", ex);
       return false;
     }
 
+    for (int i = 0; i < certIds.length; i++) {
+      certInfos.get(i).getCert().setCertId(certIds[i]);
+    }
+
     return true;
-  } // method addCert
+  } // method addCerts
+
+  private SqlColumn2[] buildAddCertParams(CertificateInfo certInfo, boolean saveKeypair, long certId)
+      throws Exception {
+    String privateKeyInfo = null;
+    CertWithDbId cert = certInfo.getCert();
+    String tid = certInfo.getTransactionId();
+    X500Name reqSubject = certInfo.getRequestedSubject();
+
+    if (saveKeypair && certInfo.getPrivateKey() != null) {
+      // we use certId as the nonce
+      byte[] nonce = new byte[12];
+      Pack.longToBigEndian(certId, nonce, 4);
+      byte[] encodedPrivateKey = certInfo.getPrivateKey().getEncoded();
+      Cipher cipher = Cipher.getInstance(keypairEncAlg, keypairEncProvider);
+      GCMParameterSpec spec = new GCMParameterSpec(96, nonce);
+      cipher.init(Cipher.ENCRYPT_MODE, keypairEncKey, spec);
+      byte[] encrypted = cipher.doFinal(encodedPrivateKey);
+      privateKeyInfo = keypairEncAlgId + ":" + keypairEncKeyId + ":"
+              + Base64.encodeToString(nonce) + ":" + Base64.encodeToString(encrypted);
+    }
+
+    String subjectText = X509Util.cutText(cert.getCert().getSubjectText(), maxX500nameLen);
+    long fpSubject = X509Util.fpCanonicalizedName(cert.getCert().getSubject());
+
+    byte[] san = cert.getCert().getSubjectAltNames();
+    Long fpSan = san == null ? null : FpIdCalculator.hash(san);
+
+    String reqSubjectText = null;
+    Long fpReqSubject = null;
+    if (reqSubject != null) {
+      fpReqSubject = X509Util.fpCanonicalizedName(reqSubject);
+      if (fpSubject == fpReqSubject) {
+        fpReqSubject = null;
+      } else {
+        reqSubjectText = X509Util.cutX500Name(CaUtil.sortX509Name(reqSubject), maxX500nameLen);
+      }
+    }
+
+    byte[] encodedCert = cert.getCert().getEncoded();
+    String b64FpCert = HashAlgo.SHA1.base64Hash(encodedCert);
+
+    X509Cert cert0 = cert.getCert();
+    boolean isEeCert = cert0.getBasicConstraints() == -1;
+
+    List<SqlColumn2> columns = new ArrayList<>(20);
+
+    columns.add(col2Long(certId));
+    // currentTimeSeconds
+    columns.add(col2Long(Instant.now().getEpochSecond()));
+    columns.add(col2Str(cert0.getSerialNumber().toString(16)));
+    columns.add(col2Str(subjectText));
+    columns.add(col2Long(fpSubject));
+    columns.add(col2Long(fpReqSubject));
+    columns.add(col2Long(fpSan));
+    // notBeforeSeconds
+    columns.add(col2Long(cert0.getNotBefore().getEpochSecond()));
+    // notAfterSeconds
+    columns.add(col2Long(cert0.getNotAfter().getEpochSecond()));
+    columns.add(col2Bool(false));
+
+    columns.add(col2Int(certInfo.getProfile().getId()));
+    columns.add(col2Int(certInfo.getIssuer().getId()));
+    columns.add(col2Int(certInfo.getRequestor().getId()));
+
+    columns.add(col2Int(isEeCert ? 1 : 0));
+    columns.add(col2Str(tid));
+    columns.add(col2Str(b64FpCert));
+    columns.add(col2Str(reqSubjectText));
+    // in this version we set CRL_SCOPE to fixed value 0
+    columns.add(col2Int(0));
+    columns.add(binaryCert ? col2Bytes(encodedCert) : col2Str(Base64.encodeToString(encodedCert)));
+    columns.add(col2Str(privateKeyInfo));
+
+    return columns.toArray(new SqlColumn2[0]);
+  } // method buildAddCertParams
+
+  private static void logAddCertError(CertificateInfo certInfo, Exception ex) {
+    X509Cert cert = certInfo.getCert().getCert();
+    LOG.error("could not save certificate {}: {}. Message: {}",
+        cert.getSubject(), Base64.encodeToString(cert.getEncoded(), true), ex.getMessage());
+    LOG.debug("error", ex);
+  } // method logAddCertError
 
   @Override
   public long getMaxFullCrlNumber(NameId ca) throws OperationException {
@@ -476,47 +581,58 @@ public class DbCertStore extends QueryExecutor implements CertStore {
   } // method getThisUpdateOfCurrentCrl
 
   @Override
-  public void addCrl(NameId ca, X509CRLHolder crl) throws OperationException, CRLException {
-    notNulls(ca, "ca", crl, "crl");
+  public Long getMaxRevJournalId(NameId ca) throws OperationException {
+    return revJournal ? execQueryLongPrepStmt(SQL_MAX_REVJOURNAL_ID, col2Int(ca.getId())) : null;
+  }
 
-    Extensions extns = crl.getExtensions();
-    byte[] extnValue = X509Util.getCoreExtValue(extns, Extension.cRLNumber);
-    Long crlNumber = (extnValue == null) ? null : ASN1Integer.getInstance(extnValue).getPositiveValue().longValue();
+  @Override
+  public void addCrl(NameId ca, File crlFile, Long revJournalId) throws OperationException, IOException {
+    notNulls(ca, "ca", crlFile, "crlFile");
 
-    extnValue = X509Util.getCoreExtValue(extns, Extension.deltaCRLIndicator);
-    Long baseCrlNumber = null;
-    if (extnValue != null) {
-      baseCrlNumber = ASN1Integer.getInstance(extnValue).getPositiveValue().longValue();
-    }
+    CrlStreamParser crl = new CrlStreamParser(crlFile);
+    Long crlNumber = (crl.getCrlNumber() == null) ? null : crl.getCrlNumber().longValue();
+    Long baseCrlNumber = (crl.getBaseCrlNumber() == null) ? null : crl.getBaseCrlNumber().longValue();
 
     int currentMaxCrlId = (int) getMax("CRL", "ID");
     int crlId = Math.max(cachedCrlId.get(), currentMaxCrlId) + 1;
     cachedCrlId.set(crlId);
 
-    byte[] encodedCrl;
+    // the Base64 encoded CRL is written to a temporary file and passed as character stream,
+    // so that the CRL is not held in memory.
+    File b64File = File.createTempFile("crl-", ".b64");
     try {
-      encodedCrl = crl.getEncoded();
-    } catch (IOException ex) {
-      throw new CRLException(ex.getMessage(), ex);
-    }
-
-    String b64Sha1 = HashAlgo.SHA1.base64Hash(encodedCrl);
-    String b64Crl = Base64.encodeToString(encodedCrl);
-
-    List<SqlColumn2> columns = new ArrayList<>(10);
-    columns.add(col2Int(crlId));
-    columns.add(col2Int(ca.getId()));
-    columns.add(col2Long(crlNumber));
-    columns.add(col2Long(DateUtil.toEpochSecond(crl.getThisUpdate())));
-    columns.add(col2Long(getDateSeconds(crl.getNextUpdate())));
-    columns.add(col2Bool((baseCrlNumber != null)));
-    columns.add(col2Long(baseCrlNumber));
-    // in this version we set CRL_SCOPE to fixed value 0
-    columns.add(col2Int(0));
-    columns.add(col2Str(b64Sha1));
-    columns.add(col2Str(b64Crl));
+      String b64Sha1 = base64EncodeFile(crlFile, b64File);
+
+      try (Reader b64Crl = Files.newBufferedReader(b64File.toPath(), StandardCharsets.US_ASCII)) {
+        List<SqlColumn2> columns = new ArrayList<>(10);
+        columns.add(col2Int(crlId));
+        columns.add(col2Int(ca.getId()));
+        columns.add(col2Long(crlNumber));
+        columns.add(col2Long(crl.getThisUpdate().getEpochSecond()));
+        columns.add(col2Long(getDateSeconds(crl.getNextUpdate())));
+        columns.add(col2Bool((baseCrlNumber != null)));
+        columns.add(col2Long(baseCrlNumber));
+        // in this version we set CRL_SCOPE to fixed value 0
+        columns.add(col2Int(0));
+        columns.add(col2Str(b64Sha1));
+        columns.add(col2CharStream(b64Crl));
+        if (revJournal) {
+          // only the full CRLs are used as base CRL.
+          columns.add(col2Long(baseCrlNumber == null ? revJournalId : null));
+        }
+
+        execUpdatePrepStmt0(SQL_ADD_CRL, columns.toArray(new SqlColumn2[0]));
+      }
+    } finally {
+      IoUtil.deleteFile(b64File);
+    }
 
-    execUpdatePrepStmt0(SQL_ADD_CRL, columns.toArray(new SqlColumn2[0]));
+    if (revJournal && baseCrlNumber == null) {
+      // the delta CRLs refer to this full CRL, the older journal entries are not required any more.
+      long before = crl.getThisUpdate().getEpochSecond() - REVJOURNAL_RETENTION_SECONDS;
+      int num = execUpdatePrepStmt0(SQL_CLEANUP_REVJOURNAL, col2Int(ca.getId()), col2Long(before));
+      LOG.info("removed {} entries of CA {} from the revocation journal", num, ca.getName());
+    }
   } // method addCrl
 
   @Override
@@ -554,11 +670,21 @@ public class DbCertStore extends QueryExecutor implements CertStore {
       invTimeSeconds = revInfo.getInvalidityTime().getEpochSecond();
     }
 
-    int count = execUpdatePrepStmt0(SQL_REVOKE_CERT,
-        col2Long(Instant.now().getEpochSecond()), col2Bool(true),
+    long now = Instant.now().getEpochSecond();
+    SqlColumn2[] params = {col2Long(now), col2Bool(true),
         col2Long(revInfo.getRevocationTime().getEpochSecond()), // revTimeSeconds
         col2Long(invTimeSeconds), col2Int(revInfo.getReason().getCode()),
-        col2Long(certWithRevInfo.getCert().getCertId())); // certId
+        col2Long(certWithRevInfo.getCert().getCertId())}; // certId
+
+    int count;
+    if (revJournal) {
+      int event = revInfo.getReason() == CrlReason.CERTIFICATE_HOLD ? RevJournalDelta.SUSPEND : RevJournalDelta.REVOKE;
+      count = execUpdateWithRevJournal(SQL_REVOKE_CERT, params,
+          buildRevJournalParams(ca, now, event, certWithRevInfo.getCert(), currentRevInfo != null, revInfo));
+    } else {
+      count = execUpdatePrepStmt0(SQL_REVOKE_CERT, params);
+    }
+
     if (count != 1) {
       String message = (count > 1) ? count + " rows modified, but exactly one is expected"
           : "no row is modified, but exactly one is expected";
@@ -591,8 +717,18 @@ public class DbCertStore extends QueryExecutor implements CertStore {
           + CrlReason.CERTIFICATE_HOLD.getDescription());
     }
 
-    int count = execUpdatePrepStmt0(SQL_REVOKE_SUSPENDED_CERT, col2Long(Instant.now().getEpochSecond()),
-        col2Int(reason.getCode()), col2Long(serialNumber.getId())); // certId
+    long now = Instant.now().getEpochSecond();
+    SqlColumn2[] params = {col2Long(now), col2Int(reason.getCode()), col2Long(serialNumber.getId())}; // certId
+
+    int count;
+    if (revJournal) {
+      CertRevocationInfo newRevInfo = new CertRevocationInfo(reason,
+          currentRevInfo.getRevocationTime(), currentRevInfo.getInvalidityTime());
+      count = execUpdateWithRevJournal(SQL_REVOKE_SUSPENDED_CERT, params,
+          buildRevJournalParams(ca, now, RevJournalDelta.REVOKE, certWithRevInfo.getCert(), true, newRevInfo));
+    } else {
+      count = execUpdatePrepStmt0(SQL_REVOKE_SUSPENDED_CERT, params);
+    }
 
     if (count != 1) {
       String message = (count > 1) ? count + " rows modified, but exactly one is expected"
@@ -630,10 +766,18 @@ public class DbCertStore extends QueryExecutor implements CertStore {
     }
 
     SqlColumn2 nullInt = new SqlColumn2(ColumnType.INT, null);
-    int count = execUpdatePrepStmt0("UPDATE CERT SET LUPDATE=?,REV=?,RT=?,RIT=?,RR=? WHERE ID=?",
-        col2Long(Instant.now().getEpochSecond()), // currentTimeSeconds
+    long now = Instant.now().getEpochSecond();
+    SqlColumn2[] params = {col2Long(now), // currentTimeSeconds
         col2Bool(false), nullInt, nullInt, nullInt,
-        col2Long(certWithRevInfo.getCert().getCertId())); // certId
+        col2Long(certWithRevInfo.getCert().getCertId())}; // certId
+
+    int count;
+    if (revJournal) {
+      count = execUpdateWithRevJournal(SQL_UNSUSPEND_CERT, params,
+          buildRevJournalParams(ca, now, RevJournalDelta.UNSUSPEND, certWithRevInfo.getCert(), true, null));
+    } else {
+      count = execUpdatePrepStmt0(SQL_UNSUSPEND_CERT, params);
+    }
 
     if (count != 1) {
       String message = (count > 1) ? count + " rows modified, but exactly one is expected"
@@ -645,9 +789,30 @@ public class DbCertStore extends QueryExecutor implements CertStore {
   } // method unsuspendCert
 
   @Override
-  public void removeCert(long id) throws OperationException {
-    execUpdatePrepStmt0(SQL_REMOVE_CERT_FOR_ID, col2Long(id));
-  }
+  public void removeCert(NameId ca, CertWithRevocationInfo cert) throws OperationException {
+    notNulls(ca, "ca", cert, "cert");
+    SqlColumn2[] params = {col2Long(cert.getCert().getCertId())};
+
+    // only the removal of revoked certificates changes the CRL.
+    if (revJournal && cert.isRevoked()) {
+      execUpdateWithRevJournal(SQL_REMOVE_CERT_FOR_ID, params, buildRevJournalParams(ca,
+          Instant.now().getEpochSecond(), RevJournalDelta.REMOVE, cert.getCert(), true, null));
+    } else {
+      execUpdatePrepStmt0(SQL_REMOVE_CERT_FOR_ID, params);
+    }
+  } // method removeCert
+
+  private SqlColumn2[] buildRevJournalParams(NameId ca, long eventTime, int event, CertWithDbId cert,
+                                             boolean revokedBefore, CertRevocationInfo revInfo) {
+    X509Cert cert0 = cert.getCert();
+    Instant invTime = revInfo == null ? null : revInfo.getInvalidityTime();
+    return new SqlColumn2[]{col2Long(idGenerator.nextId()), col2Int(ca.getId()), col2Long(cert.getCertId()),
+        col2Long(eventTime), col2Int(event), col2Str(cert0.getSerialNumber().toString(16)),
+        col2Long(cert0.getNotAfter().getEpochSecond()), col2Bool(revokedBefore),
+        col2Int(revInfo == null ? null : revInfo.getReason().getCode()),
+        col2Long(revInfo == null ? null : revInfo.getRevocationTime().getEpochSecond()),
+        col2Long(invTime == null ? null : invTime.getEpochSecond())};
+  } // method buildRevJournalParams
 
   @Override
   public long getCountOfCerts(NameId ca, boolean onlyRevoked) throws OperationException {
@@ -813,7 +978,7 @@ public class DbCertStore extends QueryExecutor implements CertStore {
       return null;
     }
 
-    X509Cert cert = parseCert(Base64.decodeFast(rs.getString("CERT")));
+    X509Cert cert = parseCert(getEncodedCert(rs));
     CertWithDbId certWithMeta = new CertWithDbId(cert);
     certWithMeta.setCertId(certId);
     CertificateInfo certInfo = new CertificateInfo(certWithMeta, null, ca, caCert,
@@ -864,9 +1029,13 @@ public class DbCertStore extends QueryExecutor implements CertStore {
     return buildCertWithRevInfo(rs.getLong("ID"), rs, idNameMap);
   } // method getCertWithRevocationInfo
 
+  private byte[] getEncodedCert(ResultRow rs) {
+    return binaryCert ? rs.getBytes("CERT") : Base64.decodeFast(rs.getString("CERT"));
+  }
+
   private CertWithRevocationInfo buildCertWithRevInfo(long certId, ResultRow rs, CaIdNameMap idNameMap)
       throws OperationException {
-    X509Cert cert = parseCert(Base64.decodeFast(rs.getString("CERT")));
+    X509Cert cert = parseCert(getEncodedCert(rs));
     CertWithDbId certWithMeta = new CertWithDbId(cert);
     certWithMeta.setCertId(certId);
 
@@ -895,7 +1064,7 @@ public class DbCertStore extends QueryExecutor implements CertStore {
       return null;
     }
 
-    byte[] encodedCert = Base64.decodeFast(rs.getString("CERT"));
+    byte[] encodedCert = getEncodedCert(rs);
     CertWithDbId certWithMeta = new CertWithDbId(parseCert(encodedCert));
 
     CertificateInfo certInfo = new CertificateInfo(certWithMeta, null, ca, caCert,
@@ -927,7 +1096,7 @@ public class DbCertStore extends QueryExecutor implements CertStore {
     params[2] = col2Long(fpSubject);
 
     List<ResultRow> rows = execQueryPrepStmt0(sql, params);
-    return rows == null || rows.isEmpty() ? null : parseCert(Base64.decodeFast(rows.get(0).getString("CERT")));
+    return rows == null || rows.isEmpty() ? null : parseCert(getEncodedCert(rows.get(0)));
   } // method getCert
 
   @Override
@@ -1039,155 +1208,293 @@ public class DbCertStore extends QueryExecutor implements CertStore {
       throws OperationException {
     notNulls(ca, "ca", notExpiredAt, "notExpiredAt", baseCrlNumber, "baseCrlNumber");
 
-    // Get the Base FullCRL
-    byte[] encodedCrl = getEncodedCrl(ca, baseCrlNumber);
-    CertificateList crl = CertificateList.getInstance(encodedCrl);
-    // Get revoked certs in CRL
-    Enumeration<?> revokedCertsInCrl = crl.getRevokedCertificateEnumeration();
+    if (revJournal) {
+      List<CertRevInfoWithSerial> ret = getCertsForDeltaCrlFromJournal(ca, baseCrlNumber, notExpiredAt);
+      if (ret != null) {
+        return ret;
+      }
+    }
 
-    Set<BigInteger> allSnSet = null;
+    ResultRow crlRow = execQuery1PrepStmt0(SQL_CRL_THISUPDATE,
+        col2Int(ca.getId()), col2Long(baseCrlNumber.longValue()));
+    if (crlRow == null) {
+      throw new OperationException(CRL_FAILURE, "found no CRL with number " + baseCrlNumber);
+    }
 
-    boolean supportInSql = datasource.getDatabaseType().supportsInArray();
-    List<BigInteger> snList = new LinkedList<>();
+    // get list of certificates revoked after the generation of Base FullCRL
+    // -1: so that no entry is ignored: consider all revoked certificates with
+    // Database.lastUpdate >= CRL.thisUpdate
+    Map<BigInteger, CertRevInfoWithSerial> revokedSince =
+        getCertsRevokedSince(ca, crlRow.getLong("THISUPDATE") - 1, notExpiredAt);
 
     List<CertRevInfoWithSerial> ret = new LinkedList<>();
 
+    // Stream the base FullCRL: the entries already contained in the CRL are removed from
+    // revokedSince, and the contained certificates are checked whether they have been unrevoked.
+    File crlFile = null;
     PreparedStatement ps = null;
+    String sql = null;
     try {
-      while (revokedCertsInCrl.hasMoreElements()) {
-        CRLEntry crlEntry = (CRLEntry) revokedCertsInCrl.nextElement();
-        if (allSnSet == null) {
-          // guess the size of revoked certificate, very rough
-          int averageSize = encodedCrl.length / crlEntry.getEncoded().length;
-          allSnSet = new HashSet<>((int) (1.1 * averageSize));
-        }
-
-        BigInteger sn = crlEntry.getUserCertificate().getPositiveValue();
-        snList.add(sn);
-        allSnSet.add(sn);
-
-        if (!supportInSql) {
-          continue;
-        }
+      crlFile = File.createTempFile("basecrl-", ".crl");
+      writeEncodedCrl(ca, baseCrlNumber, crlFile);
 
-        if (snList.size() == 100) {
-          // check whether revoked certificates have been unrevoked.
+      final boolean supportInSql = datasource.getDatabaseType().supportsInArray();
+      final int batchSize = supportInSql ? 100 : 1;
+      sql = supportInSql ? sqlSelectUnrevokedSn100 : sqlSelectUnrevokedSn;
+      ps = prepareStatement(sql);
 
-          // due to the memory consumption do not use the executeQueryPreparedStament0() method.
-          if (ps == null) {
-            ps = prepareStatement(sqlSelectUnrevokedSn100);
-          }
+      final PreparedStatement batchPs = ps;
+      List<BigInteger> snList = streamBaseCrl(crlFile, revokedSince, batchSize,
+          batch -> addUnrevokedCerts(batchPs, batch, ret));
 
-          for (int i = 1; i < 101; i++) {
-            ps.setString(i, snList.get(i - 1).toString(16));
-          }
-          snList.clear();
-
-          ResultSet rs = ps.executeQuery();
-          try {
-            while (rs.next()) {
-              ret.add(new CertRevInfoWithSerial(0L, new BigInteger(rs.getString("SN"), 16),
-                  CrlReason.REMOVE_FROM_CRL, // reason
-                  Instant.ofEpochSecond(rs.getLong("LUPDATE")), //revocationTime,
-                  null)); // invalidityTime
-            }
-          } finally {
-            datasource.releaseResources(null, rs);
-          }
+      if (!snList.isEmpty()) {
+        // the statement for single serial number is used for the remaining ones.
+        datasource.releaseResources(ps, null);
+        ps = null;
+        sql = sqlSelectUnrevokedSn;
+        ps = prepareStatement(sql);
+        for (BigInteger sn : snList) {
+          addUnrevokedCerts(ps, Collections.singletonList(sn), ret);
         }
       }
     } catch (SQLException ex) {
-      throw new OperationException(DATABASE_FAILURE, datasource.translate(sqlSelectUnrevokedSn100, ex).getMessage());
-    } catch (IOException ex) {
+      throw new OperationException(DATABASE_FAILURE, datasource.translate(sql, ex).getMessage());
+    } catch (IOException | RuntimeException ex) {
       throw new OperationException(CRL_FAILURE, ex.getMessage());
     } finally {
       datasource.releaseResources(ps, null);
+      if (crlFile != null && !crlFile.delete()) {
+        LOG.warn("could not delete temporary file {}", crlFile.getPath());
+      }
     }
 
-    if (!snList.isEmpty()) {
-      // check whether revoked certificates have been unrevoked.
-      ps = prepareStatement(sqlSelectUnrevokedSn);
-      try {
-        for (BigInteger sn : snList) {
-          ps.setString(1, sn.toString(16));
-          ResultSet rs = ps.executeQuery();
-          try {
-            if (rs.next()) {
-              ret.add(new CertRevInfoWithSerial(0L, sn, CrlReason.REMOVE_FROM_CRL,
-                  Instant.ofEpochSecond(rs.getLong("LUPDATE")), //revocationTime,
-                  null)); // invalidityTime
-            }
-          } finally {
-            datasource.releaseResources(null, rs);
-          }
+    ret.addAll(revokedSince.values());
+    return ret;
+  } // method getCertsForDeltaCrl
+
+  /**
+   * Streams the base CRL. The certificates which are contained in the CRL with the same reason are
+   * removed from revokedSince, a certificate with a changed reason remains in it. The serial
+   * numbers of all CRL entries are passed to the consumer in batches of batchSize.
+   * @return the remaining serial numbers, fewer than batchSize, not passed to the consumer.
+   */
+  static List<BigInteger> streamBaseCrl(
+      File crlFile, Map<BigInteger, CertRevInfoWithSerial> revokedSince, int batchSize,
+      SerialNumbersConsumer consumer) throws IOException, SQLException {
+    List<BigInteger> snList = new ArrayList<>(batchSize);
+    try (CrlStreamParser.RevokedCertsIterator it = new CrlStreamParser(crlFile).revokedCertificates()) {
+      while (it.hasNext()) {
+        CrlStreamParser.RevokedCert crlEntry = it.next();
+        BigInteger sn = crlEntry.getSerialNumber();
+
+        CertRevInfoWithSerial changed = revokedSince.get(sn);
+        if (changed != null && changed.getReason().getCode() == crlEntry.getReason()) {
+          // already contained in CRL
+          revokedSince.remove(sn);
+        }
+
+        snList.add(sn);
+        if (snList.size() == batchSize) {
+          consumer.accept(snList);
+          snList.clear();
         }
-      } catch (SQLException ex) {
-        throw new OperationException(DATABASE_FAILURE, datasource.translate(sqlSelectUnrevokedSn, ex).getMessage());
-      } finally {
-        datasource.releaseResources(ps, null);
       }
     }
+    return snList;
+  } // method streamBaseCrl
 
-    // get list of certificates revoked after the generation of Base FullCRL
-    // we check all revoked certificates with LUPDATE field (last update) > THISUPDATE - 1.
+  /**
+   * Retrieves the revoked certificates which have been updated since the given time.
+   */
+  private Map<BigInteger, CertRevInfoWithSerial> getCertsRevokedSince(
+      NameId ca, long updatedSince, Instant notExpiredAt) throws OperationException {
     final int numEntries = 1000;
+    String sql = datasource.buildSelectFirstSql(numEntries, "ID ASC",
+        "ID,SN,RR,RT,RIT FROM CERT WHERE ID>? AND CA_ID=? AND REV=1 AND NAFTER>? AND LUPDATE>?");
 
-    String coreSql = "ID,SN,RR,RT,RIT FROM CERT WHERE ID>? AND CA_ID=? AND REV=1 AND NAFTER>? AND LUPDATE>?";
-    String sql = datasource.buildSelectFirstSql(numEntries, "ID ASC", coreSql);
-    ps = prepareStatement(sql);
+    Map<BigInteger, CertRevInfoWithSerial> ret = new HashMap<>();
     long startId = 1;
+    List<ResultRow> rows;
+    do {
+      rows = execQueryPrepStmt0(sql, col2Long(startId - 1), col2Int(ca.getId()),
+          col2Long(notExpiredAt.getEpochSecond() + 1), col2Long(updatedSince));
+      for (ResultRow rs : rows) {
+        long id = rs.getLong("ID");
+        if (id > startId) {
+          startId = id;
+        }
 
-    // -1: so that no entry is ignored: consider all revoked certificates with
-    // Database.lastUpdate >= CRL.thisUpdate
-    final long updatedSince = DateUtil.toEpochSecond(crl.getThisUpdate().getDate()) - 1;
+        BigInteger sn = new BigInteger(rs.getString("SN"), 16);
+        long revInvalidityTime = rs.getLong("RIT");
+        Instant invalidityTime = (revInvalidityTime == 0) ? null : Instant.ofEpochSecond(revInvalidityTime);
+        ret.put(sn, new CertRevInfoWithSerial(id, sn, rs.getInt("RR"),
+            Instant.ofEpochSecond(rs.getLong("RT")), invalidityTime));
+      }
+    } while (rows.size() >= numEntries);
+
+    return ret;
+  } // method getCertsRevokedSince
 
+  /**
+   * Adds the certificates of the given serial numbers which are not revoked any more with the
+   * reason removeFromCRL.
+   */
+  private void addUnrevokedCerts(PreparedStatement ps, List<BigInteger> snList, List<CertRevInfoWithSerial> ret)
+      throws SQLException {
+    for (int i = 0; i < snList.size(); i++) {
+      ps.setString(i + 1, snList.get(i).toString(16));
+    }
+
+    ResultSet rs = ps.executeQuery();
     try {
-      ResultSet rs;
-      while (true) {
-        ps.setLong(1, startId - 1);
-        ps.setInt(2, ca.getId());
-        ps.setLong(3, notExpiredAt.getEpochSecond() + 1);
-        ps.setLong(4, updatedSince);
-        rs = ps.executeQuery();
-
-        try {
-          int num = 0;
-          while (rs.next()) {
-            num++;
-            long id = rs.getLong("ID");
-            if (id > startId) {
-              startId = id;
-            }
-
-            BigInteger sn = new BigInteger(rs.getString("SN"), 16);
-            if (allSnSet != null && allSnSet.contains(sn)) {
-              // already contained in CRL
-              continue;
-            }
-
-            long revInvalidityTime = rs.getLong("RIT");
-            Instant invalidityTime = (revInvalidityTime == 0) ? null : Instant.ofEpochSecond(revInvalidityTime);
-            CertRevInfoWithSerial revInfo = new CertRevInfoWithSerial(id, sn,
-                rs.getInt("RR"), Instant.ofEpochSecond(rs.getLong("RT")), invalidityTime);
-            ret.add(revInfo);
-          }
-
-          if (num < numEntries) {
-            // no more entries
-            break;
-          }
-        } finally {
-          datasource.releaseResources(null,rs);
+      while (rs.next()) {
+        ret.add(new CertRevInfoWithSerial(0L, new BigInteger(rs.getString("SN"), 16),
+            CrlReason.REMOVE_FROM_CRL, // reason
+            Instant.ofEpochSecond(rs.getLong("LUPDATE")), //revocationTime,
+            null)); // invalidityTime
+      }
+    } finally {
+      datasource.releaseResources(null, rs);
+    }
+  } // method addUnrevokedCerts
+
+  /**
+   * Writes the DER-encoded CRL to the file, the CRL is decoded from the database in stream.
+   */
+  private void writeEncodedCrl(NameId ca, BigInteger crlNumber, File file) throws OperationException, IOException {
+    PreparedStatement ps = buildPrepStmt0(sqlCrlWithNo, col2Int(ca.getId()), col2Long(crlNumber.longValue()));
+    ResultSet rs = null;
+    try {
+      rs = ps.executeQuery();
+      if (!rs.next()) {
+        throw new OperationException(CRL_FAILURE, "found no CRL with number " + crlNumber);
+      }
+
+      try (InputStream in = java.util.Base64.getMimeDecoder().wrap(rs.getAsciiStream("CRL"));
+           OutputStream out = Files.newOutputStream(file.toPath())) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
         }
       }
     } catch (SQLException ex) {
-      throw new OperationException(DATABASE_FAILURE, datasource.translate(sql, ex).getMessage());
+      throw new OperationException(DATABASE_FAILURE, datasource.translate(sqlCrlWithNo, ex).getMessage());
     } finally {
-      datasource.releaseResources(ps, null);
+      datasource.releaseResources(ps, rs);
+    }
+  } // method writeEncodedCrl
+
+  /**
+   * Retrieves the changes since the base CRL from the revocation journal, namely the entries
+   * whose ID is greater than the journal ID recorded with the base CRL.
+   * <p>
+   * Since the journal IDs are assigned before the commit, an entry with a lower ID may be committed
+   * after the journal ID of the base CRL has been read. Hence, the entries whose events are within
+   * {@link #REVJOURNAL_OVERLAP_SECONDS} before the base CRL are read as well, and the state of
+   * their certificates is reconciled against the streamed base CRL.
+   *
+   * @return the entries of the delta CRL, or {@code null} if no journal ID is recorded with the
+   *         base CRL.
+   */
+  private List<CertRevInfoWithSerial> getCertsForDeltaCrlFromJournal(
+      NameId ca, BigInteger baseCrlNumber, Instant notExpiredAt) throws OperationException {
+    ResultRow crlRow = execQuery1PrepStmt0(SQL_CRL_JOURNAL_ID,
+        col2Int(ca.getId()), col2Long(baseCrlNumber.longValue()));
+    if (crlRow == null) {
+      throw new OperationException(CRL_FAILURE, "found no CRL with number " + baseCrlNumber);
     }
 
+    if (crlRow.isNull("JOURNAL_ID")) {
+      // base CRL generated before the journal has been created.
+      LOG.info("CRL {} of CA {} has no journal ID, parse the CRL", baseCrlNumber, ca.getName());
+      return null;
+    }
+
+    final int numEntries = 1000;
+    String sql = datasource.buildSelectFirstSql(numEntries, "ID ASC",
+        "ID,CERT_ID,ETIME,EVENT,SN,NAFTER,PREV_REV,RR,RT,RIT FROM REVJOURNAL WHERE ID>? AND CA_ID=?");
+
+    final long journalId = crlRow.getLong("JOURNAL_ID");
+    // smallest ID of the overlap window, 0 if the window is empty.
+    long overlapMinId = execQueryLongPrepStmt(SQL_MIN_REVJOURNAL_ID_SINCE, col2Int(ca.getId()),
+        col2Long(crlRow.getLong("THISUPDATE") - REVJOURNAL_OVERLAP_SECONDS));
+
+    RevJournalDelta delta = new RevJournalDelta();
+    long lastId = (overlapMinId > 0 && overlapMinId <= journalId) ? overlapMinId - 1 : journalId;
+    List<ResultRow> rows;
+    do {
+      rows = execQueryPrepStmt0(sql, col2Long(lastId), col2Int(ca.getId()));
+      for (ResultRow rs : rows) {
+        lastId = rs.getLong("ID");
+        BigInteger sn = new BigInteger(rs.getString("SN"), 16);
+        delta.add(rs.getLong("CERT_ID"), rs.getInt("EVENT"), rs.getLong("ETIME"),
+            sn, rs.getLong("NAFTER"), rs.getBoolean("PREV_REV"),
+            rs.getInt("RR"), rs.getLong("RT"), rs.getLong("RIT"));
+        if (lastId <= journalId) {
+          delta.markOverlapping(sn);
+        }
+      }
+    } while (rows.size() >= numEntries);
+
+    Set<BigInteger> overlappingSerials = delta.getOverlappingSerials();
+    if (overlappingSerials.isEmpty()) {
+      return delta.build(notExpiredAt);
+    }
+
+    File crlFile = null;
+    try {
+      crlFile = File.createTempFile("basecrl-", ".crl");
+      writeEncodedCrl(ca, baseCrlNumber, crlFile);
+      return delta.build(notExpiredAt, readBaseCrlReasons(crlFile, overlappingSerials));
+    } catch (IOException | RuntimeException ex) {
+      throw new OperationException(CRL_FAILURE, ex.getMessage());
+    } finally {
+      if (crlFile != null && !crlFile.delete()) {
+        LOG.warn("could not delete temporary file {}", crlFile.getPath());
+      }
+    }
+  } // method getCertsForDeltaCrlFromJournal
+
+  /**
+   * Writes the Base64 encoding of the source file to the target file.
+   *
+   * @return the Base64 encoded SHA-1 hash of the source file.
+   */
+  static String base64EncodeFile(File source, File target) throws IOException {
+    ExtendedDigest sha1 = HashAlgo.SHA1.createDigest();
+    try (InputStream in = Files.newInputStream(source.toPath());
+         OutputStream out = java.util.Base64.getEncoder().wrap(
+             new BufferedOutputStream(Files.newOutputStream(target.toPath())))) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        sha1.update(buffer, 0, read);
+        out.write(buffer, 0, read);
+      }
+    }
+
+    byte[] hash = new byte[sha1.getDigestSize()];
+    sha1.doFinal(hash, 0);
+    return Base64.encodeToString(hash);
+  } // method base64EncodeFile
+
+  /**
+   * Streams the base CRL and returns the reason codes of the given certificates contained in it.
+   */
+  static Map<BigInteger, Integer> readBaseCrlReasons(File crlFile, Set<BigInteger> serialNumbers)
+      throws IOException {
+    Map<BigInteger, Integer> ret = new HashMap<>();
+    try (CrlStreamParser.RevokedCertsIterator it = new CrlStreamParser(crlFile).revokedCertificates()) {
+      while (it.hasNext()) {
+        CrlStreamParser.RevokedCert crlEntry = it.next();
+        if (serialNumbers.contains(crlEntry.getSerialNumber())) {
+          ret.put(crlEntry.getSerialNumber(), crlEntry.getReason());
+        }
+      }
+    }
     return ret;
-  } // method getCertsForDeltaCrl
+  } // method readBaseCrlReasons
 
   @Override
   public CertStatus getCertStatusForSubject(NameId ca, X500Name subject) throws OperationException {
@@ -1208,8 +1515,8 @@ public class DbCertStore extends QueryExecutor implements CertStore {
     }
   } // method isHealthy
 
-  private static Long getDateSeconds(Date date) {
-    return date == null ? null : DateUtil.toEpochSecond(date);
+  private static Long getDateSeconds(Instant date) {
+    return date == null ? null : date.getEpochSecond();
   }
 
   @Override
@@ -1275,6 +1582,15 @@ public class DbCertStore extends QueryExecutor implements CertStore {
     }
   }
 
+  private int execUpdateWithRevJournal(String updateSql, SqlColumn2[] updateParams, SqlColumn2[] journalParams)
+      throws OperationException {
+    try {
+      return execUpdateAndInsertPrepStmts(updateSql, updateParams, SQL_ADD_REVJOURNAL, journalParams);
+    } catch (DataAccessException ex) {
+      throw new OperationException(ErrorCode.DATABASE_FAILURE, ex);
+    }
+  }
+
   private ResultRow execQuery1PrepStmt0(String sql, SqlColumn2... params) throws OperationException {
     try {
       return execQuery1PrepStmt(sql, params);
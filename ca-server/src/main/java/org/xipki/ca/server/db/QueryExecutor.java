@@ -3,10 +3,15 @@
 
 package org.xipki.ca.server.db;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xipki.datasource.DataAccessException;
 import org.xipki.datasource.DataSourceWrapper;
 import org.xipki.util.Args;
+import org.xipki.util.LogUtil;
 
+import java.io.Reader;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
@@ -29,6 +34,8 @@ class QueryExecutor {
     STRING,
     BOOL,
     TIMESTAMP,
+    BYTES,
+    CHARACTER_STREAM,
   } // class ColumnType
 
   protected static class SqlColumn {
@@ -93,6 +100,8 @@ class QueryExecutor {
 
   } // class SqlColumn2
 
+  private static final Logger LOG = LoggerFactory.getLogger(QueryExecutor.class);
+
   protected final DataSourceWrapper datasource;
 
   QueryExecutor(DataSourceWrapper datasource) {
@@ -147,6 +156,14 @@ class QueryExecutor {
     return new SqlColumn2(ColumnType.TIMESTAMP, value);
   }
 
+  protected static SqlColumn2 col2Bytes(byte[] value) {
+    return new SqlColumn2(ColumnType.BYTES, value);
+  }
+
+  protected static SqlColumn2 col2CharStream(Reader value) {
+    return new SqlColumn2(ColumnType.CHARACTER_STREAM, value);
+  }
+
   protected int execUpdateStmt(String sql) throws DataAccessException {
     PreparedStatement ps = datasource.prepareStatement(sql);
     try {
@@ -229,49 +246,7 @@ class QueryExecutor {
     boolean succ = false;
     try {
       ps = datasource.prepareStatement(sql);
-
-      int index = 0;
-      for (SqlColumn2 col : columns) {
-        index++;
-
-        ColumnType type = col.type();
-        Object value = col.value();
-
-        try {
-          if (type == ColumnType.STRING) {
-            ps.setString(index, (String) value);
-          } else if (type == ColumnType.INT) {
-            if (value == null) {
-              ps.setNull(index, Types.INTEGER);
-            } else {
-              ps.setInt(index, (Integer) value);
-            }
-          } else if (type == ColumnType.LONG) {
-            if (value == null) {
-              ps.setNull(index, Types.BIGINT);
-            } else {
-              ps.setLong(index, (Long) value);
-            }
-          } else if (type == ColumnType.BOOL) {
-            if (value == null) {
-              ps.setNull(index, Types.INTEGER);
-            } else {
-              ps.setInt(index, (Boolean) value ? 1 : 0);
-            }
-          } else if (type == ColumnType.TIMESTAMP) {
-            if (value == null) {
-              ps.setNull(index, Types.TIMESTAMP);
-            } else {
-              ps.setTimestamp(index, (Timestamp) value);
-            }
-          } else {
-            throw new IllegalStateException("should not reach here, unknown type " + type);
-          }
-        } catch (SQLException ex) {
-          throw datasource.translate(sql, ex);
-        }
-      }
-
+      setParams(ps, sql, columns);
       succ = true;
       return ps;
     } finally {
@@ -281,6 +256,170 @@ class QueryExecutor {
     }
   }
 
+  /**
+   * Executes the statement once for each entry of paramsList with JDBC batch in one transaction.
+   * Either all or none of the rows are updated.
+   *
+   * @param sql the SQL statement.
+   * @param paramsList parameters of the rows.
+   * @throws DataAccessException if database error occurs, the transaction has been rolled back.
+   */
+  protected void execBatchPrepStmt(String sql, List<SqlColumn2[]> paramsList) throws DataAccessException {
+    Connection conn = datasource.getConnection();
+    PreparedStatement ps = null;
+    Boolean origAutoCommit = null;
+    boolean succ = false;
+    try {
+      origAutoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+
+      ps = datasource.prepareStatement(conn, sql);
+      for (SqlColumn2[] params : paramsList) {
+        setParams(ps, sql, params);
+        ps.addBatch();
+      }
+      ps.executeBatch();
+      conn.commit();
+      succ = true;
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      try {
+        if (!succ && origAutoCommit != null) {
+          conn.rollback();
+        }
+
+        if (origAutoCommit != null) {
+          conn.setAutoCommit(origAutoCommit);
+        }
+      } catch (SQLException ex) {
+        LogUtil.error(LOG, datasource.translate(sql, ex), "could not rollback or recover AutoCommit");
+      }
+
+      if (ps == null) {
+        datasource.returnConnection(conn);
+      } else {
+        datasource.releaseResources(ps, null);
+      }
+    }
+  } // method execBatchPrepStmt
+
+  /**
+   * Executes the update statement and, if it modifies exactly one row, the insert statement in one
+   * transaction. Otherwise, the transaction is rolled back.
+   *
+   * @param updateSql the SQL update (or delete) statement.
+   * @param updateParams parameters of the update statement.
+   * @param insertSql the SQL insert statement.
+   * @param insertParams parameters of the insert statement.
+   * @return the number of rows modified by the update statement.
+   * @throws DataAccessException if database error occurs, the transaction has been rolled back.
+   */
+  protected int execUpdateAndInsertPrepStmts(String updateSql, SqlColumn2[] updateParams,
+                                             String insertSql, SqlColumn2[] insertParams)
+      throws DataAccessException {
+    Connection conn = datasource.getConnection();
+    PreparedStatement ps = null;
+    Boolean origAutoCommit = null;
+    boolean succ = false;
+    String sql = updateSql;
+    try {
+      origAutoCommit = conn.getAutoCommit();
+      conn.setAutoCommit(false);
+
+      ps = datasource.prepareStatement(conn, updateSql);
+      setParams(ps, updateSql, updateParams);
+      int count = ps.executeUpdate();
+      if (count == 1) {
+        datasource.releaseResources(ps, null, false);
+        ps = null;
+        sql = insertSql;
+        ps = datasource.prepareStatement(conn, insertSql);
+        setParams(ps, insertSql, insertParams);
+        ps.executeUpdate();
+        conn.commit();
+        succ = true;
+      }
+      return count;
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      try {
+        if (!succ && origAutoCommit != null) {
+          conn.rollback();
+        }
+
+        if (origAutoCommit != null) {
+          conn.setAutoCommit(origAutoCommit);
+        }
+      } catch (SQLException ex) {
+        LogUtil.error(LOG, datasource.translate(sql, ex), "could not rollback or recover AutoCommit");
+      }
+
+      if (ps == null) {
+        datasource.returnConnection(conn);
+      } else {
+        datasource.releaseResources(ps, null);
+      }
+    }
+  } // method execUpdateAndInsertPrepStmts
+
+  private void setParams(PreparedStatement ps, String sql, SqlColumn2... columns) throws DataAccessException {
+    int index = 0;
+    for (SqlColumn2 col : columns) {
+      index++;
+
+      ColumnType type = col.type();
+      Object value = col.value();
+
+      try {
+        if (type == ColumnType.STRING) {
+          ps.setString(index, (String) value);
+        } else if (type == ColumnType.INT) {
+          if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+          } else {
+            ps.setInt(index, (Integer) value);
+          }
+        } else if (type == ColumnType.LONG) {
+          if (value == null) {
+            ps.setNull(index, Types.BIGINT);
+          } else {
+            ps.setLong(index, (Long) value);
+          }
+        } else if (type == ColumnType.BOOL) {
+          if (value == null) {
+            ps.setNull(index, Types.INTEGER);
+          } else {
+            ps.setInt(index, (Boolean) value ? 1 : 0);
+          }
+        } else if (type == ColumnType.TIMESTAMP) {
+          if (value == null) {
+            ps.setNull(index, Types.TIMESTAMP);
+          } else {
+            ps.setTimestamp(index, (Timestamp) value);
+          }
+        } else if (type == ColumnType.BYTES) {
+          if (value == null) {
+            ps.setNull(index, Types.VARBINARY);
+          } else {
+            ps.setBytes(index, (byte[]) value);
+          }
+        } else if (type == ColumnType.CHARACTER_STREAM) {
+          if (value == null) {
+            ps.setNull(index, Types.CLOB);
+          } else {
+            ps.setCharacterStream(index, (Reader) value);
+          }
+        } else {
+          throw new IllegalStateException("should not reach here, unknown type " + type);
+        }
+      } catch (SQLException ex) {
+        throw datasource.translate(sql, ex);
+      }
+    }
+  } // method setParams
+
   protected void notNulls(Object param1, String name1, Object param2, String name2) {
     Args.notNull(param1, name1);
     Args.notNull(param2, name2);
@@ -94,10 +94,15 @@ class ResultRow {
           throw new SQLException("unknown data type " + itype);
       }
 
-      columns.put(label.toUpperCase(), value);
+      // the primitive getters return 0 or false for SQL NULL.
+      columns.put(label.toUpperCase(), rs.wasNull() ? null : value);
     }
   }
 
+  boolean isNull(String label) {
+    return columns.get(label.toUpperCase()) == null;
+  }
+
   int getInt(String label) {
     Object obj = columns.get(label.toUpperCase());
     if (obj == null) {
@@ -0,0 +1,183 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server.db;
+
+import org.xipki.ca.server.CertRevInfoWithSerial;
+import org.xipki.security.CrlReason;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Computes the entries of a delta CRL from the entries of the revocation journal which are
+ * written after the base CRL, namely whose ID is greater than the journal ID recorded with the
+ * base CRL. The entries must be added in the order of their IDs.
+ * <p>
+ * For each certificate only the latest state is considered: revoked certificates are returned
+ * with their revocation information, certificates which have been revoked at the time of the
+ * base CRL but are not revoked any more (unsuspended or removed) are returned with the reason
+ * removeFromCRL.
+ * <p>
+ * The journal IDs are assigned before the commit and are not monotonic, an entry with an ID
+ * not greater than the journal ID of the base CRL may have been committed after the base CRL.
+ * Such entries of the overlap window are marked with {@link #markOverlapping(BigInteger)}, the
+ * state of these certificates is reconciled against the base CRL.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+class RevJournalDelta {
+
+  /**
+   * The latest state of a certificate within the revocation journal.
+   */
+  private static class State {
+
+    // whether the certificate was revoked at the time of the base CRL.
+    private final boolean revokedBefore;
+
+    private long certId;
+
+    private int event;
+
+    private long eventTime;
+
+    private long notAfter;
+
+    private int reason;
+
+    private long revTime;
+
+    private long revInvTime;
+
+    State(boolean revokedBefore) {
+      this.revokedBefore = revokedBefore;
+    }
+
+  } // class State
+
+  static final int REVOKE = 1;
+
+  static final int SUSPEND = 2;
+
+  static final int UNSUSPEND = 3;
+
+  static final int REMOVE = 4;
+
+  private final Map<BigInteger, State> states = new HashMap<>();
+
+  private final Set<BigInteger> overlappingSerials = new HashSet<>();
+
+  /**
+   * Adds the next entry of the journal.
+   *
+   * @param certId ID of the certificate in the table CERT.
+   * @param event the event, one of {@link #REVOKE}, {@link #SUSPEND}, {@link #UNSUSPEND} and
+   *        {@link #REMOVE}.
+   * @param eventTime time of the event, in seconds since January 1, 1970, 00:00:00 GMT.
+   * @param serialNumber serial number of the certificate.
+   * @param notAfter notAfter of the certificate, in seconds since January 1, 1970, 00:00:00 GMT.
+   * @param revokedBefore whether the certificate was revoked before the event.
+   * @param reason revocation reason after the event.
+   * @param revTime revocation time after the event, in seconds since January 1, 1970, 00:00:00 GMT.
+   * @param revInvTime revocation invalidity time after the event, 0 if not present.
+   */
+  void add(long certId, int event, long eventTime, BigInteger serialNumber, long notAfter,
+           boolean revokedBefore, int reason, long revTime, long revInvTime) {
+    // the state before the first entry is the state at the time of the base CRL.
+    State state = states.computeIfAbsent(serialNumber, k -> new State(revokedBefore));
+    state.certId = certId;
+    state.event = event;
+    state.eventTime = eventTime;
+    state.notAfter = notAfter;
+    state.reason = reason;
+    state.revTime = revTime;
+    state.revInvTime = revInvTime;
+  } // method add
+
+  /**
+   * Marks the certificate as changed by an entry of the overlap window, namely an entry whose ID
+   * is not greater than the journal ID of the base CRL. It is unknown whether such an entry is
+   * reflected in the base CRL.
+   *
+   * @param serialNumber serial number of the certificate.
+   */
+  void markOverlapping(BigInteger serialNumber) {
+    overlappingSerials.add(serialNumber);
+  }
+
+  /**
+   * Returns the serial numbers of the certificates marked with {@link #markOverlapping(BigInteger)}.
+   *
+   * @return the serial numbers of the certificates changed within the overlap window.
+   */
+  Set<BigInteger> getOverlappingSerials() {
+    return Collections.unmodifiableSet(overlappingSerials);
+  }
+
+  /**
+   * Returns the entries of the delta CRL. No certificate may be marked as overlapping.
+   *
+   * @param notExpiredAt certificates which expire not after this time are not revoked in the
+   *        delta CRL.
+   * @return the entries of the delta CRL, in no particular order.
+   */
+  List<CertRevInfoWithSerial> build(Instant notExpiredAt) {
+    return build(notExpiredAt, Collections.emptyMap());
+  }
+
+  /**
+   * Returns the entries of the delta CRL.
+   * <p>
+   * The latest state of an overlapping certificate is compared with its entry in the base CRL:
+   * a revoked certificate is returned unless the base CRL contains it with the same reason, a
+   * certificate which is not revoked is returned with the reason removeFromCRL only if the base
+   * CRL contains it.
+   *
+   * @param notExpiredAt certificates which expire not after this time are not revoked in the
+   *        delta CRL.
+   * @param baseCrlReasons reason codes of the overlapping certificates contained in the base CRL.
+   * @return the entries of the delta CRL, in no particular order.
+   */
+  List<CertRevInfoWithSerial> build(Instant notExpiredAt, Map<BigInteger, Integer> baseCrlReasons) {
+    final long notExpiredAtSeconds = notExpiredAt.getEpochSecond();
+
+    List<CertRevInfoWithSerial> ret = new ArrayList<>(states.size());
+    for (Map.Entry<BigInteger, State> entry : states.entrySet()) {
+      State state = entry.getValue();
+      boolean revoked = state.event == REVOKE || state.event == SUSPEND;
+      boolean revokedBefore = state.revokedBefore;
+
+      if (overlappingSerials.contains(entry.getKey())) {
+        Integer baseReason = baseCrlReasons.get(entry.getKey());
+        if (revoked && baseReason != null && baseReason == state.reason) {
+          // already contained in the base CRL.
+          continue;
+        }
+        revokedBefore = baseReason != null;
+      }
+
+      if (revoked) {
+        if (state.notAfter > notExpiredAtSeconds) {
+          Instant invalidityTime = (state.revInvTime == 0) ? null : Instant.ofEpochSecond(state.revInvTime);
+          ret.add(new CertRevInfoWithSerial(state.certId, entry.getKey(), state.reason,
+              Instant.ofEpochSecond(state.revTime), invalidityTime));
+        }
+      } else if (revokedBefore) {
+        ret.add(new CertRevInfoWithSerial(state.certId, entry.getKey(), CrlReason.REMOVE_FROM_CRL,
+            Instant.ofEpochSecond(state.eventTime), null)); // invalidityTime
+      }
+    }
+
+    return ret;
+  } // method build
+
+}
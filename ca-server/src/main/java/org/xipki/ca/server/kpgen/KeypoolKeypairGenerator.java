@@ -69,10 +69,14 @@ public class KeypoolKeypairGenerator extends KeypairGenerator {
 
     private final String sqlGetKeyData;
 
-    KeypoolQueryExecutor(DataSourceWrapper datasource, int shardId) {
+    // whether the columns ENC_META and DATA are of binary type.
+    private final boolean binaryData;
+
+    KeypoolQueryExecutor(DataSourceWrapper datasource, int shardId) throws DataAccessException {
       this.datasource = Args.notNull(datasource, "datasource");
       this.sqlGetKeyData = datasource.buildSelectFirstSql(1,
           "ID,ENC_ALG,ENC_META,DATA FROM KEYPOOL WHERE SHARD_ID=" + shardId + " AND KID=?");
+      this.binaryData = datasource.isBinaryColumn(null, "KEYPOOL", "DATA");
     } // constructor
 
     Map<String, Integer> getKeyspecs() throws DataAccessException {
@@ -111,8 +115,13 @@ public class KeypoolKeypairGenerator extends KeypairGenerator {
         int id = rs.getInt("ID");
         KeypoolKeypairGenerator.CipherData cd = new KeypoolKeypairGenerator.CipherData();
         cd.encAlg = rs.getInt("ENC_ALG");
-        cd.encMeta = org.xipki.util.Base64.decodeFast(rs.getString("ENC_META"));
-        cd.cipherText = Base64.decodeFast(rs.getString("DATA"));
+        if (binaryData) {
+          cd.encMeta = rs.getBytes("ENC_META");
+          cd.cipherText = rs.getBytes("DATA");
+        } else {
+          cd.encMeta = Base64.decodeFast(rs.getString("ENC_META"));
+          cd.cipherText = Base64.decodeFast(rs.getString("DATA"));
+        }
         datasource.releaseResources(ps, rs);
         ps = null;
         rs = null;
@@ -61,6 +61,8 @@ import org.xipki.util.http.SslContextConf;
 import java.io.IOException;
 import java.math.BigInteger;
 import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -145,7 +147,8 @@ class Ca2Manager {
           return false;
         }
       }
-      ctlogClient = new CtLogClient(ctlogControl.getServers(), ctxConf);
+      ctlogClient = new CtLogClient(ctlogControl.getServers(), ctxConf,
+          ctlogControl.getQuorum(), ctlogControl.getTimeout());
     }
 
     X509Ca ca;
@@ -223,6 +226,72 @@ class Ca2Manager {
   } // method initCas
 
   boolean createCa(String name) throws CaMgmtException {
+    return createCa(name, manager.caConfStore.createCaInfo(name, manager.certstore));
+  } // method createCa
+
+  private boolean createCa(String name, CaInfo ca) throws CaMgmtException {
+    removeCa0(name);
+
+    LOG.info("created CA {}:\n{}", name, ca.toString(false));
+    manager.caInfos.put(name, ca);
+    manager.idNameMap.addCa(ca.getIdent());
+    loadCaAssociations(name, ca.getIdent());
+    return true;
+  } // method createCa
+
+  /**
+   * Reloads only the CAs which have been added, changed or removed in the configuration store.
+   * A CA is restarted if its entry, or the set or configuration of its publishers has been changed.
+   * Otherwise, the associations with the certprofiles and requestors are replaced in place, and
+   * the running CA keeps serving.
+   * @param changedPublishers names of the reloaded publishers.
+   * @return names of the active CAs which have been (re)created and need to be started.
+   * @throws CaMgmtException if error occurs while reading the configuration store.
+   */
+  List<String> reloadCas(Set<String> changedPublishers) throws CaMgmtException {
+    Map<String, Integer> aliases = manager.caConfStore.createCaAliases();
+    if (!aliases.equals(manager.caAliases)) {
+      manager.caAliases.keySet().retainAll(aliases.keySet());
+      manager.caAliases.putAll(aliases);
+      LOG.info("caAliases: {}", manager.caAliases);
+    }
+
+    List<String> names = manager.caConfStore.getCaNames();
+    for (String name : new ArrayList<>(manager.caInfos.keySet())) {
+      if (!names.contains(name)) {
+        removeCa0(name);
+        LOG.info("removed CA {}", name);
+      }
+    }
+
+    List<String> caNamesToStart = new ArrayList<>();
+    for (String name : names) {
+      CaInfo caInfo = manager.caConfStore.createCaInfo(name, manager.certstore);
+      CaInfo oldCaInfo = manager.caInfos.get(name);
+
+      boolean recreate = oldCaInfo == null || !oldCaInfo.getCaEntry().equals(caInfo.getCaEntry(), true, false);
+      if (!recreate) {
+        Set<String> oldPublisherNames = manager.caHasPublishers.get(name);
+        loadCaAssociations(name, oldCaInfo.getIdent());
+        Set<String> publisherNames = manager.caHasPublishers.get(name);
+
+        recreate = !publisherNames.equals(oldPublisherNames) || !Collections.disjoint(publisherNames, changedPublishers)
+            // retry to start the CA which could not be started previously
+            || (CaStatus.active == caInfo.getStatus() && !manager.x509cas.containsKey(name));
+      }
+
+      if (recreate) {
+        createCa(name, caInfo);
+        if (CaStatus.active == caInfo.getStatus()) {
+          caNamesToStart.add(name);
+        }
+      }
+    }
+
+    return caNamesToStart;
+  } // method reloadCas
+
+  private void removeCa0(String name) {
     manager.caInfos.remove(name);
     manager.idNameMap.removeCa(name);
     manager.caHasProfiles.remove(name);
@@ -232,14 +301,12 @@ class Ca2Manager {
     if (oldCa != null) {
       oldCa.close();
     }
+  } // method removeCa0
 
+  private void loadCaAssociations(String name, NameId caIdent) throws CaMgmtException {
     CaConfStore queryExecutor = manager.caConfStore;
 
-    CaInfo ca = queryExecutor.createCaInfo(name, manager.certstore);
-    LOG.info("created CA {}:\n{}", name, ca.toString(false));
-    manager.caInfos.put(name, ca);
-    manager.idNameMap.addCa(ca.getIdent());
-    Set<CaHasRequestorEntry> caReqEntries = queryExecutor.createCaHasRequestors(ca.getIdent());
+    Set<CaHasRequestorEntry> caReqEntries = queryExecutor.createCaHasRequestors(caIdent);
     manager.caHasRequestors.put(name, caReqEntries);
     if (LOG.isInfoEnabled()) {
       StringBuilder sb = new StringBuilder();
@@ -249,7 +316,7 @@ class Ca2Manager {
       LOG.info("CA {} is associated requestors:{}", name, sb);
     }
 
-    Set<CaProfileIdAliases> profileIds = queryExecutor.createCaHasProfiles(ca.getIdent());
+    Set<CaProfileIdAliases> profileIds = queryExecutor.createCaHasProfiles(caIdent);
     Set<CaProfileEntry> caProfileEntries = new HashSet<>();
     for (CaProfileIdAliases id : profileIds) {
       String profileName = manager.idNameMap.getCertprofileName(id.getId());
@@ -259,16 +326,14 @@ class Ca2Manager {
     manager.caHasProfiles.put(name, caProfileEntries);
     LOG.info("CA {} is associated with profiles: {}", name, caProfileEntries);
 
-    Set<Integer> publisherIds = queryExecutor.createCaHasPublishers(ca.getIdent());
+    Set<Integer> publisherIds = queryExecutor.createCaHasPublishers(caIdent);
     Set<String> publisherNames = new HashSet<>();
     for (Integer id : publisherIds) {
       publisherNames.add(manager.idNameMap.getPublisherName(id));
     }
     manager.caHasPublishers.put(name, publisherNames);
     LOG.info("CA {} is associated with publishers: {}", name, publisherNames);
-
-    return true;
-  } // method createCa
+  } // method loadCaAssociations
 
   void addCa(CaEntry caEntry, CertStore certstore) throws CaMgmtException {
     assertMasterMode();
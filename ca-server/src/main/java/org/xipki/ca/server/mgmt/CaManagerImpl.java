@@ -85,10 +85,12 @@ import java.sql.Connection;
 import java.time.Instant;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
@@ -97,8 +99,13 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Manages the CA system.
@@ -148,8 +155,8 @@ public class CaManagerImpl implements CaManager, Closeable {
             Instant.ofEpochSecond(caChangedTime), lastStartTime);
 
         if (caChangedTime > lastStartTime.getEpochSecond()) {
-          LOG.info("received event to restart CA");
-          restartCaSystem();
+          LOG.info("received event to reload CA");
+          applyCaChange();
         } else {
           LOG.debug("received no event to restart CA");
         }
@@ -242,7 +249,7 @@ public class CaManagerImpl implements CaManager, Closeable {
 
   private CtLogPublicKeyFinder ctLogPublicKeyFinder;
 
-  private boolean caSystemSetuped;
+  boolean caSystemSetuped;
 
   private Instant lastStartTime;
 
@@ -762,24 +769,16 @@ public class CaManagerImpl implements CaManager, Closeable {
       scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(10);
       scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
 
-      List<String> failedCaNames = new LinkedList<>();
-
       // Add the CAs to the store
+      List<String> activeCaNames = new ArrayList<>(caInfos.size());
       for (Entry<String, CaInfo> entry : caInfos.entrySet()) {
-        String caName = entry.getKey();
-        CaStatus status = entry.getValue().getStatus();
-        if (CaStatus.active != status) {
-          continue;
-        }
-
-        if (ca2Manager.startCa(caName)) {
-          LOG.info("started CA {}", caName);
-        } else {
-          failedCaNames.add(caName);
-          LOG.error("could not start CA {}", caName);
+        if (CaStatus.active == entry.getValue().getStatus()) {
+          activeCaNames.add(entry.getKey());
         }
       }
 
+      List<String> failedCaNames = startCas(activeCaNames);
+
       caSystemSetuped = true;
       StringBuilder sb = new StringBuilder();
       sb.append("started CA system");
@@ -838,6 +837,121 @@ public class CaManagerImpl implements CaManager, Closeable {
     return true;
   } // method startCaSystem0
 
+  /**
+   * Starts the CAs in parallel with at most caStartThreads threads.
+   * @param caNames names of the CAs.
+   * @return names of the CAs which could not be started.
+   */
+  private List<String> startCas(List<String> caNames) {
+    List<String> failedCaNames = new LinkedList<>();
+    if (caNames.isEmpty()) {
+      return failedCaNames;
+    }
+
+    int numThreads = caServerConf.getCaStartThreads();
+    if (numThreads == 0) {
+      numThreads = Runtime.getRuntime().availableProcessors();
+    }
+    numThreads = Math.min(numThreads, caNames.size());
+
+    Map<String, Future<Boolean>> futures = new LinkedHashMap<>();
+    ExecutorService executor = null;
+    if (numThreads > 1) {
+      AtomicInteger threadIndex = new AtomicInteger();
+      executor = Executors.newFixedThreadPool(numThreads, r -> {
+        Thread t = new Thread(r, "ca-starter-" + threadIndex.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+      });
+
+      for (String caName : caNames) {
+        futures.put(caName, executor.submit(() -> ca2Manager.startCa(caName)));
+      }
+    }
+
+    try {
+      for (String caName : caNames) {
+        boolean started;
+        if (executor == null) {
+          started = ca2Manager.startCa(caName);
+        } else {
+          try {
+            started = futures.get(caName).get();
+          } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            LOG.error("interrupted while starting CA {}", caName);
+            started = false;
+          } catch (ExecutionException ex) {
+            LogUtil.error(LOG, ex.getCause(), "could not start CA " + caName);
+            started = false;
+          }
+        }
+
+        if (started) {
+          LOG.info("started CA {}", caName);
+        } else {
+          failedCaNames.add(caName);
+          LOG.error("could not start CA {}", caName);
+        }
+      }
+    } finally {
+      if (executor != null) {
+        executor.shutdownNow();
+      }
+    }
+
+    return failedCaNames;
+  } // method startCas
+
+  /**
+   * Applies the change of the CA system. The changed objects are reloaded, if this fails or the
+   * CA system has not been set up, the whole CA system is restarted.
+   * @return whether the changed objects have been reloaded.
+   * @throws CaMgmtException if the CA system could not be restarted.
+   */
+  boolean applyCaChange() throws CaMgmtException {
+    boolean reloaded = false;
+    if (caSystemSetuped) {
+      try {
+        reloadCaSystem();
+        reloaded = true;
+      } catch (Throwable th) {
+        LogUtil.error(LOG, th, "could not reload CA system, restart it");
+      }
+    }
+
+    if (reloaded) {
+      auditLogPciEvent(true, "CA_CHANGE");
+    } else {
+      restartCaSystem();
+    }
+    return reloaded;
+  } // method applyCaChange
+
+  /**
+   * Reloads only the objects which have been added, changed or removed in the configuration store
+   * since the last start or reload. The CAs which are not affected keep serving.
+   * @throws CaMgmtException if error occurs.
+   */
+  void reloadCaSystem() throws CaMgmtException {
+    LOG.info("reloading CA system");
+    Instant reloadTime = Instant.now();
+
+    Set<String> changedSigners = signerManager.reloadSigners();
+    Set<String> changedRequestors = requestorManager.reloadRequestors();
+    Set<String> changedCertprofiles = certprofileManager.reloadCertprofiles();
+    Set<String> changedPublishers = publisherManager.reloadPublishers();
+    Set<String> changedKeypairGens = keypairGenManager.reloadKeypairGens();
+    List<String> caNamesToStart = ca2Manager.reloadCas(changedPublishers);
+    List<String> failedCaNames = startCas(caNamesToStart);
+
+    this.lastStartTime = reloadTime;
+
+    LOG.info("reloaded CA system, changed signers: {}, requestors: {}, certprofiles: {}, publishers: {}, "
+        + "keypair generations: {}, restarted CAs: {}, CAs could not be started: {}", changedSigners,
+        changedRequestors, changedCertprofiles, changedPublishers, changedKeypairGens, caNamesToStart, failedCaNames);
+  } // method reloadCaSystem
+
   @Override
   public void close() {
     LOG.info("stopping CA system");
@@ -892,6 +1006,10 @@ public class CaManagerImpl implements CaManager, Closeable {
     return scheduledThreadPoolExecutor;
   }
 
+  public CaServerConf.AsyncPublisherConf getAsyncPublisherConf() {
+    return caServerConf == null ? null : caServerConf.getAsyncPublisher();
+  }
+
   @Override
   public Set<String> getCertprofileNames() {
     return certprofileDbEntries.keySet();
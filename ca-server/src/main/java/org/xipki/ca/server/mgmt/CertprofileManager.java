@@ -25,6 +25,7 @@ import org.xipki.util.LogUtil;
 import org.xipki.util.TripleState;
 import org.xipki.util.exception.ObjectCreationException;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
@@ -74,24 +75,68 @@ class CertprofileManager {
     manager.certprofiles.clear();
 
     List<String> names = manager.caConfStore.getProfileNames();
+    for (String name : names) {
+      loadCertprofile(name, manager.caConfStore.createCertprofile(name));
+    }
+
+    certprofilesInitialized = true;
+  } // method initCertprofiles
+
+  /**
+   * Reloads only the certprofiles which have been added, changed or removed in the configuration
+   * store. The other certprofiles are kept untouched.
+   * @return names of the reloaded and removed certprofiles.
+   * @throws CaMgmtException if error occurs while reading the configuration store.
+   */
+  Set<String> reloadCertprofiles() throws CaMgmtException {
+    Set<String> changed = new HashSet<>();
+    List<String> names = manager.caConfStore.getProfileNames();
+
+    for (String name : new ArrayList<>(manager.certprofileDbEntries.keySet())) {
+      if (!names.contains(name)) {
+        CertprofileEntry dbEntry = manager.certprofileDbEntries.remove(name);
+        manager.idNameMap.removeCertprofile(dbEntry.getIdent().getId());
+        shutdownCertprofile(manager.certprofiles.remove(name));
+        changed.add(name);
+        LOG.info("removed certprofile {}", name);
+      }
+    }
+
     for (String name : names) {
       CertprofileEntry dbEntry = manager.caConfStore.createCertprofile(name);
-      manager.idNameMap.addCertprofile(dbEntry.getIdent());
-      dbEntry.setFaulty(true);
-      manager.certprofileDbEntries.put(name, dbEntry);
+      CertprofileEntry oldDbEntry = manager.certprofileDbEntries.get(name);
+      if (oldDbEntry != null && !oldDbEntry.isFaulty() && oldDbEntry.equals(dbEntry)) {
+        continue;
+      }
 
-      try {
-        IdentifiedCertprofile profile = createCertprofile(dbEntry);
-        dbEntry.setFaulty(false);
-        manager.certprofiles.put(name, profile);
-        LOG.info("loaded certprofile {}", name);
-      } catch (Exception ex) {
-        LogUtil.error(LOG, ex, "ERROR loading certprofile " + name);
+      if (oldDbEntry != null && !oldDbEntry.getIdent().getId().equals(dbEntry.getIdent().getId())) {
+        manager.idNameMap.removeCertprofile(oldDbEntry.getIdent().getId());
       }
+      loadCertprofile(name, dbEntry);
+      changed.add(name);
     }
 
-    certprofilesInitialized = true;
-  } // method initCertprofiles
+    return changed;
+  } // method reloadCertprofiles
+
+  private void loadCertprofile(String name, CertprofileEntry dbEntry) {
+    manager.idNameMap.addCertprofile(dbEntry.getIdent());
+    dbEntry.setFaulty(true);
+    manager.certprofileDbEntries.put(name, dbEntry);
+
+    IdentifiedCertprofile profile = null;
+    try {
+      profile = createCertprofile(dbEntry);
+      dbEntry.setFaulty(false);
+      LOG.info("loaded certprofile {}", name);
+    } catch (Exception ex) {
+      LogUtil.error(LOG, ex, "ERROR loading certprofile " + name);
+    }
+
+    IdentifiedCertprofile oldProfile = (profile == null)
+        ? manager.certprofiles.remove(name) : manager.certprofiles.put(name, profile);
+    shutdownCertprofile(oldProfile);
+  } // method loadCertprofile
 
   void removeCertprofileFromCa(String profileName, String caName) throws CaMgmtException {
     manager.assertMasterMode();
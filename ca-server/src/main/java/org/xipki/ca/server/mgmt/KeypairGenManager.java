@@ -17,7 +17,9 @@ import org.xipki.util.exception.ObjectCreationException;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Manages the keypair generation.
@@ -89,6 +91,61 @@ class KeypairGenManager {
     keypairGenInitialized = true;
   } // method initSigners
 
+  /**
+   * Reloads only the keypair generations which have been added, changed or removed in the
+   * configuration store. The other keypair generations are kept untouched.
+   * @return names of the reloaded and removed keypair generations.
+   * @throws CaMgmtException if error occurs while reading the configuration store.
+   */
+  Set<String> reloadKeypairGens() throws CaMgmtException {
+    Set<String> changed = new HashSet<>();
+    List<String> names = manager.caConfStore.getKeyPairGenNames();
+
+    for (String name : new ArrayList<>(manager.keypairGenDbEntries.keySet())) {
+      if (!names.contains(name)) {
+        manager.keypairGenDbEntries.remove(name);
+        closeKeypairGen(manager.keypairGens.remove(name));
+        changed.add(name);
+        LOG.info("removed keypair generation {}", name);
+      }
+    }
+
+    for (String name : names) {
+      KeypairGenEntry entry = manager.caConfStore.createKeypairGen(name);
+      KeypairGenEntry oldEntry = manager.keypairGenDbEntries.get(name);
+      if (oldEntry != null && oldEntry.equals(entry) && manager.keypairGens.containsKey(name)) {
+        continue;
+      }
+
+      changed.add(name);
+      manager.keypairGenDbEntries.put(name, entry);
+
+      KeypairGenEntryWrapper gen = null;
+      try {
+        gen = createKeypairGen(entry);
+        LOG.info("reloaded keypair generation {}", name);
+      } catch (Exception ex) {
+        LogUtil.error(LOG, ex, "ERROR loading keypairGen " + name);
+      }
+
+      closeKeypairGen(gen == null ? manager.keypairGens.remove(name) : manager.keypairGens.put(name, gen));
+    }
+
+    return changed;
+  } // method reloadKeypairGens
+
+  private void closeKeypairGen(KeypairGenEntryWrapper entry) {
+    if (entry == null || entry.getGenerator() == null) {
+      return;
+    }
+
+    try {
+      entry.getGenerator().close();
+    } catch (IOException e) {
+      LogUtil.warn(LOG, e, "error closing keypair generator " + entry.getDbEntry().getName());
+    }
+  } // method closeKeypairGen
+
   void addKeypairGen(KeypairGenEntry keypairGenEntry) throws CaMgmtException {
     if ("software".equalsIgnoreCase(Args.notNull(keypairGenEntry, "keypairGenEntry").getName())) {
       throw new CaMgmtException("Adding keypair generation 'software' is not allowed");
@@ -74,25 +74,68 @@ class PublisherManager {
     manager.idNameMap.clearPublisher();
 
     List<String> names = manager.caConfStore.getPublisherNames();
+    for (String name : names) {
+      loadPublisher(name, manager.caConfStore.createPublisher(name));
+    }
+
+    publishersInitialized = true;
+  } // method initPublishers
+
+  /**
+   * Reloads only the publishers which have been added, changed or removed in the configuration
+   * store. The other publishers are kept untouched.
+   * @return names of the reloaded and removed publishers.
+   * @throws CaMgmtException if error occurs while reading the configuration store.
+   */
+  Set<String> reloadPublishers() throws CaMgmtException {
+    Set<String> changed = new HashSet<>();
+    List<String> names = manager.caConfStore.getPublisherNames();
+
+    for (String name : new ArrayList<>(manager.publisherDbEntries.keySet())) {
+      if (!names.contains(name)) {
+        PublisherEntry dbEntry = manager.publisherDbEntries.remove(name);
+        manager.idNameMap.removePublisher(dbEntry.getIdent().getId());
+        shutdownPublisher(manager.publishers.remove(name));
+        changed.add(name);
+        LOG.info("removed publisher {}", name);
+      }
+    }
+
     for (String name : names) {
       PublisherEntry dbEntry = manager.caConfStore.createPublisher(name);
+      PublisherEntry oldDbEntry = manager.publisherDbEntries.get(name);
+      if (oldDbEntry != null && !oldDbEntry.faulty() && oldDbEntry.equals(dbEntry)) {
+        continue;
+      }
 
-      manager.idNameMap.addPublisher(dbEntry.getIdent());
-      dbEntry.faulty(true);
-      manager.publisherDbEntries.put(name, dbEntry);
-
-      try {
-        IdentifiedCertPublisher publisher = createPublisher(dbEntry);
-        dbEntry.faulty(false);
-        publishers.put(name, publisher);
-        LOG.info("loaded publisher {}", name);
-      } catch (Exception ex) {
-        LogUtil.error(LOG, ex, "ERROR loading publisher " + name);
+      if (oldDbEntry != null && !oldDbEntry.getIdent().getId().equals(dbEntry.getIdent().getId())) {
+        manager.idNameMap.removePublisher(oldDbEntry.getIdent().getId());
       }
+      loadPublisher(name, dbEntry);
+      changed.add(name);
     }
 
-    publishersInitialized = true;
-  } // method initPublishers
+    return changed;
+  } // method reloadPublishers
+
+  private void loadPublisher(String name, PublisherEntry dbEntry) {
+    manager.idNameMap.addPublisher(dbEntry.getIdent());
+    dbEntry.faulty(true);
+    manager.publisherDbEntries.put(name, dbEntry);
+
+    IdentifiedCertPublisher publisher = null;
+    try {
+      publisher = createPublisher(dbEntry);
+      dbEntry.faulty(false);
+      LOG.info("loaded publisher {}", name);
+    } catch (Exception ex) {
+      LogUtil.error(LOG, ex, "ERROR loading publisher " + name);
+    }
+
+    IdentifiedCertPublisher oldPublisher = (publisher == null)
+        ? manager.publishers.remove(name) : manager.publishers.put(name, publisher);
+    shutdownPublisher(oldPublisher);
+  } // method loadPublisher
 
   void removePublisherFromCa(String publisherName, String caName) throws CaMgmtException {
     manager.assertMasterMode();
@@ -14,6 +14,7 @@ import org.xipki.ca.server.RequestorEntryWrapper;
 import org.xipki.util.Args;
 import org.xipki.util.LogUtil;
 
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -57,12 +58,7 @@ class RequestorManager {
           manager.byCaRequestor = new RequestorInfo.ByCaRequestorInfo(ident);
           manager.idNameMap.addRequestor(ident);
         } else {
-          RequestorEntry requestorDbEntry = manager.caConfStore.createRequestor(name);
-          manager.idNameMap.addRequestor(requestorDbEntry.getIdent());
-          manager.requestorDbEntries.put(name, requestorDbEntry);
-          RequestorEntryWrapper requestor = new RequestorEntryWrapper();
-          requestor.setDbEntry(requestorDbEntry);
-          manager.requestors.put(name, requestor);
+          loadRequestor(name, manager.caConfStore.createRequestor(name));
         }
 
         LOG.info("loaded requestor {}", name);
@@ -73,6 +69,56 @@ class RequestorManager {
     requestorsInitialized = true;
   } // method initRequestors
 
+  /**
+   * Reloads only the requestors which have been added, changed or removed in the configuration
+   * store. The other requestors are kept untouched.
+   * @return names of the reloaded and removed requestors.
+   * @throws CaMgmtException if error occurs while reading the configuration store.
+   */
+  Set<String> reloadRequestors() throws CaMgmtException {
+    Set<String> changed = new HashSet<>();
+    List<String> names = manager.caConfStore.getRequestorNames();
+
+    for (String name : new ArrayList<>(manager.requestorDbEntries.keySet())) {
+      if (!names.contains(name)) {
+        RequestorEntry dbEntry = manager.requestorDbEntries.remove(name);
+        manager.requestors.remove(name);
+        manager.idNameMap.removeRequestor(dbEntry.getIdent().getId());
+        changed.add(name);
+        LOG.info("removed requestor {}", name);
+      }
+    }
+
+    for (String name : names) {
+      if (RequestorInfo.NAME_BY_CA.equalsIgnoreCase(name)) {
+        continue;
+      }
+
+      RequestorEntry dbEntry = manager.caConfStore.createRequestor(name);
+      RequestorEntry oldDbEntry = manager.requestorDbEntries.get(name);
+      if (oldDbEntry != null && oldDbEntry.equals(dbEntry)) {
+        continue;
+      }
+
+      if (oldDbEntry != null && !oldDbEntry.getIdent().getId().equals(dbEntry.getIdent().getId())) {
+        manager.idNameMap.removeRequestor(oldDbEntry.getIdent().getId());
+      }
+      loadRequestor(name, dbEntry);
+      changed.add(name);
+      LOG.info("reloaded requestor {}", name);
+    }
+
+    return changed;
+  } // method reloadRequestors
+
+  private void loadRequestor(String name, RequestorEntry dbEntry) {
+    manager.idNameMap.addRequestor(dbEntry.getIdent());
+    manager.requestorDbEntries.put(name, dbEntry);
+    RequestorEntryWrapper requestor = new RequestorEntryWrapper();
+    requestor.setDbEntry(dbEntry);
+    manager.requestors.put(name, requestor);
+  } // method loadRequestor
+
   void addRequestor(RequestorEntry requestorEntry) throws CaMgmtException {
     manager.assertMasterMode();
 
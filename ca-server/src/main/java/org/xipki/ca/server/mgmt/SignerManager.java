@@ -16,12 +16,16 @@ import org.xipki.security.pkcs11.P11Module;
 import org.xipki.security.pkcs11.P11Slot;
 import org.xipki.security.pkcs11.P11SlotId;
 import org.xipki.util.Args;
+import org.xipki.util.LogUtil;
 import org.xipki.util.StringUtil;
 import org.xipki.util.exception.ObjectCreationException;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 /**
  * Manages the signers.
@@ -67,6 +71,52 @@ class SignerManager {
     signerInitialized = true;
   } // method initSigners
 
+  /**
+   * Reloads only the signers which have been added, changed or removed in the configuration
+   * store. The other signers are kept untouched.
+   * @return names of the reloaded and removed signers.
+   * @throws CaMgmtException if error occurs while reading the configuration store.
+   */
+  Set<String> reloadSigners() throws CaMgmtException {
+    Set<String> changed = new HashSet<>();
+    List<String> names = manager.caConfStore.getSignerNames();
+
+    for (String name : new ArrayList<>(manager.signerDbEntries.keySet())) {
+      if (!names.contains(name)) {
+        manager.signerDbEntries.remove(name);
+        manager.signers.remove(name);
+        changed.add(name);
+        LOG.info("removed signer {}", name);
+      }
+    }
+
+    for (String name : names) {
+      SignerEntry signer = manager.caConfStore.createSigner(name);
+      SignerEntry oldSigner = manager.signerDbEntries.get(name);
+      if (oldSigner != null && !oldSigner.isFaulty() && oldSigner.equals(signer)) {
+        continue;
+      }
+
+      changed.add(name);
+      signer.setFaulty(true);
+      manager.signerDbEntries.put(name, signer);
+
+      try {
+        createSigner(signer);
+      } catch (CaMgmtException ex) {
+        manager.signers.remove(name);
+        LogUtil.error(LOG, ex, "ERROR loading signer " + name);
+        continue;
+      }
+
+      signer.setFaulty(false);
+      manager.signers.put(name, signer);
+      LOG.info("reloaded signer {}", name);
+    }
+
+    return changed;
+  } // method reloadSigners
+
   void addSigner(SignerEntry signerEntry) throws CaMgmtException {
     manager.assertMasterMode();
 
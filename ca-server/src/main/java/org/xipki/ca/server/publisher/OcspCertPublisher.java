@@ -22,6 +22,7 @@ import org.xipki.security.X509Cert;
 import org.xipki.util.Args;
 import org.xipki.util.ConfPairs;
 
+import java.io.File;
 import java.security.NoSuchAlgorithmException;
 
 /**
@@ -145,6 +146,11 @@ public class OcspCertPublisher extends CertPublisher {
     return true;
   }
 
+  @Override
+  public boolean crlAdded(X509Cert caCert, File crlFile) {
+    return true;
+  }
+
   @Override
   public boolean isHealthy() {
     return queryExecutor.isHealthy();
@@ -124,6 +124,9 @@ class OcspStoreQueryExecutor {
 
   private final HashAlgo certhashAlgo;
 
+  // whether the column CERT.HASH is of binary type.
+  private final boolean binaryCertHash;
+
   private final AtomicInteger cachedIssuerId = new AtomicInteger(0);
 
   OcspStoreQueryExecutor(DataSourceWrapper datasource, boolean publishGoodCerts)
@@ -162,6 +165,7 @@ class OcspStoreQueryExecutor {
 
     str = variables.get("CERTHASH_ALGO");
     this.certhashAlgo = HashAlgo.getInstance(str);
+    this.binaryCertHash = datasource.isBinaryColumn(null, "CERT", "HASH");
   } // constructor
 
   private IssuerStore initIssuerStore() throws DataAccessException {
@@ -212,7 +216,7 @@ class OcspStoreQueryExecutor {
 
     long certId = certificate.getCertId();
     byte[] encodedCert = certificate.getCert().getEncoded();
-    String certHash = certhashAlgo.base64Hash(encodedCert);
+    byte[] certHash = certhashAlgo.hash(encodedCert);
 
     X509Cert cert = certificate.getCert();
     String cuttedSubject = X509Util.cutText(certificate.getCert().getSubjectText(), maxX500nameLen);
@@ -229,7 +233,11 @@ class OcspStoreQueryExecutor {
       ps.setLong(idx++, cert.getNotAfter().getEpochSecond());
       setBoolean(ps, idx++, revoked);
       ps.setInt(idx++, issuerId);
-      ps.setString(idx++, certHash);
+      if (binaryCertHash) {
+        ps.setBytes(idx++, certHash);
+      } else {
+        ps.setString(idx++, Base64.encodeToString(certHash));
+      }
       ps.setString(idx++, cuttedSubject);
 
       if (revoked) {
@@ -0,0 +1,209 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.ca.server.AsyncPublisher.Entry;
+import org.xipki.ca.server.AsyncPublisher.EntryType;
+import org.xipki.ca.server.CaServerConf.AsyncPublisherConf;
+import org.xipki.util.IoUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Test of {@link AsyncPublisher}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class AsyncPublisherTest {
+
+  private static class RecordingDeliverer implements AsyncPublisher.Deliverer {
+
+    private final List<Long> ids = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean successful = true;
+
+    @Override
+    public boolean deliver(String publisherName, Entry entry) {
+      if (successful) {
+        ids.add(entry.getId());
+      }
+      return successful;
+    }
+
+  } // class RecordingDeliverer
+
+  private File journalDir;
+
+  @Before
+  public void init() throws IOException {
+    journalDir = Files.createTempDirectory("asyncpublisher").toFile();
+  }
+
+  @After
+  public void shutdown() {
+    IoUtil.deleteDir(journalDir);
+  }
+
+  @Test
+  public void enqueueKeepsOrder() throws Exception {
+    RecordingDeliverer deliverer = new RecordingDeliverer();
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 3)) {
+      for (int i = 1; i <= 100; i++) {
+        publisher.enqueue(EntryType.ADD, i, null);
+      }
+      waitFor(deliverer, 100);
+    }
+
+    for (int i = 0; i < 100; i++) {
+      Assert.assertEquals(i + 1, (long) deliverer.ids.get(i));
+    }
+  } // method enqueueKeepsOrder
+
+  @Test
+  public void replayAfterRestart() throws Exception {
+    RecordingDeliverer deliverer = new RecordingDeliverer();
+    deliverer.successful = false;
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 1000)) {
+      publisher.enqueue(EntryType.ADD, 1, null);
+      publisher.enqueue(EntryType.REVOKE, 1, null);
+      publisher.enqueue(EntryType.CRL, 5, null);
+    }
+    Assert.assertTrue(deliverer.ids.isEmpty());
+
+    deliverer.successful = true;
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 1000)) {
+      waitFor(deliverer, 3);
+      publisher.enqueue(EntryType.UNREVOKE, 1, null);
+      waitFor(deliverer, 4);
+    }
+    Assert.assertEquals(Long.valueOf(5), deliverer.ids.get(2));
+    Assert.assertEquals(4, deliverer.ids.size());
+
+    // all events are checkpointed, nothing is replayed.
+    deliverer.ids.clear();
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 1000)) {
+      Assert.assertEquals(0, publisher.getQueueSize());
+    }
+    Assert.assertTrue(deliverer.ids.isEmpty());
+  } // method replayAfterRestart
+
+  @Test
+  public void deadLetters() throws Exception {
+    RecordingDeliverer deliverer = new RecordingDeliverer();
+    deliverer.successful = false;
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 0)) {
+      publisher.enqueue(EntryType.REMOVE, 7, "data");
+      List<Entry> deadLetters = Collections.emptyList();
+      for (int i = 0; i < 100 && deadLetters.isEmpty(); i++) {
+        TimeUnit.MILLISECONDS.sleep(50);
+        deadLetters = publisher.takeDeadLetters();
+      }
+
+      Assert.assertEquals(1, deadLetters.size());
+      Assert.assertEquals(EntryType.REMOVE, deadLetters.get(0).getType());
+      Assert.assertEquals("data", deadLetters.get(0).getData());
+    }
+  } // method deadLetters
+
+  @Test
+  public void failedCheckpointDoesNotLoseEvents() throws Exception {
+    RecordingDeliverer deliverer = new RecordingDeliverer();
+    // the checkpoint file cannot replace a non-empty directory.
+    File checkpointDir = new File(journalDir, "ca1/pub1.checkpoint");
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 1000)) {
+      IoUtil.mkdirs(checkpointDir);
+      IoUtil.save(new File(checkpointDir, "file"), new byte[1]);
+
+      publisher.enqueue(EntryType.ADD, 1, null);
+      waitFor(deliverer, 1);
+      TimeUnit.MILLISECONDS.sleep(200);
+
+      IoUtil.deleteDir(checkpointDir);
+      publisher.enqueue(EntryType.ADD, 2, null);
+      waitFor(deliverer, 2);
+    }
+
+    // the checkpoint has been written after the directory was removed.
+    deliverer.ids.clear();
+    try (AsyncPublisher publisher = newPublisher(deliverer, 10, 1000)) {
+      Assert.assertEquals(0, publisher.getQueueSize());
+    }
+  } // method failedCheckpointDoesNotLoseEvents
+
+  @Test(timeout = 20000)
+  public void closeDoesNotDeadlock() throws Exception {
+    CountDownLatch blocked = new CountDownLatch(1);
+    AsyncPublisher.Deliverer deliverer = (publisherName, entry) -> {
+      blocked.countDown();
+      try {
+        TimeUnit.MINUTES.sleep(1);
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      }
+      return false;
+    };
+
+    AsyncPublisher publisher = newPublisher(deliverer, 1, 1000);
+    // taken by the worker which is blocked in the deliverer.
+    publisher.enqueue(EntryType.ADD, 1, null);
+    Assert.assertTrue(blocked.await(10, TimeUnit.SECONDS));
+    // fills the queue
+    publisher.enqueue(EntryType.ADD, 2, null);
+
+    AtomicReference<Throwable> producerError = new AtomicReference<>();
+    Thread producer = new Thread(() -> {
+      try {
+        publisher.enqueue(EntryType.ADD, 3, null);
+      } catch (Throwable th) {
+        producerError.set(th);
+      }
+    });
+    producer.start();
+    TimeUnit.MILLISECONDS.sleep(200);
+
+    publisher.close();
+    producer.join(10000);
+    Assert.assertFalse("producer still blocked", producer.isAlive());
+    Assert.assertTrue(producerError.get() instanceof IOException);
+
+    try {
+      publisher.enqueue(EntryType.ADD, 4, null);
+      Assert.fail("IOException expected");
+    } catch (IOException ex) {
+      // expected
+    }
+  } // method closeDoesNotDeadlock
+
+  private AsyncPublisher newPublisher(AsyncPublisher.Deliverer deliverer, int queueSize, int maxRetries)
+      throws IOException {
+    AsyncPublisherConf conf = new AsyncPublisherConf();
+    conf.setJournalDir(journalDir.getPath());
+    conf.setQueueSize(queueSize);
+    conf.setBatchSize(5);
+    conf.setMaxRetries(maxRetries);
+    conf.setRetryInitialDelay(1);
+    conf.setRetryMaxDelay(1);
+    return new AsyncPublisher("ca1", "pub1", deliverer, conf);
+  }
+
+  private static void waitFor(RecordingDeliverer deliverer, int count) throws InterruptedException {
+    for (int i = 0; i < 200 && deliverer.ids.size() < count; i++) {
+      TimeUnit.MILLISECONDS.sleep(50);
+    }
+    Assert.assertEquals(count, deliverer.ids.size());
+  }
+
+}
@@ -0,0 +1,222 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.CertWithDbId;
+import org.xipki.ca.api.CertificateInfo;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.server.X509Ca.OperationExceptionWithIndex;
+import org.xipki.pki.ErrorCode;
+import org.xipki.pki.OperationException;
+import org.xipki.security.X509Cert;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test of {@link BatchCertIssuer}, the certificates of a batch are generated in parallel.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class BatchCertIssuerTest {
+
+  private static final int N = 20;
+
+  private static final NameId ISSUER = new NameId(1, "ca1");
+
+  private static final NameId PROFILE = new NameId(2, "tls");
+
+  private static final NameId REQUESTOR = new NameId(3, "requestor1");
+
+  private static final List<CertificateInfo> certInfos = new ArrayList<>(N);
+
+  private static ExecutorService executor;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair kp = kpGen.generateKeyPair();
+    ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate());
+    SubjectPublicKeyInfo pkInfo = SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded());
+
+    X500Name issuer = new X500Name("CN=ca1");
+    Instant now = Instant.now();
+    X509Cert issuerCert = newCert(issuer, issuer, BigInteger.ONE, now, pkInfo, signer);
+    for (int i = 0; i < N; i++) {
+      X509Cert cert = newCert(issuer, new X500Name("CN=subject-" + i), BigInteger.valueOf(100 + i),
+          now, pkInfo, signer);
+      certInfos.add(new CertificateInfo(new CertWithDbId(cert), null, ISSUER, issuerCert, PROFILE, REQUESTOR));
+    }
+
+    executor = Executors.newFixedThreadPool(4);
+  }
+
+  @AfterClass
+  public static void shutdown() {
+    if (executor != null) {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void resultsInRequestOrder() throws Exception {
+    // the certificates are completed in a random order.
+    Random random = new Random(1);
+    long[] delays = new long[N];
+    for (int i = 0; i < N; i++) {
+      delays[i] = random.nextInt(20);
+    }
+
+    List<List<CertificateInfo>> saved = new ArrayList<>();
+    List<CertificateInfo> issued = BatchCertIssuer.issue(executor, N,
+        index -> {
+          sleep(delays[index]);
+          return certInfos.get(index);
+        },
+        saved::add);
+
+    Assert.assertEquals(certInfos, issued);
+    Assert.assertEquals(Collections.singletonList(certInfos), saved);
+  } // method resultsInRequestOrder
+
+  @Test
+  public void failedRequest() throws Exception {
+    final int failedIndex = 7;
+    Set<Integer> generated = ConcurrentHashMap.newKeySet();
+    AtomicInteger saveCalls = new AtomicInteger();
+
+    try {
+      BatchCertIssuer.issue(executor, N,
+          index -> {
+            if (index == failedIndex) {
+              sleep(50);
+              throw new OperationException(ErrorCode.BAD_CERT_TEMPLATE, "invalid request " + index);
+            }
+            // the requests before the failed one are still running when it is submitted.
+            if (index < failedIndex) {
+              sleep(10);
+            }
+            generated.add(index);
+            return certInfos.get(index);
+          },
+          list -> saveCalls.incrementAndGet());
+      Assert.fail("OperationExceptionWithIndex expected");
+    } catch (OperationExceptionWithIndex ex) {
+      Assert.assertEquals(failedIndex, ex.getIndex());
+      Assert.assertEquals(ErrorCode.BAD_CERT_TEMPLATE, ex.getErrorCode());
+      Assert.assertEquals("invalid request " + failedIndex, ex.getErrorMessage());
+    }
+
+    // the results of the other requests started before the failure are kept until all tasks
+    // are completed, and none of them is saved.
+    for (int i = 0; i < failedIndex; i++) {
+      Assert.assertTrue("request " + i + " generated", generated.contains(i));
+    }
+    Assert.assertFalse(generated.contains(failedIndex));
+    Assert.assertEquals(0, saveCalls.get());
+  } // method failedRequest
+
+  @Test
+  public void firstFailureReported() throws Exception {
+    // both requests 3 and 5 fail, the one with the lower index is reported, even if it fails later.
+    try {
+      BatchCertIssuer.issue(executor, N,
+          index -> {
+            if (index == 3) {
+              sleep(50);
+              throw new OperationException(ErrorCode.SYSTEM_FAILURE, "request 3");
+            } else if (index == 5) {
+              throw new OperationException(ErrorCode.BAD_REQUEST, "request 5");
+            }
+            return certInfos.get(index);
+          },
+          list -> Assert.fail("no certificate shall be saved"));
+      Assert.fail("OperationExceptionWithIndex expected");
+    } catch (OperationExceptionWithIndex ex) {
+      Assert.assertEquals(3, ex.getIndex());
+      Assert.assertEquals(ErrorCode.SYSTEM_FAILURE, ex.getErrorCode());
+    }
+  } // method firstFailureReported
+
+  @Test
+  public void duplicatedSerialNumber() throws Exception {
+    try {
+      BatchCertIssuer.issue(executor, 3,
+          index -> certInfos.get(index == 2 ? 0 : index),
+          list -> Assert.fail("no certificate shall be saved"));
+      Assert.fail("OperationExceptionWithIndex expected");
+    } catch (OperationExceptionWithIndex ex) {
+      Assert.assertEquals(2, ex.getIndex());
+      Assert.assertEquals(ErrorCode.BAD_CERT_TEMPLATE, ex.getErrorCode());
+    }
+  } // method duplicatedSerialNumber
+
+  @Test
+  public void failedSave() throws Exception {
+    // all certificates are generated, but the batch could not be saved.
+    List<List<CertificateInfo>> saved = new ArrayList<>();
+    try {
+      BatchCertIssuer.issue(executor, N, certInfos::get,
+          list -> {
+            saved.add(list);
+            throw new OperationException(ErrorCode.SYSTEM_FAILURE, "could not save certificates");
+          });
+      Assert.fail("OperationExceptionWithIndex expected");
+    } catch (OperationExceptionWithIndex ex) {
+      // the failure is not assigned to any single request.
+      Assert.assertEquals(OperationExceptionWithIndex.INDEX_ALL, ex.getIndex());
+      Assert.assertEquals(ErrorCode.SYSTEM_FAILURE, ex.getErrorCode());
+      Assert.assertEquals("could not save certificates", ex.getErrorMessage());
+    }
+
+    // the saver is called exactly once, with the whole batch.
+    Assert.assertEquals(Collections.singletonList(certInfos), saved);
+  } // method failedSave
+
+  private static void sleep(long ms) {
+    try {
+      TimeUnit.MILLISECONDS.sleep(ms);
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static X509Cert newCert(X500Name issuer, X500Name subject, BigInteger serial, Instant now,
+                                  SubjectPublicKeyInfo pkInfo, ContentSigner signer) {
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(issuer, serial,
+        Date.from(now), Date.from(now.plus(365, ChronoUnit.DAYS)), subject, pkInfo);
+    return new X509Cert(builder.build(signer));
+  }
+
+}
@@ -0,0 +1,77 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.security.CrlReason;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Test of {@link CrlEntrySorter}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CrlEntrySorterTest {
+
+  @Test
+  public void sortInMemory() throws Exception {
+    sortAndCompare(100, 50, false);
+  }
+
+  @Test
+  public void sortWithRuns() throws Exception {
+    // 7 entries per run, the last run is not full.
+    sortAndCompare(7, 50, true);
+  }
+
+  @Test
+  public void empty() throws Exception {
+    try (CrlEntrySorter sorter = new CrlEntrySorter(10)) {
+      sorter.forEachSorted(entry -> Assert.fail("unexpected entry"));
+    }
+  }
+
+  private static void sortAndCompare(int maxEntriesInMemory, int numEntries, boolean expectRuns)
+      throws Exception {
+    Random random = new Random(1234);
+    Instant revTime = Instant.ofEpochMilli(1_700_000_000_123L);
+    List<CertRevInfoWithSerial> entries = new ArrayList<>(numEntries);
+    for (int i = 0; i < numEntries; i++) {
+      // serial numbers of different lengths, the numeric order differs from the order of the hex text.
+      BigInteger serial = new BigInteger(8 + random.nextInt(152), random);
+      Instant invTime = (i % 3 == 0) ? revTime.minusSeconds(i) : null;
+      CrlReason reason = (i % 2 == 0) ? CrlReason.KEY_COMPROMISE : CrlReason.CERTIFICATE_HOLD;
+      entries.add(new CertRevInfoWithSerial(i + 1, serial, reason, revTime.plusMillis(i), invTime));
+    }
+
+    List<CertRevInfoWithSerial> sorted = new ArrayList<>(numEntries);
+    try (CrlEntrySorter sorter = new CrlEntrySorter(maxEntriesInMemory)) {
+      for (CertRevInfoWithSerial entry : entries) {
+        sorter.add(entry);
+      }
+      Assert.assertEquals("runs", expectRuns, sorter.getNumRuns() > 0);
+      sorter.forEachSorted(sorted::add);
+    }
+
+    Collections.sort(entries);
+    Assert.assertEquals(entries.size(), sorted.size());
+    for (int i = 0; i < entries.size(); i++) {
+      CertRevInfoWithSerial expected = entries.get(i);
+      CertRevInfoWithSerial actual = sorted.get(i);
+      Assert.assertEquals(expected.getId(), actual.getId());
+      Assert.assertEquals(expected.getSerial(), actual.getSerial());
+      Assert.assertEquals(expected.getReason(), actual.getReason());
+      Assert.assertEquals(expected.getRevocationTime(), actual.getRevocationTime());
+      Assert.assertEquals(expected.getInvalidityTime(), actual.getInvalidityTime());
+    }
+  } // method sortAndCompare
+
+}
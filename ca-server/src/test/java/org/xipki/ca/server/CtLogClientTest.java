@@ -0,0 +1,74 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server;
+
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.Hex;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.Security;
+import java.util.Collections;
+
+/**
+ * JUnit test case of the cache of the SCT verification keys in {@link CtLogClient}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CtLogClientTest {
+
+  @BeforeClass
+  public static void init() {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+  }
+
+  @Test
+  public void missIsNotCached() throws Exception {
+    File dir = Files.createTempDirectory("ctlog-keys").toFile();
+    try (CtLogClient client = new CtLogClient(Collections.singletonList("https://localhost/"), null)) {
+      KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+      kpGen.initialize(256);
+      PublicKey publicKey = kpGen.generateKeyPair().getPublic();
+      byte[] logId = HashAlgo.SHA256.hash(publicKey.getEncoded());
+      String hexLogId = Hex.encode(logId);
+
+      // no key is configured.
+      CtLogPublicKeyFinder emptyFinder = newFinder(dir);
+      Assert.assertNull(client.getVerifyKey(hexLogId, logId, emptyFinder));
+
+      // the key has been added, and the finder has been re-created.
+      Files.write(new File(dir, "log1.der").toPath(), publicKey.getEncoded());
+      CtLogPublicKeyFinder finder = newFinder(dir);
+      Assert.assertEquals(publicKey, client.getVerifyKey(hexLogId, logId, finder));
+      Assert.assertEquals(publicKey, client.getVerifyKey(hexLogId, logId, finder));
+
+      // the cached key is not used for another finder.
+      Assert.assertNull(client.getVerifyKey(hexLogId, logId, emptyFinder));
+      Assert.assertNull(client.getVerifyKey(hexLogId, logId, null));
+    } finally {
+      File[] files = dir.listFiles();
+      if (files != null) {
+        for (File f : files) {
+          f.delete();
+        }
+      }
+      dir.delete();
+    }
+  }
+
+  private static CtLogPublicKeyFinder newFinder(File keydir) throws Exception {
+    CaServerConf.CtLogConf conf = new CaServerConf.CtLogConf();
+    conf.setKeydir(keydir.getPath());
+    return new CtLogPublicKeyFinder(conf);
+  }
+
+}
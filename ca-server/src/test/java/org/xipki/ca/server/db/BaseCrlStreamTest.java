@@ -0,0 +1,145 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server.db;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.server.CertRevInfoWithSerial;
+import org.xipki.security.CrlReason;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.Base64;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Test of the streamed base CRL in the computation of delta CRLs without revocation journal,
+ * see {@link DbCertStore#streamBaseCrl}, and of the streamed CRL saved in the database.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class BaseCrlStreamTest {
+
+  private static final Instant REV_TIME = Instant.ofEpochSecond(1_700_000_000L);
+
+  private static File crlFile;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair kp = kpGen.generateKeyPair();
+
+    // the base CRL: 1 keyCompromise, 2 certificateHold, 3 without reason, 5 superseded.
+    Date revTime = Date.from(REV_TIME);
+    X509v2CRLBuilder builder = new X509v2CRLBuilder(new X500Name("CN=base-crl-ca"), revTime);
+    builder.addCRLEntry(BigInteger.ONE, revTime, CrlReason.KEY_COMPROMISE.getCode());
+    builder.addCRLEntry(BigInteger.TWO, revTime, CrlReason.CERTIFICATE_HOLD.getCode());
+    builder.addCRLEntry(BigInteger.valueOf(3), revTime, 0);
+    builder.addCRLEntry(BigInteger.valueOf(5), revTime, CrlReason.SUPERSEDED.getCode());
+    byte[] encoded = builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate())).getEncoded();
+
+    crlFile = File.createTempFile("basecrl-", ".crl");
+    Files.write(crlFile.toPath(), encoded);
+  }
+
+  @AfterClass
+  public static void cleanup() {
+    if (crlFile != null) {
+      crlFile.delete();
+    }
+  }
+
+  @Test
+  public void changedReasonRemainsInDelta() throws Exception {
+    Map<BigInteger, CertRevInfoWithSerial> revokedSince = new HashMap<>();
+    // unchanged
+    addRevoked(revokedSince, 1, CrlReason.KEY_COMPROMISE);
+    // certificateHold in the base CRL, revoked with keyCompromise later
+    addRevoked(revokedSince, 2, CrlReason.KEY_COMPROMISE);
+    // unchanged, the CRL entry without reason extension is unspecified
+    addRevoked(revokedSince, 3, CrlReason.UNSPECIFIED);
+    // not in the base CRL
+    addRevoked(revokedSince, 4, CrlReason.AFFILIATION_CHANGED);
+
+    DbCertStore.streamBaseCrl(crlFile, revokedSince, 100, snList -> {});
+
+    Assert.assertEquals(2, revokedSince.size());
+    Assert.assertEquals(CrlReason.KEY_COMPROMISE, revokedSince.get(BigInteger.TWO).getReason());
+    Assert.assertEquals(CrlReason.AFFILIATION_CHANGED, revokedSince.get(BigInteger.valueOf(4)).getReason());
+  } // method changedReasonRemainsInDelta
+
+  @Test
+  public void serialNumbersInBatches() throws Exception {
+    List<List<BigInteger>> batches = new ArrayList<>();
+    List<BigInteger> remaining = DbCertStore.streamBaseCrl(crlFile, new HashMap<>(), 3,
+        snList -> batches.add(new ArrayList<>(snList)));
+
+    Assert.assertEquals(Collections.singletonList(
+        Arrays.asList(BigInteger.ONE, BigInteger.TWO, BigInteger.valueOf(3))), batches);
+    Assert.assertEquals(Collections.singletonList(BigInteger.valueOf(5)), remaining);
+
+    // batches of exactly the number of CRL entries, nothing remains.
+    batches.clear();
+    remaining = DbCertStore.streamBaseCrl(crlFile, new HashMap<>(), 4,
+        snList -> batches.add(new ArrayList<>(snList)));
+    Assert.assertEquals(1, batches.size());
+    Assert.assertTrue(remaining.isEmpty());
+  } // method serialNumbersInBatches
+
+  @Test
+  public void reasonsOfOverlappingSerials() throws Exception {
+    Set<BigInteger> serials = new HashSet<>(Arrays.asList(BigInteger.TWO, BigInteger.valueOf(3), BigInteger.valueOf(4)));
+    Map<BigInteger, Integer> reasons = DbCertStore.readBaseCrlReasons(crlFile, serials);
+    Assert.assertEquals(2, reasons.size());
+    Assert.assertEquals(CrlReason.CERTIFICATE_HOLD.getCode(), (int) reasons.get(BigInteger.TWO));
+    // the CRL entry without reason extension is unspecified
+    Assert.assertEquals(CrlReason.UNSPECIFIED.getCode(), (int) reasons.get(BigInteger.valueOf(3)));
+  } // method reasonsOfOverlappingSerials
+
+  @Test
+  public void base64EncodedCrlFile() throws Exception {
+    byte[] encoded = Files.readAllBytes(crlFile.toPath());
+    File b64File = File.createTempFile("basecrl-", ".b64");
+    try {
+      String b64Sha1 = DbCertStore.base64EncodeFile(crlFile, b64File);
+      Assert.assertEquals(HashAlgo.SHA1.base64Hash(encoded), b64Sha1);
+      Assert.assertEquals(Base64.encodeToString(encoded),
+          new String(Files.readAllBytes(b64File.toPath()), StandardCharsets.US_ASCII));
+    } finally {
+      b64File.delete();
+    }
+  } // method base64EncodedCrlFile
+
+  private static void addRevoked(Map<BigInteger, CertRevInfoWithSerial> map, long sn, CrlReason reason) {
+    BigInteger serial = BigInteger.valueOf(sn);
+    map.put(serial, new CertRevInfoWithSerial(sn, serial, reason, REV_TIME, null));
+  }
+
+}
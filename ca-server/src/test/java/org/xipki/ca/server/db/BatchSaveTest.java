@@ -0,0 +1,220 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server.db;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ca.api.CertWithDbId;
+import org.xipki.ca.api.CertificateInfo;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.server.CaConfStore;
+import org.xipki.ca.server.UniqueIdGenerator;
+import org.xipki.ca.server.db.QueryExecutor.ColumnType;
+import org.xipki.ca.server.db.QueryExecutor.SqlColumn2;
+import org.xipki.datasource.DataAccessException;
+import org.xipki.datasource.DataSourceFactory;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.security.X509Cert;
+import org.xipki.util.ConfigurableProperties;
+
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.sql.Connection;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test of the batch inserts: if any row of the batch could not be saved, the transaction is rolled
+ * back and none of the rows is saved.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class BatchSaveTest {
+
+  private static final String SQL_ADD_ROW = "INSERT INTO T1 (ID,NAME) VALUES(?,?)";
+
+  // parameters CA_ID and SN of the insert statement of the table CERT
+  private static final int[] CERT_KEY = {12, 3};
+
+  private static final NameId ISSUER = new NameId(1, "ca1");
+
+  private static final NameId PROFILE = new NameId(2, "tls");
+
+  private static final NameId REQUESTOR = new NameId(3, "requestor1");
+
+  private static X509Cert issuerCert;
+
+  private static SubjectPublicKeyInfo pkInfo;
+
+  private static ContentSigner signer;
+
+  private DataSourceWrapper datasource;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair kp = kpGen.generateKeyPair();
+    signer = new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate());
+    pkInfo = SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded());
+    issuerCert = newCert("CN=ca1", BigInteger.ONE);
+  }
+
+  @Before
+  public void createDataSource() throws Exception {
+    InMemoryDataSource.createTable("T1", 1);
+    InMemoryDataSource.createTable("CERT", CERT_KEY);
+    InMemoryDataSource.createTable("CRL", 1);
+
+    ConfigurableProperties props = new ConfigurableProperties();
+    props.setProperty("dataSourceClassName", InMemoryDataSource.class.getName());
+    props.setProperty("sql.type", "H2");
+    // all statements use the same connection
+    props.setProperty("maximumPoolSize", "1");
+    datasource = new DataSourceFactory().createDataSource("test", props);
+  }
+
+  @After
+  public void closeDataSource() {
+    if (datasource != null) {
+      datasource.close();
+    }
+    InMemoryDataSource.dropTables();
+  }
+
+  @Test
+  public void batchCommitted() throws Exception {
+    new QueryExecutor(datasource).execBatchPrepStmt(SQL_ADD_ROW,
+        Arrays.asList(row(1, "a"), row(2, "b"), row(3, "c")));
+
+    List<Object[]> rows = InMemoryDataSource.getRows("T1");
+    Assert.assertEquals(3, rows.size());
+    Assert.assertEquals("c", rows.get(2)[1]);
+    assertAutoCommit();
+  } // method batchCommitted
+
+  @Test
+  public void failedBatchRolledBack() throws Exception {
+    QueryExecutor executor = new QueryExecutor(datasource);
+    try {
+      // the third row has the same ID as the first one.
+      executor.execBatchPrepStmt(SQL_ADD_ROW, Arrays.asList(row(1, "a"), row(2, "b"), row(1, "c"), row(4, "d")));
+      Assert.fail("DataAccessException expected");
+    } catch (DataAccessException ex) {
+      // expected
+    }
+
+    // the rows before the failed one are rolled back.
+    Assert.assertEquals(0, InMemoryDataSource.getRows("T1").size());
+    assertAutoCommit();
+
+    // the connection is still usable, and no row of the failed batch is committed later.
+    executor.execBatchPrepStmt(SQL_ADD_ROW, Arrays.asList(row(1, "a2"), row(2, "b2")));
+    List<Object[]> rows = InMemoryDataSource.getRows("T1");
+    Assert.assertEquals(2, rows.size());
+    Assert.assertEquals("a2", rows.get(0)[1]);
+  } // method failedBatchRolledBack
+
+  @Test
+  public void certsSaved() throws Exception {
+    List<CertificateInfo> certInfos = newCertInfos(100, 101, 102);
+    Assert.assertTrue(newCertStore().addCerts(certInfos, false));
+
+    List<Object[]> rows = InMemoryDataSource.getRows("CERT");
+    Assert.assertEquals(3, rows.size());
+    for (int i = 0; i < 3; i++) {
+      // the column ID is the first parameter.
+      Assert.assertEquals(rows.get(i)[0], certInfos.get(i).getCert().getCertId());
+    }
+  } // method certsSaved
+
+  @Test
+  public void certsRolledBack() throws Exception {
+    DbCertStore certStore = newCertStore();
+    Assert.assertTrue(certStore.addCerts(newCertInfos(100, 101), false));
+
+    // the last certificate has the serial number of a saved certificate.
+    List<CertificateInfo> certInfos = newCertInfos(102, 103, 104, 101);
+    Assert.assertFalse(certStore.addCerts(certInfos, false));
+
+    Assert.assertEquals(2, InMemoryDataSource.getRows("CERT").size());
+    for (CertificateInfo certInfo : certInfos) {
+      Assert.assertNull("certId of a not saved certificate", certInfo.getCert().getCertId());
+    }
+
+    // the same certificates without the duplicated one.
+    certInfos = certInfos.subList(0, 3);
+    Assert.assertTrue(certStore.addCerts(certInfos, false));
+    Assert.assertEquals(5, InMemoryDataSource.getRows("CERT").size());
+    assertAutoCommit();
+  } // method certsRolledBack
+
+  private void assertAutoCommit() throws Exception {
+    Connection conn = datasource.getConnection();
+    try {
+      Assert.assertTrue("autoCommit restored", conn.getAutoCommit());
+    } finally {
+      datasource.returnConnection(conn);
+    }
+  }
+
+  private DbCertStore newCertStore() throws Exception {
+    Map<String, String> dbSchemas = new HashMap<>();
+    dbSchemas.put("VENDOR", "XIPKI");
+    dbSchemas.put("VERSION", "9");
+
+    CaConfStore caConfStore = (CaConfStore) Proxy.newProxyInstance(getClass().getClassLoader(),
+        new Class<?>[] {CaConfStore.class}, (proxy, method, args) -> {
+          if ("getDbSchemas".equals(method.getName())) {
+            return dbSchemas;
+          }
+          throw new UnsupportedOperationException(method.getName());
+        });
+
+    return new DbCertStore(datasource, caConfStore, new UniqueIdGenerator(1_700_000_000L, 0));
+  }
+
+  private static SqlColumn2[] row(long id, String name) {
+    return new SqlColumn2[] {new SqlColumn2(ColumnType.LONG, id), new SqlColumn2(ColumnType.STRING, name)};
+  }
+
+  private static List<CertificateInfo> newCertInfos(int... serials) {
+    List<CertificateInfo> certInfos = new ArrayList<>(serials.length);
+    for (int serial : serials) {
+      X509Cert cert = newCert("CN=subject-" + serial, BigInteger.valueOf(serial));
+      certInfos.add(new CertificateInfo(new CertWithDbId(cert), null, ISSUER, issuerCert, PROFILE, REQUESTOR));
+    }
+    return certInfos;
+  }
+
+  private static X509Cert newCert(String subject, BigInteger serial) {
+    Instant now = Instant.now();
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(new X500Name("CN=ca1"), serial,
+        Date.from(now), Date.from(now.plus(365, ChronoUnit.DAYS)), new X500Name(subject), pkInfo);
+    return new X509Cert(builder.build(signer));
+  }
+
+}
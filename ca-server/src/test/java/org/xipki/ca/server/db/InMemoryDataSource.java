@@ -0,0 +1,405 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server.db;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.logging.Logger;
+
+/**
+ * Minimal in-memory {@link DataSource} to test the transactions of the batch inserts, without
+ * any JDBC driver. It supports only the statements {@code INSERT INTO <table> (..) VALUES(..)},
+ * {@code SELECT .. FROM <table> ..} returning no rows, the commit and the rollback. The uncommitted
+ * inserts are visible only to the connection which has executed them.
+ * <p>
+ * The tables are shared by all instances, and are created by {@link #createTable(String, int...)}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class InMemoryDataSource implements DataSource {
+
+  private static class Table {
+
+    private final int[] keyIndexes;
+
+    private final List<Object[]> rows = new ArrayList<>();
+
+    Table(int[] keyIndexes) {
+      this.keyIndexes = keyIndexes;
+    }
+
+    boolean sameKey(Object[] a, Object[] b) {
+      for (int index : keyIndexes) {
+        if (!Objects.equals(a[index - 1], b[index - 1])) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+  } // class Table
+
+  private static class PendingRow {
+
+    private final Table table;
+
+    private final Object[] row;
+
+    PendingRow(Table table, Object[] row) {
+      this.table = table;
+      this.row = row;
+    }
+
+  } // class PendingRow
+
+  private static class ConnectionHandler implements InvocationHandler {
+
+    private final List<PendingRow> pendingRows = new ArrayList<>();
+
+    private boolean autoCommit = true;
+
+    private boolean closed;
+
+    private Connection proxy;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "getAutoCommit":
+          return autoCommit;
+        case "setAutoCommit":
+          boolean newAutoCommit = (boolean) args[0];
+          if (newAutoCommit && !autoCommit) {
+            commit();
+          }
+          autoCommit = newAutoCommit;
+          return null;
+        case "commit":
+          commit();
+          return null;
+        case "rollback":
+          pendingRows.clear();
+          return null;
+        case "prepareStatement":
+          return newProxy(PreparedStatement.class, new PreparedStatementHandler(this, (String) args[0]));
+        case "createStatement":
+          return newProxy(Statement.class, new StatementHandler(this));
+        case "isValid":
+          return !closed;
+        case "isClosed":
+          return closed;
+        case "close":
+          pendingRows.clear();
+          closed = true;
+          return null;
+        case "getTransactionIsolation":
+          return Connection.TRANSACTION_READ_COMMITTED;
+        default:
+          return defaultResult(proxy, method, args);
+      }
+    }
+
+    private void commit() {
+      synchronized (tables) {
+        for (PendingRow pendingRow : pendingRows) {
+          pendingRow.table.rows.add(pendingRow.row);
+        }
+      }
+      pendingRows.clear();
+    }
+
+    private void insert(String sql, Object[] row) throws SQLException {
+      String upperSql = sql.toUpperCase();
+      if (!upperSql.startsWith("INSERT INTO ")) {
+        throw new SQLFeatureNotSupportedException("unsupported SQL " + sql);
+      }
+
+      String tableName = tableName(sql, "INSERT INTO ".length());
+      synchronized (tables) {
+        Table table = getTable(tableName);
+        for (Object[] existingRow : table.rows) {
+          if (table.sameKey(existingRow, row)) {
+            throw duplicateKey(tableName);
+          }
+        }
+
+        for (PendingRow pendingRow : pendingRows) {
+          if (pendingRow.table == table && table.sameKey(pendingRow.row, row)) {
+            throw duplicateKey(tableName);
+          }
+        }
+
+        if (autoCommit) {
+          table.rows.add(row);
+        } else {
+          pendingRows.add(new PendingRow(table, row));
+        }
+      }
+    } // method insert
+
+  } // class ConnectionHandler
+
+  private static class StatementHandler implements InvocationHandler {
+
+    protected final ConnectionHandler conn;
+
+    StatementHandler(ConnectionHandler conn) {
+      this.conn = conn;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "executeQuery":
+          query((String) args[0]);
+          return newProxy(ResultSet.class, (rsProxy, rsMethod, rsArgs) -> {
+            switch (rsMethod.getName()) {
+              case "next":
+                return false;
+              case "getMetaData":
+                return newProxy(ResultSetMetaData.class, (mdProxy, mdMethod, mdArgs) ->
+                    "getColumnType".equals(mdMethod.getName()) ? Types.VARCHAR
+                        : defaultResult(mdProxy, mdMethod, mdArgs));
+              default:
+                return defaultResult(rsProxy, rsMethod, rsArgs);
+            }
+          });
+        case "execute":
+          query((String) args[0]);
+          return true;
+        case "getConnection":
+          return conn.proxy;
+        default:
+          return defaultResult(proxy, method, args);
+      }
+    }
+
+    private void query(String sql) throws SQLException {
+      int idx = sql.toUpperCase().indexOf(" FROM ");
+      if (idx == -1) {
+        throw new SQLFeatureNotSupportedException("unsupported SQL " + sql);
+      }
+
+      synchronized (tables) {
+        getTable(tableName(sql, idx + " FROM ".length()));
+      }
+    }
+
+  } // class StatementHandler
+
+  private static class PreparedStatementHandler extends StatementHandler {
+
+    private final String sql;
+
+    private final Map<Integer, Object> params = new HashMap<>();
+
+    private final List<Object[]> batch = new ArrayList<>();
+
+    PreparedStatementHandler(ConnectionHandler conn, String sql) {
+      super(conn);
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+        // setNull(index, sqlType), setString(index, value), ...
+        params.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+        return null;
+      }
+
+      switch (name) {
+        case "clearParameters":
+          params.clear();
+          return null;
+        case "addBatch":
+          batch.add(currentRow());
+          return null;
+        case "clearBatch":
+          batch.clear();
+          return null;
+        case "executeUpdate":
+          conn.insert(sql, currentRow());
+          return 1;
+        case "executeBatch":
+          try {
+            int[] counts = new int[batch.size()];
+            for (int i = 0; i < counts.length; i++) {
+              try {
+                conn.insert(sql, batch.get(i));
+              } catch (SQLException ex) {
+                throw new BatchUpdateException(ex.getMessage(), ex.getSQLState(), ex.getErrorCode(),
+                    Arrays.copyOf(counts, i), ex);
+              }
+              counts[i] = 1;
+            }
+            return counts;
+          } finally {
+            batch.clear();
+          }
+        default:
+          return super.invoke(proxy, method, args);
+      }
+    }
+
+    private Object[] currentRow() {
+      int maxIndex = 0;
+      for (Integer index : params.keySet()) {
+        maxIndex = Math.max(maxIndex, index);
+      }
+
+      Object[] row = new Object[maxIndex];
+      for (Map.Entry<Integer, Object> entry : params.entrySet()) {
+        row[entry.getKey() - 1] = entry.getValue();
+      }
+      return row;
+    }
+
+  } // class PreparedStatementHandler
+
+  private static final Map<String, Table> tables = new HashMap<>();
+
+  /**
+   * Creates an empty table, replaces the existing one with the same name.
+   * @param name name of the table.
+   * @param keyIndexes the 1-based indexes of the insert parameters forming the unique key.
+   */
+  public static void createTable(String name, int... keyIndexes) {
+    synchronized (tables) {
+      tables.put(name.toUpperCase(), new Table(keyIndexes));
+    }
+  }
+
+  public static void dropTables() {
+    synchronized (tables) {
+      tables.clear();
+    }
+  }
+
+  /**
+   * Returns the committed rows of the table.
+   * @param name name of the table.
+   * @return the committed rows, each row contains the insert parameters.
+   */
+  public static List<Object[]> getRows(String name) {
+    synchronized (tables) {
+      return new ArrayList<>(tables.get(name.toUpperCase()).rows);
+    }
+  }
+
+  @Override
+  public Connection getConnection() {
+    ConnectionHandler handler = new ConnectionHandler();
+    handler.proxy = newProxy(Connection.class, handler);
+    return handler.proxy;
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) {
+    return getConnection();
+  }
+
+  @Override
+  public PrintWriter getLogWriter() {
+    return null;
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) {
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) {
+  }
+
+  @Override
+  public int getLoginTimeout() {
+    return 0;
+  }
+
+  @Override
+  public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException("not a wrapper");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  private static Table getTable(String name) throws SQLException {
+    Table table = tables.get(name.toUpperCase());
+    if (table == null) {
+      throw new SQLException("table " + name + " not found", "42S02", 42102);
+    }
+    return table;
+  }
+
+  private static String tableName(String sql, int offset) {
+    int end = offset;
+    while (end < sql.length() && Character.isJavaIdentifierPart(sql.charAt(end))) {
+      end++;
+    }
+    return sql.substring(offset, end);
+  }
+
+  private static SQLException duplicateKey(String table) {
+    return new SQLException("duplicate key in table " + table, "23505", 23505);
+  }
+
+  private static <T> T newProxy(Class<T> clazz, InvocationHandler handler) {
+    return clazz.cast(Proxy.newProxyInstance(InMemoryDataSource.class.getClassLoader(),
+        new Class<?>[] {clazz}, handler));
+  }
+
+  private static Object defaultResult(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "InMemory" + method.getDeclaringClass().getSimpleName();
+      default:
+        break;
+    }
+
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else {
+      // including void
+      return null;
+    }
+  } // method defaultResult
+
+}
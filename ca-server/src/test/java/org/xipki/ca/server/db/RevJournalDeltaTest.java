@@ -0,0 +1,162 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server.db;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ca.server.CertRevInfoWithSerial;
+import org.xipki.security.CrlReason;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Test of {@link RevJournalDelta}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class RevJournalDeltaTest {
+
+  private static final long NOT_AFTER = 2_000_000_000L;
+
+  private static final Instant NOT_EXPIRED_AT = Instant.ofEpochSecond(1_700_000_000L);
+
+  @Test
+  public void revokedAfterBaseCrl() {
+    RevJournalDelta delta = new RevJournalDelta();
+    delta.add(11, RevJournalDelta.REVOKE, 100, BigInteger.ONE, NOT_AFTER, false,
+        CrlReason.KEY_COMPROMISE.getCode(), 99, 98);
+
+    Map<BigInteger, CertRevInfoWithSerial> entries = build(delta);
+    Assert.assertEquals(1, entries.size());
+    CertRevInfoWithSerial entry = entries.get(BigInteger.ONE);
+    Assert.assertEquals(11, entry.getId());
+    Assert.assertEquals(CrlReason.KEY_COMPROMISE, entry.getReason());
+    Assert.assertEquals(Instant.ofEpochSecond(99), entry.getRevocationTime());
+    Assert.assertEquals(Instant.ofEpochSecond(98), entry.getInvalidityTime());
+  } // method revokedAfterBaseCrl
+
+  @Test
+  public void suspendedBeforeBaseCrlThenUnsuspended() {
+    // the suspension is contained in the base CRL, its journal entry is not after the journal ID
+    // of the base CRL.
+    RevJournalDelta delta = new RevJournalDelta();
+    delta.add(12, RevJournalDelta.UNSUSPEND, 200, BigInteger.TWO, NOT_AFTER, true, 0, 0, 0);
+
+    CertRevInfoWithSerial entry = build(delta).get(BigInteger.TWO);
+    Assert.assertNotNull("removeFromCRL expected", entry);
+    Assert.assertEquals(12, entry.getId());
+    Assert.assertEquals(CrlReason.REMOVE_FROM_CRL, entry.getReason());
+    Assert.assertEquals(Instant.ofEpochSecond(200), entry.getRevocationTime());
+  } // method suspendedBeforeBaseCrlThenUnsuspended
+
+  @Test
+  public void suspendedAndUnsuspendedAfterBaseCrl() {
+    RevJournalDelta delta = new RevJournalDelta();
+    delta.add(13, RevJournalDelta.SUSPEND, 300, BigInteger.TEN, NOT_AFTER, false,
+        CrlReason.CERTIFICATE_HOLD.getCode(), 300, 0);
+    delta.add(13, RevJournalDelta.UNSUSPEND, 301, BigInteger.TEN, NOT_AFTER, true, 0, 0, 0);
+
+    // not in the base CRL, and not revoked any more.
+    Assert.assertTrue(build(delta).isEmpty());
+  } // method suspendedAndUnsuspendedAfterBaseCrl
+
+  @Test
+  public void latestStateWins() {
+    RevJournalDelta delta = new RevJournalDelta();
+    BigInteger sn = BigInteger.valueOf(0x1234);
+    delta.add(14, RevJournalDelta.SUSPEND, 400, sn, NOT_AFTER, false,
+        CrlReason.CERTIFICATE_HOLD.getCode(), 400, 0);
+    delta.add(14, RevJournalDelta.REVOKE, 401, sn, NOT_AFTER, true,
+        CrlReason.CESSATION_OF_OPERATION.getCode(), 400, 0);
+
+    CertRevInfoWithSerial entry = build(delta).get(sn);
+    Assert.assertEquals(CrlReason.CESSATION_OF_OPERATION, entry.getReason());
+    Assert.assertNull(entry.getInvalidityTime());
+  } // method latestStateWins
+
+  @Test
+  public void removedCertificates() {
+    RevJournalDelta delta = new RevJournalDelta();
+    // revoked in the base CRL, then removed
+    delta.add(15, RevJournalDelta.REMOVE, 500, BigInteger.valueOf(15), NOT_AFTER, true, 0, 0, 0);
+    // revoked after the base CRL, then removed
+    delta.add(16, RevJournalDelta.REVOKE, 501, BigInteger.valueOf(16), NOT_AFTER, false,
+        CrlReason.KEY_COMPROMISE.getCode(), 501, 0);
+    delta.add(16, RevJournalDelta.REMOVE, 502, BigInteger.valueOf(16), NOT_AFTER, true, 0, 0, 0);
+
+    Map<BigInteger, CertRevInfoWithSerial> entries = build(delta);
+    Assert.assertEquals(1, entries.size());
+    Assert.assertEquals(CrlReason.REMOVE_FROM_CRL, entries.get(BigInteger.valueOf(15)).getReason());
+  } // method removedCertificates
+
+  @Test
+  public void expiredCertificatesAreIgnored() {
+    RevJournalDelta delta = new RevJournalDelta();
+    delta.add(17, RevJournalDelta.REVOKE, 600, BigInteger.valueOf(17), NOT_EXPIRED_AT.getEpochSecond(), false,
+        CrlReason.KEY_COMPROMISE.getCode(), 600, 0);
+    Assert.assertTrue(build(delta).isEmpty());
+  } // method expiredCertificatesAreIgnored
+
+  @Test
+  public void overlappingRevocationCommittedAfterBaseCrl() {
+    // the entry has an ID lower than the journal ID of the base CRL, but has been committed after it.
+    RevJournalDelta delta = new RevJournalDelta();
+    BigInteger sn = BigInteger.valueOf(18);
+    delta.add(18, RevJournalDelta.REVOKE, 700, sn, NOT_AFTER, false,
+        CrlReason.KEY_COMPROMISE.getCode(), 700, 0);
+    delta.markOverlapping(sn);
+    Assert.assertEquals(Collections.singleton(sn), delta.getOverlappingSerials());
+
+    CertRevInfoWithSerial entry = build(delta, Collections.emptyMap()).get(sn);
+    Assert.assertNotNull("revocation missing in the delta CRL", entry);
+    Assert.assertEquals(CrlReason.KEY_COMPROMISE, entry.getReason());
+
+    // committed before the base CRL, and is contained in it.
+    Assert.assertTrue(build(delta, Collections.singletonMap(sn, CrlReason.KEY_COMPROMISE.getCode())).isEmpty());
+
+    // contained in the base CRL with another reason.
+    entry = build(delta, Collections.singletonMap(sn, CrlReason.CERTIFICATE_HOLD.getCode())).get(sn);
+    Assert.assertEquals(CrlReason.KEY_COMPROMISE, entry.getReason());
+  } // method overlappingRevocationCommittedAfterBaseCrl
+
+  @Test
+  public void overlappingSuspensionThenUnsuspended() {
+    // suspended within the overlap window, and unsuspended after the base CRL.
+    RevJournalDelta delta = new RevJournalDelta();
+    BigInteger sn = BigInteger.valueOf(19);
+    delta.add(19, RevJournalDelta.SUSPEND, 800, sn, NOT_AFTER, false,
+        CrlReason.CERTIFICATE_HOLD.getCode(), 800, 0);
+    delta.markOverlapping(sn);
+    delta.add(19, RevJournalDelta.UNSUSPEND, 801, sn, NOT_AFTER, true, 0, 0, 0);
+
+    // the base CRL contains the suspension.
+    CertRevInfoWithSerial entry = build(delta,
+        Collections.singletonMap(sn, CrlReason.CERTIFICATE_HOLD.getCode())).get(sn);
+    Assert.assertNotNull("removeFromCRL expected", entry);
+    Assert.assertEquals(CrlReason.REMOVE_FROM_CRL, entry.getReason());
+
+    // the base CRL does not contain the suspension.
+    Assert.assertTrue(build(delta, Collections.emptyMap()).isEmpty());
+  } // method overlappingSuspensionThenUnsuspended
+
+  private static Map<BigInteger, CertRevInfoWithSerial> build(RevJournalDelta delta) {
+    return build(delta, Collections.emptyMap());
+  }
+
+  private static Map<BigInteger, CertRevInfoWithSerial> build(
+      RevJournalDelta delta, Map<BigInteger, Integer> baseCrlReasons) {
+    List<CertRevInfoWithSerial> list = delta.build(NOT_EXPIRED_AT, baseCrlReasons);
+    Map<BigInteger, CertRevInfoWithSerial> map = new HashMap<>();
+    for (CertRevInfoWithSerial entry : list) {
+      Assert.assertNull("duplicated serial number", map.put(entry.getSerial(), entry));
+    }
+    return map;
+  }
+
+}
@@ -0,0 +1,275 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ca.server.mgmt;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.audit.Audits;
+import org.xipki.ca.api.NameId;
+import org.xipki.ca.api.mgmt.CaMgmtException;
+import org.xipki.ca.api.mgmt.CaStatus;
+import org.xipki.ca.api.mgmt.Permissions;
+import org.xipki.ca.api.mgmt.entry.CaConfColumn;
+import org.xipki.ca.api.mgmt.entry.CaEntry;
+import org.xipki.ca.server.CaConfStore;
+import org.xipki.ca.server.CaInfo;
+import org.xipki.security.X509Cert;
+import org.xipki.util.XipkiBaseDir;
+
+import java.io.File;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit test case of the reload of the CA system in {@link CaManagerImpl} and {@link Ca2Manager}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CaReloadTest {
+
+  /**
+   * The configuration store with CAs and publisher associations only, all other objects are empty.
+   */
+  private static class TestConfStore {
+
+    private final Map<String, CaEntry> cas = new LinkedHashMap<>();
+
+    private final Map<String, Set<Integer>> caHasPublishers = new HashMap<>();
+
+    private volatile boolean failing;
+
+    CaConfStore proxy() {
+      return (CaConfStore) Proxy.newProxyInstance(CaConfStore.class.getClassLoader(),
+          new Class<?>[]{CaConfStore.class}, (proxy, method, args) -> {
+            if (failing) {
+              throw new CaMgmtException("configuration store is not available");
+            }
+
+            switch (method.getName()) {
+              case "getCaNames":
+                return new ArrayList<>(cas.keySet());
+              case "createCaAliases":
+                return new HashMap<String, Integer>();
+              case "createCaInfo":
+                CaEntry entry = cas.get((String) args[0]);
+                return new CaInfo(entry, CaConfColumn.fromBaseCaInfo(entry), null);
+              case "createCaHasRequestors":
+              case "createCaHasProfiles":
+                return new HashSet<>();
+              case "createCaHasPublishers":
+                return new HashSet<>(caHasPublishers.getOrDefault(((NameId) args[0]).getName(),
+                    Collections.emptySet()));
+              case "getSignerNames":
+              case "getRequestorNames":
+              case "getProfileNames":
+              case "getPublisherNames":
+              case "getKeyPairGenNames":
+                return Collections.emptyList();
+              default:
+                throw new UnsupportedOperationException(method.getName());
+            }
+          });
+    }
+
+  } // class TestConfStore
+
+  /**
+   * Records the restarts of the CA system instead of starting it.
+   */
+  private static class TestCaManager extends CaManagerImpl {
+
+    private final AtomicInteger restarts = new AtomicInteger();
+
+    private volatile boolean failReload;
+
+    @Override
+    void reloadCaSystem() throws CaMgmtException {
+      if (failReload) {
+        throw new CaMgmtException("reload failed");
+      }
+      super.reloadCaSystem();
+    }
+
+    @Override
+    public void restartCaSystem() {
+      restarts.incrementAndGet();
+    }
+
+  } // class TestCaManager
+
+  private static X509Cert caCert;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    // the calock file is written to the base directory.
+    File baseDir = Files.createTempDirectory("careload").toFile();
+    baseDir.deleteOnExit();
+    System.setProperty("XIPKI_BASE", baseDir.getPath());
+    XipkiBaseDir.init();
+    new File(baseDir, "calock").deleteOnExit();
+
+    Audits.init("noop", null);
+
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair kp = kpGen.generateKeyPair();
+
+    X500Name subject = new X500Name("CN=reload-test-ca");
+    Instant now = Instant.now();
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(subject, BigInteger.ONE,
+        Date.from(now), Date.from(now.plus(365, ChronoUnit.DAYS)), subject,
+        SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded()));
+    builder.addExtension(Extension.basicConstraints, true, new BasicConstraints(true));
+    builder.addExtension(Extension.keyUsage, true, new KeyUsage(KeyUsage.keyCertSign | KeyUsage.cRLSign));
+    caCert = new X509Cert(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate())));
+  }
+
+  @Test
+  public void reloadCas() throws Exception {
+    TestConfStore store = new TestConfStore();
+    store.cas.put("ca1", newCaEntry(1, "ca1", CaStatus.inactive, "conf1"));
+    store.cas.put("ca2", newCaEntry(2, "ca2", CaStatus.inactive, "conf1"));
+    store.cas.put("ca3", newCaEntry(3, "ca3", CaStatus.inactive, "conf1"));
+    store.cas.put("ca4", newCaEntry(4, "ca4", CaStatus.active, "conf1"));
+    store.caHasPublishers.put("ca3", Collections.singleton(1));
+
+    CaManagerImpl manager = newManager(store);
+    Ca2Manager ca2Manager = new Ca2Manager(manager);
+    ca2Manager.initCas();
+    Map<String, CaInfo> before = new HashMap<>(manager.caInfos);
+
+    // ca1 unchanged, ca2 changed, ca3 unchanged but its publisher changed, ca4 not started yet,
+    // ca5 added.
+    store.cas.put("ca2", newCaEntry(2, "ca2", CaStatus.inactive, "conf2"));
+    store.cas.put("ca5", newCaEntry(5, "ca5", CaStatus.active, "conf1"));
+
+    List<String> toStart = ca2Manager.reloadCas(Collections.singleton("publisher1"));
+    Assert.assertEquals(Arrays.asList("ca4", "ca5"), toStart);
+
+    Assert.assertSame("unchanged CA is kept", before.get("ca1"), manager.caInfos.get("ca1"));
+    Assert.assertNotSame("changed CA is recreated", before.get("ca2"), manager.caInfos.get("ca2"));
+    Assert.assertEquals("conf2", manager.caInfos.get("ca2").getCaEntry().getSignerConf());
+    Assert.assertNotSame("CA with changed publisher is recreated", before.get("ca3"), manager.caInfos.get("ca3"));
+    Assert.assertNotNull(manager.caInfos.get("ca5"));
+
+    // remove ca1, the others are unchanged.
+    store.cas.remove("ca1");
+    before = new HashMap<>(manager.caInfos);
+    toStart = ca2Manager.reloadCas(Collections.emptySet());
+    // ca4 and ca5 could not be started, they are retried.
+    Assert.assertEquals(Arrays.asList("ca4", "ca5"), toStart);
+    Assert.assertNull("removed CA", manager.caInfos.get("ca1"));
+    Assert.assertNull(manager.idNameMap.getCa("ca1"));
+    Assert.assertSame(before.get("ca2"), manager.caInfos.get("ca2"));
+    Assert.assertSame(before.get("ca3"), manager.caInfos.get("ca3"));
+  }
+
+  @Test
+  public void publisherAssociationChanged() throws Exception {
+    TestConfStore store = new TestConfStore();
+    store.cas.put("ca1", newCaEntry(1, "ca1", CaStatus.inactive, "conf1"));
+    store.cas.put("ca2", newCaEntry(2, "ca2", CaStatus.inactive, "conf1"));
+
+    CaManagerImpl manager = newManager(store);
+    Ca2Manager ca2Manager = new Ca2Manager(manager);
+    ca2Manager.initCas();
+    Map<String, CaInfo> before = new HashMap<>(manager.caInfos);
+
+    // publisher1 is added to ca1.
+    store.caHasPublishers.put("ca1", Collections.singleton(1));
+    ca2Manager.reloadCas(Collections.emptySet());
+    Assert.assertNotSame(before.get("ca1"), manager.caInfos.get("ca1"));
+    Assert.assertEquals(Collections.singleton("publisher1"), manager.caHasPublishers.get("ca1"));
+    Assert.assertSame(before.get("ca2"), manager.caInfos.get("ca2"));
+  }
+
+  @Test
+  public void reloadCaSystem() throws Exception {
+    TestConfStore store = new TestConfStore();
+    store.cas.put("ca1", newCaEntry(1, "ca1", CaStatus.inactive, "conf1"));
+    store.cas.put("ca2", newCaEntry(2, "ca2", CaStatus.inactive, "conf1"));
+
+    TestCaManager manager = newManager(store);
+    new Ca2Manager(manager).initCas();
+    manager.caSystemSetuped = true;
+    CaInfo ca1 = manager.caInfos.get("ca1");
+
+    store.cas.remove("ca2");
+    Assert.assertTrue(manager.applyCaChange());
+    Assert.assertEquals(0, manager.restarts.get());
+    Assert.assertSame(ca1, manager.caInfos.get("ca1"));
+    Assert.assertFalse(manager.caInfos.containsKey("ca2"));
+  }
+
+  @Test
+  public void failedReloadRestartsCaSystem() throws Exception {
+    TestConfStore store = new TestConfStore();
+    store.cas.put("ca1", newCaEntry(1, "ca1", CaStatus.inactive, "conf1"));
+    TestCaManager manager = newManager(store);
+    new Ca2Manager(manager).initCas();
+
+    // the CA system has not been set up.
+    Assert.assertFalse(manager.applyCaChange());
+    Assert.assertEquals(1, manager.restarts.get());
+
+    manager.caSystemSetuped = true;
+    manager.failReload = true;
+    Assert.assertFalse(manager.applyCaChange());
+    Assert.assertEquals(2, manager.restarts.get());
+
+    // the configuration store fails while reloading.
+    manager.failReload = false;
+    store.failing = true;
+    Assert.assertFalse(manager.applyCaChange());
+    Assert.assertEquals(3, manager.restarts.get());
+  }
+
+  private static TestCaManager newManager(TestConfStore store) {
+    TestCaManager manager = new TestCaManager();
+    manager.caConfStore = store.proxy();
+    manager.idNameMap.addPublisher(new NameId(1, "publisher1"));
+    return manager;
+  }
+
+  private static CaEntry newCaEntry(int id, String name, CaStatus status, String signerConf) throws Exception {
+    CaEntry entry = new CaEntry(new NameId(id, name));
+    entry.setCert(caCert);
+    entry.setStatus(status);
+    entry.setSignerType("pkcs12");
+    entry.setSignerConf(signerConf);
+    entry.setPermissions(new Permissions(0));
+    return entry;
+  }
+
+}
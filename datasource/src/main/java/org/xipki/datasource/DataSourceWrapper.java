@@ -22,6 +22,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.sql.Types;
 import java.util.Locale;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -710,6 +711,33 @@ public abstract class DataSourceWrapper implements Closeable {
     }
   } // method tableHasColumn
 
+  /**
+   * Checks whether the given column is of a binary type (BINARY, VARBINARY, LONGVARBINARY, BLOB), e.g.
+   * in the binary variant of the database schema.
+   * @param conn the connection. If null, a new connection will be borrowed.
+   * @param table the table name.
+   * @param column the column name.
+   * @return whether the given column is of a binary type.
+   * @throws DataAccessException if database access error occurs.
+   */
+  public boolean isBinaryColumn(Connection conn, String table, String column) throws DataAccessException {
+    String coreSql = concat(notBlank(column, "column"), " FROM ", notBlank(table, "table"));
+    final String sql = buildSelectFirstSql(1, coreSql);
+
+    Statement stmt = null;
+    ResultSet rs = null;
+    try {
+      stmt = conn == null ? createStatement() : createStatement(conn);
+      rs = stmt.executeQuery(sql);
+      int type = rs.getMetaData().getColumnType(1);
+      return type == Types.BINARY || type == Types.VARBINARY || type == Types.LONGVARBINARY || type == Types.BLOB;
+    } catch (SQLException ex) {
+      throw translate(sql, ex);
+    } finally {
+      releaseResources(stmt, rs, conn == null);
+    }
+  } // method isBinaryColumn
+
   public boolean tableExists(Connection conn, String table) throws DataAccessException {
     final String sql = buildSelectFirstSql(1, concat("1 FROM ", notBlank(table, "table")));
     Statement stmt = null;
@@ -43,11 +43,12 @@ import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.LongMessage;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ModuleCapsResponse;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.P11KeyResponse;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ShowDetailsRequest;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchRequest;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchResponse;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignRequest;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SlotIdsResponse;
 import org.xipki.security.util.TlsHelper;
 import org.xipki.util.Args;
-import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.StringUtil;
 import org.xipki.util.cbor.ByteArrayCborEncoder;
@@ -62,6 +63,8 @@ import org.xipki.util.http.XiHttpResponse;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -69,6 +72,11 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ProxyErrorCode.badRequest;
 
@@ -86,6 +94,13 @@ public class HsmProxyResponder {
 
   private static final String RESPONSE_MIMETYPE = "application/x-xipki-pkcs11";
 
+  /**
+   * Upper bound of the size of a request in bytes, namely the maximal size of an array. It applies
+   * if no maximal request size is configured: the sign requests contain the whole message for
+   * EdDSA, SM2 and the non-raw mechanisms, e.g. the TBSCertList of a large CRL.
+   */
+  public static final int MAX_REQUEST_SIZE_LIMIT = Integer.MAX_VALUE - 8;
+
   private static final ProxyMessage NULL_MESSAGE = new ProxyMessage() {
     @Override
     protected void encode0(CborEncoder encoder) throws IOException {
@@ -101,6 +116,13 @@ public class HsmProxyResponder {
 
   private final Set<X509Cert> clientCerts;
 
+  private final int maxRequestSize;
+
+  /**
+   * Executes the sign requests of a signBatch request in parallel, each on its own PKCS#11 session.
+   */
+  private final ExecutorService signExecutor;
+
   static {
     LOG.info("HSM PKCS#11 proxy version {}", StringUtil.getBundleVersion(HsmProxyResponder.class));
   }
@@ -109,9 +131,37 @@ public class HsmProxyResponder {
                            P11CryptServiceFactory p11CryptServiceFactory,
                            Collection<X509Cert> clientCerts)
       throws XiSecurityException, TokenException {
+    this(logReqResp, reverseProxyMode, p11CryptServiceFactory, clientCerts, 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param logReqResp whether to log the requests and responses.
+   * @param reverseProxyMode the reverse proxy mode.
+   * @param p11CryptServiceFactory the factory of the PKCS#11 services.
+   * @param clientCerts the certificates of the allowed clients.
+   * @param maxRequestSize maximal size of a request in bytes, 0 or negative for no limit
+   *        (up to {@link #MAX_REQUEST_SIZE_LIMIT}).
+   * @throws XiSecurityException if security error occurs.
+   * @throws TokenException if error in the token occurs.
+   */
+  public HsmProxyResponder(boolean logReqResp, String reverseProxyMode,
+                           P11CryptServiceFactory p11CryptServiceFactory,
+                           Collection<X509Cert> clientCerts, int maxRequestSize)
+      throws XiSecurityException, TokenException {
     this.logReqResp = logReqResp;
     this.reverseProxyMode = reverseProxyMode;
     this.clientCerts = new HashSet<>(Args.notEmpty(clientCerts, "clientCerts"));
+    this.maxRequestSize = (maxRequestSize > 0) ? maxRequestSize : MAX_REQUEST_SIZE_LIMIT;
+
+    AtomicInteger threadIndex = new AtomicInteger();
+    this.signExecutor = Executors.newFixedThreadPool(Math.max(4, 2 * Runtime.getRuntime().availableProcessors()),
+        r -> {
+          Thread t = new Thread(r, "hsmproxy-sign-" + threadIndex.incrementAndGet());
+          t.setDaemon(true);
+          return t;
+        });
     Args.notNull(p11CryptServiceFactory, "p11CryptServiceFactory");
     Set<String> moduleNames = p11CryptServiceFactory.getModuleNames();
     for (String moduleName : moduleNames) {
@@ -133,6 +183,21 @@ public class HsmProxyResponder {
     }
   }
 
+  /**
+   * Stops the threads executing the signBatch requests.
+   */
+  public void close() {
+    signExecutor.shutdown();
+    try {
+      if (!signExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+        signExecutor.shutdownNow();
+      }
+    } catch (InterruptedException ex) {
+      signExecutor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  } // method close
+
   public void service(XiHttpRequest req, XiHttpResponse resp) throws IOException {
     String method = req.getMethod();
     if (!"POST".equalsIgnoreCase(method)) {
@@ -147,13 +212,65 @@ public class HsmProxyResponder {
     }
 
     String path = req.getServletPath();
-    byte[] requestBytes = IoUtil.readAllBytes(req.getInputStream());
+    byte[] requestBytes = readRequest(req, maxRequestSize);
+    if (requestBytes == null) {
+      LOG.warn("request to {} is larger than {} bytes", path, maxRequestSize);
+      resp.setStatus(HttpStatusCode.SC_REQUEST_ENTITY_TOO_LARGE);
+      return;
+    }
+
     HttpResponse httpResp = service(path, requestBytes, req);
     LogUtil.logReqResp("REST Gateway path=" + req.getServletPath(), LOG, logReqResp,
         true, req.getRequestURI(), requestBytes, httpResp.getBody());
     httpResp.fillResponse(resp);
   }
 
+  /**
+   * Reads the request body directly into an array of the announced length, if present.
+   * @return the request body, or {@code null} if it is longer than maxSize.
+   */
+  static byte[] readRequest(XiHttpRequest req, int maxSize) throws IOException {
+    String str = req.getHeader("Content-Length");
+    long len = -1;
+    if (str != null) {
+      try {
+        len = Long.parseLong(str.trim());
+      } catch (NumberFormatException ex) {
+        LOG.debug("invalid Content-Length {}", str);
+      }
+    }
+
+    if (len > maxSize) {
+      return null;
+    }
+
+    InputStream is = req.getInputStream();
+    if (len < 0) {
+      // length unknown, read at most maxSize + 1 bytes.
+      ByteArrayOutputStream bout = new ByteArrayOutputStream();
+      byte[] buffer = new byte[4096];
+      int read;
+      while ((read = is.read(buffer)) != -1) {
+        if (bout.size() + read > maxSize) {
+          return null;
+        }
+        bout.write(buffer, 0, read);
+      }
+      return bout.toByteArray();
+    }
+
+    byte[] bytes = new byte[(int) len];
+    int off = 0;
+    while (off < len) {
+      int read = is.read(bytes, off, (int) len - off);
+      if (read == -1) {
+        throw new EOFException("expected " + len + " bytes, but received only " + off);
+      }
+      off += read;
+    }
+    return bytes;
+  } // method readRequest
+
   public HttpResponse service(String path, byte[] requestBytes, XiHttpRequest request) {
     byte[] responseBytes;
 
@@ -364,6 +481,27 @@ public class HsmProxyResponder {
               slot.sign(req.getMechanism(), req.getP11params(),
                 req.getExtraParams(), req.getKeyHandle(), req.getContent()));
         }
+        case signBatch: {
+          SignBatchRequest req = SignBatchRequest.decode(reqDecoder);
+          List<CompletableFuture<ProxyMessage>> futures = new ArrayList<>(req.getRequests().size());
+          for (SignRequest r : req.getRequests()) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+              try {
+                return new ByteArrayMessage(slot.sign(r.getMechanism(), r.getP11params(),
+                    r.getExtraParams(), r.getKeyHandle(), r.getContent()));
+              } catch (Exception ex) {
+                LOG.debug("error while signing", ex);
+                return new ErrorResponse(ex);
+              }
+            }, signExecutor));
+          }
+
+          List<ProxyMessage> results = new ArrayList<>(futures.size());
+          for (CompletableFuture<ProxyMessage> future : futures) {
+            results.add(future.join());
+          }
+          return new SignBatchResponse(results);
+        }
         case importSecretKey: {
           ImportSecretKeyRequest req = ImportSecretKeyRequest.decode(reqDecoder);
           return toProxyMessage(
@@ -42,6 +42,11 @@ public class HsmProxyServletFilter implements XiHttpFilter {
 
     private List<FileOrBinary> clientCerts;
 
+    /**
+     * Maximal size of a request in bytes, no limit if not set.
+     */
+    private Integer maxRequestSize;
+
     private Securities.SecurityConf security;
 
     public static P11ProxyConf readConfFromFile(String fileName) throws IOException, InvalidConfException {
@@ -76,6 +81,14 @@ public class HsmProxyServletFilter implements XiHttpFilter {
       this.clientCerts = clientCerts;
     }
 
+    public int getMaxRequestSize() {
+      return maxRequestSize == null ? 0 : maxRequestSize;
+    }
+
+    public void setMaxRequestSize(Integer maxRequestSize) {
+      this.maxRequestSize = maxRequestSize;
+    }
+
     public Securities.SecurityConf getSecurity() {
       return security == null ? Securities.SecurityConf.DEFAULT : security;
     }
@@ -89,6 +102,9 @@ public class HsmProxyServletFilter implements XiHttpFilter {
       notEmpty(clientCerts, "clientCerts");
       validate(security);
       TlsHelper.checkReverseProxyMode(reverseProxyMode);
+      if (maxRequestSize != null && maxRequestSize < 1) {
+        throw new InvalidConfException("invalid maxRequestSize " + maxRequestSize);
+      }
     }
 
   }
@@ -133,11 +149,16 @@ public class HsmProxyServletFilter implements XiHttpFilter {
     List<X509Cert> clientCerts = X509Util.parseCerts(conf.getClientCerts());
 
     this.responder = new HsmProxyResponder(logReqResp, conf.getReverseProxyMode(),
-        securities.getP11CryptServiceFactory(), clientCerts);
+        securities.getP11CryptServiceFactory(), clientCerts, conf.getMaxRequestSize());
   }
 
   @Override
   public void destroy() {
+    if (responder != null) {
+      responder.close();
+      responder = null;
+    }
+
     if (securities != null) {
       securities.close();
       securities = null;
@@ -0,0 +1,123 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.hsmproxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.util.http.XiHttpRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.EOFException;
+import java.io.InputStream;
+import java.security.cert.X509Certificate;
+
+/**
+ * JUnit test case of the reading of requests in {@link HsmProxyResponder}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class HsmProxyResponderTest {
+
+  private static class TestRequest implements XiHttpRequest {
+
+    private final String contentLength;
+
+    private final byte[] body;
+
+    TestRequest(String contentLength, byte[] body) {
+      this.contentLength = contentLength;
+      this.body = body;
+    }
+
+    @Override
+    public String getHeader(String headerName) {
+      return "Content-Length".equalsIgnoreCase(headerName) ? contentLength : null;
+    }
+
+    @Override
+    public String getParameter(String paramName) {
+      return null;
+    }
+
+    @Override
+    public String getMethod() {
+      return "POST";
+    }
+
+    @Override
+    public String getServletPath() {
+      return "/sign";
+    }
+
+    @Override
+    public String getContentType() {
+      return null;
+    }
+
+    @Override
+    public Object getAttribute(String name) {
+      return null;
+    }
+
+    @Override
+    public String getRequestURI() {
+      return "/hp/sign";
+    }
+
+    @Override
+    public InputStream getInputStream() {
+      return new ByteArrayInputStream(body);
+    }
+
+    @Override
+    public void setAttribute(String name, String value) {
+    }
+
+    @Override
+    public String getContextPath() {
+      return "/hp";
+    }
+
+    @Override
+    public X509Certificate[] getCertificateChain() {
+      return null;
+    }
+
+  } // class TestRequest
+
+  @Test
+  public void readWithContentLength() throws Exception {
+    byte[] body = new byte[100];
+    Assert.assertArrayEquals(body, HsmProxyResponder.readRequest(new TestRequest("100", body), 100));
+    // the announced length is too large, the body is not read.
+    Assert.assertNull(HsmProxyResponder.readRequest(new TestRequest("101", new byte[101]), 100));
+    Assert.assertNull(HsmProxyResponder.readRequest(new TestRequest("4294967296", body), 100));
+  }
+
+  @Test
+  public void readWithoutContentLength() throws Exception {
+    byte[] body = new byte[10000];
+    Assert.assertArrayEquals(body, HsmProxyResponder.readRequest(new TestRequest(null, body), 10000));
+    Assert.assertNull(HsmProxyResponder.readRequest(new TestRequest(null, body), 9999));
+    Assert.assertArrayEquals(body, HsmProxyResponder.readRequest(new TestRequest("invalid", body), 10000));
+  }
+
+  @Test
+  public void readWithoutLimit() throws Exception {
+    // e.g. an EdDSA sign request with the TBSCertList of a large CRL.
+    byte[] body = new byte[3 * 1024 * 1024];
+    body[body.length - 1] = 1;
+    int noLimit = HsmProxyResponder.MAX_REQUEST_SIZE_LIMIT;
+    Assert.assertArrayEquals(body, HsmProxyResponder.readRequest(new TestRequest(Integer.toString(body.length), body), noLimit));
+    Assert.assertArrayEquals(body, HsmProxyResponder.readRequest(new TestRequest(null, body), noLimit));
+    // not representable as array
+    Assert.assertNull(HsmProxyResponder.readRequest(new TestRequest("4294967296", body), noLimit));
+  }
+
+  @Test(expected = EOFException.class)
+  public void truncatedBody() throws Exception {
+    HsmProxyResponder.readRequest(new TestRequest("100", new byte[50]), 100);
+  }
+
+}
@@ -12,7 +12,12 @@ import org.xipki.util.Validity;
 import java.io.Closeable;
 import java.math.BigInteger;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.SortedMap;
 
 /**
  * Store of certificate status.
@@ -63,6 +68,44 @@ public abstract class OcspStore implements Closeable {
    */
   public abstract X509Cert getIssuerCert(RequestIssuer reqIssuer);
 
+  /**
+   * Returns the certificates of all issuers known by this store.
+   *
+   * @return the certificates of the issuers, may be empty.
+   * @since 6.5.4
+   */
+  public Collection<X509Cert> getIssuerCerts() {
+    return Collections.emptyList();
+  }
+
+  /**
+   * Returns the serial numbers of the certificates issued by the given issuer, e.g. to
+   * generate the OCSP responses in advance. The certificates are ordered by their
+   * internal ID, so that all certificates can be retrieved page by page.
+   * <p>
+   * The default implementation does not support the enumeration and returns {@code null}.
+   *
+   * @param reqIssuer
+   *          Requested issuer
+   * @param minId
+   *          Only certificates with internal ID greater than minId are returned.
+   * @param minLastUpdate
+   *          Only certificates updated at or after this time (seconds since January 1,
+   *          1970, 00:00:00 GMT) are returned. Use 0 to return all certificates.
+   * @param numEntries
+   *          Maximal number of returned certificates.
+   * @return map of the internal ID to the serial number, sorted by the ID, or {@code null}
+   *           if the enumeration is not supported or the issuer is unknown.
+   * @throws OcspStoreException
+   *           If OCSP store failed to retrieve the serial numbers.
+   * @since 6.5.4
+   */
+  public SortedMap<Long, BigInteger> getSerialNumbers(
+      RequestIssuer reqIssuer, long minId, long minLastUpdate, int numEntries)
+      throws OcspStoreException {
+    return null;
+  }
+
   /**
    * Ignores expired CRLs. Only applied to CRL-based datasource.
    *
@@ -98,10 +141,50 @@ public abstract class OcspStore implements Closeable {
     CertStatusInfo info = getCertStatus0(time, reqIssuer, serialNumber,
         includeCertHash, includeRit, inheritCaRevocation);
 
-    if (info == null) {
-      return null;
+    if (info != null) {
+      applyNextUpdateLimits(time, info);
     }
+    return info;
+  } // method getCertStatus
 
+  /**
+   * Return the status of several certificates of the same issuer.
+   *
+   * @param time
+   *          Time of the certificate status. Must not be {@code null}.
+   * @param reqIssuer
+   *          Requested issuer
+   * @param serialNumbers
+   *          Serial numbers of the target certificates. Must not be {@code null}.
+   * @param includeCertHash
+   *          Whether to include the hash of target certificate in the response.
+   * @param includeRit
+   *          Whether to include the revocation invalidity time in the response.
+   * @param inheritCaRevocation
+   *          Whether to inherit CA revocation
+   * @return map of the serial number to the certificate status, or {@code null} if the
+   *          issuer is unknown. Serial numbers whose status could not be retrieved are not
+   *          contained.
+   * @throws OcspStoreException
+   *           If OCSP store failed to retrieve the status.
+   * @since 6.5.4
+   */
+  public final Map<BigInteger, CertStatusInfo> getCertStatuses(
+      Instant time, RequestIssuer reqIssuer, List<BigInteger> serialNumbers, boolean includeCertHash,
+      boolean includeRit, boolean inheritCaRevocation)
+      throws OcspStoreException {
+    Map<BigInteger, CertStatusInfo> infos = getCertStatuses0(time, reqIssuer, serialNumbers,
+        includeCertHash, includeRit, inheritCaRevocation);
+
+    if (infos != null) {
+      for (CertStatusInfo info : infos.values()) {
+        applyNextUpdateLimits(time, info);
+      }
+    }
+    return infos;
+  } // method getCertStatuses
+
+  private void applyNextUpdateLimits(Instant time, CertStatusInfo info) {
     Instant nextUpdate = info.getNextUpdate();
 
     if (minNextUpdatePeriod != null) {
@@ -117,9 +200,7 @@ public abstract class OcspStore implements Closeable {
         info.setNextUpdate(maxNextUpdate);
       }
     }
-
-    return info;
-  } // method getCertStatus
+  } // method applyNextUpdateLimits
 
   /**
    * Return the certificate status.
@@ -145,6 +226,48 @@ public abstract class OcspStore implements Closeable {
       boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation)
       throws OcspStoreException;
 
+  /**
+   * Return the status of several certificates of the same issuer. The default implementation
+   * calls {@link #getCertStatus0(Instant, RequestIssuer, BigInteger, boolean, boolean, boolean)}
+   * for each serial number, stores with a database should overwrite it to retrieve the
+   * status with fewer queries. As for a single certificate, the serial numbers for which
+   * {@code getCertStatus0} returns {@code null} are not contained in the result, the status of
+   * the other certificates is returned.
+   *
+   * @param time
+   *          Time of the certificate status. Must not be {@code null}.
+   * @param reqIssuer
+   *          Requested issuer
+   * @param serialNumbers
+   *          Serial numbers of the target certificates. Must not be {@code null}.
+   * @param includeCertHash
+   *          Whether to include the hash of target certificate in the response.
+   * @param includeRit
+   *          Whether to include the revocation invalidity time in the response.
+   * @param inheritCaRevocation
+   *          Whether to inherit CA revocation
+   * @return map of the serial number to the certificate status, or {@code null} if the
+   *          issuer is unknown. Serial numbers whose status could not be retrieved are not
+   *          contained.
+   * @throws OcspStoreException
+   *           If OCSP store failed to retrieve the status.
+   * @since 6.5.4
+   */
+  protected Map<BigInteger, CertStatusInfo> getCertStatuses0(
+      Instant time, RequestIssuer reqIssuer, List<BigInteger> serialNumbers,
+      boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation)
+      throws OcspStoreException {
+    Map<BigInteger, CertStatusInfo> infos = new HashMap<>();
+    for (BigInteger serialNumber : serialNumbers) {
+      CertStatusInfo info = getCertStatus0(time, reqIssuer, serialNumber,
+          includeCertHash, includeRit, inheritCaRevocation);
+      if (info != null) {
+        infos.put(serialNumber, info);
+      }
+    }
+    return infos;
+  } // method getCertStatuses0
+
   /**
    * Initialize the OCSP store.
    *
@@ -19,7 +19,7 @@ import org.xipki.util.Hex;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.time.Instant;
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -33,7 +33,18 @@ public class OCSPRespBuilder {
   private static final byte[] successfulStatus = Hex.decode("0a0100");
   private static final byte[] responseTypeBasic = Hex.decode("06092b0601050507300101");
 
-  private final List<SingleResponse> list = new LinkedList<>();
+  /**
+   * Buffers larger than this size are not kept for reuse.
+   */
+  private static final int MAX_CACHED_BUFFER_SIZE = 64 * 1024;
+
+  /**
+   * Per-thread buffer for the encoded ResponseData, which is signed and then copied into the
+   * response. It saves the allocation of a temporary array per response.
+   */
+  private static final ThreadLocal<byte[]> TBS_BUFFER = ThreadLocal.withInitial(() -> new byte[4096]);
+
+  private final List<SingleResponse> list = new ArrayList<>(1);
   private Extensions responseExtensions = null;
   private final ResponderID responderId;
 
@@ -75,7 +86,14 @@ public class OCSPRespBuilder {
       throws OCSPException, NoIdleSignerException {
     ResponseData responseData = new ResponseData(0, responderId, producedAt, list, responseExtensions);
 
-    byte[] tbs = new byte[responseData.getEncodedLength()];
+    final int tbsLen = responseData.getEncodedLength();
+    byte[] tbs = TBS_BUFFER.get();
+    if (tbs.length < tbsLen) {
+      tbs = new byte[tbsLen];
+      if (tbsLen <= MAX_CACHED_BUFFER_SIZE) {
+        TBS_BUFFER.set(tbs);
+      }
+    }
     responseData.write(tbs, 0);
 
     XiContentSigner signer0 = signer.borrowSigner();
@@ -86,7 +104,7 @@ public class OCSPRespBuilder {
     try {
       OutputStream sigOut = signer0.getOutputStream();
       try {
-        sigOut.write(tbs);
+        sigOut.write(tbs, 0, tbsLen);
         sigOut.close();
       } catch (IOException ex) {
         throw new OCSPException("exception signing TBSRequest: " + ex.getMessage(), ex);
@@ -104,7 +122,7 @@ public class OCSPRespBuilder {
     int signatureLen = getLen(signatureBodyLen);
 
     // BasicOCSPResponse
-    int basicResponseBodyLen = tbs.length + sigAlgId.length + signatureLen;
+    int basicResponseBodyLen = tbsLen + sigAlgId.length + signatureLen;
     if (taggedCertSequence != null) {
       basicResponseBodyLen += taggedCertSequence.getEncodedLength();
     }
@@ -144,7 +162,8 @@ public class OCSPRespBuilder {
     // BasicOCSPResponse
     offset += ASN1Type.writeHeader((byte) 0x30, basicResponseBodyLen, out, offset);
     // BasicOCSPResponse.tbsResponseData
-    offset += arraycopy(tbs, out, offset);
+    System.arraycopy(tbs, 0, out, offset, tbsLen);
+    offset += tbsLen;
 
     // BasicOCSPResponse.signatureAlgorithm
     offset += arraycopy(sigAlgId, out, offset);
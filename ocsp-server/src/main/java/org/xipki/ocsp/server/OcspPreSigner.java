@@ -0,0 +1,312 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xipki.ocsp.api.OcspStore;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.ocsp.server.store.IssuerEntry;
+import org.xipki.ocsp.server.store.ResponseCacher;
+import org.xipki.ocsp.server.type.CertID;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.SignAlgo;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Args;
+import org.xipki.util.LogUtil;
+import org.xipki.util.Validity;
+
+import java.io.Closeable;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates the OCSP responses in advance (pre-signing) and stores them in the
+ * {@link ResponseCacher}, so that the online signing is only a fallback.
+ * <p>
+ * Periodically all certificates known by the stores are walked through, and the responses
+ * which are not cached or will expire soon are generated. In between, the responses of the
+ * certificates changed since the last check (e.g. revoked) are re-generated.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+
+class OcspPreSigner implements Closeable {
+
+  private class PreSignService implements Runnable {
+
+    // true to walk through all certificates, false to process only the changed certificates.
+    private final boolean fullWalk;
+
+    PreSignService(boolean fullWalk) {
+      this.fullWalk = fullWalk;
+    }
+
+    @Override
+    public void run() {
+      if (stopMe || !responseCacher.isOnService()) {
+        return;
+      }
+
+      try {
+        if (fullWalk) {
+          walk(0);
+        } else {
+          long now = Instant.now().getEpochSecond();
+          // tolerate small clock difference between the servers.
+          walk(lastChangeCheck - 60);
+          lastChangeCheck = now;
+        }
+      } catch (Throwable th) {
+        LogUtil.error(LOG, th, "error while pre-signing OCSP responses");
+      }
+    }
+
+  } // class PreSignService
+
+  private static final Logger LOG = LoggerFactory.getLogger(OcspPreSigner.class);
+
+  private static final int PAGE_SIZE = 1000;
+
+  private final OcspServer server;
+
+  private final ResponseCacher responseCacher;
+
+  private final Map<String, Responder> responders;
+
+  private final int threads;
+
+  // nano seconds between two signing operations, 0 for no limit.
+  private final long permitInterval;
+
+  private final long intervalSeconds;
+
+  private final long changeCheckIntervalSeconds;
+
+  // a response is re-generated if it expires within this period (in seconds).
+  private final long refreshWindow;
+
+  // guarded by this
+  private long nextPermit;
+
+  private volatile long lastChangeCheck;
+
+  private volatile boolean stopMe;
+
+  private ScheduledThreadPoolExecutor scheduledThreadPoolExecutor;
+
+  private ThreadPoolExecutor workers;
+
+  private final AtomicLong numSigned = new AtomicLong();
+
+  // responses not generated or not cacheable, e.g. for ignored certificates.
+  private final AtomicLong numSkipped = new AtomicLong();
+
+  OcspPreSigner(OcspServer server, ResponseCacher responseCacher, Map<String, Responder> responders,
+                OcspServerConf.ResponseCache.PreSigner conf) {
+    this.server = Args.notNull(server, "server");
+    this.responseCacher = Args.notNull(responseCacher, "responseCacher");
+    this.responders = Args.notEmpty(responders, "responders");
+    Args.notNull(conf, "conf");
+
+    this.threads = conf.getThreads();
+    this.permitInterval = conf.getMaxRate() < 1 ? 0 : 1000_000_000L / conf.getMaxRate();
+    this.intervalSeconds = toSeconds(conf.getInterval());
+    this.changeCheckIntervalSeconds = toSeconds(conf.getChangeCheckInterval());
+    this.refreshWindow = 2 * intervalSeconds;
+  }
+
+  void start() {
+    workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+        new ArrayBlockingQueue<>(threads * 100), new ThreadPoolExecutor.CallerRunsPolicy());
+
+    lastChangeCheck = Instant.now().getEpochSecond();
+
+    // Use one thread for both services, so that they do not run concurrently.
+    scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1);
+    scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
+    scheduledThreadPoolExecutor.scheduleWithFixedDelay(new PreSignService(true),
+        60, intervalSeconds, TimeUnit.SECONDS);
+    scheduledThreadPoolExecutor.scheduleWithFixedDelay(new PreSignService(false),
+        60 + changeCheckIntervalSeconds, changeCheckIntervalSeconds, TimeUnit.SECONDS);
+
+    LOG.info("started OCSP pre-signer for responders {}", responders.keySet());
+  } // method start
+
+  @Override
+  public void close() {
+    stopMe = true;
+
+    if (scheduledThreadPoolExecutor != null) {
+      scheduledThreadPoolExecutor.shutdownNow();
+      scheduledThreadPoolExecutor = null;
+    }
+
+    if (workers != null) {
+      workers.shutdownNow();
+      workers = null;
+    }
+
+    LOG.info("stopped OCSP pre-signer, {} responses pre-signed, {} skipped", numSigned.get(), numSkipped.get());
+  } // method close
+
+  /**
+   * Generates the responses of the certificates updated at or after minLastUpdate.
+   * @param minLastUpdate time in seconds since epoch, 0 for all certificates.
+   * @return number of the responses submitted to the workers.
+   */
+  long walk(long minLastUpdate) throws Exception {
+    long start = System.currentTimeMillis();
+    AtomicLong numSubmitted = new AtomicLong();
+
+    for (Map.Entry<String, Responder> entry : responders.entrySet()) {
+      Responder responder = entry.getValue();
+      HashAlgo hashAlgo = getHashAlgo(responder.getRequestOption());
+      if (hashAlgo == null) {
+        LOG.warn("responder {} allows none of the supported hash algorithms in CertID", entry.getKey());
+        continue;
+      }
+
+      SignAlgo sigAlgo = responder.getSigner().getFirstSigner().getAlgorithm();
+
+      int storeIndex = 0;
+      for (OcspStore store : responder.getStores()) {
+        storeIndex++;
+        for (X509Cert issuerCert : store.getIssuerCerts()) {
+          if (stopMe) {
+            return numSubmitted.get();
+          }
+
+          IssuerEntry cacheIssuer = responseCacher.storeIssuer(issuerCert);
+          RequestIssuer reqIssuer = new RequestIssuer(hashAlgo, cacheIssuer.getEncodedHash(hashAlgo));
+
+          // the status is answered by the first store which knows the issuer.
+          boolean answeredByOtherStore = false;
+          for (OcspStore otherStore : responder.getStores().subList(0, storeIndex - 1)) {
+            if (otherStore.knowsIssuer(reqIssuer)) {
+              answeredByOtherStore = true;
+              break;
+            }
+          }
+
+          if (!answeredByOtherStore) {
+            walk(responder, store, cacheIssuer.getId(), reqIssuer, sigAlgo, minLastUpdate, numSubmitted);
+          }
+        }
+      }
+    }
+
+    if (minLastUpdate == 0 || numSubmitted.get() > 0) {
+      LOG.info("submitted {} OCSP responses of {} certificates to pre-sign in {} ms, total {} pre-signed, {} skipped",
+          numSubmitted.get(), minLastUpdate == 0 ? "all" : "changed", System.currentTimeMillis() - start,
+          numSigned.get(), numSkipped.get());
+    }
+    return numSubmitted.get();
+  } // method walk
+
+  private void walk(Responder responder, OcspStore store, int cacheIssuerId, RequestIssuer reqIssuer,
+                    SignAlgo sigAlgo, long minLastUpdate, AtomicLong numSubmitted) throws Exception {
+    long minId = 0;
+    while (!stopMe) {
+      SortedMap<Long, BigInteger> serials = store.getSerialNumbers(reqIssuer, minId, minLastUpdate, PAGE_SIZE);
+      if (serials == null || serials.isEmpty()) {
+        return;
+      }
+
+      long minExpiry = Instant.now().getEpochSecond() + refreshWindow;
+      for (BigInteger serial : serials.values()) {
+        if (stopMe) {
+          return;
+        }
+
+        if (minLastUpdate == 0) {
+          // refresh only the responses which are not cached or will expire soon.
+          if (responseCacher.getOcspResponseExpiry(cacheIssuerId, serial, reqIssuer.hashAlgorithm(), sigAlgo)
+              > minExpiry) {
+            continue;
+          }
+        }
+
+        numSubmitted.incrementAndGet();
+
+        CertID certId = new CertID(reqIssuer, serial);
+        workers.execute(() -> {
+          try {
+            acquirePermit();
+            if (server.presign(responder, cacheIssuerId, certId)) {
+              numSigned.incrementAndGet();
+            } else {
+              numSkipped.incrementAndGet();
+            }
+          } catch (InterruptedException ex) {
+            LOG.info("pre-signing interrupted");
+          } catch (Throwable th) {
+            numSkipped.incrementAndGet();
+            LogUtil.warn(LOG, th, "could not pre-sign OCSP response");
+          }
+        });
+      }
+
+      if (serials.size() < PAGE_SIZE) {
+        return;
+      }
+      minId = serials.lastKey();
+    }
+  } // method walk
+
+  long getNumSigned() {
+    return numSigned.get();
+  }
+
+  long getNumSkipped() {
+    return numSkipped.get();
+  }
+
+  private void acquirePermit() throws InterruptedException {
+    if (permitInterval == 0) {
+      return;
+    }
+
+    long waitNanos;
+    synchronized (this) {
+      long now = System.nanoTime();
+      long permit = Math.max(now, nextPermit);
+      nextPermit = permit + permitInterval;
+      waitNanos = permit - now;
+    }
+
+    if (waitNanos > 0) {
+      TimeUnit.NANOSECONDS.sleep(waitNanos);
+    }
+  } // method acquirePermit
+
+  private static long toSeconds(String period) {
+    // Validity.approxMinutes() considers only the unit, e.g. 1 minute for "10m".
+    Validity validity = Validity.getInstance(period);
+    return validity.getValidity() * validity.getUnit().getUnit().getDuration().getSeconds();
+  }
+
+  private static HashAlgo getHashAlgo(RequestOption reqOpt) {
+    // most clients use SHA-1 in CertID.
+    if (reqOpt.allows(HashAlgo.SHA1)) {
+      return HashAlgo.SHA1;
+    }
+
+    for (HashAlgo hashAlgo : HashAlgo.values()) {
+      if (reqOpt.allows(hashAlgo)) {
+        return hashAlgo;
+      }
+    }
+    return null;
+  } // method getHashAlgo
+
+}
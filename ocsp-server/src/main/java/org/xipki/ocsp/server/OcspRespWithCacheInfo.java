@@ -3,6 +3,9 @@
 
 package org.xipki.ocsp.server;
 
+import org.xipki.security.HashAlgo;
+import org.xipki.util.StringUtil;
+
 /**
  * OCSP response with {@link ResponseCacheInfo}.
  *
@@ -18,6 +21,8 @@ public class OcspRespWithCacheInfo {
 
     private Long nextUpdate;
 
+    private String etag;
+
     public ResponseCacheInfo(long generatedAt) {
       this.generatedAt = generatedAt;
     }
@@ -34,6 +39,28 @@ public class OcspRespWithCacheInfo {
       return nextUpdate;
     }
 
+    /**
+     * Returns the ETag of the response, computed once when the response is cached.
+     * @return the ETag, may be {@code null}.
+     */
+    public String getEtag() {
+      return etag;
+    }
+
+    public void setEtag(String etag) {
+      this.etag = etag;
+    }
+
+    /**
+     * RFC 5019 6.2: This profile RECOMMENDS that the ETag value be the ASCII HEX representation
+     * of the SHA1 hash of the OCSPResponse structure.
+     * @param encodedResponse the encoded OCSPResponse.
+     * @return the quoted ETag.
+     */
+    public static String buildEtag(byte[] encodedResponse) {
+      return StringUtil.concat("\"", HashAlgo.SHA1.hexHash(encodedResponse), "\"");
+    }
+
   } // class ResponseCacheInfo
 
   private final byte[] response;
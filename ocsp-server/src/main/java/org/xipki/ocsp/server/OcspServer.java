@@ -3,13 +3,8 @@
 
 package org.xipki.ocsp.server;
 
-import org.bouncycastle.asn1.ASN1InputStream;
-import org.bouncycastle.asn1.ASN1ObjectIdentifier;
-import org.bouncycastle.asn1.ASN1Sequence;
-import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
 import org.bouncycastle.asn1.ocsp.OCSPRequest;
 import org.bouncycastle.asn1.ocsp.OCSPResponse;
-import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.cert.X509CertificateHolder;
 import org.bouncycastle.cert.ocsp.OCSPException;
 import org.bouncycastle.cert.ocsp.OCSPReq;
@@ -72,6 +67,8 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -97,6 +94,7 @@ public class OcspServer implements Closeable {
   private static class OcspRespControl {
     boolean canCacheInfo;
     boolean includeExtendedRevokeExtension;
+    boolean unknownAsRevoked;
     long cacheNextUpdate;
 
     public OcspRespControl() {
@@ -122,6 +120,8 @@ public class OcspServer implements Closeable {
 
   private static final byte[] encodedAcceptableResponses_Basic;
 
+  private static final byte[] encodedOcspBasic;
+
   private final DataSourceFactory datasourceFactory;
 
   private SecurityFactory securityFactory;
@@ -134,6 +134,8 @@ public class OcspServer implements Closeable {
 
   private ResponseCacher responseCacher;
 
+  private OcspPreSigner preSigner;
+
   private final Map<String, Responder> responders = new HashMap<>();
 
   private final Map<String, ResponseSigner> signers = new HashMap<>();
@@ -176,12 +178,20 @@ public class OcspServer implements Closeable {
     extension_pkix_ocsp_extendedRevoke = new WritableOnlyExtension(encoded);
 
     encodedAcceptableResponses_Basic = Hex.decode("300B06092B0601050507300101");
+    encodedOcspBasic = Hex.decode("06092B0601050507300101");
   } // method static
 
   public OcspServer() {
     this.datasourceFactory = new DataSourceFactory();
   }
 
+  // for the tests only: the responses are cached without init().
+  OcspServer(ResponseCacher responseCacher) {
+    this();
+    this.responseCacher = Args.notNull(responseCacher, "responseCacher");
+    this.master = responseCacher.isMaster();
+  }
+
   public void setSecurityFactory(SecurityFactory securityFactory) {
     this.securityFactory = securityFactory;
   }
@@ -235,6 +245,10 @@ public class OcspServer implements Closeable {
     initialized.set(false);
 
     // reset
+    if (preSigner != null) {
+      preSigner.close();
+      preSigner = null;
+    }
     responseCacher = null;
     responders.clear();
     signers.clear();
@@ -379,7 +393,12 @@ public class OcspServer implements Closeable {
       } catch (IOException ex) {
         throw new InvalidConfException(ex.getMessage(), ex);
       }
-      responseCacher = new ResponseCacher(datasource, master, cacheType.validity());
+      responseCacher = new ResponseCacher(datasource, master, cacheType.validity(), cacheType.getMemoryCacheSize());
+      OcspServerConf.ResponseCache.WriteBehind writeBehind = cacheType.getWriteBehind();
+      if (writeBehind != null) {
+        responseCacher.enableWriteBehind(writeBehind.getQueueSize(), writeBehind.getBatchSize(),
+            writeBehind.getFlushInterval());
+      }
       responseCacher.init();
     }
 
@@ -468,6 +487,27 @@ public class OcspServer implements Closeable {
     tmpList.sort((o1, o2) -> o2.length() - o1.length());
     this.servletPaths.clear();
     this.servletPaths.addAll(tmpList);
+
+    // pre-signer
+    OcspServerConf.ResponseCache.PreSigner preSignerConf = (cacheType == null) ? null : cacheType.getPreSigner();
+    if (preSignerConf != null) {
+      if (!master) {
+        LOG.warn("pre-signing of OCSP responses is only supported in master mode, ignore it");
+      } else {
+        Map<String, Responder> preSignResponders = new HashMap<>();
+        List<String> names = preSignerConf.getResponders();
+        for (String name : CollectionUtil.isEmpty(names) ? responders.keySet() : names) {
+          Responder responder = responders.get(name);
+          if (responder == null) {
+            throw new InvalidConfException("no responder named '" + name + "' is defined");
+          }
+          preSignResponders.put(name, responder);
+        }
+
+        preSigner = new OcspPreSigner(this, responseCacher, preSignResponders, preSignerConf);
+        preSigner.start();
+      }
+    }
   } // method init0
 
   private Map<String, ResponderOption> getResponderOptionMap(OcspServerConf conf) throws InvalidConfException {
@@ -499,6 +539,10 @@ public class OcspServer implements Closeable {
   @Override
   public void close() {
     LOG.info("stopped OCSP Responder");
+    if (preSigner != null) {
+      preSigner.close();
+    }
+
     if (responseCacher != null) {
       responseCacher.close();
     }
@@ -555,25 +599,12 @@ public class OcspServer implements Closeable {
       repControl.canCacheInfo = true;
 
       List<ExtendedExtension> reqExtensions = req.getExtensions();
-      List<Extension> respExtensions = new LinkedList<>();
+      List<Extension> respExtensions = new ArrayList<>(2);
 
       ExtendedExtension ocspRespExtn = removeExtension(reqExtensions, OID.ID_PKIX_OCSP_RESPONSE);
       if (ocspRespExtn != null) {
-        boolean containsBasic = ocspRespExtn.equalsExtnValue(encodedAcceptableResponses_Basic);
-        if (!containsBasic) {
-          // we need to parse the extension
-          byte[] extnValue = new byte[ocspRespExtn.getExtnValueLength()];
-          ocspRespExtn.writeExtnValue(extnValue, 0);
-          ASN1Sequence seq = ASN1Sequence.getInstance(extnValue);
-          final int size = seq.size();
-          for (int i = 0; i < size; i++) {
-            ASN1ObjectIdentifier oid = ASN1ObjectIdentifier.getInstance(seq.getObjectAt(i));
-            if (OCSPObjectIdentifiers.id_pkix_ocsp_basic.equals(oid)) {
-              containsBasic = true;
-              break;
-            }
-          }
-        }
+        boolean containsBasic = ocspRespExtn.equalsExtnValue(encodedAcceptableResponses_Basic)
+            || ocspRespExtn.extnValueContains(encodedOcspBasic);
 
         if (!containsBasic) {
           LOG.warn("basic OCSP response is not accepted by the client");
@@ -618,16 +649,7 @@ public class OcspServer implements Closeable {
       if (responder.getResponderOption().getMode() != OcspMode.RFC2560) {
         ExtendedExtension extn = removeExtension(reqExtensions, OID.ID_PKIX_OCSP_PREFSIGALGS);
         if (extn != null) {
-          List<AlgorithmIdentifier> prefSigAlgs;
-          try (ASN1InputStream asn1Stream = new ASN1InputStream(extn.getExtnValueStream())) {
-            ASN1Sequence seq = ASN1Sequence.getInstance(asn1Stream.readObject());
-            final int size = seq.size();
-            prefSigAlgs = new ArrayList<>(size);
-            for (int i = 0; i < size; i++) {
-              prefSigAlgs.add(AlgorithmIdentifier.getInstance(seq.getObjectAt(i)));
-            }
-          }
-          concurrentSigner = signer.getSignerForPreferredSigAlgs(prefSigAlgs);
+          concurrentSigner = signer.getSignerForPreferredSigAlgs(extn);
         }
       }
 
@@ -642,7 +664,7 @@ public class OcspServer implements Closeable {
 
         if (flag) {
           if (LOG.isWarnEnabled()) {
-            List<OID> oids = new LinkedList<>();
+            List<OID> oids = new ArrayList<>(reqExtensions.size());
             for (ExtendedExtension m : reqExtensions) {
               if (m.isCritical()) {
                 oids.add(m.getExtnType());
@@ -660,6 +682,7 @@ public class OcspServer implements Closeable {
       }
 
       SignAlgo cacheDbSigAlg = null;
+      HashAlgo cacheDbCertIdHashAlgo = null;
       BigInteger cacheDbSerialNumber = null;
       IssuerEntry cacheDbIssuer = null;
 
@@ -676,13 +699,15 @@ public class OcspServer implements Closeable {
         }
 
         cacheDbSigAlg = concurrentSigner.getAlgorithm();
+        // the cached response contains the CertID, it must have been built with the same hash algorithm.
+        cacheDbCertIdHashAlgo = reqHashAlgo;
 
         cacheDbIssuer = responseCacher.getIssuer(certId.getIssuer());
         cacheDbSerialNumber = certId.getSerialNumber();
 
         if (cacheDbIssuer != null) {
           OcspRespWithCacheInfo cachedResp = responseCacher.getOcspResponse(
-              cacheDbIssuer.getId(), cacheDbSerialNumber, cacheDbSigAlg);
+              cacheDbIssuer.getId(), cacheDbSerialNumber, cacheDbCertIdHashAlgo, cacheDbSigAlg);
           if (cachedResp != null) {
             return cachedResp;
           }
@@ -709,22 +734,20 @@ public class OcspServer implements Closeable {
       ResponderID responderId = signer.getResponderId(repOpt.isResponderIdByName());
       OCSPRespBuilder builder = new OCSPRespBuilder(responderId);
 
-      boolean unknownAsRevoked = false;
-      AtomicBoolean unknownAsRevoked0 = new AtomicBoolean(false);
+      // retrieve the status of all certificates of the same issuer at once.
+      Map<CertID, CertStatusInfo> prefetchedStatuses = (requestsSize > 1)
+          ? prefetchCertStatuses(requestList, responder, reqOpt, repOpt) : null;
+
       for (CertID certID : requestList) {
-        OcspRespWithCacheInfo failureOcspResp = processCertReq(
-                unknownAsRevoked0, certID, builder, responder, reqOpt, repOpt, repControl);
+        OcspRespWithCacheInfo failureOcspResp = processCertReq(certID,
+            prefetchedStatuses, builder, responder, reqOpt, repOpt, repControl);
 
         if (failureOcspResp != null) {
           return failureOcspResp;
         }
-
-        if (unknownAsRevoked0.get()) {
-          unknownAsRevoked = true;
-        }
       }
 
-      if (unknownAsRevoked && repControl.includeExtendedRevokeExtension) {
+      if (repControl.unknownAsRevoked && repControl.includeExtendedRevokeExtension) {
         respExtensions.add(extension_pkix_ocsp_extendedRevoke);
       }
 
@@ -732,15 +755,10 @@ public class OcspServer implements Closeable {
         builder.setResponseExtensions(new Extensions(respExtensions));
       }
 
-      EmbedCertsMode certsMode = repOpt.getEmbedCertsMode();
-      TaggedCertSequence certsInResp = (certsMode == EmbedCertsMode.SIGNER) ? signer.getSequenceOfCert()
-          : (certsMode == EmbedCertsMode.NONE) ? null
-          : signer.getSequenceOfCertChain(); // certsMode == EmbedCertsMode.SIGNER_AND_CA
-
       Instant producedAt = Instant.now();
       byte[] encodeOcspResponse;
       try {
-        encodeOcspResponse = builder.buildOCSPResponse(concurrentSigner, certsInResp, producedAt);
+        encodeOcspResponse = builder.buildOCSPResponse(concurrentSigner, getCertsInResp(signer, repOpt), producedAt);
       } catch (NoIdleSignerException ex) {
         return unsuccesfulOCSPRespMap.get(OcspResponseStatus.tryLater);
       } catch (OCSPException ex) {
@@ -749,12 +767,16 @@ public class OcspServer implements Closeable {
       }
 
       long producedAtSeconds = producedAt.getEpochSecond();
+      // the ETag is computed only once, for the HTTP GET response and the cache.
+      String etag = viaGet && repControl.canCacheInfo ? ResponseCacheInfo.buildEtag(encodeOcspResponse) : null;
+
       // cache response in database
       if (canCacheDb && repControl.canCacheInfo) {
         // Don't cache the response with status UNKNOWN, since this may result in DDoS
         // of storage
         responseCacher.storeOcspResponse(cacheDbIssuer.getId(), cacheDbSerialNumber,
-            producedAtSeconds, repControl.cacheNextUpdate, cacheDbSigAlg, encodeOcspResponse);
+            producedAtSeconds, repControl.cacheNextUpdate, cacheDbCertIdHashAlgo, cacheDbSigAlg,
+            encodeOcspResponse, etag, false);
       }
 
       if (viaGet && repControl.canCacheInfo) {
@@ -762,6 +784,7 @@ public class OcspServer implements Closeable {
         if (repControl.cacheNextUpdate != Long.MAX_VALUE) {
           cacheInfo.setNextUpdate(repControl.cacheNextUpdate);
         }
+        cacheInfo.setEtag(etag);
         return new OcspRespWithCacheInfo(encodeOcspResponse, cacheInfo);
       } else {
         return new OcspRespWithCacheInfo(encodeOcspResponse, null);
@@ -772,8 +795,119 @@ public class OcspServer implements Closeable {
     }
   } // method ask
 
+  /**
+   * Generates the response for the given certificate, as answer to a request without
+   * extensions, and stores it in the response cache.
+   *
+   * @param responder the responder.
+   * @param cacheIssuerId ID of the issuer in the cache database.
+   * @param certId the CertID.
+   * @return whether a response has been stored.
+   */
+  boolean presign(Responder responder, int cacheIssuerId, CertID certId) {
+    ResponseSigner signer = responder.getSigner();
+    OcspServerConf.ResponseOption repOpt = responder.getResponseOption();
+
+    OcspRespControl repControl = new OcspRespControl();
+    repControl.canCacheInfo = true;
+
+    OCSPRespBuilder builder = new OCSPRespBuilder(signer.getResponderId(repOpt.isResponderIdByName()));
+    OcspRespWithCacheInfo failureOcspResp = processCertReq(certId, null, builder,
+        responder, responder.getRequestOption(), repOpt, repControl);
+
+    // Don't cache the response with status UNKNOWN, same as in answer().
+    if (failureOcspResp != null || !repControl.canCacheInfo) {
+      return false;
+    }
+
+    ConcurrentContentSigner concurrentSigner = signer.getFirstSigner();
+    Instant producedAt = Instant.now();
+    byte[] encodeOcspResponse;
+    try {
+      encodeOcspResponse = builder.buildOCSPResponse(concurrentSigner, getCertsInResp(signer, repOpt), producedAt);
+    } catch (NoIdleSignerException | OCSPException ex) {
+      LogUtil.warn(LOG, ex, "could not pre-sign OCSP response");
+      return false;
+    }
+
+    responseCacher.storeOcspResponse(cacheIssuerId, certId.getSerialNumber(), producedAt.getEpochSecond(),
+        repControl.cacheNextUpdate, certId.getIssuer().hashAlgorithm(), concurrentSigner.getAlgorithm(),
+        encodeOcspResponse, true);
+    return true;
+  } // method presign
+
+  private static TaggedCertSequence getCertsInResp(ResponseSigner signer, OcspServerConf.ResponseOption repOpt) {
+    EmbedCertsMode certsMode = repOpt.getEmbedCertsMode();
+    return (certsMode == EmbedCertsMode.SIGNER) ? signer.getSequenceOfCert()
+        : (certsMode == EmbedCertsMode.NONE) ? null
+        : signer.getSequenceOfCertChain(); // certsMode == EmbedCertsMode.SIGNER_AND_CA
+  }
+
+  /**
+   * Retrieves the status of the certificates in the request list, with one query per issuer.
+   *
+   * @param requestList the request list.
+   * @param responder the responder.
+   * @param reqOpt the request option.
+   * @param repOpt the response option.
+   * @return the status of the certificates, as returned by the first store which knows the issuer.
+   *         CertIDs whose status could not be retrieved are not contained.
+   */
+  private static Map<CertID, CertStatusInfo> prefetchCertStatuses(
+      List<CertID> requestList, Responder responder,
+      RequestOption reqOpt, OcspServerConf.ResponseOption repOpt) {
+    Map<RequestIssuer, List<CertID>> issuerCertIds = new LinkedHashMap<>();
+    for (CertID certId : requestList) {
+      if (reqOpt.allows(certId.getIssuer().hashAlgorithm())) {
+        issuerCertIds.computeIfAbsent(certId.getIssuer(), k -> new ArrayList<>()).add(certId);
+      }
+    }
+
+    Map<CertID, CertStatusInfo> statuses = new IdentityHashMap<>();
+    Instant now = Instant.now();
+    for (Map.Entry<RequestIssuer, List<CertID>> entry : issuerCertIds.entrySet()) {
+      RequestIssuer reqIssuer = entry.getKey();
+      List<CertID> certIds = entry.getValue();
+      if (certIds.size() < 2) {
+        continue;
+      }
+
+      for (OcspStore store : responder.getStores()) {
+        if (!store.knowsIssuer(reqIssuer)) {
+          continue;
+        }
+
+        List<BigInteger> serials = new ArrayList<>(certIds.size());
+        for (CertID certId : certIds) {
+          serials.add(certId.getSerialNumber());
+        }
+
+        try {
+          Map<BigInteger, CertStatusInfo> infos = store.getCertStatuses(now, reqIssuer, serials,
+              repOpt.isIncludeCerthash(), repOpt.isIncludeInvalidityDate(),
+              responder.getResponderOption().isInheritCaRevocation());
+          if (infos != null) {
+            for (CertID certId : certIds) {
+              CertStatusInfo info = infos.get(certId.getSerialNumber());
+              if (info != null) {
+                statuses.put(certId, info);
+              }
+            }
+          }
+        } catch (OcspStoreException ex) {
+          // the status will be retrieved for each certificate separately.
+          LogUtil.warn(LOG, ex, "getCertStatuses() of CertStatusStore " + store.getName());
+        }
+        break;
+      }
+    }
+
+    return statuses;
+  } // method prefetchCertStatuses
+
   private OcspRespWithCacheInfo processCertReq(
-      AtomicBoolean unknownAsRevoked, CertID certId, OCSPRespBuilder builder, Responder responder,
+      CertID certId, Map<CertID, CertStatusInfo> prefetchedStatuses,
+      OCSPRespBuilder builder, Responder responder,
       RequestOption reqOpt, OcspServerConf.ResponseOption repOpt, OcspRespControl repControl) {
     HashAlgo reqHashAlgo = certId.getIssuer().hashAlgorithm();
     if (!reqOpt.allows(reqHashAlgo)) {
@@ -788,15 +922,21 @@ public class OcspServer implements Closeable {
 
     RequestIssuer reqIssuer = certId.getIssuer();
     Instant now = Instant.now();
+    boolean firstStore = true;
     for (OcspStore store : responder.getStores()) {
       if (!store.knowsIssuer(reqIssuer)) {
         continue;
       }
 
       try {
-        certStatusInfo = store.getCertStatus(now, certId.getIssuer(), serial,
-            repOpt.isIncludeCerthash(), repOpt.isIncludeInvalidityDate(),
-            responder.getResponderOption().isInheritCaRevocation());
+        // the prefetched status has been retrieved from the first store which knows the issuer.
+        certStatusInfo = (firstStore && prefetchedStatuses != null) ? prefetchedStatuses.get(certId) : null;
+        firstStore = false;
+        if (certStatusInfo == null) {
+          certStatusInfo = store.getCertStatus(now, certId.getIssuer(), serial,
+              repOpt.isIncludeCerthash(), repOpt.isIncludeInvalidityDate(),
+              responder.getResponderOption().isInheritCaRevocation());
+        }
 
         if (certStatusInfo != null) {
           CertStatus status = certStatusInfo.getCertStatus();
@@ -862,8 +1002,8 @@ public class OcspServer implements Closeable {
 
     Instant nextUpdate = certStatusInfo.getNextUpdate();
 
-    List<Extension> extensions = new LinkedList<>();
-    unknownAsRevoked.set(false);
+    List<Extension> extensions = new ArrayList<>(3);
+    boolean unknownAsRevoked = false;
     byte[] certStatus;
     switch (certStatusInfo.getCertStatus()) {
       case GOOD:
@@ -879,7 +1019,8 @@ public class OcspServer implements Closeable {
         if (responder.getResponderOption().getMode() == OcspMode.RFC2560) {
           certStatus = bytes_certstatus_unknown;
         } else { // (ocspMode == OCSPMode.RFC6960)
-          unknownAsRevoked.set(true);
+          unknownAsRevoked = true;
+          repControl.unknownAsRevoked = true;
           certStatus = bytes_certstatus_rfc6960_unknown;
         }
         break;
@@ -915,7 +1056,7 @@ public class OcspServer implements Closeable {
       String certStatusText = Arrays.equals(certStatus, bytes_certstatus_good) ? "good"
           : Arrays.equals(certStatus, bytes_certstatus_unknown) ? "unknown"
           : Arrays.equals(certStatus, bytes_certstatus_rfc6960_unknown) ? "RFC6960_unknown"
-          : unknownAsRevoked.get() ? "unknown_as_revoked"
+          : unknownAsRevoked ? "unknown_as_revoked"
           : "revoked";
 
       String msg = StringUtil.concatObjectsCap(250, "issuer: ", certId.getIssuer(),
@@ -385,10 +385,163 @@ public class OcspServerConf extends ValidableConf {
 
   public static class ResponseCache extends ValidableConf {
 
+    /**
+     * Configuration of the asynchronous writing of the responses to the database.
+     */
+    public static class WriteBehind extends ValidableConf {
+
+      /**
+       * Maximal number of responses waiting to be written. If the queue is full,
+       * new responses are not cached in the database.
+       */
+      private int queueSize = 10000;
+
+      /**
+       * Maximal number of responses written in one batch.
+       */
+      private int batchSize = 100;
+
+      /**
+       * Maximal time in milliseconds a response waits in the queue if the batch is not full.
+       */
+      private int flushInterval = 1000;
+
+      public int getQueueSize() {
+        return queueSize;
+      }
+
+      public void setQueueSize(int queueSize) {
+        this.queueSize = queueSize;
+      }
+
+      public int getBatchSize() {
+        return batchSize;
+      }
+
+      public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+      }
+
+      public int getFlushInterval() {
+        return flushInterval;
+      }
+
+      public void setFlushInterval(int flushInterval) {
+        this.flushInterval = flushInterval;
+      }
+
+      @Override
+      public void validate() throws InvalidConfException {
+        if (queueSize < 1 || batchSize < 1 || flushInterval < 1) {
+          throw new InvalidConfException("queueSize, batchSize and flushInterval must be positive");
+        }
+      }
+
+    } // class WriteBehind
+
+    /**
+     * Configuration of the generation of OCSP responses in advance (pre-signing).
+     */
+    public static class PreSigner extends ValidableConf {
+
+      /**
+       * Names of the responders whose responses are generated in advance. If not set,
+       * all responders.
+       */
+      private List<String> responders;
+
+      /**
+       * Number of threads to generate the responses.
+       */
+      private int threads = 2;
+
+      /**
+       * Maximal number of responses generated per second. Values &lt; 1 for no limit.
+       */
+      private int maxRate;
+
+      /**
+       * Interval to walk through all certificates, and generate the responses which are
+       * not cached or will expire before the next-but-one walk.
+       */
+      private String interval = "1h";
+
+      /**
+       * Interval to generate the responses of the changed (e.g. revoked) certificates.
+       */
+      private String changeCheckInterval = "1m";
+
+      public List<String> getResponders() {
+        return responders;
+      }
+
+      public void setResponders(List<String> responders) {
+        this.responders = responders;
+      }
+
+      public int getThreads() {
+        return threads;
+      }
+
+      public void setThreads(int threads) {
+        this.threads = threads;
+      }
+
+      public int getMaxRate() {
+        return maxRate;
+      }
+
+      public void setMaxRate(int maxRate) {
+        this.maxRate = maxRate;
+      }
+
+      public String getInterval() {
+        return interval;
+      }
+
+      public void setInterval(String interval) {
+        this.interval = interval;
+      }
+
+      public String getChangeCheckInterval() {
+        return changeCheckInterval;
+      }
+
+      public void setChangeCheckInterval(String changeCheckInterval) {
+        this.changeCheckInterval = changeCheckInterval;
+      }
+
+      @Override
+      public void validate() throws InvalidConfException {
+        if (threads < 1) {
+          throw new InvalidConfException("threads must be positive");
+        }
+        notBlank(interval, "interval");
+        notBlank(changeCheckInterval, "changeCheckInterval");
+      }
+
+    } // class PreSigner
+
     private DataSourceConf datasource;
 
     private String validity;
 
+    /**
+     * Maximal number of responses cached in memory in front of the database.
+     * Values &lt; 1 disable the memory cache.
+     */
+    private int memoryCacheSize;
+
+    /**
+     * If set, the responses are written asynchronously to the database.
+     */
+    private WriteBehind writeBehind;
+
+    /**
+     * If set, the responses are generated in advance. Only applied in master mode.
+     */
+    private PreSigner preSigner;
+
     public DataSourceConf getDatasource() {
       return datasource;
     }
@@ -405,6 +558,30 @@ public class OcspServerConf extends ValidableConf {
       this.validity = validity;
     }
 
+    public int getMemoryCacheSize() {
+      return memoryCacheSize;
+    }
+
+    public void setMemoryCacheSize(int memoryCacheSize) {
+      this.memoryCacheSize = memoryCacheSize;
+    }
+
+    public WriteBehind getWriteBehind() {
+      return writeBehind;
+    }
+
+    public void setWriteBehind(WriteBehind writeBehind) {
+      this.writeBehind = writeBehind;
+    }
+
+    public PreSigner getPreSigner() {
+      return preSigner;
+    }
+
+    public void setPreSigner(PreSigner preSigner) {
+      this.preSigner = preSigner;
+    }
+
     public Validity validity() {
       return validity == null ? new Validity(1, Unit.DAY) : Validity.getInstance(validity);
     }
@@ -412,6 +589,7 @@ public class OcspServerConf extends ValidableConf {
     @Override
     public void validate() throws InvalidConfException {
       notNull(datasource, "datasource");
+      validate(writeBehind, preSigner);
     }
 
   } // class ResponseCache
@@ -4,9 +4,12 @@
 package org.xipki.ocsp.server;
 
 import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Sequence;
 import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
 import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
 import org.bouncycastle.asn1.x509.Certificate;
+import org.xipki.ocsp.server.type.ExtendedExtension;
 import org.xipki.ocsp.server.type.ResponderID;
 import org.xipki.ocsp.server.type.TaggedCertSequence;
 import org.xipki.security.ConcurrentContentSigner;
@@ -18,6 +21,7 @@ import org.xipki.util.Args;
 import java.io.IOException;
 import java.security.NoSuchAlgorithmException;
 import java.security.cert.CertificateException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +40,11 @@ class ResponseSigner {
 
   private final List<ConcurrentContentSigner> signers;
 
+  /**
+   * DER-encoded AlgorithmIdentifiers of the {@link #signers}, in the same order.
+   */
+  private final byte[][] encodedSigAlgIds;
+
   private final TaggedCertSequence sequenceOfCert;
 
   private final X509Cert cert;
@@ -98,9 +107,11 @@ class ResponseSigner {
     }
 
     algoSignerMap = new HashMap<>();
-    for (ConcurrentContentSigner signer : signers) {
-      SignAlgo algo = signer.getAlgorithm();
-      algoSignerMap.put(algo, signer);
+    encodedSigAlgIds = new byte[signers.size()][];
+    for (int i = 0; i < signers.size(); i++) {
+      SignAlgo algo = signers.get(i).getAlgorithm();
+      algoSignerMap.put(algo, signers.get(i));
+      encodedSigAlgIds[i] = algo.getAlgorithmIdentifier().getEncoded();
     }
   } // constructor
 
@@ -112,6 +123,34 @@ class ResponseSigner {
     return signers.get(0);
   }
 
+  /**
+   * Returns the signer for the preferred signature algorithms extension. The common case, in which
+   * the most preferred algorithm is exactly that of a signer, is resolved without parsing the
+   * extension.
+   *
+   * @param prefSigAlgsExtn the preferred signature algorithms extension.
+   * @return the signer, or null if none of the preferred algorithms is supported.
+   * @throws IOException if the extension is not well-formed.
+   */
+  public ConcurrentContentSigner getSignerForPreferredSigAlgs(ExtendedExtension prefSigAlgsExtn)
+      throws IOException {
+    int idx = prefSigAlgsExtn.indexOfFirstExtnValueElement(encodedSigAlgIds);
+    if (idx != -1) {
+      return signers.get(idx);
+    }
+
+    List<AlgorithmIdentifier> prefSigAlgs;
+    try (ASN1InputStream asn1Stream = new ASN1InputStream(prefSigAlgsExtn.getExtnValueStream())) {
+      ASN1Sequence seq = ASN1Sequence.getInstance(asn1Stream.readObject());
+      final int size = seq.size();
+      prefSigAlgs = new ArrayList<>(size);
+      for (int i = 0; i < size; i++) {
+        prefSigAlgs.add(AlgorithmIdentifier.getInstance(seq.getObjectAt(i)));
+      }
+    }
+    return getSignerForPreferredSigAlgs(prefSigAlgs);
+  } // method getSignerForPreferredSigAlgs
+
   public ConcurrentContentSigner getSignerForPreferredSigAlgs(List<AlgorithmIdentifier> prefSigAlgs) {
     if (prefSigAlgs == null) {
       return signers.get(0);
@@ -6,10 +6,10 @@ package org.xipki.ocsp.server.servlet;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.xipki.ocsp.server.OcspRespWithCacheInfo;
+import org.xipki.ocsp.server.OcspRespWithCacheInfo.ResponseCacheInfo;
 import org.xipki.ocsp.server.OcspServer;
 import org.xipki.ocsp.server.Responder;
 import org.xipki.ocsp.server.ResponderAndPath;
-import org.xipki.security.HashAlgo;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
 import org.xipki.util.Base64Url;
@@ -25,8 +25,13 @@ import org.xipki.util.http.XiHttpResponse;
 
 import java.io.EOFException;
 import java.io.IOException;
-import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.HashMap;
+import java.util.Locale;
 import java.util.Map;
 
 /**
@@ -46,6 +51,13 @@ class HttpOcspServlet {
 
   private static final String CT_RESPONSE = "application/ocsp-response";
 
+  /**
+   * IMF-fixdate of RFC 7231 7.1.1.1, e.g. Sun, 06 Nov 1994 08:49:37 GMT. Unlike
+   * {@link DateTimeFormatter#RFC_1123_DATE_TIME}, the day of month has always two digits.
+   */
+  private static final DateTimeFormatter HTTP_DATE =
+      DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+
   private final boolean logReqResp;
 
   private final OcspServer server;
@@ -170,18 +182,17 @@ class HttpOcspServlet {
         LOG.debug("HTTP GET OCSP path: {}\nResponse:\n{}", req.getRequestURI(), LogUtil.base64Encode(encodedOcspResp));
       }
 
-      OcspRespWithCacheInfo.ResponseCacheInfo cacheInfo = ocspRespWithCacheInfo.getCacheInfo();
+      ResponseCacheInfo cacheInfo = ocspRespWithCacheInfo.getCacheInfo();
       Map<String, String> headers = new HashMap<>();
       if (cacheInfo != null) {
-        encodedOcspResp = ocspRespWithCacheInfo.getResponse();
-        long now = Clock.systemUTC().millis();
+        long now = Instant.now().getEpochSecond();
 
         // RFC 5019 6.2: Date: The date and time at which the OCSP server generated
         // the HTTP response.
-        headers.put("Date",Long.toString(now));
+        headers.put("Date", formatHttpDate(now));
         // RFC 5019 6.2: Last-Modified: date and time at which the OCSP responder
         // last modified the response.
-        headers.put("Last-Modified", Long.toString(cacheInfo.getGeneratedAt()));
+        headers.put("Last-Modified", formatHttpDate(cacheInfo.getGeneratedAt()));
         // RFC 5019 6.2: Expires: This date and time will be the same as the
         // nextUpdate time-stamp in the OCSP
         // response itself.
@@ -190,11 +201,17 @@ class HttpOcspServlet {
         Long nextUpdate = cacheInfo.getNextUpdate();
 
         if (nextUpdate != null) {
-          headers.put("Expires", Long.toString(nextUpdate));
+          headers.put("Expires", formatHttpDate(nextUpdate));
         }
+
         // RFC 5019 6.2: This profile RECOMMENDS that the ETag value be the ASCII
         // HEX representation of the SHA1 hash of the OCSPResponse structure.
-        headers.put("ETag", StringUtil.concat("\"", HashAlgo.SHA1.hexHash(encodedOcspResp), "\""));
+        // The cached responses carry the precomputed ETag.
+        String etag = cacheInfo.getEtag();
+        if (etag == null) {
+          etag = ResponseCacheInfo.buildEtag(encodedOcspResp);
+        }
+        headers.put("ETag", etag);
 
         // Max age must be in seconds in the cache-control header
         long maxAge;
@@ -205,11 +222,17 @@ class HttpOcspServlet {
         }
 
         if (nextUpdate != null) {
-          maxAge = Math.min(maxAge, (nextUpdate - cacheInfo.getGeneratedAt()) / 1000);
+          maxAge = Math.max(0, Math.min(maxAge, nextUpdate - now));
         }
 
         headers.put("Cache-Control",
             StringUtil.concat("max-age=", Long.toString(maxAge), ",public,no-transform,must-revalidate"));
+
+        // RFC 7232: the cached response of the client is still valid.
+        if (isNotModified(req.getHeader("If-None-Match"), req.getHeader("If-Modified-Since"),
+            etag, cacheInfo.getGeneratedAt())) {
+          return new HttpResponse(HttpStatusCode.SC_NOT_MODIFIED, null, headers, null);
+        }
       } // end if (ocspRespWithCacheInfo)
 
       return new HttpResponse(HttpStatusCode.SC_OK, CT_RESPONSE, headers, encodedOcspResp);
@@ -219,6 +242,48 @@ class HttpOcspServlet {
     }
   } // method doGet
 
+  /**
+   * Checks the conditional request headers as specified in RFC 7232.
+   * @param ifNoneMatch the header If-None-Match, may be null.
+   * @param ifModifiedSince the header If-Modified-Since, may be null.
+   * @param etag the ETag of the current response.
+   * @param lastModified the generation time of the current response, in seconds since epoch.
+   * @return true if the response cached by the client equals the current response.
+   */
+  static boolean isNotModified(String ifNoneMatch, String ifModifiedSince, String etag, long lastModified) {
+    // RFC 7232 3.3: If-Modified-Since is ignored if the request contains If-None-Match.
+    if (ifNoneMatch != null) {
+      for (String tag : ifNoneMatch.split(",")) {
+        tag = tag.trim();
+        // weak comparison
+        if (tag.startsWith("W/")) {
+          tag = tag.substring(2);
+        }
+
+        if ("*".equals(tag) || etag.equals(tag)) {
+          return true;
+        }
+      }
+      return false;
+    }
+
+    if (ifModifiedSince == null) {
+      return false;
+    }
+
+    try {
+      long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toEpochSecond();
+      return lastModified <= since;
+    } catch (DateTimeParseException ex) {
+      // RFC 7232 3.3: ignore invalid date.
+      return false;
+    }
+  } // method isNotModified
+
+  static String formatHttpDate(long epochSecond) {
+    return HTTP_DATE.format(Instant.ofEpochSecond(epochSecond));
+  }
+
   private static byte[] base64Decode(byte[] b64OcspReqBytes) {
     final int len = b64OcspReqBytes.length;
     if (Base64.containsOnlyBase64Chars(b64OcspReqBytes, 0, len)) {
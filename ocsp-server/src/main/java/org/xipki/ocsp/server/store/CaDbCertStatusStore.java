@@ -25,7 +25,9 @@ import org.xipki.util.Base64;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.JSON;
 import org.xipki.util.LogUtil;
+import org.xipki.util.LruCache;
 import org.xipki.util.RandomUtil;
+import org.xipki.util.StringUtil;
 
 import java.math.BigInteger;
 import java.sql.PreparedStatement;
@@ -33,12 +35,16 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -61,10 +67,28 @@ public class CaDbCertStatusStore extends OcspStore {
 
   } // class StoreUpdateService
 
+  private static class CertRow {
+
+    private boolean ignore;
+
+    private String b64CertHash;
+
+    private boolean revoked;
+
+    private int reason;
+
+    private long revTime;
+
+    private long invalTime;
+
+  } // class CertRow
+
   private DataSourceWrapper datasource;
 
   private static final Logger LOG = LoggerFactory.getLogger(CaDbCertStatusStore.class);
 
+  private static final int MAX_SERIALS_PER_QUERY = 100;
+
   private final StoreUpdateService storeUpdateService = new StoreUpdateService();
 
   private final Object lock = new Object();
@@ -79,6 +103,9 @@ public class CaDbCertStatusStore extends OcspStore {
 
   private String sqlCsWithCertHash;
 
+  // SQL to walk the changed certificates, for each page size.
+  private final LruCache<Integer, String> cacheSqlSerials = new LruCache<>(5);
+
   private IssuerFilter issuerFilter;
 
   private final IssuerStore issuerStore = new IssuerStore();
@@ -239,17 +266,8 @@ public class CaDbCertStatusStore extends OcspStore {
         sql = includeRit ? sqlCs : sqlCsNoRit;
       }
 
-      Instant thisUpdate = Instant.now();
-
       ResultSet rs = null;
-
-      boolean unknown = true;
-      boolean ignore = false;
-      String b64CertHash = null;
-      boolean revoked = false;
-      int reason = 0;
-      long revTime = 0;
-      long invalTime = 0;
+      CertRow row = null;
 
       PreparedStatement ps = datasource.prepareStatement(sql);
 
@@ -259,114 +277,195 @@ public class CaDbCertStatusStore extends OcspStore {
         rs = ps.executeQuery();
 
         if (rs.next()) {
-          unknown = false;
-
-          long timeInSec = time.getEpochSecond();
-          if (ignoreNotYetValidCert) {
-            long notBeforeInSec = rs.getLong("NBEFORE");
-            if (notBeforeInSec != 0 && timeInSec < notBeforeInSec) {
-              ignore = true;
-            }
-          }
-
-          if (!ignore && ignoreExpiredCert) {
-            long notAfterInSec = rs.getLong("NAFTER");
-            if (notAfterInSec != 0 && timeInSec > notAfterInSec) {
-              ignore = true;
-            }
-          }
-
-          if (!ignore) {
-            if (includeCertHash) {
-              b64CertHash = rs.getString("SHA1");
-            }
-
-            revoked = rs.getBoolean("REV");
-            if (revoked) {
-              reason = rs.getInt("RR");
-              revTime = rs.getLong("RT");
-              if (includeRit) {
-                invalTime = rs.getLong("RIT");
-              }
-            }
-          }
-        } // end if (rs.next())
+          row = readCertRow(rs, time, includeCertHash, includeRit);
+        }
       } catch (SQLException ex) {
         throw datasource.translate(sql, ex);
       } finally {
         releaseDbResources(ps, rs);
       }
 
-      CertStatusInfo certStatusInfo;
-      if (unknown) {
-        certStatusInfo = CertStatusInfo.getUnknownCertStatusInfo(thisUpdate, null);
-      } else if (ignore) {
-        certStatusInfo = CertStatusInfo.getIgnoreCertStatusInfo(thisUpdate, null);
+      return toCertStatusInfo(issuer, row, inheritCaRevocation);
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
+
+  } // method getCertStatus0
+
+  @Override
+  protected Map<BigInteger, CertStatusInfo> getCertStatuses0(
+      Instant time, RequestIssuer reqIssuer, List<BigInteger> serialNumbers,
+      boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation)
+      throws OcspStoreException {
+    if (!initialized) {
+      throw new OcspStoreException("initialization of CertStore is still in process");
+    }
+
+    IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
+    if (issuer == null) {
+      return null;
+    }
+
+    Map<BigInteger, CertStatusInfo> infos = new HashMap<>();
+
+    // serial numbers in hex, as stored in the column SN
+    Map<String, BigInteger> snMap = new HashMap<>();
+    for (BigInteger serialNumber : serialNumbers) {
+      if (serialNumber.signum() != 1) { // non-positive serial number
+        infos.put(serialNumber, CertStatusInfo.getUnknownCertStatusInfo(Instant.now(), null));
       } else {
-        byte[] certHash = (b64CertHash == null) ? null : Base64.decodeFast(b64CertHash);
-        if (revoked) {
-          Instant invTime = (invalTime == 0 || invalTime == revTime) ? null : Instant.ofEpochSecond(invalTime);
-          CertRevocationInfo revInfo = new CertRevocationInfo(reason, Instant.ofEpochSecond(revTime), invTime);
-          certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(revInfo,
-              certHashAlgo, certHash, thisUpdate, null, null);
-        } else {
-          certStatusInfo = CertStatusInfo.getGoodCertStatusInfo(certHashAlgo, certHash, thisUpdate, null, null);
-        }
+        snMap.put(serialNumber.toString(16), serialNumber);
       }
+    }
 
-      if (includeArchiveCutoff) {
-        if (retentionInterval != 0) {
-          Instant date;
-          // expired certificate remains in status store forever.
-          if (retentionInterval < 0) {
-            date = issuer.getNotBefore();
-          } else {
-            Instant t1 = Instant.now().minus(retentionInterval, ChronoUnit.DAYS);
-            date = issuer.getNotBefore().isAfter(t1) ? issuer.getNotBefore() : t1;
+    Map<String, CertRow> rows = new HashMap<>();
+    List<String> sns = new ArrayList<>(snMap.keySet());
+    try {
+      for (int from = 0; from < sns.size(); from += MAX_SERIALS_PER_QUERY) {
+        List<String> subSns = sns.subList(from, Math.min(sns.size(), from + MAX_SERIALS_PER_QUERY));
+        String sql = DbCertStatusStore.buildSqlWithSerials(StringUtil.concat("SELECT SN,NBEFORE,NAFTER,REV,RR,RT",
+            (includeRit ? ",RIT" : ""), (includeCertHash ? ",SHA1" : ""), " FROM CERT WHERE CA_ID=? AND SN IN "),
+            subSns.size());
+
+        PreparedStatement ps = datasource.prepareStatement(sql);
+        ResultSet rs = null;
+        try {
+          int idx = 1;
+          ps.setInt(idx++, issuer.getId());
+          for (String sn : subSns) {
+            ps.setString(idx++, sn);
           }
 
-          certStatusInfo.setArchiveCutOff(date);
+          rs = ps.executeQuery();
+          while (rs.next()) {
+            rows.put(rs.getString("SN"), readCertRow(rs, time, includeCertHash, includeRit));
+          }
+        } catch (SQLException ex) {
+          throw datasource.translate(sql, ex);
+        } finally {
+          releaseDbResources(ps, rs);
         }
       }
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
 
-      if ((!inheritCaRevocation) || issuer.getRevocationInfo() == null) {
-        return certStatusInfo;
+    for (Map.Entry<String, BigInteger> entry : snMap.entrySet()) {
+      infos.put(entry.getValue(), toCertStatusInfo(issuer, rows.get(entry.getKey()), inheritCaRevocation));
+    }
+    return infos;
+  } // method getCertStatuses0
+
+  private CertRow readCertRow(ResultSet rs, Instant time, boolean includeCertHash, boolean includeRit)
+      throws SQLException {
+    CertRow row = new CertRow();
+
+    long timeInSec = time.getEpochSecond();
+    if (ignoreNotYetValidCert) {
+      long notBeforeInSec = rs.getLong("NBEFORE");
+      if (notBeforeInSec != 0 && timeInSec < notBeforeInSec) {
+        row.ignore = true;
       }
+    }
 
-      CertRevocationInfo caRevInfo = issuer.getRevocationInfo();
-      CertStatus certStatus = certStatusInfo.getCertStatus();
-      boolean replaced = false;
-      if (certStatus == CertStatus.GOOD) {
-        replaced = true;
-      } else if (certStatus == CertStatus.UNKNOWN || certStatus == CertStatus.IGNORE) {
-        if (unknownCertBehaviour == UnknownCertBehaviour.good) {
-          replaced = true;
-        }
-      } else if (certStatus == CertStatus.REVOKED) {
-        if (certStatusInfo.getRevocationInfo().getRevocationTime().isAfter(caRevInfo.getRevocationTime())) {
-          replaced = true;
+    if (!row.ignore && ignoreExpiredCert) {
+      long notAfterInSec = rs.getLong("NAFTER");
+      if (notAfterInSec != 0 && timeInSec > notAfterInSec) {
+        row.ignore = true;
+      }
+    }
+
+    if (!row.ignore) {
+      if (includeCertHash) {
+        row.b64CertHash = rs.getString("SHA1");
+      }
+
+      row.revoked = rs.getBoolean("REV");
+      if (row.revoked) {
+        row.reason = rs.getInt("RR");
+        row.revTime = rs.getLong("RT");
+        if (includeRit) {
+          row.invalTime = rs.getLong("RIT");
         }
       }
+    }
+    return row;
+  } // method readCertRow
+
+  /**
+   * Builds the status of a certificate.
+   * @param row the certificate entry in the database, {@code null} if not found.
+   */
+  private CertStatusInfo toCertStatusInfo(IssuerEntry issuer, CertRow row, boolean inheritCaRevocation) {
+    Instant thisUpdate = Instant.now();
+
+    CertStatusInfo certStatusInfo;
+    if (row == null) {
+      certStatusInfo = CertStatusInfo.getUnknownCertStatusInfo(thisUpdate, null);
+    } else if (row.ignore) {
+      certStatusInfo = CertStatusInfo.getIgnoreCertStatusInfo(thisUpdate, null);
+    } else {
+      byte[] certHash = (row.b64CertHash == null) ? null : Base64.decodeFast(row.b64CertHash);
+      if (row.revoked) {
+        Instant invTime = (row.invalTime == 0 || row.invalTime == row.revTime)
+            ? null : Instant.ofEpochSecond(row.invalTime);
+        CertRevocationInfo revInfo = new CertRevocationInfo(row.reason, Instant.ofEpochSecond(row.revTime), invTime);
+        certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(revInfo,
+            certHashAlgo, certHash, thisUpdate, null, null);
+      } else {
+        certStatusInfo = CertStatusInfo.getGoodCertStatusInfo(certHashAlgo, certHash, thisUpdate, null, null);
+      }
+    }
 
-      if (replaced) {
-        CertRevocationInfo newRevInfo;
-        if (caRevInfo.getReason() == CrlReason.CA_COMPROMISE) {
-          newRevInfo = caRevInfo;
+    if (includeArchiveCutoff) {
+      if (retentionInterval != 0) {
+        Instant date;
+        // expired certificate remains in status store forever.
+        if (retentionInterval < 0) {
+          date = issuer.getNotBefore();
         } else {
-          newRevInfo = new CertRevocationInfo(CrlReason.CA_COMPROMISE,
-              caRevInfo.getRevocationTime(), caRevInfo.getInvalidityTime());
+          Instant t1 = Instant.now().minus(retentionInterval, ChronoUnit.DAYS);
+          date = issuer.getNotBefore().isAfter(t1) ? issuer.getNotBefore() : t1;
         }
-        certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(newRevInfo,
-            certStatusInfo.getCertHashAlgo(), certStatusInfo.getCertHash(),
-            certStatusInfo.getThisUpdate(), certStatusInfo.getNextUpdate(),
-            certStatusInfo.getCertprofile());
+
+        certStatusInfo.setArchiveCutOff(date);
       }
+    }
+
+    if ((!inheritCaRevocation) || issuer.getRevocationInfo() == null) {
       return certStatusInfo;
-    } catch (DataAccessException ex) {
-      throw new OcspStoreException(ex.getMessage(), ex);
     }
 
-  } // method getCertStatus0
+    CertRevocationInfo caRevInfo = issuer.getRevocationInfo();
+    CertStatus certStatus = certStatusInfo.getCertStatus();
+    boolean replaced = false;
+    if (certStatus == CertStatus.GOOD) {
+      replaced = true;
+    } else if (certStatus == CertStatus.UNKNOWN || certStatus == CertStatus.IGNORE) {
+      if (unknownCertBehaviour == UnknownCertBehaviour.good) {
+        replaced = true;
+      }
+    } else if (certStatus == CertStatus.REVOKED) {
+      if (certStatusInfo.getRevocationInfo().getRevocationTime().isAfter(caRevInfo.getRevocationTime())) {
+        replaced = true;
+      }
+    }
+
+    if (replaced) {
+      CertRevocationInfo newRevInfo;
+      if (caRevInfo.getReason() == CrlReason.CA_COMPROMISE) {
+        newRevInfo = caRevInfo;
+      } else {
+        newRevInfo = new CertRevocationInfo(CrlReason.CA_COMPROMISE,
+            caRevInfo.getRevocationTime(), caRevInfo.getInvalidityTime());
+      }
+      certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(newRevInfo,
+          certStatusInfo.getCertHashAlgo(), certStatusInfo.getCertHash(),
+          certStatusInfo.getThisUpdate(), certStatusInfo.getNextUpdate(),
+          certStatusInfo.getCertprofile());
+    }
+    return certStatusInfo;
+  } // method toCertStatusInfo
 
   /**
    * Borrow PreparedStatement.
@@ -436,6 +535,8 @@ public class CaDbCertStatusStore extends OcspStore {
     sqlCsNoRitWithCertHash = datasource.buildSelectFirstSql(1,
         "NBEFORE,NAFTER,REV,RR,RT,SHA1 FROM CERT WHERE CA_ID=? AND SN=?");
 
+    cacheSqlSerials.evictAll();
+
     this.certHashAlgo = HashAlgo.SHA1;
 
     Set<X509Cert> includeIssuers = null;
@@ -485,6 +586,58 @@ public class CaDbCertStatusStore extends OcspStore {
     }
   } // method close
 
+  @Override
+  public Collection<X509Cert> getIssuerCerts() {
+    List<X509Cert> certs = new ArrayList<>(issuerStore.size());
+    for (Integer id : issuerStore.getIds()) {
+      IssuerEntry issuer = issuerStore.getIssuerForId(id);
+      if (issuer != null) {
+        certs.add(issuer.getCert());
+      }
+    }
+    return certs;
+  } // method getIssuerCerts
+
+  @Override
+  public SortedMap<Long, BigInteger> getSerialNumbers(
+      RequestIssuer reqIssuer, long minId, long minLastUpdate, int numEntries)
+      throws OcspStoreException {
+    IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
+    if (issuer == null) {
+      return null;
+    }
+
+    String sql = cacheSqlSerials.get(numEntries);
+    if (sql == null) {
+      sql = datasource.buildSelectFirstSql(numEntries, "ID ASC",
+          "ID,SN FROM CERT WHERE CA_ID=? AND ID>? AND LUPDATE>=?");
+      cacheSqlSerials.put(numEntries, sql);
+    }
+
+    ResultSet rs = null;
+    try {
+      PreparedStatement ps = datasource.prepareStatement(sql);
+      try {
+        ps.setInt(1, issuer.getId());
+        ps.setLong(2, minId);
+        ps.setLong(3, minLastUpdate);
+        rs = ps.executeQuery();
+
+        SortedMap<Long, BigInteger> serials = new TreeMap<>();
+        while (rs.next() && serials.size() < numEntries) {
+          serials.put(rs.getLong("ID"), new BigInteger(rs.getString("SN"), 16));
+        }
+        return serials;
+      } catch (SQLException ex) {
+        throw datasource.translate(sql, ex);
+      } finally {
+        releaseDbResources(ps, rs);
+      }
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
+  } // method getSerialNumbers
+
   @Override
   public boolean knowsIssuer(RequestIssuer reqIssuer) {
     return null != issuerStore.getIssuerForFp(reqIssuer);
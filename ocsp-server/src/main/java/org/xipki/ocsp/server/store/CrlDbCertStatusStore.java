@@ -37,6 +37,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -150,6 +151,14 @@ public class CrlDbCertStatusStore extends DbCertStatusStore {
 
   private Map<String, ?> sourceConf;
 
+  // directory of the status index files, null if the status index is disabled.
+  private File indexDir;
+
+  private final ConcurrentHashMap<Integer, CrlStatusIndex> statusIndexes = new ConcurrentHashMap<>();
+
+  // replaced indexes whose file could not be deleted yet, guarded by itself.
+  private final List<CrlStatusIndex> retiredIndexes = new ArrayList<>();
+
   /**
    * Initialize the store.
    *
@@ -165,6 +174,12 @@ public class CrlDbCertStatusStore extends DbCertStatusStore {
    * <li>ignoreExpiredCrls:
    *   <p>
    *   Whether expired CRLs are ignored, default to true.</li>
+   * <li>statusIndex:
+   *   <p>
+   *   Whether the certificate status is read from memory-mapped index files (in the
+   *   sub-directory .index) instead of the database, default to false. The index files
+   *   are re-built after each import of CRLs. Requests with the certificate hash
+   *   are still answered by querying the database.</li>
    * </ul>
    * @param datasource DataSource.
    */
@@ -210,6 +225,24 @@ public class CrlDbCertStatusStore extends DbCertStatusStore {
     value = getOptionalStrValue(sourceConf, "ignoreExpiredCrls");
     this.ignoreExpiredCrls = StringUtil.isBlank(value) || Boolean.parseBoolean(value);
 
+    value = getOptionalStrValue(sourceConf, "statusIndex");
+    if (Boolean.parseBoolean(value)) {
+      this.indexDir = new File(dir, ".index");
+      try {
+        IoUtil.mkdirs(indexDir);
+      } catch (IOException ex) {
+        throw new OcspStoreException("could not create directory " + indexDir.getPath(), ex);
+      }
+
+      // remove the index files of the last run, they will be re-built.
+      File[] files = indexDir.listFiles();
+      if (files != null) {
+        for (File file : files) {
+          IoUtil.deleteFile(file);
+        }
+      }
+    }
+
     super.datasource = datasource;
 
     value = getOptionalStrValue(sourceConf, "startupDelay");
@@ -323,6 +356,7 @@ public class CrlDbCertStatusStore extends DbCertStatusStore {
           LOG.info("CertStore {} not changed", name);
         }
 
+        boolean rebuildIndex = firstTime || updateMe;
         if (firstTime) {
           super.init(sourceConf, datasource);
           firstTime = false;
@@ -331,6 +365,10 @@ public class CrlDbCertStatusStore extends DbCertStatusStore {
             super.updateIssuerStore(true);
           }
         }
+
+        if (indexDir != null && rebuildIndex) {
+          buildStatusIndexes();
+        }
       } catch (Throwable th) {
         LogUtil.error(LOG, th, "error while executing updateStore()");
       } finally {
@@ -340,6 +378,93 @@ public class CrlDbCertStatusStore extends DbCertStatusStore {
     } // end lock
   } // method updateStore
 
+  @Override
+  CrlStatusIndex getStatusIndex(int issuerId) {
+    if (indexDir == null) {
+      return null;
+    }
+
+    while (true) {
+      CrlStatusIndex index = statusIndexes.get(issuerId);
+      // the index may be replaced and released concurrently, then use the new one.
+      if (index == null || index.retain()) {
+        return index;
+      }
+    }
+  } // method getStatusIndex
+
+  /**
+   * Re-builds the status index of all issuers, and replaces the current ones.
+   */
+  private void buildStatusIndexes() {
+    Set<Integer> issuerIds = getIssuerStore().getIds();
+
+    for (Integer issuerId : issuerIds) {
+      long start = System.currentTimeMillis();
+      File file = new File(indexDir, "issuer-" + issuerId + "-" + start + ".idx");
+      CrlStatusIndex oldIndex;
+      try {
+        CrlStatusIndex index = CrlStatusIndex.build(datasource, issuerId, file);
+        oldIndex = statusIndexes.put(issuerId, index);
+        LOG.info("built status index of issuer {} in store {} with {} certificates in {} ms",
+            issuerId, name, index.size(), System.currentTimeMillis() - start);
+      } catch (Exception ex) {
+        // the current index may be outdated, use the database instead.
+        oldIndex = statusIndexes.remove(issuerId);
+        IoUtil.deleteFile(file);
+        LogUtil.error(LOG, ex, "could not build status index of issuer " + issuerId + " in store " + name);
+      }
+
+      if (oldIndex != null) {
+        retire(oldIndex);
+      }
+    }
+
+    // remove the index of removed issuers
+    for (Integer issuerId : new ArrayList<>(statusIndexes.keySet())) {
+      if (!issuerIds.contains(issuerId)) {
+        CrlStatusIndex oldIndex = statusIndexes.remove(issuerId);
+        if (oldIndex != null) {
+          retire(oldIndex);
+        }
+      }
+    }
+
+    deleteRetiredIndexes();
+  } // method buildStatusIndexes
+
+  /**
+   * Releases the reference of the store to the replaced index. Its file is deleted after the
+   * running lookups have released it, or on one of the next swaps if it is still mapped.
+   */
+  private void retire(CrlStatusIndex index) {
+    index.release();
+    synchronized (retiredIndexes) {
+      retiredIndexes.add(index);
+    }
+  } // method retire
+
+  private void deleteRetiredIndexes() {
+    synchronized (retiredIndexes) {
+      retiredIndexes.removeIf(index -> index.isReleased() && index.deleteFile());
+      if (!retiredIndexes.isEmpty()) {
+        LOG.info("{} replaced status index files in store {} are not deleted yet", retiredIndexes.size(), name);
+      }
+    }
+  } // method deleteRetiredIndexes
+
+  @Override
+  public void close() {
+    super.close();
+
+    for (CrlStatusIndex index : statusIndexes.values()) {
+      retire(index);
+    }
+    statusIndexes.clear();
+    // the remaining files are deleted by the next start.
+    deleteRetiredIndexes();
+  }
+
   // Download CRL
   private void downloadCrl(File subDir) throws Exception {
     if (new File(subDir, "REMOVEME").exists()) {
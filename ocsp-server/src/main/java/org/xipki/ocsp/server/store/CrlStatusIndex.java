@@ -0,0 +1,598 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.xipki.datasource.DataAccessException;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Read-only, memory-mapped index of the certificate status of one issuer, built from the
+ * table CERT after the import of a CRL.
+ * <p>
+ * The index file consists of a header followed by fixed-size records sorted by the serial
+ * number, so that a certificate can be found by binary search without accessing the database.
+ * <pre>
+ * header: MAGIC (4) | VERSION (4) | ISSUER_ID (4) | SERIAL_LEN (4) | NUM_RECORDS (8) | CREATED (8)
+ * record: SERIAL (SERIAL_LEN, unsigned, left padded) | REV (1) | RR (1) | CRL_ID (4) |
+ *         RT (8) | RIT (8) | NBEFORE (8) | NAFTER (8)
+ * </pre>
+ * The records are sorted in runs of limited size which are spilled to temporary files and then
+ * merged, so that the memory used to build the index does not depend on the number of
+ * certificates. The file is mapped in segments of at most 1 GiB.
+ * <p>
+ * The index is reference counted: the store holds one reference until the index is replaced,
+ * and each lookup holds one between {@link #retain()} and {@link #release()}. The file is
+ * deleted when the last reference is released, since a mapped file cannot be deleted on
+ * all platforms.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+
+class CrlStatusIndex {
+
+  private static class Entry {
+
+    private final byte[] serial;
+
+    private boolean revoked;
+
+    private int reason;
+
+    private int crlId;
+
+    private long revTime;
+
+    private long invalTime;
+
+    private long notBefore;
+
+    private long notAfter;
+
+    Entry(byte[] serial) {
+      this.serial = serial;
+    }
+
+    void writeFields(DataOutputStream out) throws IOException {
+      out.write(revoked ? 1 : 0);
+      out.write(reason);
+      out.writeInt(crlId);
+      out.writeLong(revTime);
+      out.writeLong(invalTime);
+      out.writeLong(notBefore);
+      out.writeLong(notAfter);
+    }
+
+    static Entry read(DataInputStream in) throws IOException {
+      int len;
+      try {
+        len = in.readUnsignedByte();
+      } catch (EOFException ex) {
+        return null;
+      }
+
+      byte[] serial = new byte[len];
+      in.readFully(serial);
+      Entry entry = new Entry(serial);
+      entry.revoked = in.readByte() != 0;
+      entry.reason = in.readUnsignedByte();
+      entry.crlId = in.readInt();
+      entry.revTime = in.readLong();
+      entry.invalTime = in.readLong();
+      entry.notBefore = in.readLong();
+      entry.notAfter = in.readLong();
+      return entry;
+    }
+
+  } // class Entry
+
+  /**
+   * Reader of a sorted run.
+   */
+  private static class RunReader implements Closeable {
+
+    private final DataInputStream in;
+
+    private Entry current;
+
+    RunReader(File file) throws IOException {
+      this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+      this.current = Entry.read(in);
+    }
+
+    Entry next() throws IOException {
+      Entry entry = current;
+      current = Entry.read(in);
+      return entry;
+    }
+
+    @Override
+    public void close() throws IOException {
+      in.close();
+    }
+
+  } // class RunReader
+
+  /**
+   * Builder of the index file.
+   */
+  static class Builder {
+
+    private final int issuerId;
+
+    private final File file;
+
+    private final int runSize;
+
+    private final int maxSegmentSize;
+
+    private final List<Entry> run;
+
+    private final List<File> runFiles = new ArrayList<>();
+
+    private int serialLen = 1;
+
+    private long numRecords;
+
+    Builder(int issuerId, File file) {
+      this(issuerId, file, RUN_SIZE, MAX_SEGMENT_SIZE);
+    }
+
+    Builder(int issuerId, File file, int runSize, int maxSegmentSize) {
+      this.issuerId = issuerId;
+      this.file = Args.notNull(file, "file");
+      this.runSize = Args.positive(runSize, "runSize");
+      this.maxSegmentSize = maxSegmentSize;
+      this.run = new ArrayList<>(Math.min(runSize, 1024));
+    }
+
+    void add(BigInteger serialNumber, boolean revoked, int reason, int crlId, long revTime,
+             long invalTime, long notBefore, long notAfter) throws IOException {
+      byte[] serial = toUnsignedBytes(serialNumber);
+      if (serial.length > 255) {
+        throw new IOException("serial number too long");
+      }
+      serialLen = Math.max(serialLen, serial.length);
+
+      Entry entry = new Entry(serial);
+      entry.revoked = revoked;
+      entry.reason = reason;
+      entry.crlId = crlId;
+      entry.revTime = revTime;
+      entry.invalTime = invalTime;
+      entry.notBefore = notBefore;
+      entry.notAfter = notAfter;
+
+      run.add(entry);
+      numRecords++;
+      if (run.size() >= runSize) {
+        spillRun();
+      }
+    } // method add
+
+    /**
+     * Writes the index file and opens it.
+     * @return the index.
+     * @throws IOException if the index file could not be written or read.
+     */
+    CrlStatusIndex build() throws IOException {
+      File tmpFile = new File(file.getPath() + ".tmp");
+      boolean succ = false;
+      try {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+            Files.newOutputStream(tmpFile.toPath())))) {
+          out.writeInt(MAGIC);
+          out.writeInt(VERSION);
+          out.writeInt(issuerId);
+          out.writeInt(serialLen);
+          out.writeLong(numRecords);
+          out.writeLong(System.currentTimeMillis());
+
+          if (runFiles.isEmpty()) {
+            run.sort(CrlStatusIndex::compare);
+            for (Entry entry : run) {
+              writeRecord(out, entry);
+            }
+          } else {
+            if (!run.isEmpty()) {
+              spillRun();
+            }
+            merge(out);
+          }
+        }
+
+        Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        succ = true;
+      } finally {
+        abort();
+        if (!succ) {
+          IoUtil.deleteFile(tmpFile);
+        }
+      }
+
+      return new CrlStatusIndex(file, maxSegmentSize);
+    } // method build
+
+    /**
+     * Releases the collected entries and deletes the temporary files.
+     */
+    void abort() {
+      run.clear();
+      for (File runFile : runFiles) {
+        IoUtil.deleteFile(runFile);
+      }
+      runFiles.clear();
+    } // method abort
+
+    private void spillRun() throws IOException {
+      run.sort(CrlStatusIndex::compare);
+      File runFile = new File(file.getPath() + ".run" + runFiles.size());
+      runFiles.add(runFile);
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+          Files.newOutputStream(runFile.toPath())))) {
+        for (Entry entry : run) {
+          out.write(entry.serial.length);
+          out.write(entry.serial);
+          entry.writeFields(out);
+        }
+      }
+      run.clear();
+    } // method spillRun
+
+    private void merge(DataOutputStream out) throws IOException {
+      PriorityQueue<RunReader> queue = new PriorityQueue<>(runFiles.size(),
+          (a, b) -> compare(a.current, b.current));
+      List<RunReader> readers = new ArrayList<>(runFiles.size());
+      try {
+        for (File runFile : runFiles) {
+          RunReader reader = new RunReader(runFile);
+          readers.add(reader);
+          if (reader.current != null) {
+            queue.add(reader);
+          }
+        }
+
+        while (!queue.isEmpty()) {
+          RunReader reader = queue.poll();
+          writeRecord(out, reader.next());
+          if (reader.current != null) {
+            queue.add(reader);
+          }
+        }
+      } finally {
+        for (RunReader reader : readers) {
+          reader.close();
+        }
+      }
+    } // method merge
+
+    private void writeRecord(DataOutputStream out, Entry entry) throws IOException {
+      for (int i = entry.serial.length; i < serialLen; i++) {
+        out.write(0);
+      }
+      out.write(entry.serial);
+      entry.writeFields(out);
+    } // method writeRecord
+
+  } // class Builder
+
+  private static final int MAGIC = 0x58435349; // XCSI
+
+  private static final int VERSION = 1;
+
+  private static final int HEADER_LEN = 32;
+
+  // REV, RR, CRL_ID, RT, RIT, NBEFORE, NAFTER
+  private static final int FIELDS_LEN = 1 + 1 + 4 + 8 + 8 + 8 + 8;
+
+  private static final int RUN_SIZE = 100_000;
+
+  private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+  private static final String SQL_CERTS = "SELECT SN,REV,RR,RT,RIT,CRL_ID,NBEFORE,NAFTER FROM CERT WHERE IID=?";
+
+  private final File file;
+
+  /**
+   * The records, each segment contains recordsPerSegment records (the last one may contain less).
+   */
+  private final MappedByteBuffer[] segments;
+
+  private final int recordsPerSegment;
+
+  private final int serialLen;
+
+  private final int recordLen;
+
+  private final long size;
+
+  // the reference of the store and those of the running lookups.
+  private final AtomicInteger refCount = new AtomicInteger(1);
+
+  private CrlStatusIndex(File file, int maxSegmentSize) throws IOException {
+    this.file = file;
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long fileSize = channel.size();
+      if (fileSize < HEADER_LEN) {
+        throw new IOException("invalid size of index file " + file.getPath());
+      }
+
+      ByteBuffer header = ByteBuffer.allocate(HEADER_LEN);
+      while (header.hasRemaining()) {
+        if (channel.read(header, header.position()) == -1) {
+          throw new IOException("invalid header of index file " + file.getPath());
+        }
+      }
+
+      if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+        throw new IOException("invalid header of index file " + file.getPath());
+      }
+
+      this.serialLen = header.getInt(12);
+      this.recordLen = serialLen + FIELDS_LEN;
+      this.size = header.getLong(16);
+      if (size < 0 || HEADER_LEN + size * recordLen != fileSize) {
+        throw new IOException("invalid number of records in index file " + file.getPath());
+      }
+
+      this.recordsPerSegment = Math.max(1, maxSegmentSize / recordLen);
+      int numSegments = (int) ((size + recordsPerSegment - 1) / recordsPerSegment);
+      this.segments = new MappedByteBuffer[numSegments];
+      for (int i = 0; i < numSegments; i++) {
+        long firstRecord = (long) i * recordsPerSegment;
+        long numRecords = Math.min(recordsPerSegment, size - firstRecord);
+        // the mapping remains valid after the channel is closed.
+        segments[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+            HEADER_LEN + firstRecord * recordLen, numRecords * recordLen);
+      }
+    }
+  } // constructor
+
+  /**
+   * Builds the index of the given issuer from the table CERT, and opens it.
+   *
+   * @param datasource the datasource.
+   * @param issuerId ID of the issuer in the table ISSUER.
+   * @param file the index file. Will be overwritten if exists.
+   * @return the index.
+   * @throws DataAccessException if database error occurs.
+   * @throws IOException if the index file could not be written or read.
+   */
+  static CrlStatusIndex build(DataSourceWrapper datasource, int issuerId, File file)
+      throws DataAccessException, IOException {
+    Args.notNull(datasource, "datasource");
+    Builder builder = new Builder(issuerId, file);
+
+    PreparedStatement ps = datasource.prepareStatement(SQL_CERTS);
+    ResultSet rs = null;
+    boolean succ = false;
+    try {
+      ps.setInt(1, issuerId);
+      rs = ps.executeQuery();
+      while (rs.next()) {
+        boolean revoked = rs.getBoolean("REV");
+        builder.add(new BigInteger(rs.getString("SN"), 16), revoked,
+            revoked ? rs.getInt("RR") : 0, rs.getInt("CRL_ID"),
+            revoked ? rs.getLong("RT") : 0, revoked ? rs.getLong("RIT") : 0,
+            rs.getLong("NBEFORE"), rs.getLong("NAFTER"));
+      }
+      succ = true;
+    } catch (SQLException ex) {
+      throw datasource.translate(SQL_CERTS, ex);
+    } finally {
+      datasource.releaseResources(ps, rs);
+      if (!succ) {
+        builder.abort();
+      }
+    }
+
+    return builder.build();
+  } // method build
+
+  long size() {
+    return size;
+  }
+
+  /**
+   * Finds the record of the given serial number. No object is allocated.
+   * @param serialNumber the serial number, must be positive.
+   * @return index of the record, or -1 if not found.
+   */
+  long find(BigInteger serialNumber) {
+    if (serialNumber.bitLength() > serialLen * 8) {
+      return -1;
+    }
+
+    long low = 0;
+    long high = size - 1;
+    while (low <= high) {
+      long mid = (low + high) >>> 1;
+      int cmp = compareRecord(mid, serialNumber);
+      if (cmp < 0) {
+        low = mid + 1;
+      } else if (cmp > 0) {
+        high = mid - 1;
+      } else {
+        return mid;
+      }
+    }
+    return -1;
+  } // method find
+
+  boolean isRevoked(long record) {
+    return segment(record).get(fieldsOffset(record)) != 0;
+  }
+
+  int getReason(long record) {
+    return segment(record).get(fieldsOffset(record) + 1) & 0xFF;
+  }
+
+  int getCrlId(long record) {
+    return segment(record).getInt(fieldsOffset(record) + 2);
+  }
+
+  long getRevTime(long record) {
+    return segment(record).getLong(fieldsOffset(record) + 6);
+  }
+
+  long getInvalTime(long record) {
+    return segment(record).getLong(fieldsOffset(record) + 14);
+  }
+
+  long getNotBefore(long record) {
+    return segment(record).getLong(fieldsOffset(record) + 22);
+  }
+
+  long getNotAfter(long record) {
+    return segment(record).getLong(fieldsOffset(record) + 30);
+  }
+
+  /**
+   * Acquires a reference for a lookup.
+   * @return {@code false} if the index has already been released by all holders.
+   */
+  boolean retain() {
+    while (true) {
+      int count = refCount.get();
+      if (count == 0) {
+        return false;
+      }
+
+      if (refCount.compareAndSet(count, count + 1)) {
+        return true;
+      }
+    }
+  } // method retain
+
+  /**
+   * Releases a reference. After the last one, the segments are dropped and the file is deleted.
+   */
+  void release() {
+    if (refCount.decrementAndGet() == 0) {
+      // the mapping is removed when the segments are garbage collected.
+      Arrays.fill(segments, null);
+      deleteFile();
+    }
+  } // method release
+
+  boolean isReleased() {
+    return refCount.get() == 0;
+  }
+
+  /**
+   * Deletes the index file.
+   * @return whether the file does not exist any more. On some platforms (e.g. Windows), a file
+   *         cannot be deleted while it is still mapped.
+   */
+  boolean deleteFile() {
+    return IoUtil.deleteFile(file);
+  }
+
+  File getFile() {
+    return file;
+  }
+
+  private MappedByteBuffer segment(long record) {
+    return segments[(int) (record / recordsPerSegment)];
+  }
+
+  private int recordOffset(long record) {
+    return (int) (record % recordsPerSegment) * recordLen;
+  }
+
+  private int fieldsOffset(long record) {
+    return recordOffset(record) + serialLen;
+  }
+
+  /**
+   * Compares the serial number of the record with the given serial number.
+   */
+  private int compareRecord(long record, BigInteger serialNumber) {
+    // Only absolute get methods are used, so the buffer can be shared by all threads.
+    MappedByteBuffer segment = segment(record);
+    int offset = recordOffset(record);
+    for (int i = 0; i < serialLen; i++) {
+      int a = segment.get(offset + i) & 0xFF;
+      int b = byteAt(serialNumber, serialLen - 1 - i);
+      if (a != b) {
+        return a - b;
+      }
+    }
+    return 0;
+  } // method compareRecord
+
+  /**
+   * Returns the byte of the positive number, index 0 is the least significant byte.
+   * Unlike {@link BigInteger#toByteArray()}, {@link BigInteger#testBit(int)} does not allocate.
+   */
+  private static int byteAt(BigInteger number, int index) {
+    int bit = index << 3;
+    if (bit >= number.bitLength()) {
+      return 0;
+    }
+
+    int b = 0;
+    for (int i = 7; i >= 0; i--) {
+      b = (b << 1) | (number.testBit(bit + i) ? 1 : 0);
+    }
+    return b;
+  } // method byteAt
+
+  // serial numbers with fewer bytes are smaller.
+  private static int compare(Entry a, Entry b) {
+    return compare(a.serial, b.serial);
+  }
+
+  private static int compare(byte[] a, byte[] b) {
+    if (a.length != b.length) {
+      return a.length - b.length;
+    }
+
+    for (int i = 0; i < a.length; i++) {
+      int d = (a[i] & 0xFF) - (b[i] & 0xFF);
+      if (d != 0) {
+        return d;
+      }
+    }
+    return 0;
+  } // method compare
+
+  private static byte[] toUnsignedBytes(BigInteger serialNumber) {
+    byte[] bytes = serialNumber.toByteArray();
+    if (bytes.length > 1 && bytes[0] == 0) {
+      byte[] tmp = new byte[bytes.length - 1];
+      System.arraycopy(bytes, 1, tmp, 0, tmp.length);
+      return tmp;
+    }
+    return bytes;
+  } // method toUnsignedBytes
+
+}
@@ -25,6 +25,7 @@ import org.xipki.util.Base64;
 import org.xipki.util.CollectionUtil;
 import org.xipki.util.JSON;
 import org.xipki.util.LogUtil;
+import org.xipki.util.LruCache;
 import org.xipki.util.RandomUtil;
 import org.xipki.util.StringUtil;
 
@@ -38,6 +39,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -47,6 +49,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -69,12 +73,32 @@ public class DbCertStatusStore extends OcspStore {
 
   } // class StoreUpdateService
 
+  private static class CertRow {
+
+    private int crlId;
+
+    private boolean ignore;
+
+    private byte[] certHash;
+
+    private boolean revoked;
+
+    private int reason;
+
+    private long revTime;
+
+    private long invalTime;
+
+  } // class CertRow
+
   protected DataSourceWrapper datasource;
 
   private static final Logger LOG = LoggerFactory.getLogger(DbCertStatusStore.class);
 
   private static final int SECONDS_PER_5MIN = 300;
 
+  private static final int MAX_SERIALS_PER_QUERY = 100;
+
   private final Object lock = new Object();
 
   private final AtomicBoolean storeUpdateInProcess = new AtomicBoolean(false);
@@ -89,12 +113,18 @@ public class DbCertStatusStore extends OcspStore {
 
   private String sqlCsWithCertHash;
 
+  // SQL to walk the changed certificates, for each page size.
+  private final LruCache<Integer, String> cacheSqlSerials = new LruCache<>(5);
+
   private IssuerFilter issuerFilter;
 
   private final IssuerStore issuerStore = new IssuerStore();
 
   private HashAlgo certHashAlgo;
 
+  // whether the column CERT.HASH is of binary type.
+  private boolean binaryCertHash;
+
   private boolean initialized;
 
   private ScheduledThreadPoolExecutor scheduledThreadPoolExecutor;
@@ -282,8 +312,6 @@ public class DbCertStatusStore extends OcspStore {
       throw new OcspStoreException("initialization of CertStore is still in process");
     }
 
-    String sql;
-
     try {
       IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
       if (issuer == null) {
@@ -294,14 +322,23 @@ public class DbCertStatusStore extends OcspStore {
       if (issuer.getCrlId() != 0) {
         crlInfo = issuerStore.getCrlInfo(issuer.getCrlId());
         // check whether CRL is expired
-        if (isIgnoreExpiredCrls()) {
-          // CRL will expire in 5 minutes
-          if (crlInfo.getNextUpdate().getEpochSecond() < time.getEpochSecond() + SECONDS_PER_5MIN) {
-            return CertStatusInfo.getCrlExpiredStatusInfo();
-          }
+        if (isCrlExpired(crlInfo, time)) {
+          return CertStatusInfo.getCrlExpiredStatusInfo();
         }
       }
 
+      // the index does not contain the certificate hash.
+      CrlStatusIndex index = includeCertHash ? null : getStatusIndex(issuer.getId());
+      if (index != null) {
+        try {
+          return toCertStatusInfo(issuer, crlInfo,
+              readCertRow(index, serialNumber, time, includeRit), time, inheritCaRevocation);
+        } finally {
+          index.release();
+        }
+      }
+
+      String sql;
       if (includeCertHash) {
         sql = includeRit ? sqlCsWithCertHash : sqlCsNoRitWithCertHash;
       } else {
@@ -309,16 +346,7 @@ public class DbCertStatusStore extends OcspStore {
       }
 
       ResultSet rs = null;
-      CertStatusInfo certStatusInfo;
-
-      boolean unknown = true;
-      boolean ignore = false;
-      String b64CertHash = null;
-      boolean revoked = false;
-      int reason = 0;
-      long revTime = 0;
-      long invalTime = 0;
-      int crlId = 0;
+      CertRow row = null;
 
       PreparedStatement ps = datasource.prepareStatement(sql);
 
@@ -328,140 +356,319 @@ public class DbCertStatusStore extends OcspStore {
         rs = ps.executeQuery();
 
         if (rs.next()) {
-          unknown = false;
-          crlId = rs.getInt("CRL_ID");
-
-          long timeInSec = time.getEpochSecond();
-          if (ignoreNotYetValidCert) {
-            long notBeforeInSec = rs.getLong("NBEFORE");
-            if (notBeforeInSec != 0 && timeInSec < notBeforeInSec) {
-              ignore = true;
-            }
-          }
-
-          if (!ignore && ignoreExpiredCert) {
-            long notAfterInSec = rs.getLong("NAFTER");
-            if (notAfterInSec != 0 && timeInSec > notAfterInSec) {
-              ignore = true;
-            }
-          }
-
-          if (!ignore) {
-            if (includeCertHash) {
-              b64CertHash = rs.getString("HASH");
-            }
-
-            revoked = rs.getBoolean("REV");
-            if (revoked) {
-              reason = rs.getInt("RR");
-              revTime = rs.getLong("RT");
-              if (includeRit) {
-                invalTime = rs.getLong("RIT");
-              }
-            }
-          }
-        } // end if (rs.next())
+          row = readCertRow(rs, time, includeCertHash, includeRit);
+        }
       } catch (SQLException ex) {
         throw datasource.translate(sql, ex);
       } finally {
         releaseDbResources(ps, rs);
       }
 
-      if (crlId == 0) {
-        crlId = issuer.getCrlId();
-      }
+      return toCertStatusInfo(issuer, crlInfo, row, time, inheritCaRevocation);
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
+
+  } // method getCertStatus0
 
-      if (crlInfo == null && crlId != 0) {
-        crlInfo = issuerStore.getCrlInfo(crlId);
+  @Override
+  protected Map<BigInteger, CertStatusInfo> getCertStatuses0(
+      Instant time, RequestIssuer reqIssuer, List<BigInteger> serialNumbers,
+      boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation)
+      throws OcspStoreException {
+    if (!initialized) {
+      throw new OcspStoreException("initialization of CertStore is still in process");
+    }
+
+    IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
+    if (issuer == null) {
+      return null;
+    }
+
+    Map<BigInteger, CertStatusInfo> infos = new HashMap<>();
+
+    CrlInfo crlInfo = null;
+    if (issuer.getCrlId() != 0) {
+      crlInfo = issuerStore.getCrlInfo(issuer.getCrlId());
+      // check whether CRL is expired
+      if (isCrlExpired(crlInfo, time)) {
+        for (BigInteger serialNumber : serialNumbers) {
+          infos.put(serialNumber, CertStatusInfo.getCrlExpiredStatusInfo());
+        }
+        return infos;
       }
+    }
 
-      Instant thisUpdate;
-      Instant nextUpdate;
-      if (crlInfo == null) {
-        thisUpdate = Instant.now();
-        nextUpdate = null;
+    // serial numbers in hex, as stored in the column SN
+    Map<String, BigInteger> snMap = new HashMap<>();
+    for (BigInteger serialNumber : serialNumbers) {
+      if (serialNumber.signum() != 1) { // non-positive serial number
+        infos.put(serialNumber, CertStatusInfo.getUnknownCertStatusInfo(Instant.now(), null));
       } else {
-        thisUpdate = crlInfo.getThisUpdate();
-        nextUpdate = crlInfo.getNextUpdate();
+        snMap.put(serialNumber.toString(16), serialNumber);
+      }
+    }
+
+    CrlStatusIndex index = includeCertHash ? null : getStatusIndex(issuer.getId());
+    if (index != null) {
+      try {
+        for (BigInteger serialNumber : snMap.values()) {
+          infos.put(serialNumber, toCertStatusInfo(issuer, crlInfo,
+              readCertRow(index, serialNumber, time, includeRit), time, inheritCaRevocation));
+        }
+      } finally {
+        index.release();
+      }
+      return infos;
+    }
+
+    Map<String, CertRow> rows = new HashMap<>();
+    List<String> sns = new ArrayList<>(snMap.keySet());
+    try {
+      for (int from = 0; from < sns.size(); from += MAX_SERIALS_PER_QUERY) {
+        List<String> subSns = sns.subList(from, Math.min(sns.size(), from + MAX_SERIALS_PER_QUERY));
+        String sql = buildSqlWithSerials(StringUtil.concat("SELECT SN,NBEFORE,NAFTER,REV,RR,RT,CRL_ID",
+            (includeRit ? ",RIT" : ""), (includeCertHash ? ",HASH" : ""), " FROM CERT WHERE IID=? AND SN IN "),
+            subSns.size());
+
+        PreparedStatement ps = datasource.prepareStatement(sql);
+        ResultSet rs = null;
+        try {
+          int idx = 1;
+          ps.setInt(idx++, issuer.getId());
+          for (String sn : subSns) {
+            ps.setString(idx++, sn);
+          }
 
-        if (isIgnoreExpiredCrls()) {
-          // CRL will expire in 5 minutes
-          if (crlInfo.getNextUpdate().getEpochSecond() < time.getEpochSecond() + SECONDS_PER_5MIN) {
-            return CertStatusInfo.getCrlExpiredStatusInfo();
+          rs = ps.executeQuery();
+          while (rs.next()) {
+            rows.put(rs.getString("SN"), readCertRow(rs, time, includeCertHash, includeRit));
           }
+        } catch (SQLException ex) {
+          throw datasource.translate(sql, ex);
+        } finally {
+          releaseDbResources(ps, rs);
         }
       }
 
-      if (unknown) {
-        certStatusInfo = CertStatusInfo.getUnknownCertStatusInfo(thisUpdate, nextUpdate);
-      } else if (ignore) {
-        certStatusInfo = CertStatusInfo.getIgnoreCertStatusInfo(thisUpdate, nextUpdate);
-      } else {
-        byte[] certHash = (b64CertHash == null) ? null : Base64.decodeFast(b64CertHash);
-        if (revoked) {
-          Instant invTime = (invalTime == 0 || invalTime == revTime) ? null : Instant.ofEpochSecond(invalTime);
-          CertRevocationInfo revInfo = new CertRevocationInfo(reason, Instant.ofEpochSecond(revTime), invTime);
-          certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(revInfo,
-              certHashAlgo, certHash, thisUpdate, nextUpdate, null);
+      for (Map.Entry<String, BigInteger> entry : snMap.entrySet()) {
+        infos.put(entry.getValue(),
+            toCertStatusInfo(issuer, crlInfo, rows.get(entry.getKey()), time, inheritCaRevocation));
+      }
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
+
+    return infos;
+  } // method getCertStatuses0
+
+  /**
+   * Appends the placeholders (?,?,...,?) for the serial numbers to the given SQL prefix.
+   */
+  static String buildSqlWithSerials(String sqlPrefix, int numSerials) {
+    StringBuilder sb = new StringBuilder(sqlPrefix.length() + 2 * numSerials + 1);
+    sb.append(sqlPrefix).append("(");
+    for (int i = 0; i < numSerials; i++) {
+      sb.append(i == 0 ? "?" : ",?");
+    }
+    return sb.append(")").toString();
+  }
+
+  /**
+   * Returns the in-memory index of the certificate status of the given issuer. The caller must
+   * release the returned index with {@link CrlStatusIndex#release()} after the lookup.
+   * @param issuerId ID of the issuer.
+   * @return the retained index, or {@code null} if the database has to be queried.
+   */
+  CrlStatusIndex getStatusIndex(int issuerId) {
+    return null;
+  }
+
+  private boolean isCrlExpired(CrlInfo crlInfo, Instant time) {
+    // CRL will expire in 5 minutes
+    return isIgnoreExpiredCrls() && crlInfo != null
+        && crlInfo.getNextUpdate().getEpochSecond() < time.getEpochSecond() + SECONDS_PER_5MIN;
+  }
+
+  private CertRow readCertRow(ResultSet rs, Instant time, boolean includeCertHash, boolean includeRit)
+      throws SQLException {
+    CertRow row = new CertRow();
+    row.crlId = rs.getInt("CRL_ID");
+
+    long timeInSec = time.getEpochSecond();
+    if (ignoreNotYetValidCert) {
+      long notBeforeInSec = rs.getLong("NBEFORE");
+      if (notBeforeInSec != 0 && timeInSec < notBeforeInSec) {
+        row.ignore = true;
+      }
+    }
+
+    if (!row.ignore && ignoreExpiredCert) {
+      long notAfterInSec = rs.getLong("NAFTER");
+      if (notAfterInSec != 0 && timeInSec > notAfterInSec) {
+        row.ignore = true;
+      }
+    }
+
+    if (!row.ignore) {
+      if (includeCertHash) {
+        if (binaryCertHash) {
+          row.certHash = rs.getBytes("HASH");
         } else {
-          certStatusInfo = CertStatusInfo.getGoodCertStatusInfo(certHashAlgo, certHash, thisUpdate, nextUpdate, null);
+          String b64CertHash = rs.getString("HASH");
+          row.certHash = (b64CertHash == null) ? null : Base64.decodeFast(b64CertHash);
         }
       }
 
-      if (includeCrlId && crlInfo != null) {
-        certStatusInfo.setCrlId(crlInfo.getCrlId());
+      row.revoked = rs.getBoolean("REV");
+      if (row.revoked) {
+        row.reason = rs.getInt("RR");
+        row.revTime = rs.getLong("RT");
+        if (includeRit) {
+          row.invalTime = rs.getLong("RIT");
+        }
       }
+    }
+    return row;
+  } // method readCertRow
 
-      if (includeArchiveCutoff) {
-        if (retentionInterval != 0) {
-          Instant date;
+  /**
+   * Reads the certificate entry from the index.
+   * @return the certificate entry, {@code null} if not found.
+   */
+  private CertRow readCertRow(CrlStatusIndex index, BigInteger serialNumber, Instant time, boolean includeRit) {
+    long record = index.find(serialNumber);
+    if (record == -1) {
+      return null;
+    }
 
-          if (retentionInterval < 0) {
-            date = issuer.getNotBefore(); // expired certificate remains in status store forever
-          } else {
-            Instant t1 = Instant.now().minus(retentionInterval, ChronoUnit.DAYS);
-            date = issuer.getNotBefore().isBefore(t1) ? issuer.getNotBefore() : t1;
-          }
+    CertRow row = new CertRow();
+    row.crlId = index.getCrlId(record);
 
-          certStatusInfo.setArchiveCutOff(date);
-        }
+    long timeInSec = time.getEpochSecond();
+    if (ignoreNotYetValidCert) {
+      long notBeforeInSec = index.getNotBefore(record);
+      if (notBeforeInSec != 0 && timeInSec < notBeforeInSec) {
+        row.ignore = true;
       }
+    }
 
-      if ((!inheritCaRevocation) || issuer.getRevocationInfo() == null) {
-        return certStatusInfo;
+    if (!row.ignore && ignoreExpiredCert) {
+      long notAfterInSec = index.getNotAfter(record);
+      if (notAfterInSec != 0 && timeInSec > notAfterInSec) {
+        row.ignore = true;
       }
+    }
 
-      CertRevocationInfo caRevInfo = issuer.getRevocationInfo();
-      CertStatus certStatus = certStatusInfo.getCertStatus();
-      boolean replaced = false;
-      if (certStatus == CertStatus.GOOD) {
-        replaced = true;
-      } else if (certStatus == CertStatus.UNKNOWN || certStatus == CertStatus.IGNORE) {
-        if (unknownCertBehaviour == UnknownCertBehaviour.good) {
-          replaced = true;
-        }
-      } else if (certStatus == CertStatus.REVOKED) {
-        if (certStatusInfo.getRevocationInfo().getRevocationTime().isAfter(caRevInfo.getRevocationTime())) {
-          replaced = true;
+    if (!row.ignore) {
+      row.revoked = index.isRevoked(record);
+      if (row.revoked) {
+        row.reason = index.getReason(record);
+        row.revTime = index.getRevTime(record);
+        if (includeRit) {
+          row.invalTime = index.getInvalTime(record);
         }
       }
+    }
+    return row;
+  } // method readCertRow
 
-      if (replaced) {
-        CertRevocationInfo newRevInfo = (caRevInfo.getReason() == CrlReason.CA_COMPROMISE)
-            ? caRevInfo
-            : new CertRevocationInfo(CrlReason.CA_COMPROMISE, caRevInfo.getRevocationTime(),
-                  caRevInfo.getInvalidityTime());
+  /**
+   * Builds the status of a certificate.
+   * @param row the certificate entry in the database, {@code null} if not found.
+   */
+  private CertStatusInfo toCertStatusInfo(IssuerEntry issuer, CrlInfo crlInfo, CertRow row,
+                                          Instant time, boolean inheritCaRevocation) {
+    int crlId = (row == null) ? 0 : row.crlId;
+    if (crlId == 0) {
+      crlId = issuer.getCrlId();
+    }
+
+    if (crlInfo == null && crlId != 0) {
+      crlInfo = issuerStore.getCrlInfo(crlId);
+    }
 
-        certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(newRevInfo,
-            certStatusInfo.getCertHashAlgo(), certStatusInfo.getCertHash(),
-            certStatusInfo.getThisUpdate(), certStatusInfo.getNextUpdate(), certStatusInfo.getCertprofile());
+    Instant thisUpdate;
+    Instant nextUpdate;
+    if (crlInfo == null) {
+      thisUpdate = Instant.now();
+      nextUpdate = null;
+    } else {
+      thisUpdate = crlInfo.getThisUpdate();
+      nextUpdate = crlInfo.getNextUpdate();
+
+      if (isCrlExpired(crlInfo, time)) {
+        return CertStatusInfo.getCrlExpiredStatusInfo();
       }
+    }
+
+    CertStatusInfo certStatusInfo;
+    if (row == null) {
+      certStatusInfo = CertStatusInfo.getUnknownCertStatusInfo(thisUpdate, nextUpdate);
+    } else if (row.ignore) {
+      certStatusInfo = CertStatusInfo.getIgnoreCertStatusInfo(thisUpdate, nextUpdate);
+    } else {
+      if (row.revoked) {
+        Instant invTime = (row.invalTime == 0 || row.invalTime == row.revTime)
+            ? null : Instant.ofEpochSecond(row.invalTime);
+        CertRevocationInfo revInfo = new CertRevocationInfo(row.reason, Instant.ofEpochSecond(row.revTime), invTime);
+        certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(revInfo,
+            certHashAlgo, row.certHash, thisUpdate, nextUpdate, null);
+      } else {
+        certStatusInfo = CertStatusInfo.getGoodCertStatusInfo(certHashAlgo, row.certHash, thisUpdate, nextUpdate, null);
+      }
+    }
+
+    if (includeCrlId && crlInfo != null) {
+      certStatusInfo.setCrlId(crlInfo.getCrlId());
+    }
+
+    if (includeArchiveCutoff) {
+      if (retentionInterval != 0) {
+        Instant date;
+
+        if (retentionInterval < 0) {
+          date = issuer.getNotBefore(); // expired certificate remains in status store forever
+        } else {
+          Instant t1 = Instant.now().minus(retentionInterval, ChronoUnit.DAYS);
+          date = issuer.getNotBefore().isBefore(t1) ? issuer.getNotBefore() : t1;
+        }
+
+        certStatusInfo.setArchiveCutOff(date);
+      }
+    }
+
+    if ((!inheritCaRevocation) || issuer.getRevocationInfo() == null) {
       return certStatusInfo;
-    } catch (DataAccessException ex) {
-      throw new OcspStoreException(ex.getMessage(), ex);
     }
 
-  } // method getCertStatus0
+    CertRevocationInfo caRevInfo = issuer.getRevocationInfo();
+    CertStatus certStatus = certStatusInfo.getCertStatus();
+    boolean replaced = false;
+    if (certStatus == CertStatus.GOOD) {
+      replaced = true;
+    } else if (certStatus == CertStatus.UNKNOWN || certStatus == CertStatus.IGNORE) {
+      if (unknownCertBehaviour == UnknownCertBehaviour.good) {
+        replaced = true;
+      }
+    } else if (certStatus == CertStatus.REVOKED) {
+      if (certStatusInfo.getRevocationInfo().getRevocationTime().isAfter(caRevInfo.getRevocationTime())) {
+        replaced = true;
+      }
+    }
+
+    if (replaced) {
+      CertRevocationInfo newRevInfo = (caRevInfo.getReason() == CrlReason.CA_COMPROMISE)
+          ? caRevInfo
+          : new CertRevocationInfo(CrlReason.CA_COMPROMISE, caRevInfo.getRevocationTime(),
+                caRevInfo.getInvalidityTime());
+
+      certStatusInfo = CertStatusInfo.getRevokedCertStatusInfo(newRevInfo,
+          certStatusInfo.getCertHashAlgo(), certStatusInfo.getCertHash(),
+          certStatusInfo.getThisUpdate(), certStatusInfo.getNextUpdate(), certStatusInfo.getCertprofile());
+    }
+    return certStatusInfo;
+  } // method toCertStatusInfo
 
   /**
    * Borrow PreparedStatement.
@@ -533,12 +740,20 @@ public class DbCertStatusStore extends OcspStore {
     sqlCsNoRitWithCertHash = datasource.buildSelectFirstSql(1,
         "NBEFORE,NAFTER,REV,RR,RT,HASH,CRL_ID FROM CERT WHERE IID=? AND SN=?");
 
+    cacheSqlSerials.evictAll();
+
     try {
       this.certHashAlgo = getCertHashAlgo(datasource);
     } catch (NoSuchAlgorithmException | DataAccessException ex) {
       throw new OcspStoreException("Could not retrieve the certhash's algorithm from the database", ex);
     }
 
+    try {
+      this.binaryCertHash = datasource.isBinaryColumn(null, "CERT", "HASH");
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException("Could not detect the type of column CERT.HASH", ex);
+    }
+
     Set<X509Cert> includeIssuers = null;
     Set<X509Cert> excludeIssuers = null;
 
@@ -586,6 +801,58 @@ public class DbCertStatusStore extends OcspStore {
     }
   }
 
+  @Override
+  public Collection<X509Cert> getIssuerCerts() {
+    List<X509Cert> certs = new ArrayList<>(issuerStore.size());
+    for (Integer id : issuerStore.getIds()) {
+      IssuerEntry issuer = issuerStore.getIssuerForId(id);
+      if (issuer != null) {
+        certs.add(issuer.getCert());
+      }
+    }
+    return certs;
+  } // method getIssuerCerts
+
+  @Override
+  public SortedMap<Long, BigInteger> getSerialNumbers(
+      RequestIssuer reqIssuer, long minId, long minLastUpdate, int numEntries)
+      throws OcspStoreException {
+    IssuerEntry issuer = issuerStore.getIssuerForFp(reqIssuer);
+    if (issuer == null) {
+      return null;
+    }
+
+    String sql = cacheSqlSerials.get(numEntries);
+    if (sql == null) {
+      sql = datasource.buildSelectFirstSql(numEntries, "ID ASC",
+          "ID,SN FROM CERT WHERE IID=? AND ID>? AND LUPDATE>=?");
+      cacheSqlSerials.put(numEntries, sql);
+    }
+
+    ResultSet rs = null;
+    try {
+      PreparedStatement ps = datasource.prepareStatement(sql);
+      try {
+        ps.setInt(1, issuer.getId());
+        ps.setLong(2, minId);
+        ps.setLong(3, minLastUpdate);
+        rs = ps.executeQuery();
+
+        SortedMap<Long, BigInteger> serials = new TreeMap<>();
+        while (rs.next() && serials.size() < numEntries) {
+          serials.put(rs.getLong("ID"), new BigInteger(rs.getString("SN"), 16));
+        }
+        return serials;
+      } catch (SQLException ex) {
+        throw datasource.translate(sql, ex);
+      } finally {
+        releaseDbResources(ps, rs);
+      }
+    } catch (DataAccessException ex) {
+      throw new OcspStoreException(ex.getMessage(), ex);
+    }
+  } // method getSerialNumbers
+
   @Override
   public boolean knowsIssuer(RequestIssuer reqIssuer) {
     return null != issuerStore.getIssuerForFp(reqIssuer);
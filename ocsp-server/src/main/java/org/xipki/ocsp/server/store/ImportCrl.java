@@ -197,6 +197,9 @@ class ImportCrl {
 
   private final HashAlgo certhashAlgo;
 
+  // whether the column CERT.HASH is of binary type.
+  private final boolean binaryCertHash;
+
   private final int sqlBatchCommit;
 
   private final boolean ignoreExpiredCrls;
@@ -224,6 +227,7 @@ class ImportCrl {
     this.datasource = Args.notNull(datasource, "datasource");
     this.basedir = Args.notNull(basedir, "basedir");
     this.certhashAlgo = DbCertStatusStore.getCertHashAlgo(datasource);
+    this.binaryCertHash = datasource.isBinaryColumn(null, "CERT", "HASH");
     this.sqlSelectIdCert = datasource.buildSelectFirstSql(1, CORE_SQL_SELECT_ID_CERT);
   }
 
@@ -1000,6 +1004,14 @@ class ImportCrl {
     }
   } // method getCertInfo
 
+  private void setCertHash(PreparedStatement ps, int index, byte[] certHash) throws SQLException {
+    if (binaryCertHash) {
+      ps.setBytes(index, certHash);
+    } else {
+      ps.setString(index, Base64.encodeToString(certHash));
+    }
+  }
+
   private void addCertificate(AtomicLong maxId, int crlInfoId, CertWrapper caCert, X509Cert cert, String certLogId)
       throws DataAccessException {
     int caId = caCert.databaseId;
@@ -1012,7 +1024,7 @@ class ImportCrl {
 
     // we don't use the binary read from file, since it may contain redundant ending bytes.
     byte[] encodedCert = cert.getEncoded();
-    String b64CertHash = certhashAlgo.base64Hash(encodedCert);
+    byte[] certHash = certhashAlgo.hash(encodedCert);
 
     if (caCert.subjectKeyIdentifier != null) {
       byte[] aki = cert.getAuthorityKeyId();
@@ -1059,7 +1071,7 @@ class ImportCrl {
         ps.setLong(offset++, tbsCert.getEndDate().getDate().toInstant().getEpochSecond());
         ps.setInt(offset++, crlInfoId);
 
-        ps.setString(offset, b64CertHash);
+        setCertHash(ps, offset, certHash);
       } else {
         if (existingCertInfo.revoked || existingCertInfo.crlId != crlInfoId) {
           sql = SQL_UPDATE_CERT;
@@ -1076,7 +1088,7 @@ class ImportCrl {
           ps.setLong(offset++, tbsCert.getEndDate().getDate().toInstant().getEpochSecond());
           ps.setInt(offset++, crlInfoId);
 
-          ps.setString(offset++, b64CertHash);
+          setCertHash(ps, offset++, certHash);
           ps.setLong(offset, existingCertInfo.id);
         } else {
           sql = SQL_UPDATE_CERT_LUPDATE;
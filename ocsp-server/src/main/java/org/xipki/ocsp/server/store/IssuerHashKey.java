@@ -0,0 +1,96 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.security.HashAlgo;
+import org.xipki.util.Args;
+import org.xipki.util.CompareUtil;
+
+/**
+ * Key to look up the issuer by the hash algorithm and the encoded issuerNameHash and issuerKeyHash
+ * (both as DER-encoded OCTET STRING) of the CertID.
+ * <p>
+ * The key of a request references the bytes of the request, they are not copied.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+public final class IssuerHashKey {
+
+  private final HashAlgo hashAlgo;
+
+  private final byte[] data;
+
+  private final int from;
+
+  private final int length;
+
+  private final int hash;
+
+  private IssuerHashKey(HashAlgo hashAlgo, byte[] data, int from, int length) {
+    this.hashAlgo = hashAlgo;
+    this.data = data;
+    this.from = from;
+    this.length = length;
+
+    int h = hashAlgo.ordinal();
+    for (int i = from; i < from + length; i++) {
+      h = 31 * h + data[i];
+    }
+    this.hash = h;
+  }
+
+  /**
+   * Creates the key of an issuer.
+   * @param hashAlgo the hash algorithm.
+   * @param encodedHash the encoded issuerNameHash and issuerKeyHash.
+   * @return the key.
+   */
+  public static IssuerHashKey ofIssuer(HashAlgo hashAlgo, byte[] encodedHash) {
+    Args.notNull(hashAlgo, "hashAlgo");
+    Args.notNull(encodedHash, "encodedHash");
+    return new IssuerHashKey(hashAlgo, encodedHash, 0, encodedHash.length);
+  }
+
+  /**
+   * Creates the key of the issuer in the request.
+   * @param reqIssuer the issuer in the request.
+   * @return the key, or {@code null} if the hash algorithm is not supported or the request is
+   *         too short.
+   */
+  public static IssuerHashKey ofRequest(RequestIssuer reqIssuer) {
+    HashAlgo hashAlgo = reqIssuer.hashAlgorithm();
+    if (hashAlgo == null) {
+      return null;
+    }
+
+    int length = (2 + hashAlgo.getLength()) << 1;
+    int from = reqIssuer.getNameHashFrom();
+    if (from + length > reqIssuer.getFrom() + reqIssuer.getLength()) {
+      return null;
+    }
+
+    return new IssuerHashKey(hashAlgo, reqIssuer.getData(), from, length);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    if (this == obj) {
+      return true;
+    } else if (!(obj instanceof IssuerHashKey)) {
+      return false;
+    }
+
+    IssuerHashKey other = (IssuerHashKey) obj;
+    return hash == other.hash && hashAlgo == other.hashAlgo && length == other.length
+        && CompareUtil.areEqual(data, from, other.data, other.from, length);
+  }
+
+}
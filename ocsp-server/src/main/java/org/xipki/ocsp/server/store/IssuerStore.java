@@ -4,11 +4,13 @@
 package org.xipki.ocsp.server.store;
 
 import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.security.HashAlgo;
 
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -22,65 +24,76 @@ import java.util.Set;
 
 class IssuerStore {
 
-  private List<IssuerEntry> issuers = new ArrayList<>();
+  /**
+   * Immutable index of the issuers. It is replaced as a whole on each change (copy-on-write), so
+   * that the lookups need no locking.
+   */
+  private static final class Index {
 
-  private Set<Integer> ids = Collections.emptySet();
+    private final Map<Integer, IssuerEntry> idMap;
 
-  private Map<Integer, CrlInfo> crlInfos = new HashMap<>();
+    private final Map<IssuerHashKey, IssuerEntry> hashMap;
+
+    private final Set<Integer> ids;
+
+    Index(Collection<IssuerEntry> issuers) {
+      Map<Integer, IssuerEntry> newIdMap = new LinkedHashMap<>(issuers.size() * 4 / 3 + 1);
+      Map<IssuerHashKey, IssuerEntry> newHashMap = new HashMap<>();
+
+      for (IssuerEntry issuer : issuers) {
+        int id = issuer.getId();
+        if (newIdMap.putIfAbsent(id, issuer) != null) {
+          throw new IllegalArgumentException("issuer with the same id " + id + " duplicated");
+        }
+
+        for (HashAlgo hashAlgo : HashAlgo.values()) {
+          // if several issuers have the same hash, the first one wins.
+          newHashMap.putIfAbsent(IssuerHashKey.ofIssuer(hashAlgo, issuer.getEncodedHash(hashAlgo)), issuer);
+        }
+      }
+
+      this.idMap = newIdMap;
+      this.hashMap = newHashMap;
+      this.ids = Collections.unmodifiableSet(newIdMap.keySet());
+    }
+
+  } // class Index
+
+  private volatile Index index = new Index(Collections.emptyList());
+
+  private volatile Map<Integer, CrlInfo> crlInfos = new HashMap<>();
 
   public IssuerStore() {
   }
 
   public void setIssuers(List<IssuerEntry> issuers) {
-    Set<Integer> newIds = new HashSet<>();
-    for (IssuerEntry issuer : issuers) {
-      int id = issuer.getId();
-      if (newIds.contains(id)) {
-        throw new IllegalArgumentException("issuer with the same id " + id + " duplicated");
-      }
-      newIds.add(id);
+    Index newIndex = new Index(issuers);
+    synchronized (this) {
+      this.index = newIndex;
     }
-
-    // to accelerate the switch
-    List<IssuerEntry> copy = new ArrayList<>(issuers);
-    this.ids = Collections.unmodifiableSet(newIds);
-    this.issuers = copy;
   } // method setIssuers
 
   public int size() {
-    return ids.size();
+    return index.ids.size();
   }
 
   public Set<Integer> getIds() {
-    return ids;
+    return index.ids;
   }
 
   public IssuerEntry getIssuerForId(int id) {
-    for (IssuerEntry entry : issuers) {
-      if (entry.getId() == id) {
-        return entry;
-      }
-    }
-
-    return null;
+    return index.idMap.get(id);
   }
 
   public IssuerEntry getIssuerForFp(RequestIssuer reqIssuer) {
-    for (IssuerEntry entry : issuers) {
-      if (entry.matchHash(reqIssuer)) {
-        return entry;
-      }
-    }
-
-    return null;
+    IssuerHashKey key = IssuerHashKey.ofRequest(reqIssuer);
+    return key == null ? null : index.hashMap.get(key);
   }
 
-  public void addIssuer(IssuerEntry issuer) {
-    this.issuers.add(issuer);
-
-    Set<Integer> newIds = new HashSet<>(this.ids);
-    newIds.add(issuer.getId());
-    this.ids = Collections.unmodifiableSet(newIds);
+  public synchronized void addIssuer(IssuerEntry issuer) {
+    List<IssuerEntry> issuers = new ArrayList<>(index.idMap.values());
+    issuers.add(issuer);
+    this.index = new Index(issuers);
   }
 
   public void setCrlInfos(Map<Integer, CrlInfo> crlInfos) {
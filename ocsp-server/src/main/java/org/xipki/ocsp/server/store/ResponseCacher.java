@@ -30,14 +30,20 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
 import java.util.Set;
 import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Response cacher.
@@ -65,6 +71,265 @@ public class ResponseCacher implements Closeable {
 
   private static final String SQL_UPDATE_RESP = "UPDATE OCSP SET GENERATED_AT=?,NEXT_UPDATE=?,RESP=? WHERE ID=?";
 
+  static final class PendingResponse {
+
+    private final long id;
+
+    private final int issuerId;
+
+    private final String ident;
+
+    private final long generatedAt;
+
+    private final long nextUpdate;
+
+    private final byte[] response;
+
+    private final String etag;
+
+    PendingResponse(long id, int issuerId, String ident, long generatedAt, long nextUpdate, byte[] response,
+                    String etag) {
+      this.id = id;
+      this.issuerId = issuerId;
+      this.ident = ident;
+      this.generatedAt = generatedAt;
+      this.nextUpdate = nextUpdate;
+      this.response = response;
+      this.etag = etag;
+    }
+
+  } // class PendingResponse
+
+  /**
+   * Writes the responses asynchronously to the database. The responses are collected in a
+   * bounded queue, responses for the same ID are coalesced, and the queue is drained in
+   * batches by a background thread. If the queue is full, new responses are dropped.
+   * The responses are written by the methods {@link #writeBatch(List)} and
+   * {@link #writeSingle(PendingResponse)}.
+   */
+  abstract static class ResponseWriter implements Runnable {
+
+    private final int queueSize;
+
+    private final int batchSize;
+
+    // flush interval in milliseconds
+    private final long flushInterval;
+
+    // guarded by itself
+    private final LinkedHashMap<Long, PendingResponse> queue = new LinkedHashMap<>();
+
+    private final AtomicLong numDropped = new AtomicLong();
+
+    private final AtomicLong numCoalesced = new AtomicLong();
+
+    private final AtomicLong numWritten = new AtomicLong();
+
+    private final AtomicLong numFailed = new AtomicLong();
+
+    private final AtomicLong numFlushes = new AtomicLong();
+
+    // in milliseconds
+    private final AtomicLong totalFlushLatency = new AtomicLong();
+
+    // in milliseconds
+    private final AtomicLong lastFlushLatency = new AtomicLong();
+
+    // in milliseconds
+    private final AtomicLong maxFlushLatency = new AtomicLong();
+
+    private volatile boolean stopMe;
+
+    private Thread thread;
+
+    ResponseWriter(int queueSize, int batchSize, long flushInterval) {
+      this.queueSize = Args.positive(queueSize, "queueSize");
+      this.batchSize = Args.positive(batchSize, "batchSize");
+      this.flushInterval = Args.positive(flushInterval, "flushInterval");
+    }
+
+    void start() {
+      thread = new Thread(this);
+      thread.setName("ocspResponseWriter");
+      thread.setDaemon(true);
+      thread.start();
+    }
+
+    void stop() {
+      stopMe = true;
+      synchronized (queue) {
+        queue.notifyAll();
+      }
+
+      if (thread != null) {
+        try {
+          thread.join();
+        } catch (InterruptedException ex) {
+          LOG.error("interrupted: {}", ex.getMessage());
+        }
+        thread = null;
+      }
+    }
+
+    boolean offer(PendingResponse resp) {
+      synchronized (queue) {
+        PendingResponse old = queue.get(resp.id);
+        if (old != null) {
+          if (old.generatedAt <= resp.generatedAt) {
+            queue.put(resp.id, resp);
+          }
+          numCoalesced.incrementAndGet();
+          return true;
+        }
+
+        if (stopMe || queue.size() >= queueSize) {
+          numDropped.incrementAndGet();
+          return false;
+        }
+
+        queue.put(resp.id, resp);
+        if (queue.size() >= batchSize) {
+          queue.notifyAll();
+        }
+        return true;
+      }
+    } // method offer
+
+    /**
+     * Replaces the queued response with the same ID.
+     * @param resp the new response.
+     * @return true if a response with the same ID is in the queue, false otherwise.
+     */
+    boolean replace(PendingResponse resp) {
+      synchronized (queue) {
+        PendingResponse old = queue.get(resp.id);
+        if (old == null) {
+          return false;
+        }
+
+        if (old.generatedAt <= resp.generatedAt) {
+          queue.put(resp.id, resp);
+        }
+        numCoalesced.incrementAndGet();
+        return true;
+      }
+    } // method replace
+
+    PendingResponse get(long id) {
+      synchronized (queue) {
+        return queue.get(id);
+      }
+    }
+
+    int getQueueDepth() {
+      synchronized (queue) {
+        return queue.size();
+      }
+    }
+
+    long getNumDropped() {
+      return numDropped.get();
+    }
+
+    long getNumWritten() {
+      return numWritten.get();
+    }
+
+    long getNumFailed() {
+      return numFailed.get();
+    }
+
+    @Override
+    public void run() {
+      while (true) {
+        List<PendingResponse> batch;
+        synchronized (queue) {
+          if (!stopMe && queue.size() < batchSize) {
+            try {
+              queue.wait(flushInterval);
+            } catch (InterruptedException ex) {
+              stopMe = true;
+            }
+          }
+
+          if (queue.isEmpty()) {
+            if (stopMe) {
+              break;
+            }
+            continue;
+          }
+
+          batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+          for (PendingResponse resp : queue.values()) {
+            batch.add(resp);
+            if (batch.size() == batchSize) {
+              break;
+            }
+          }
+        }
+
+        try {
+          flush(batch);
+        } catch (Throwable th) {
+          LogUtil.error(LOG, th, "unexpected error while writing OCSP responses");
+        } finally {
+          synchronized (queue) {
+            // a coalesced (newer) response with the same ID remains in the queue.
+            for (PendingResponse resp : batch) {
+              queue.remove(resp.id, resp);
+            }
+          }
+        }
+      }
+    } // method run
+
+    private void flush(List<PendingResponse> batch) {
+      long start = System.nanoTime();
+      int numOk = 0;
+      try {
+        numOk = writeBatch(batch);
+      } catch (DataAccessException ex) {
+        LogUtil.warn(LOG, ex, "could not write " + batch.size() + " OCSP responses in batch, write them one by one");
+        for (PendingResponse resp : batch) {
+          if (writeSingle(resp)) {
+            numOk++;
+          }
+        }
+      }
+
+      numWritten.addAndGet(numOk);
+      numFailed.addAndGet(batch.size() - numOk);
+
+      long latency = (System.nanoTime() - start) / 1000_000;
+      numFlushes.incrementAndGet();
+      totalFlushLatency.addAndGet(latency);
+      lastFlushLatency.set(latency);
+      maxFlushLatency.accumulateAndGet(latency, Math::max);
+      LOG.debug("wrote {} OCSP responses in {} ms", numOk, latency);
+    } // method flush
+
+    /**
+     * Writes the responses in one batch.
+     * @return number of written responses.
+     */
+    abstract int writeBatch(List<PendingResponse> batch) throws DataAccessException;
+
+    /**
+     * Writes the response, called for each response of a failed batch.
+     * @return whether the response has been written.
+     */
+    abstract boolean writeSingle(PendingResponse resp);
+
+    String getStatistics() {
+      long flushes = numFlushes.get();
+      return StringUtil.concatObjects("queueDepth=", getQueueDepth(), ", written=", numWritten.get(),
+          ", coalesced=", numCoalesced.get(), ", dropped=", numDropped.get(), ", failed=", numFailed.get(),
+          ", flushes=", flushes, ", avgFlushLatency=", flushes == 0 ? 0 : totalFlushLatency.get() / flushes,
+          " ms, maxFlushLatency=", maxFlushLatency.get(), " ms");
+    }
+
+  } // class ResponseWriter
+
   private class IssuerUpdater implements Runnable {
 
     @Override
@@ -107,6 +372,14 @@ public class ResponseCacher implements Closeable {
         } catch (Throwable th) {
           LogUtil.error(LOG, th, "could not remove expired responses");
         } finally {
+          if (memoryCache != null) {
+            int num2 = memoryCache.removeExpired();
+            LOG.info("removed {} expired responses from memory cache, {}", num2, getMemoryCacheStatistics());
+          }
+
+          if (responseWriter != null) {
+            LOG.info("OCSP response writer: {}", responseWriter.getStatistics());
+          }
           inProcess.set(false);
         }
       } // end lock
@@ -118,6 +391,8 @@ public class ResponseCacher implements Closeable {
 
   private final String sqlSelectOcsp;
 
+  private final String sqlSelectOcspExpiry;
+
   private final boolean master;
 
   // validity in seconds
@@ -137,23 +412,91 @@ public class ResponseCacher implements Closeable {
 
   private final AtomicInteger cachedIssuerId = new AtomicInteger(0);
 
+  private final ResponseMemoryCache memoryCache;
+
+  // whether the column OCSP.RESP is of binary type.
+  private boolean binaryResp;
+
+  private ResponseWriter responseWriter;
+
   public ResponseCacher(DataSourceWrapper datasource, boolean master, Validity validity) {
+    this(datasource, master, validity, 0);
+  }
+
+  /**
+   * Constructor.
+   * @param datasource the datasource of the cache database.
+   * @param master whether this responder is master.
+   * @param validity validity of the cached responses.
+   * @param memoryCacheSize maximal number of responses cached in memory in front of the
+   *        database. Values &lt; 1 disable the memory cache.
+   */
+  public ResponseCacher(DataSourceWrapper datasource, boolean master, Validity validity, int memoryCacheSize) {
     this.datasource = Args.notNull(datasource, "datasource");
     this.master = master;
     this.validity = (int) (Args.notNull(validity, "validity").approxMinutes() * 60);
     this.sqlSelectIssuerCert = datasource.buildSelectFirstSql(1, "CERT FROM ISSUER WHERE ID=?");
+    this.sqlSelectOcspExpiry = datasource.buildSelectFirstSql(1,
+        "IID,IDENT,GENERATED_AT,NEXT_UPDATE FROM OCSP WHERE ID=?");
     this.sqlSelectOcsp = datasource.buildSelectFirstSql(1,
         "IID,IDENT,GENERATED_AT,NEXT_UPDATE,RESP FROM OCSP WHERE ID=?");
     this.onService = new AtomicBoolean(false);
+    this.memoryCache = memoryCacheSize < 1 ? null
+        : new ResponseMemoryCache(memoryCacheSize, this.validity, SEC_NEXT_UPDATE_BUFFER);
+  }
+
+  public boolean isMaster() {
+    return master;
   }
 
   public boolean isOnService() {
     return onService.get();
   }
 
+  /**
+   * Writes the responses asynchronously (write-behind) to the database instead of in the
+   * request thread. Must be called before {@link #init()}.
+   * @param queueSize maximal number of responses waiting to be written. If the queue is full,
+   *        new responses are not cached in the database.
+   * @param batchSize maximal number of responses written in one batch.
+   * @param flushInterval maximal time in milliseconds a response waits in the queue
+   *        if the batch is not full.
+   */
+  public void enableWriteBehind(int queueSize, int batchSize, long flushInterval) {
+    if (responseWriter != null) {
+      throw new IllegalStateException("write-behind is already enabled");
+    }
+    this.responseWriter = new ResponseWriter(queueSize, batchSize, flushInterval) {
+
+      @Override
+      int writeBatch(List<PendingResponse> batch) throws DataAccessException {
+        return writeResponses(batch);
+      }
+
+      @Override
+      boolean writeSingle(PendingResponse resp) {
+        return storeOcspResponse0(resp);
+      }
+
+    };
+  }
+
   public void init() {
+    try {
+      binaryResp = datasource.isBinaryColumn(null, "OCSP", "RESP");
+      LOG.info("OCSP response cacher uses {} column OCSP.RESP", binaryResp ? "binary" : "text");
+    } catch (DataAccessException ex) {
+      LogUtil.error(LOG, ex, "could not detect the type of column OCSP.RESP, use text");
+    }
+
     updateCacheStore();
 
+    if (responseWriter != null) {
+      responseWriter.start();
+      LOG.info("OCSP responses are written asynchronously to the database (queueSize={}, batchSize={})",
+          responseWriter.queueSize, responseWriter.batchSize);
+    }
+
     scheduledThreadPoolExecutor = new ScheduledThreadPoolExecutor(1);
     scheduledThreadPoolExecutor.setRemoveOnCancelPolicy(true);
 
@@ -168,6 +511,11 @@ public class ResponseCacher implements Closeable {
 
   @Override
   public void close() {
+    if (responseWriter != null) {
+      // write the pending responses before the datasource is closed.
+      responseWriter.stop();
+    }
+
     if (datasource != null) {
       datasource.close();
       datasource = null;
@@ -248,11 +596,42 @@ public class ResponseCacher implements Closeable {
     }
   } // method storeIssuer
 
-  public OcspRespWithCacheInfo getOcspResponse(int issuerId, BigInteger serialNumber, SignAlgo sigAlgo)
+  /**
+   * Returns the cached response.
+   * @param issuerId ID of the issuer in the cache database.
+   * @param serialNumber serial number of the certificate.
+   * @param certIdHashAlgo hash algorithm of the CertID in the request.
+   * @param sigAlgo signature algorithm of the response.
+   * @return the cached response, or {@code null} if no valid response is cached.
+   * @throws DataAccessException if database error occurs.
+   */
+  public OcspRespWithCacheInfo getOcspResponse(
+      int issuerId, BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo)
       throws DataAccessException {
-    final String sql = sqlSelectOcsp;
-    byte[] identBytes = buildIdent(serialNumber, sigAlgo);
+    if (memoryCache != null) {
+      OcspRespWithCacheInfo resp = memoryCache.get(issuerId, serialNumber, certIdHashAlgo, sigAlgo);
+      if (resp != null) {
+        return resp;
+      }
+    }
+
+    byte[] identBytes = buildIdent(serialNumber, certIdHashAlgo, sigAlgo);
     long id = deriveId(issuerId, identBytes);
+    String ident = Base64.encodeToString(identBytes);
+
+    if (responseWriter != null) {
+      // response not written to the database yet.
+      PendingResponse pending = responseWriter.get(id);
+      if (pending != null && pending.issuerId == issuerId && pending.ident.equals(ident)
+          && pending.nextUpdate >= Instant.now().getEpochSecond() + SEC_NEXT_UPDATE_BUFFER) {
+        ResponseCacheInfo cacheInfo = new ResponseCacheInfo(pending.generatedAt);
+        cacheInfo.setNextUpdate(pending.nextUpdate);
+        cacheInfo.setEtag(pending.etag);
+        return new OcspRespWithCacheInfo(pending.response, cacheInfo);
+      }
+    }
+
+    final String sql = sqlSelectOcsp;
     PreparedStatement ps = datasource.prepareStatement(sql);
     ResultSet rs = null;
 
@@ -268,26 +647,36 @@ public class ResponseCacher implements Closeable {
         return null;
       }
 
-      String ident = Base64.encodeToString(identBytes);
       String dbIdent = rs.getString("IDENT");
       if (!ident.equals(dbIdent)) {
         return null;
       }
 
+      long nowInSec = Instant.now().getEpochSecond();
       long nextUpdate = rs.getLong("NEXT_UPDATE");
       if (nextUpdate != 0) {
         // nextUpdate must be at least in 600 seconds
-        long minNextUpdate = Instant.now().getEpochSecond() + 600;
-
-        if (nextUpdate < minNextUpdate) {
+        if (nextUpdate < nowInSec + SEC_NEXT_UPDATE_BUFFER) {
           return null;
         }
       }
 
       long generatedAt = rs.getLong("GENERATED_AT");
-      String b64Resp = rs.getString("RESP");
-      byte[] resp = Base64.decodeFast(b64Resp);
+      // the row has expired but not been removed by the cleaner yet.
+      if (generatedAt + validity < nowInSec) {
+        return null;
+      }
+
+      byte[] resp = binaryResp ? rs.getBytes("RESP") : Base64.decodeFast(rs.getString("RESP"));
       ResponseCacheInfo cacheInfo = new ResponseCacheInfo(generatedAt);
+      // the ETag is computed once, when the response is loaded into the memory cache. Without
+      // memory cache, it is computed by the servlet, and only if the response is sent via GET.
+      if (memoryCache != null) {
+        String etag = ResponseCacheInfo.buildEtag(resp);
+        memoryCache.put(issuerId, serialNumber, certIdHashAlgo, sigAlgo, generatedAt, nextUpdate, resp, etag);
+        cacheInfo.setEtag(etag);
+      }
+
       if (nextUpdate != 0) {
         cacheInfo.setNextUpdate(nextUpdate);
       }
@@ -299,8 +688,83 @@ public class ResponseCacher implements Closeable {
     }
   } // method getOcspResponse
 
-  public void storeOcspResponse(
-      int issuerId, BigInteger serialNumber, long generatedAt, Long nextUpdate, SignAlgo sigAlgo, byte[] response) {
+  /**
+   * Returns the time until which the cached response will be delivered. Neither the memory
+   * cache nor its statistics are touched, and the response itself is not read.
+   * @param issuerId ID of the issuer in the cache database.
+   * @param serialNumber serial number of the certificate.
+   * @param certIdHashAlgo hash algorithm of the CertID.
+   * @param sigAlgo signature algorithm of the response.
+   * @return the time in seconds since epoch, or 0 if no response is cached.
+   * @throws DataAccessException if database error occurs.
+   */
+  public long getOcspResponseExpiry(int issuerId, BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo)
+      throws DataAccessException {
+    byte[] identBytes = buildIdent(serialNumber, certIdHashAlgo, sigAlgo);
+    long id = deriveId(issuerId, identBytes);
+    String ident = Base64.encodeToString(identBytes);
+
+    if (responseWriter != null) {
+      PendingResponse pending = responseWriter.get(id);
+      if (pending != null && pending.issuerId == issuerId && pending.ident.equals(ident)) {
+        return getExpiry(pending.generatedAt, pending.nextUpdate);
+      }
+    }
+
+    final String sql = sqlSelectOcspExpiry;
+    PreparedStatement ps = datasource.prepareStatement(sql);
+    ResultSet rs = null;
+
+    try {
+      ps.setLong(1, id);
+      rs = ps.executeQuery();
+      if (!rs.next() || rs.getInt("IID") != issuerId || !ident.equals(rs.getString("IDENT"))) {
+        return 0;
+      }
+
+      return getExpiry(rs.getLong("GENERATED_AT"), rs.getLong("NEXT_UPDATE"));
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, rs);
+    }
+  } // method getOcspResponseExpiry
+
+  private long getExpiry(long generatedAt, long nextUpdate) {
+    long expiry = generatedAt + validity;
+    return nextUpdate == 0 ? expiry : Math.min(expiry, nextUpdate - SEC_NEXT_UPDATE_BUFFER);
+  }
+
+  public void storeOcspResponse(int issuerId, BigInteger serialNumber, long generatedAt, Long nextUpdate,
+                                HashAlgo certIdHashAlgo, SignAlgo sigAlgo, byte[] response) {
+    storeOcspResponse(issuerId, serialNumber, generatedAt, nextUpdate, certIdHashAlgo, sigAlgo, response, null, false);
+  }
+
+  public void storeOcspResponse(int issuerId, BigInteger serialNumber, long generatedAt, Long nextUpdate,
+                                HashAlgo certIdHashAlgo, SignAlgo sigAlgo, byte[] response, boolean presigned) {
+    storeOcspResponse(issuerId, serialNumber, generatedAt, nextUpdate, certIdHashAlgo, sigAlgo, response,
+        null, presigned);
+  }
+
+  /**
+   * Stores the OCSP response.
+   * @param issuerId ID of the issuer in the cache database.
+   * @param serialNumber serial number of the certificate.
+   * @param generatedAt time (seconds since epoch) when the response is generated.
+   * @param nextUpdate nextUpdate (seconds since epoch) of the response, may be {@code null}.
+   * @param certIdHashAlgo hash algorithm of the CertID in the response. The response is only
+   *        served to requests with the same hash algorithm.
+   * @param sigAlgo signature algorithm of the response.
+   * @param response the DER-encoded OCSP response.
+   * @param etag the ETag of the response, if already computed by the caller, may be {@code null}.
+   * @param presigned whether the response is generated in advance. Such responses are
+   *        written synchronously to the database, unless an older response for the same
+   *        certificate is waiting in the write-behind queue, and the response for the same
+   *        certificate is removed from the memory cache.
+   */
+  public void storeOcspResponse(int issuerId, BigInteger serialNumber, long generatedAt, Long nextUpdate,
+                                HashAlgo certIdHashAlgo, SignAlgo sigAlgo, byte[] response, String etag,
+                                boolean presigned) {
     long nowInSec = Instant.now().getEpochSecond();
     if (nextUpdate == null) {
       nextUpdate = nowInSec + SEC_DFLT_NEXT_UPDATE_DURATION;
@@ -310,26 +774,70 @@ public class ResponseCacher implements Closeable {
       return;
     }
 
-    byte[] identBytes = buildIdent(serialNumber, sigAlgo);
-    String ident = Base64.encodeToString(identBytes);
-    try {
-      long id = deriveId(issuerId, identBytes);
+    // the ETag is computed once for the responses served from memory.
+    // a presigned response is served from memory only while it waits in the write-behind queue.
+    boolean servedFromMemory = presigned ? responseWriter != null : (memoryCache != null || responseWriter != null);
+    if (etag == null && servedFromMemory) {
+      etag = ResponseCacheInfo.buildEtag(response);
+    }
+
+    byte[] identBytes = buildIdent(serialNumber, certIdHashAlgo, sigAlgo);
+    PendingResponse resp = new PendingResponse(deriveId(issuerId, identBytes), issuerId,
+        Base64.encodeToString(identBytes), generatedAt, nextUpdate, response, etag);
+
+    if (presigned) {
+      // a queued older response would overwrite this one in the database.
+      if (responseWriter == null || !responseWriter.replace(resp)) {
+        storeOcspResponse0(resp);
+      }
+
+      // the old response must not be served from the memory any more.
+      if (memoryCache != null) {
+        memoryCache.remove(issuerId, serialNumber, certIdHashAlgo, sigAlgo);
+      }
+      return;
+    }
+
+    if (memoryCache != null) {
+      memoryCache.put(issuerId, serialNumber, certIdHashAlgo, sigAlgo, generatedAt, nextUpdate, response, etag);
+    }
 
+    if (responseWriter != null) {
+      if (!responseWriter.offer(resp)) {
+        LOG.debug("write-behind queue is full, OCSP response iid={}, ident={} is not cached in database",
+            issuerId, resp.ident);
+      }
+    } else {
+      storeOcspResponse0(resp);
+    }
+  } // method storeOcspResponse
+
+  private boolean storeOcspResponse0(PendingResponse resp) {
+    final int issuerId = resp.issuerId;
+    final String ident = resp.ident;
+    final long id = resp.id;
+    final byte[] response = resp.response;
+
+    try {
       Connection conn = datasource.getConnection();
       try {
         String sql = SQL_ADD_RESP;
         PreparedStatement ps = datasource.prepareStatement(conn, sql);
 
-        String b64Response = Base64.encodeToString(response);
+        String b64Response = binaryResp ? null : Base64.encodeToString(response);
         Boolean dataIntegrityViolationException = null;
         try {
           int idx = 1;
           ps.setLong(idx++, id);
           ps.setInt(idx++, issuerId);
           ps.setString(idx++, ident);
-          ps.setLong(idx++, generatedAt);
-          ps.setLong(idx++, nextUpdate);
-          ps.setString(idx, b64Response);
+          ps.setLong(idx++, resp.generatedAt);
+          ps.setLong(idx++, resp.nextUpdate);
+          if (binaryResp) {
+            ps.setBytes(idx, response);
+          } else {
+            ps.setString(idx, b64Response);
+          }
           ps.execute();
         } catch (SQLException ex) {
           DataAccessException dex = datasource.translate(sql, ex);
@@ -344,23 +852,20 @@ public class ResponseCacher implements Closeable {
 
         if (dataIntegrityViolationException == null) {
           LOG.debug("added cached OCSP response iid={}, ident={}", issuerId, ident);
-          return;
+          return true;
         }
 
         sql = SQL_UPDATE_RESP;
         ps = datasource.prepareStatement(conn, sql);
         try {
-          int idx = 1;
-          ps.setLong(idx++, generatedAt);
-          ps.setLong(idx++, nextUpdate);
-          ps.setString(idx++, b64Response);
-          ps.setLong(idx, id);
+          setUpdateRespParams(ps, resp);
           ps.executeUpdate();
         } catch (SQLException ex) {
           throw datasource.translate(sql, ex);
         } finally {
           datasource.releaseResources(ps, null, false);
         }
+        return true;
       } finally {
         datasource.returnConnection(conn);
       }
@@ -369,8 +874,186 @@ public class ResponseCacher implements Closeable {
       if (LOG.isDebugEnabled()) {
         LOG.debug("could not cache OCSP response iid=" + issuerId + ", ident=" + ident, ex);
       }
+      return false;
     }
-  } // method storeOcspResponse
+  } // method storeOcspResponse0
+
+  /**
+   * Writes the responses in batch: first updates the existing entries, then inserts the others.
+   * @return number of written responses.
+   */
+  private int writeResponses(List<PendingResponse> responses) throws DataAccessException {
+    Connection conn = datasource.getConnection();
+    boolean autoCommitChanged = false;
+    String sql = null;
+    PreparedStatement ps = null;
+    try {
+      if (conn.getAutoCommit()) {
+        conn.setAutoCommit(false);
+        autoCommitChanged = true;
+      }
+
+      sql = SQL_UPDATE_RESP;
+      ps = datasource.prepareStatement(conn, sql);
+      for (PendingResponse resp : responses) {
+        setUpdateRespParams(ps, resp);
+        ps.addBatch();
+      }
+      int[] counts = ps.executeBatch();
+      conn.commit();
+      datasource.releaseResources(ps, null, false);
+      ps = null;
+
+      List<PendingResponse> newResponses = new LinkedList<>();
+      // responses whose update state is unknown.
+      List<PendingResponse> unknownResponses = new LinkedList<>();
+      for (int i = 0; i < responses.size(); i++) {
+        int count = i < counts.length ? counts[i] : Statement.EXECUTE_FAILED;
+        if (count == 0) {
+          newResponses.add(responses.get(i));
+        } else if (count < 0) {
+          unknownResponses.add(responses.get(i));
+        }
+      }
+
+      int numOk = responses.size() - newResponses.size() - unknownResponses.size();
+      if (!newResponses.isEmpty()) {
+        sql = SQL_ADD_RESP;
+        ps = datasource.prepareStatement(conn, sql);
+        try {
+          for (PendingResponse resp : newResponses) {
+            int idx = 1;
+            ps.setLong(idx++, resp.id);
+            ps.setInt(idx++, resp.issuerId);
+            ps.setString(idx++, resp.ident);
+            ps.setLong(idx++, resp.generatedAt);
+            ps.setLong(idx++, resp.nextUpdate);
+            if (binaryResp) {
+              ps.setBytes(idx, resp.response);
+            } else {
+              ps.setString(idx, Base64.encodeToString(resp.response));
+            }
+            ps.addBatch();
+          }
+          ps.executeBatch();
+          conn.commit();
+          numOk += newResponses.size();
+        } catch (SQLException ex) {
+          // e.g. the response has been inserted by another responder in the meantime.
+          LOG.debug("could not insert OCSP responses in batch: {}", ex.getMessage());
+          conn.rollback();
+          unknownResponses.addAll(newResponses);
+        }
+      }
+
+      // restore the autoCommit before writing the responses one by one.
+      if (autoCommitChanged) {
+        conn.setAutoCommit(true);
+        autoCommitChanged = false;
+      }
+
+      for (PendingResponse resp : unknownResponses) {
+        if (storeOcspResponse0(resp)) {
+          numOk++;
+        }
+      }
+      return numOk;
+    } catch (SQLException ex) {
+      throw datasource.translate(sql, ex);
+    } finally {
+      datasource.releaseResources(ps, null, false);
+      if (autoCommitChanged) {
+        try {
+          conn.rollback();
+          conn.setAutoCommit(true);
+        } catch (SQLException ex) {
+          LOG.error("could not restore autoCommit of the connection: {}", ex.getMessage());
+        }
+      }
+      datasource.returnConnection(conn);
+    }
+  } // method writeResponses
+
+  private void setUpdateRespParams(PreparedStatement ps, PendingResponse resp) throws SQLException {
+    int idx = 1;
+    ps.setLong(idx++, resp.generatedAt);
+    ps.setLong(idx++, resp.nextUpdate);
+    if (binaryResp) {
+      ps.setBytes(idx++, resp.response);
+    } else {
+      ps.setString(idx++, Base64.encodeToString(resp.response));
+    }
+    ps.setLong(idx, resp.id);
+  }
+
+  public boolean isMemoryCacheEnabled() {
+    return memoryCache != null;
+  }
+
+  /**
+   * Returns the number of responses currently in the memory cache.
+   * @return number of cached responses, or 0 if the memory cache is disabled.
+   */
+  public int getMemoryCacheSize() {
+    return memoryCache == null ? 0 : memoryCache.size();
+  }
+
+  public long getMemoryCacheHits() {
+    return memoryCache == null ? 0 : memoryCache.getHits();
+  }
+
+  public long getMemoryCacheMisses() {
+    return memoryCache == null ? 0 : memoryCache.getMisses();
+  }
+
+  public long getMemoryCacheEvictions() {
+    return memoryCache == null ? 0 : memoryCache.getEvictions();
+  }
+
+  public boolean isWriteBehindEnabled() {
+    return responseWriter != null;
+  }
+
+  /**
+   * Returns the number of responses waiting to be written to the database.
+   * @return number of queued responses, or 0 if the write-behind is disabled.
+   */
+  public int getWriteBehindQueueDepth() {
+    return responseWriter == null ? 0 : responseWriter.getQueueDepth();
+  }
+
+  public long getWriteBehindDropped() {
+    return responseWriter == null ? 0 : responseWriter.numDropped.get();
+  }
+
+  /**
+   * Returns the latency of the last flush of the write-behind queue.
+   * @return latency in milliseconds.
+   */
+  public long getWriteBehindLastFlushLatency() {
+    return responseWriter == null ? 0 : responseWriter.lastFlushLatency.get();
+  }
+
+  /**
+   * Returns the maximal latency of the flushes of the write-behind queue.
+   * @return latency in milliseconds.
+   */
+  public long getWriteBehindMaxFlushLatency() {
+    return responseWriter == null ? 0 : responseWriter.maxFlushLatency.get();
+  }
+
+  public String getWriteBehindStatistics() {
+    return responseWriter == null ? "write-behind disabled" : responseWriter.getStatistics();
+  }
+
+  public String getMemoryCacheStatistics() {
+    if (memoryCache == null) {
+      return "memory cache disabled";
+    }
+
+    return StringUtil.concatObjects("size=", memoryCache.size(), ", hits=", memoryCache.getHits(),
+        ", misses=", memoryCache.getMisses(), ", evictions=", memoryCache.getEvictions());
+  }
 
   private int removeExpiredResponses(long maxGeneratedAt, long minNextUpdate)
       throws DataAccessException {
@@ -469,13 +1152,19 @@ public class ResponseCacher implements Closeable {
     return true;
   } // method updateCacheStore0
 
-  private static byte[] buildIdent(BigInteger serialNumber, SignAlgo sigAlgo) {
+  static byte[] buildIdent(BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo) {
     byte[] snBytes = serialNumber.toByteArray();
-    byte[] bytes = new byte[1 + snBytes.length];
+    // SHA-1 CertIDs keep the format of the previous versions. For the other hash algorithms, its
+    // index with the highest bit set is inserted, this byte cannot start a positive serial number.
+    int off = (certIdHashAlgo == HashAlgo.SHA1) ? 1 : 2;
+    byte[] bytes = new byte[off + snBytes.length];
     bytes[0] = sigAlgo.getCode();
-    System.arraycopy(snBytes, 0, bytes, 1, snBytes.length);
+    if (off == 2) {
+      bytes[1] = (byte) (0x80 | certIdHashAlgo.ordinal());
+    }
+    System.arraycopy(snBytes, 0, bytes, off, snBytes.length);
     return bytes;
-  }
+  } // method buildIdent
 
   private long deriveId(int issuerId, byte[] identBytes) {
     byte[] hash = new byte[20];
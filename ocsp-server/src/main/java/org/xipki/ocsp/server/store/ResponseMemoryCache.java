@@ -0,0 +1,253 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.xipki.ocsp.server.OcspRespWithCacheInfo;
+import org.xipki.ocsp.server.OcspRespWithCacheInfo.ResponseCacheInfo;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.SignAlgo;
+import org.xipki.util.Args;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-memory (first level) cache of OCSP responses, sitting in front of the
+ * database table OCSP managed by {@link ResponseCacher}.
+ * <p>
+ * Entries are evicted once their nextUpdate is reached (considering the buffer
+ * also applied to the database cache), once they are older than the configured
+ * validity, or in LRU order if the cache is full. To reduce the lock contention,
+ * the cache is split into segments, each protected by its own lock.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+
+class ResponseMemoryCache {
+
+  private static final class CacheKey {
+
+    private final int issuerId;
+
+    private final BigInteger serialNumber;
+
+    private final HashAlgo certIdHashAlgo;
+
+    private final SignAlgo sigAlgo;
+
+    private final int hashCode;
+
+    CacheKey(int issuerId, BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo) {
+      this.issuerId = issuerId;
+      this.serialNumber = serialNumber;
+      this.certIdHashAlgo = certIdHashAlgo;
+      this.sigAlgo = sigAlgo;
+      this.hashCode = Objects.hash(issuerId, serialNumber, certIdHashAlgo, sigAlgo);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      } else if (!(obj instanceof CacheKey)) {
+        return false;
+      }
+
+      CacheKey other = (CacheKey) obj;
+      return issuerId == other.issuerId && certIdHashAlgo == other.certIdHashAlgo && sigAlgo == other.sigAlgo
+          && serialNumber.equals(other.serialNumber);
+    }
+
+  } // class CacheKey
+
+  private static final class CacheEntry {
+
+    private final long generatedAt;
+
+    // 0 for no nextUpdate
+    private final long nextUpdate;
+
+    private final byte[] response;
+
+    private final String etag;
+
+    CacheEntry(long generatedAt, long nextUpdate, byte[] response, String etag) {
+      this.generatedAt = generatedAt;
+      this.nextUpdate = nextUpdate;
+      this.response = response;
+      this.etag = etag;
+    }
+
+  } // class CacheEntry
+
+  private final class Segment extends LinkedHashMap<CacheKey, CacheEntry> {
+
+    private final int maxSize;
+
+    Segment(int maxSize) {
+      super(16, 0.75f, true);
+      this.maxSize = maxSize;
+    }
+
+    @Override
+    protected boolean removeEldestEntry(Map.Entry<CacheKey, CacheEntry> eldest) {
+      if (size() > maxSize) {
+        evictions.incrementAndGet();
+        return true;
+      }
+      return false;
+    }
+
+  } // class Segment
+
+  private static final int NUM_SEGMENTS = 16;
+
+  private final Segment[] segments;
+
+  private final long nextUpdateBuffer;
+
+  private final long validity;
+
+  private final AtomicLong hits = new AtomicLong();
+
+  private final AtomicLong misses = new AtomicLong();
+
+  private final AtomicLong evictions = new AtomicLong();
+
+  /**
+   * Constructor.
+   * @param maxSize maximal number of cached responses.
+   * @param validity maximal age of a cached response in seconds.
+   * @param nextUpdateBuffer a cached response is only returned if its nextUpdate is at least
+   *        so many seconds in the future.
+   */
+  ResponseMemoryCache(int maxSize, long validity, long nextUpdateBuffer) {
+    Args.positive(maxSize, "maxSize");
+    this.validity = validity;
+    this.nextUpdateBuffer = nextUpdateBuffer;
+
+    int numSegments = Math.min(NUM_SEGMENTS, maxSize);
+    int segmentSize = (maxSize + numSegments - 1) / numSegments;
+    this.segments = new Segment[numSegments];
+    for (int i = 0; i < numSegments; i++) {
+      segments[i] = new Segment(segmentSize);
+    }
+  }
+
+  OcspRespWithCacheInfo get(int issuerId, BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo) {
+    CacheKey key = new CacheKey(issuerId, serialNumber, certIdHashAlgo, sigAlgo);
+    Segment segment = segmentFor(key);
+
+    CacheEntry entry;
+    synchronized (segment) {
+      entry = segment.get(key);
+      if (entry != null && isExpired(entry, Instant.now().getEpochSecond())) {
+        segment.remove(key);
+        evictions.incrementAndGet();
+        entry = null;
+      }
+    }
+
+    if (entry == null) {
+      misses.incrementAndGet();
+      return null;
+    }
+
+    hits.incrementAndGet();
+    ResponseCacheInfo cacheInfo = new ResponseCacheInfo(entry.generatedAt);
+    if (entry.nextUpdate != 0) {
+      cacheInfo.setNextUpdate(entry.nextUpdate);
+    }
+    cacheInfo.setEtag(entry.etag);
+    return new OcspRespWithCacheInfo(entry.response, cacheInfo);
+  } // method get
+
+  void put(int issuerId, BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo,
+           long generatedAt, long nextUpdate, byte[] response, String etag) {
+    CacheKey key = new CacheKey(issuerId, serialNumber, certIdHashAlgo, sigAlgo);
+    CacheEntry entry = new CacheEntry(generatedAt, nextUpdate, response, etag);
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      segment.put(key, entry);
+    }
+  }
+
+  void remove(int issuerId, BigInteger serialNumber, HashAlgo certIdHashAlgo, SignAlgo sigAlgo) {
+    CacheKey key = new CacheKey(issuerId, serialNumber, certIdHashAlgo, sigAlgo);
+    Segment segment = segmentFor(key);
+    synchronized (segment) {
+      segment.remove(key);
+    }
+  }
+
+  /**
+   * Removes all expired entries.
+   * @return number of removed entries.
+   */
+  int removeExpired() {
+    long now = Instant.now().getEpochSecond();
+    int num = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        Iterator<CacheEntry> it = segment.values().iterator();
+        while (it.hasNext()) {
+          if (isExpired(it.next(), now)) {
+            it.remove();
+            num++;
+          }
+        }
+      }
+    }
+
+    evictions.addAndGet(num);
+    return num;
+  } // method removeExpired
+
+  int size() {
+    int size = 0;
+    for (Segment segment : segments) {
+      synchronized (segment) {
+        size += segment.size();
+      }
+    }
+    return size;
+  }
+
+  long getHits() {
+    return hits.get();
+  }
+
+  long getMisses() {
+    return misses.get();
+  }
+
+  long getEvictions() {
+    return evictions.get();
+  }
+
+  private boolean isExpired(CacheEntry entry, long now) {
+    if (entry.nextUpdate != 0 && entry.nextUpdate < now + nextUpdateBuffer) {
+      return true;
+    }
+    return entry.generatedAt < now - validity;
+  }
+
+  private Segment segmentFor(CacheKey key) {
+    int hash = key.hashCode;
+    hash ^= (hash >>> 16);
+    return segments[(hash & 0x7FFFFFFF) % segments.length];
+  }
+
+}
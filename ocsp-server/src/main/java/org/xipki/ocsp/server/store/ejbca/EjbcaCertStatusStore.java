@@ -84,7 +84,7 @@ public class EjbcaCertStatusStore extends OcspStore {
 
   private IssuerFilter issuerFilter;
 
-  private EjbcaIssuerStore issuerStore;
+  private volatile EjbcaIssuerStore issuerStore;
 
   private boolean initialized;
 
@@ -4,16 +4,19 @@
 package org.xipki.ocsp.server.store.ejbca;
 
 import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.ocsp.server.store.IssuerHashKey;
+import org.xipki.security.HashAlgo;
 
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
 
 /**
  * IssuerStore for the EJBCA database.
+ * <p>
+ * This class is immutable, the issuers are indexed by the id and by the hash of the name and key.
  *
  * @author Lijun Liao (xipki)
  * @since 2.0.0
@@ -21,26 +24,28 @@ import java.util.Set;
 
 class EjbcaIssuerStore {
 
-  private final List<EjbcaIssuerEntry> entries;
+  private final Map<String, EjbcaIssuerEntry> idMap;
+
+  private final Map<IssuerHashKey, EjbcaIssuerEntry> hashMap;
 
   private final Set<String> ids;
 
   public EjbcaIssuerStore(Collection<EjbcaIssuerEntry> entries) {
-    this.entries = new ArrayList<>(entries.size());
-    Set<String> idSet = new HashSet<>(entries.size());
+    this.idMap = new HashMap<>(entries.size() * 4 / 3 + 1);
+    this.hashMap = new HashMap<>();
 
     for (EjbcaIssuerEntry entry : entries) {
-      for (EjbcaIssuerEntry existingEntry : this.entries) {
-        if (existingEntry.getId().contentEquals(entry.getId())) {
-          throw new IllegalArgumentException(
-              "issuer with the same id (fingerprint) " + entry.getId() + " already available");
-        }
+      if (idMap.putIfAbsent(entry.getId(), entry) != null) {
+        throw new IllegalArgumentException(
+            "issuer with the same id (fingerprint) " + entry.getId() + " already available");
+      }
+
+      for (HashAlgo hashAlgo : HashAlgo.values()) {
+        hashMap.putIfAbsent(IssuerHashKey.ofIssuer(hashAlgo, entry.getEncodedHash(hashAlgo)), entry);
       }
-      this.entries.add(entry);
-      idSet.add(entry.getId());
     }
 
-    this.ids = Collections.unmodifiableSet(idSet);
+    this.ids = Collections.unmodifiableSet(idMap.keySet());
   }
 
   public int size() {
@@ -52,23 +57,12 @@ class EjbcaIssuerStore {
   }
 
   public EjbcaIssuerEntry getIssuerForId(String id) {
-    for (EjbcaIssuerEntry entry : entries) {
-      if (entry.getId().contentEquals(id)) {
-        return entry;
-      }
-    }
-
-    return null;
+    return idMap.get(id);
   }
 
   public EjbcaIssuerEntry getIssuerForFp(RequestIssuer reqIssuer) {
-    for (EjbcaIssuerEntry entry : entries) {
-      if (entry.matchHash(reqIssuer)) {
-        return entry;
-      }
-    }
-
-    return null;
+    IssuerHashKey key = IssuerHashKey.ofRequest(reqIssuer);
+    return key == null ? null : hashMap.get(key);
   }
 
 }
@@ -162,6 +162,108 @@ public class ExtendedExtension extends Extension {
     return extnValueLength;
   }
 
+  /**
+   * Checks whether the extnValue, which is a SEQUENCE OF, contains the given element. The value is
+   * scanned in place without creating any ASN.1 object.
+   *
+   * @param encodedElement the DER-encoded element.
+   * @return true if contained, false if not contained or if the extnValue is not well-formed.
+   */
+  public boolean extnValueContains(byte[] encodedElement) {
+    int limit = extnValueFrom + extnValueLength;
+    int seqEnd = tlvEnd(encoded, extnValueFrom, limit);
+    if (seqEnd < 0 || encoded[extnValueFrom] != 0x30) {
+      return false;
+    }
+
+    int len = encodedElement.length;
+    int idx = bodyIndex(encoded, extnValueFrom);
+    while (idx < seqEnd) {
+      int next = tlvEnd(encoded, idx, seqEnd);
+      if (next < 0) {
+        return false;
+      }
+
+      if (next - idx == len && CompareUtil.areEqual(encodedElement, 0, encoded, idx, len)) {
+        return true;
+      }
+      idx = next;
+    }
+
+    return false;
+  } // method extnValueContains
+
+  /**
+   * Matches the first element of the extnValue, which is a SEQUENCE OF AlgorithmIdentifier, against
+   * the given candidates. The value is scanned in place without creating any ASN.1 object.
+   *
+   * @param encodedAlgIds the DER-encoded AlgorithmIdentifiers of the candidates.
+   * @return index of the candidate equal to the first element, or -1 if there is no such
+   *         candidate or the extnValue is not well-formed.
+   */
+  public int indexOfFirstExtnValueElement(byte[][] encodedAlgIds) {
+    int limit = extnValueFrom + extnValueLength;
+    int seqEnd = tlvEnd(encoded, extnValueFrom, limit);
+    if (seqEnd < 0 || encoded[extnValueFrom] != 0x30) {
+      return -1;
+    }
+
+    int idx = bodyIndex(encoded, extnValueFrom);
+    if (idx >= seqEnd) {
+      return -1;
+    }
+
+    int end = tlvEnd(encoded, idx, seqEnd);
+    if (end < 0) {
+      return -1;
+    }
+
+    int len = end - idx;
+    for (int i = 0; i < encodedAlgIds.length; i++) {
+      byte[] algId = encodedAlgIds[i];
+      if (algId.length == len && CompareUtil.areEqual(algId, 0, encoded, idx, len)) {
+        return i;
+      }
+    }
+    return -1;
+  } // method indexOfFirstExtnValueElement
+
+  /**
+   * Returns the end index of the TLV starting at tagIndex.
+   * @return the end index, or -1 if the TLV exceeds the limit.
+   */
+  private static int tlvEnd(byte[] encoded, int tagIndex, int limit) {
+    if (tagIndex + 2 > limit) {
+      return -1;
+    }
+
+    int idx = tagIndex + 1;
+    int len = encoded[idx++] & 0xFF;
+    if (len > 0x7F) {
+      int numLenBytes = len & 0x7F;
+      if (numLenBytes == 0 || numLenBytes > 3 || idx + numLenBytes > limit) {
+        return -1;
+      }
+
+      len = 0;
+      for (int i = 0; i < numLenBytes; i++) {
+        len = (len << 8) | (encoded[idx++] & 0xFF);
+      }
+    }
+
+    int end = idx + len;
+    return end > limit ? -1 : end;
+  } // method tlvEnd
+
+  /**
+   * Returns the index of the value of the TLV starting at tagIndex, which has been checked by
+   * {@link #tlvEnd(byte[], int, int)}.
+   */
+  private static int bodyIndex(byte[] encoded, int tagIndex) {
+    int b = encoded[tagIndex + 1] & 0xFF;
+    return tagIndex + 2 + (b > 0x7F ? b & 0x7F : 0);
+  }
+
   public ExtendedExtension revertCritical() {
     byte[] extnValue = Arrays.copyOfRange(encoded, extnValueFrom, extnValueFrom + extnValueLength);
     return new ExtendedExtension(extnType, !critical, extnValue);
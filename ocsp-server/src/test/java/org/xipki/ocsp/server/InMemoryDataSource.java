@@ -0,0 +1,409 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Minimal in-memory {@link DataSource} for the tests of the response cache, without any JDBC
+ * driver. Each table is identified by its column ID, and is created by the first insert. Only
+ * the following statements in auto-commit mode are supported:
+ * <pre>
+ *   INSERT INTO &lt;table&gt; (&lt;columns&gt;) VALUES(?,...)
+ *   UPDATE &lt;table&gt; SET &lt;column&gt;=?,... WHERE ID=?
+ *   SELECT &lt;columns&gt; FROM &lt;table&gt; [WHERE ID=?] [LIMIT n]
+ *   SELECT MAX(&lt;column&gt;) FROM &lt;table&gt;
+ * </pre>
+ * The tables are shared by all instances, and are removed by {@link #dropTables()}. The columns
+ * are of type VARCHAR, unless declared otherwise with {@link #setColumnType(String, String, int)}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class InMemoryDataSource implements DataSource {
+
+  private static class ConnectionHandler implements InvocationHandler {
+
+    private boolean closed;
+
+    private Connection proxy;
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      switch (method.getName()) {
+        case "getAutoCommit":
+          return true;
+        case "setAutoCommit":
+          if (!(boolean) args[0]) {
+            throw new SQLFeatureNotSupportedException("transactions are not supported");
+          }
+          return null;
+        case "prepareStatement":
+          return newProxy(PreparedStatement.class, new StatementHandler(this, (String) args[0]));
+        case "createStatement":
+          return newProxy(Statement.class, new StatementHandler(this, null));
+        case "isValid":
+          return !closed;
+        case "isClosed":
+          return closed;
+        case "close":
+          closed = true;
+          return null;
+        case "getTransactionIsolation":
+          return Connection.TRANSACTION_READ_COMMITTED;
+        default:
+          return defaultResult(proxy, method, args);
+      }
+    }
+
+  } // class ConnectionHandler
+
+  private static class StatementHandler implements InvocationHandler {
+
+    private final ConnectionHandler conn;
+
+    // null for Statement
+    private final String sql;
+
+    private final Map<Integer, Object> params = new HashMap<>();
+
+    StatementHandler(ConnectionHandler conn, String sql) {
+      this.conn = conn;
+      this.sql = sql;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+      String name = method.getName();
+      if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+        // setNull(index, sqlType), setString(index, value), ...
+        params.put((Integer) args[0], "setNull".equals(name) ? null : args[1]);
+        return null;
+      }
+
+      switch (name) {
+        case "clearParameters":
+          params.clear();
+          return null;
+        case "executeQuery":
+          return query(args == null ? sql : (String) args[0]);
+        case "executeUpdate":
+          return update(args == null ? sql : (String) args[0]);
+        case "execute":
+          String theSql = args == null ? sql : (String) args[0];
+          if (theSql.toUpperCase(Locale.ROOT).startsWith("SELECT ")) {
+            query(theSql);
+            return true;
+          } else {
+            update(theSql);
+            return false;
+          }
+        case "getConnection":
+          return conn.proxy;
+        default:
+          return defaultResult(proxy, method, args);
+      }
+    }
+
+    private ResultSet query(String sql) throws SQLException {
+      Matcher matcher = SELECT.matcher(sql);
+      if (!matcher.matches()) {
+        throw new SQLFeatureNotSupportedException("unsupported SQL " + sql);
+      }
+
+      List<String> columns = splitColumns(matcher.group(1));
+      String table = matcher.group(2).toUpperCase(Locale.ROOT);
+      boolean byId = matcher.group(3) != null;
+
+      List<Object[]> resultRows = new ArrayList<>();
+      synchronized (tables) {
+        Map<Object, Map<String, Object>> rows = tables.getOrDefault(table, new HashMap<>());
+
+        Matcher maxMatcher = columns.size() == 1 ? MAX.matcher(columns.get(0)) : null;
+        if (maxMatcher != null && maxMatcher.matches()) {
+          long max = 0;
+          for (Map<String, Object> row : rows.values()) {
+            max = Math.max(max, ((Number) row.get(maxMatcher.group(1))).longValue());
+          }
+          resultRows.add(new Object[]{max});
+        } else {
+          for (Map<String, Object> row : rows.values()) {
+            if (byId && !idEquals(row.get("ID"), params.get(1))) {
+              continue;
+            }
+
+            Object[] values = new Object[columns.size()];
+            for (int i = 0; i < values.length; i++) {
+              values[i] = row.get(columns.get(i));
+            }
+            resultRows.add(values);
+          }
+        }
+      }
+
+      return newResultSet(table, columns, resultRows);
+    } // method query
+
+    private int update(String sql) throws SQLException {
+      Matcher matcher = INSERT.matcher(sql);
+      if (matcher.matches()) {
+        String table = matcher.group(1).toUpperCase(Locale.ROOT);
+        List<String> columns = splitColumns(matcher.group(2));
+        Map<String, Object> row = new HashMap<>();
+        for (int i = 0; i < columns.size(); i++) {
+          row.put(columns.get(i), params.get(i + 1));
+        }
+
+        Object id = normalizeId(row.get("ID"));
+        synchronized (tables) {
+          Map<Object, Map<String, Object>> rows = tables.computeIfAbsent(table, k -> new HashMap<>());
+          if (rows.containsKey(id)) {
+            throw new SQLException("duplicate key in table " + table, "23505", 23505);
+          }
+          rows.put(id, row);
+        }
+        return 1;
+      }
+
+      matcher = UPDATE.matcher(sql);
+      if (matcher.matches()) {
+        String table = matcher.group(1).toUpperCase(Locale.ROOT);
+        List<String> columns = new ArrayList<>();
+        for (String assignment : matcher.group(2).split(",")) {
+          columns.add(assignment.substring(0, assignment.indexOf('=')).trim().toUpperCase(Locale.ROOT));
+        }
+
+        synchronized (tables) {
+          Map<String, Object> row = tables.getOrDefault(table, new HashMap<>())
+              .get(normalizeId(params.get(columns.size() + 1)));
+          if (row == null) {
+            return 0;
+          }
+
+          for (int i = 0; i < columns.size(); i++) {
+            row.put(columns.get(i), params.get(i + 1));
+          }
+        }
+        return 1;
+      }
+
+      throw new SQLFeatureNotSupportedException("unsupported SQL " + sql);
+    } // method update
+
+  } // class StatementHandler
+
+  private static final Pattern SELECT = Pattern.compile(
+      "SELECT (.+?) FROM (\\w+)( WHERE ID=\\?)?( LIMIT \\d+)?", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern MAX = Pattern.compile("MAX\\((\\w+)\\)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern INSERT = Pattern.compile(
+      "INSERT INTO (\\w+) ?\\((.+?)\\) VALUES ?\\(.+\\)", Pattern.CASE_INSENSITIVE);
+
+  private static final Pattern UPDATE = Pattern.compile(
+      "UPDATE (\\w+) SET (.+?) WHERE ID=\\?", Pattern.CASE_INSENSITIVE);
+
+  // table name to the rows, each row is identified by its column ID.
+  private static final Map<String, Map<Object, Map<String, Object>>> tables = new HashMap<>();
+
+  // table.column to the SQL type
+  private static final Map<String, Integer> columnTypes = new HashMap<>();
+
+  /**
+   * Declares the type of the column, as reported by the metadata of the result sets.
+   * @param table name of the table.
+   * @param column name of the column.
+   * @param sqlType the type, one of {@link Types}.
+   */
+  public static void setColumnType(String table, String column, int sqlType) {
+    synchronized (tables) {
+      columnTypes.put((table + "." + column).toUpperCase(Locale.ROOT), sqlType);
+    }
+  }
+
+  public static void dropTables() {
+    synchronized (tables) {
+      tables.clear();
+      columnTypes.clear();
+    }
+  }
+
+  /**
+   * Returns the values of the column.
+   * @param table name of the table.
+   * @param column name of the column.
+   * @return the values of the column in all rows, in no specific order.
+   */
+  public static List<Object> getColumn(String table, String column) {
+    List<Object> values = new ArrayList<>();
+    synchronized (tables) {
+      for (Map<String, Object> row : tables.getOrDefault(table.toUpperCase(Locale.ROOT), new HashMap<>()).values()) {
+        values.add(row.get(column.toUpperCase(Locale.ROOT)));
+      }
+    }
+    return values;
+  }
+
+  @Override
+  public Connection getConnection() {
+    ConnectionHandler handler = new ConnectionHandler();
+    handler.proxy = newProxy(Connection.class, handler);
+    return handler.proxy;
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) {
+    return getConnection();
+  }
+
+  @Override
+  public PrintWriter getLogWriter() {
+    return null;
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) {
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) {
+  }
+
+  @Override
+  public int getLoginTimeout() {
+    return 0;
+  }
+
+  @Override
+  public java.util.logging.Logger getParentLogger() throws SQLFeatureNotSupportedException {
+    throw new SQLFeatureNotSupportedException();
+  }
+
+  @Override
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException("not a wrapper");
+  }
+
+  @Override
+  public boolean isWrapperFor(Class<?> iface) {
+    return false;
+  }
+
+  private static List<String> splitColumns(String columns) {
+    List<String> list = new ArrayList<>();
+    for (String column : columns.split(",")) {
+      list.add(column.trim().toUpperCase(Locale.ROOT));
+    }
+    return list;
+  }
+
+  private static Object normalizeId(Object id) {
+    return (id instanceof Number) ? (Object) ((Number) id).longValue() : id;
+  }
+
+  private static boolean idEquals(Object id1, Object id2) {
+    return normalizeId(id1) != null && normalizeId(id1).equals(normalizeId(id2));
+  }
+
+  private static ResultSet newResultSet(String table, List<String> columns, List<Object[]> rows) {
+    int[] cursor = {-1};
+    return newProxy(ResultSet.class, (proxy, method, args) -> {
+      String name = method.getName();
+      switch (name) {
+        case "next":
+          return ++cursor[0] < rows.size();
+        case "getMetaData":
+          return newProxy(ResultSetMetaData.class, (mdProxy, mdMethod, mdArgs) ->
+              "getColumnType".equals(mdMethod.getName()) ? getColumnType(table, columns.get((Integer) mdArgs[0] - 1))
+                  : "getColumnCount".equals(mdMethod.getName()) ? columns.size()
+                  : defaultResult(mdProxy, mdMethod, mdArgs));
+        default:
+          break;
+      }
+
+      if (name.startsWith("get") && args != null && args.length == 1
+          && cursor[0] >= 0 && cursor[0] < rows.size()) {
+        int index = (args[0] instanceof Integer) ? (Integer) args[0] - 1
+            : columns.indexOf(((String) args[0]).toUpperCase(Locale.ROOT));
+        if (index < 0) {
+          throw new SQLException("unknown column " + args[0]);
+        }
+
+        Object value = rows.get(cursor[0])[index];
+        switch (name) {
+          case "getInt":
+            return value == null ? 0 : ((Number) value).intValue();
+          case "getLong":
+            return value == null ? 0L : ((Number) value).longValue();
+          case "getBoolean":
+            return value != null && ((Number) value).intValue() != 0;
+          case "getString":
+            return value == null ? null : value.toString();
+          case "getBytes":
+            return value == null ? null : Arrays.copyOf((byte[]) value, ((byte[]) value).length);
+          default:
+            return value;
+        }
+      }
+
+      return defaultResult(proxy, method, args);
+    });
+  } // method newResultSet
+
+  private static int getColumnType(String table, String column) {
+    synchronized (tables) {
+      return columnTypes.getOrDefault(table + "." + column, Types.VARCHAR);
+    }
+  }
+
+  private static <T> T newProxy(Class<T> clazz, InvocationHandler handler) {
+    return clazz.cast(Proxy.newProxyInstance(InMemoryDataSource.class.getClassLoader(),
+        new Class<?>[] {clazz}, handler));
+  }
+
+  private static Object defaultResult(Object proxy, Method method, Object[] args) {
+    switch (method.getName()) {
+      case "equals":
+        return proxy == args[0];
+      case "hashCode":
+        return System.identityHashCode(proxy);
+      case "toString":
+        return "InMemory" + method.getDeclaringClass().getSimpleName();
+      default:
+        break;
+    }
+
+    Class<?> type = method.getReturnType();
+    if (type == boolean.class) {
+      return false;
+    } else if (type == int.class) {
+      return 0;
+    } else if (type == long.class) {
+      return 0L;
+    } else {
+      // including void
+      return null;
+    }
+  } // method defaultResult
+
+}
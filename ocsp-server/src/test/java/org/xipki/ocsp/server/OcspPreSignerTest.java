@@ -0,0 +1,379 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.nist.NISTObjectIdentifiers;
+import org.bouncycastle.asn1.oiw.OIWObjectIdentifiers;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.ocsp.BasicOCSPResp;
+import org.bouncycastle.cert.ocsp.CertificateID;
+import org.bouncycastle.cert.ocsp.OCSPReqBuilder;
+import org.bouncycastle.cert.ocsp.OCSPResp;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.datasource.DataSourceFactory;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.ocsp.api.CertStatusInfo;
+import org.xipki.ocsp.api.OcspStore;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.ocsp.server.store.IssuerEntry;
+import org.xipki.ocsp.server.store.ResponseCacher;
+import org.xipki.ocsp.server.type.CertID;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.DfltConcurrentContentSigner;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.ObjectIdentifiers;
+import org.xipki.security.SignAlgo;
+import org.xipki.security.SignatureSigner;
+import org.xipki.security.X509Cert;
+import org.xipki.security.XiContentSigner;
+import org.xipki.util.Base64;
+import org.xipki.util.ConfigurableProperties;
+import org.xipki.util.JSON;
+import org.xipki.util.Validity;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.Signature;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Test of {@link OcspPreSigner}: the pre-signed responses are served only to the requests with
+ * the same CertID hash algorithm and signature algorithm, and are re-generated before they expire.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class OcspPreSignerTest {
+
+  /**
+   * Store of one issuer, all certificates with serial numbers 1 to {@link #NUM_CERTS} are good,
+   * with nextUpdate in one day.
+   */
+  private static class TestStore extends OcspStore {
+
+    @Override
+    public boolean knowsIssuer(RequestIssuer reqIssuer) {
+      return issuerEntry.matchHash(reqIssuer);
+    }
+
+    @Override
+    public X509Cert getIssuerCert(RequestIssuer reqIssuer) {
+      return knowsIssuer(reqIssuer) ? issuerCert : null;
+    }
+
+    @Override
+    public Collection<X509Cert> getIssuerCerts() {
+      return Collections.singletonList(issuerCert);
+    }
+
+    @Override
+    public SortedMap<Long, BigInteger> getSerialNumbers(
+        RequestIssuer reqIssuer, long minId, long minLastUpdate, int numEntries) {
+      SortedMap<Long, BigInteger> serials = new TreeMap<>();
+      for (long id = minId + 1; id <= NUM_CERTS && serials.size() < numEntries; id++) {
+        serials.put(id, BigInteger.valueOf(id));
+      }
+      return serials;
+    }
+
+    @Override
+    protected CertStatusInfo getCertStatus0(
+        Instant time, RequestIssuer reqIssuer, BigInteger serialNumber,
+        boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation) {
+      if (!knowsIssuer(reqIssuer)) {
+        return null;
+      }
+      return CertStatusInfo.getGoodCertStatusInfo(time, time.plus(1, ChronoUnit.DAYS));
+    }
+
+    @Override
+    public void init(Map<String, ?> sourceConf, DataSourceWrapper datasource) {
+    }
+
+    @Override
+    public boolean isHealthy() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+  } // class TestStore
+
+  /**
+   * Server recording the certificates whose responses are pre-signed.
+   */
+  private static class TestServer extends OcspServer {
+
+    private final Set<BigInteger> presigned = ConcurrentHashMap.newKeySet();
+
+    TestServer(ResponseCacher responseCacher) {
+      super(responseCacher);
+    }
+
+    @Override
+    boolean presign(Responder responder, int cacheIssuerId, CertID certId) {
+      presigned.add(certId.getSerialNumber());
+      return super.presign(responder, cacheIssuerId, certId);
+    }
+
+  } // class TestServer
+
+  private static final int NUM_CERTS = 5;
+
+  // in seconds, the same as the configured validity 1h.
+  private static final long VALIDITY = 3600;
+
+  private static X509Cert issuerCert;
+
+  private static IssuerEntry issuerEntry;
+
+  private static Responder responder;
+
+  private ResponseCacher responseCacher;
+
+  private TestServer server;
+
+  private OcspPreSigner preSigner;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair caKp = kpGen.generateKeyPair();
+    issuerCert = newCert("CN=ca1", "CN=ca1", caKp, caKp);
+    issuerEntry = new IssuerEntry(0, issuerCert);
+
+    // two signers with the same key, the first one is used to pre-sign the responses.
+    KeyPair kp = kpGen.generateKeyPair();
+    X509Cert signerCert = newCert("CN=ca1", "CN=ocsp-responder", caKp, kp);
+    ConcurrentContentSigner signer1 = newSigner(SignAlgo.ECDSA_SHA256, "SHA256withECDSA", kp, signerCert);
+    ConcurrentContentSigner signer2 = newSigner(SignAlgo.ECDSA_SHA384, "SHA384withECDSA", kp, signerCert);
+
+    OcspServerConf.Responder responderConf = JSON.parseObject("{\"name\":\"responder1\",\"mode\":\"RFC6960\","
+        + "\"request\":\"request1\",\"response\":\"response1\",\"servletPaths\":[\"/\"],"
+        + "\"signer\":\"signer1\",\"stores\":[\"store1\"]}", OcspServerConf.Responder.class);
+    OcspServerConf.RequestOption requestConf = JSON.parseObject("{\"name\":\"request1\","
+        + "\"hashAlgorithms\":[\"SHA1\",\"SHA256\"],\"maxRequestListCount\":10,\"maxRequestSize\":4096,"
+        + "\"nonce\":{\"occurrence\":\"optional\",\"minLen\":4,\"maxLen\":32},\"versions\":[\"v1\"]}",
+        OcspServerConf.RequestOption.class);
+    OcspServerConf.ResponseOption responseConf = JSON.parseObject("{\"name\":\"response1\","
+        + "\"embedCertsMode\":\"SIGNER\",\"responderIdByName\":true}", OcspServerConf.ResponseOption.class);
+
+    responder = new Responder(new ResponderOption(responderConf), new RequestOption(requestConf), responseConf,
+        new ResponseSigner(Arrays.asList(signer1, signer2)), Collections.singletonList(new TestStore()));
+  } // method init
+
+  @Before
+  public void createServer() throws Exception {
+    ConfigurableProperties props = new ConfigurableProperties();
+    props.setProperty("dataSourceClassName", InMemoryDataSource.class.getName());
+    props.setProperty("sql.type", "H2");
+    DataSourceWrapper datasource = new DataSourceFactory().createDataSource("cache", props);
+
+    // without memory cache, all responses are read from the database.
+    responseCacher = new ResponseCacher(datasource, true, Validity.getInstance("1h"));
+    responseCacher.init();
+    Assert.assertTrue("response cacher on service", responseCacher.isOnService());
+
+    server = new TestServer(responseCacher);
+
+    OcspServerConf.ResponseCache.PreSigner conf = new OcspServerConf.ResponseCache.PreSigner();
+    conf.setThreads(2);
+    // the responses expiring within 2 intervals (20 minutes) are re-generated.
+    conf.setInterval("10m");
+    preSigner = new OcspPreSigner(server, responseCacher, Collections.singletonMap("responder1", responder), conf);
+    preSigner.start();
+  } // method createServer
+
+  @After
+  public void close() {
+    if (preSigner != null) {
+      preSigner.close();
+    }
+
+    if (responseCacher != null) {
+      // closes also the datasource
+      responseCacher.close();
+    }
+    InMemoryDataSource.dropTables();
+  }
+
+  @Test
+  public void presignedResponseServed() throws Exception {
+    presignAll();
+    Assert.assertEquals(NUM_CERTS, server.presigned.size());
+    Assert.assertEquals(NUM_CERTS, InMemoryDataSource.getColumn("OCSP", "RESP").size());
+
+    byte[] sha1Req = buildRequest(OIWObjectIdentifiers.idSHA1, 3, null);
+    byte[] presignedResp = answer(sha1Req);
+    assertResponse(presignedResp, OIWObjectIdentifiers.idSHA1, SignAlgo.ECDSA_SHA256);
+    Assert.assertTrue("pre-signed response", InMemoryDataSource.getColumn("OCSP", "RESP").stream()
+        .anyMatch(resp -> Arrays.equals(presignedResp, decodeResp(resp))));
+
+    // the same response is served again.
+    Assert.assertArrayEquals(presignedResp, answer(sha1Req));
+
+    // CertID with other hash algorithm: the pre-signed response contains a SHA-1 CertID.
+    byte[] sha256Resp = answer(buildRequest(NISTObjectIdentifiers.id_sha256, 3, null));
+    assertResponse(sha256Resp, NISTObjectIdentifiers.id_sha256, SignAlgo.ECDSA_SHA256);
+
+    // other signer preferred by the client.
+    byte[] sha384Resp = answer(buildRequest(OIWObjectIdentifiers.idSHA1, 3, SignAlgo.ECDSA_SHA384));
+    assertResponse(sha384Resp, OIWObjectIdentifiers.idSHA1, SignAlgo.ECDSA_SHA384);
+
+    // the preferred signer is the one of the pre-signed responses.
+    Assert.assertArrayEquals(presignedResp, answer(buildRequest(OIWObjectIdentifiers.idSHA1, 3, SignAlgo.ECDSA_SHA256)));
+  } // method presignedResponseServed
+
+  @Test
+  public void expiringResponseRegenerated() throws Exception {
+    presignAll();
+    server.presigned.clear();
+
+    // all responses are still valid for more than 20 minutes, none is re-generated.
+    Assert.assertEquals(0, presignAll());
+    Assert.assertTrue(server.presigned.isEmpty());
+
+    // the response of serial number 2 expires in 10 minutes.
+    int issuerId = responseCacher.getIssuer(
+        new RequestIssuer(HashAlgo.SHA1, issuerEntry.getEncodedHash(HashAlgo.SHA1))).getId();
+    long now = Instant.now().getEpochSecond();
+    byte[] oldResp = {1, 2, 3};
+    responseCacher.storeOcspResponse(issuerId, BigInteger.TWO, now - VALIDITY + 600, now + 86400,
+        HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, oldResp, true);
+
+    Assert.assertEquals(1, presignAll());
+    Assert.assertEquals(Collections.singleton(BigInteger.TWO), server.presigned);
+
+    byte[] resp = answer(buildRequest(OIWObjectIdentifiers.idSHA1, 2, null));
+    Assert.assertFalse("old response served", Arrays.equals(oldResp, resp));
+    assertResponse(resp, OIWObjectIdentifiers.idSHA1, SignAlgo.ECDSA_SHA256);
+  } // method expiringResponseRegenerated
+
+  @Test
+  public void expiredResponseNotServed() throws Exception {
+    presignAll();
+
+    // the response of serial number 4 is older than the validity, but not removed yet.
+    int issuerId = responseCacher.getIssuer(
+        new RequestIssuer(HashAlgo.SHA1, issuerEntry.getEncodedHash(HashAlgo.SHA1))).getId();
+    long now = Instant.now().getEpochSecond();
+    byte[] expiredResp = {1, 2, 3};
+    responseCacher.storeOcspResponse(issuerId, BigInteger.valueOf(4), now - VALIDITY - 1, now + 86400,
+        HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, expiredResp, true);
+    Assert.assertNull(responseCacher.getOcspResponse(issuerId, BigInteger.valueOf(4),
+        HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+
+    byte[] resp = answer(buildRequest(OIWObjectIdentifiers.idSHA1, 4, null));
+    Assert.assertFalse("expired response served", Arrays.equals(expiredResp, resp));
+    assertResponse(resp, OIWObjectIdentifiers.idSHA1, SignAlgo.ECDSA_SHA256);
+  } // method expiredResponseNotServed
+
+  /**
+   * Walks through all certificates and waits until the submitted responses are generated.
+   * @return number of the submitted responses.
+   */
+  private long presignAll() throws Exception {
+    long done = preSigner.getNumSigned() + preSigner.getNumSkipped();
+    long submitted = preSigner.walk(0);
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (preSigner.getNumSigned() + preSigner.getNumSkipped() < done + submitted) {
+      if (System.currentTimeMillis() > deadline) {
+        Assert.fail("responses not pre-signed within 10 seconds");
+      }
+      Thread.sleep(10);
+    }
+
+    Assert.assertEquals("skipped responses", 0, preSigner.getNumSkipped());
+    return submitted;
+  } // method presignAll
+
+  private byte[] answer(byte[] request) {
+    OcspRespWithCacheInfo resp = server.answer(responder, request, false);
+    Assert.assertNotNull(resp);
+    return resp.getResponse();
+  }
+
+  private static byte[] buildRequest(ASN1ObjectIdentifier hashAlgOid, long serial, SignAlgo prefSigAlgo)
+      throws Exception {
+    CertificateID certId = new CertificateID(
+        new JcaDigestCalculatorProviderBuilder().build().get(new AlgorithmIdentifier(hashAlgOid)),
+        new X509CertificateHolder(issuerCert.getEncoded()), BigInteger.valueOf(serial));
+
+    OCSPReqBuilder builder = new OCSPReqBuilder().addRequest(certId);
+    if (prefSigAlgo != null) {
+      byte[] extnValue = new DERSequence(prefSigAlgo.getAlgorithmIdentifier()).getEncoded();
+      builder.setRequestExtensions(new Extensions(new Extension(
+          ObjectIdentifiers.Extn.id_pkix_ocsp_prefSigAlgs, false, new DEROctetString(extnValue))));
+    }
+    return builder.build().getEncoded();
+  } // method buildRequest
+
+  private static void assertResponse(byte[] encodedResp, ASN1ObjectIdentifier certIdHashAlgOid, SignAlgo sigAlgo)
+      throws Exception {
+    OCSPResp resp = new OCSPResp(encodedResp);
+    Assert.assertEquals(OCSPResp.SUCCESSFUL, resp.getStatus());
+    BasicOCSPResp basicResp = (BasicOCSPResp) resp.getResponseObject();
+    Assert.assertEquals(sigAlgo.getAlgorithmIdentifier().getAlgorithm(), basicResp.getSignatureAlgOID());
+    Assert.assertEquals(certIdHashAlgOid, basicResp.getResponses()[0].getCertID().getHashAlgOID());
+  }
+
+  private static byte[] decodeResp(Object dbValue) {
+    // the column RESP of the in-memory database is detected as text column.
+    return Base64.decode((String) dbValue);
+  }
+
+  private static ConcurrentContentSigner newSigner(SignAlgo sigAlgo, String jceAlgo, KeyPair kp, X509Cert cert)
+      throws Exception {
+    List<XiContentSigner> signers = Collections.singletonList(
+        new SignatureSigner(sigAlgo, Signature.getInstance(jceAlgo), kp.getPrivate()));
+    DfltConcurrentContentSigner signer = new DfltConcurrentContentSigner(false, signers, kp.getPrivate());
+    signer.setCertificateChain(new X509Cert[]{cert});
+    return signer;
+  }
+
+  private static X509Cert newCert(String issuer, String subject, KeyPair issuerKp, KeyPair kp) throws Exception {
+    Instant now = Instant.now();
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(new X500Name(issuer), BigInteger.ONE,
+        Date.from(now.minus(1, ChronoUnit.DAYS)), Date.from(now.plus(365, ChronoUnit.DAYS)), new X500Name(subject),
+        SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded()));
+    return new X509Cert(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(issuerKp.getPrivate())));
+  }
+
+}
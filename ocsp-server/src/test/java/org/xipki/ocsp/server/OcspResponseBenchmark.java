@@ -0,0 +1,186 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server;
+
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.ASN1Sequence;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.AlgorithmIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.ocsp.server.type.CertID;
+import org.xipki.ocsp.server.type.ExtendedExtension;
+import org.xipki.ocsp.server.type.ResponderID;
+import org.xipki.ocsp.server.type.TaggedCertSequence;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.DfltConcurrentContentSigner;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.ObjectIdentifiers;
+import org.xipki.security.SignAlgo;
+import org.xipki.security.SignatureSigner;
+import org.xipki.security.X509Cert;
+import org.xipki.security.XiContentSigner;
+import org.xipki.security.pkcs12.HmacContentSigner;
+import org.xipki.util.BenchmarkExecutor;
+
+import javax.crypto.spec.SecretKeySpec;
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.security.Signature;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Benchmark of the OCSP response encoding: the selection of the signer with
+ * {@link ResponseSigner#getSignerForPreferredSigAlgs(ExtendedExtension)}, and the encoding and
+ * signing with {@link OCSPRespBuilder}.
+ * <p>
+ * With the signer hmac the costs of the encoding dominate, with ecdsa those of the signature. With
+ * the selection parsed, the preferred signature algorithms are parsed as before the in-place scan.
+ * <p>
+ * This is not a JUnit test, run {@link #main(String[])} with the test classpath:
+ * <pre>
+ *   OcspResponseBenchmark [hmac|ecdsa] [scan|parsed] [threads] [duration]
+ * </pre>
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class OcspResponseBenchmark extends BenchmarkExecutor {
+
+  private class Tester implements Runnable {
+
+    private static final int BATCH = 100;
+
+    private final byte[] good = new byte[]{(byte) 0x80, 0x00};
+
+    @Override
+    public void run() {
+      while (!stop() && getErrorAccount() < 1) {
+        try {
+          for (int i = 0; i < BATCH; i++) {
+            ConcurrentContentSigner signer = parsePrefSigAlgs
+                ? responseSigner.getSignerForPreferredSigAlgs(parse(prefSigAlgsExtn))
+                : responseSigner.getSignerForPreferredSigAlgs(prefSigAlgsExtn);
+
+            Instant now = Instant.now();
+            OCSPRespBuilder builder = new OCSPRespBuilder(responderId);
+            builder.addResponse(certId, good, now, now.plus(1, ChronoUnit.DAYS), null);
+            builder.buildOCSPResponse(signer, certs, now);
+          }
+          account(BATCH, 0);
+        } catch (Exception ex) {
+          System.err.println("error building OCSP response: " + ex.getMessage());
+          account(BATCH, BATCH);
+        }
+      }
+    }
+
+  } // class Tester
+
+  private final ResponseSigner responseSigner;
+
+  private final ResponderID responderId;
+
+  private final TaggedCertSequence certs;
+
+  private final CertID certId;
+
+  private final ExtendedExtension prefSigAlgsExtn;
+
+  private final boolean parsePrefSigAlgs;
+
+  public OcspResponseBenchmark(boolean hmac, boolean parsePrefSigAlgs, int threads) throws Exception {
+    super("OCSP response encoding, signer " + (hmac ? "HMAC-SHA256" : "ECDSA-SHA256")
+        + ", preferred signature algorithms " + (parsePrefSigAlgs ? "parsed" : "scanned"));
+    this.parsePrefSigAlgs = parsePrefSigAlgs;
+
+    SignAlgo sigAlgo = hmac ? SignAlgo.HMAC_SHA256 : SignAlgo.ECDSA_SHA256;
+    List<XiContentSigner> signers = new ArrayList<>(threads);
+    DfltConcurrentContentSigner csigner;
+    if (hmac) {
+      SecretKeySpec key = new SecretKeySpec(new byte[32], "HMACSHA256");
+      for (int i = 0; i < threads; i++) {
+        signers.add(new HmacContentSigner(sigAlgo, key));
+      }
+      csigner = new DfltConcurrentContentSigner(true, signers, key);
+      csigner.setSha1DigestOfMacKey(HashAlgo.SHA1.hash(key.getEncoded()));
+    } else {
+      KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+      kpGen.initialize(256);
+      KeyPair kp = kpGen.generateKeyPair();
+      for (int i = 0; i < threads; i++) {
+        signers.add(new SignatureSigner(sigAlgo, Signature.getInstance("SHA256withECDSA"), kp.getPrivate()));
+      }
+      csigner = new DfltConcurrentContentSigner(false, signers, kp.getPrivate());
+      csigner.setCertificateChain(new X509Cert[]{newCert(kp)});
+    }
+
+    this.responseSigner = new ResponseSigner(Collections.singletonList(csigner));
+    this.responderId = responseSigner.getResponderId(!hmac);
+    this.certs = hmac ? null : responseSigner.getSequenceOfCert();
+    this.certId = new CertID(new RequestIssuer(HashAlgo.SHA1, new byte[40]), BigInteger.valueOf(0x123456789L));
+
+    // the signature algorithm of the signer is the most preferred one.
+    byte[] extnValue = new DERSequence(new AlgorithmIdentifier[]{sigAlgo.getAlgorithmIdentifier(),
+        SignAlgo.RSA_SHA256.getAlgorithmIdentifier()}).getEncoded();
+    byte[] extn = new Extension(ObjectIdentifiers.Extn.id_pkix_ocsp_prefSigAlgs, false,
+        new DEROctetString(extnValue)).getEncoded();
+    this.prefSigAlgsExtn = ExtendedExtension.getInstance(extn, 0, extn.length);
+  } // constructor
+
+  @Override
+  protected Runnable getTester() {
+    return new Tester();
+  }
+
+  /**
+   * Parses the preferred signature algorithms as before the in-place scan.
+   */
+  private static List<AlgorithmIdentifier> parse(ExtendedExtension extn) throws Exception {
+    try (ASN1InputStream asn1Stream = new ASN1InputStream(extn.getExtnValueStream())) {
+      ASN1Sequence seq = ASN1Sequence.getInstance(asn1Stream.readObject());
+      List<AlgorithmIdentifier> list = new ArrayList<>(seq.size());
+      for (int i = 0; i < seq.size(); i++) {
+        list.add(AlgorithmIdentifier.getInstance(seq.getObjectAt(i)));
+      }
+      return list;
+    }
+  }
+
+  private static X509Cert newCert(KeyPair kp) throws Exception {
+    X500Name subject = new X500Name("CN=ocsp-responder");
+    Instant now = Instant.now();
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(subject, BigInteger.ONE,
+        Date.from(now), Date.from(now.plus(365, ChronoUnit.DAYS)), subject,
+        SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded()));
+    return new X509Cert(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate())));
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    boolean hmac = args.length < 1 || !"ecdsa".equalsIgnoreCase(args[0]);
+    boolean parsed = args.length >= 2 && "parsed".equalsIgnoreCase(args[1]);
+    int threads = args.length < 3 ? 4 : Integer.parseInt(args[2]);
+    String duration = args.length < 4 ? "10s" : args[3];
+
+    new OcspResponseBenchmark(hmac, parsed, threads).setThreads(threads).setDuration(duration)
+        .setUnit("responses").execute();
+  }
+
+}
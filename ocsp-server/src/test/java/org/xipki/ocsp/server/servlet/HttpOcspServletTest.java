@@ -0,0 +1,82 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.servlet;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * JUnit test case of the HTTP date and the conditional requests of {@link HttpOcspServlet}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class HttpOcspServletTest {
+
+  private static final String ETAG = "\"0123456789abcdef0123456789abcdef01234567\"";
+
+  private static final String OTHER_ETAG = "\"fedcba9876543210fedcba9876543210fedcba98\"";
+
+  // Sun, 06 Nov 1994 08:49:37 GMT
+  private static final long LAST_MODIFIED =
+      ZonedDateTime.of(1994, 11, 6, 8, 49, 37, 0, ZoneOffset.UTC).toEpochSecond();
+
+  @Test
+  public void formatHttpDate() {
+    // the example of RFC 7231 7.1.1.1, the day of month has two digits.
+    Assert.assertEquals("Sun, 06 Nov 1994 08:49:37 GMT", HttpOcspServlet.formatHttpDate(LAST_MODIFIED));
+    Assert.assertEquals("Thu, 01 Jan 1970 00:00:00 GMT", HttpOcspServlet.formatHttpDate(0));
+    Assert.assertEquals("Wed, 31 Dec 2025 23:59:59 GMT",
+        HttpOcspServlet.formatHttpDate(ZonedDateTime.of(2025, 12, 31, 23, 59, 59, 0, ZoneOffset.UTC).toEpochSecond()));
+  }
+
+  @Test
+  public void ifNoneMatch() {
+    // strong tags
+    Assert.assertTrue(notModified(ETAG, null));
+    Assert.assertTrue(notModified(OTHER_ETAG + ", " + ETAG, null));
+    Assert.assertFalse(notModified(OTHER_ETAG, null));
+    // the tag without quotes does not match.
+    Assert.assertFalse(notModified(ETAG.substring(1, ETAG.length() - 1), null));
+
+    // weak tags
+    Assert.assertTrue(notModified("W/" + ETAG, null));
+    Assert.assertTrue(notModified("W/" + OTHER_ETAG + ",W/" + ETAG, null));
+    Assert.assertFalse(notModified("W/" + OTHER_ETAG, null));
+
+    // any tag
+    Assert.assertTrue(notModified("*", null));
+  } // method ifNoneMatch
+
+  @Test
+  public void ifModifiedSince() {
+    Assert.assertFalse(notModified(null, null));
+    Assert.assertTrue(notModified(null, HttpOcspServlet.formatHttpDate(LAST_MODIFIED)));
+    Assert.assertTrue(notModified(null, HttpOcspServlet.formatHttpDate(LAST_MODIFIED + 60)));
+    Assert.assertFalse(notModified(null, HttpOcspServlet.formatHttpDate(LAST_MODIFIED - 1)));
+    // the day of month with one digit is accepted.
+    Assert.assertTrue(notModified(null, "Sun, 6 Nov 1994 08:49:37 GMT"));
+    // invalid dates are ignored.
+    Assert.assertFalse(notModified(null, "Sunday, 06-Nov-94 08:49:37 GMT"));
+    Assert.assertFalse(notModified(null, "invalid"));
+  } // method ifModifiedSince
+
+  @Test
+  public void ifNoneMatchTakesPrecedence() {
+    String notModifiedSince = HttpOcspServlet.formatHttpDate(LAST_MODIFIED);
+    String modifiedSince = HttpOcspServlet.formatHttpDate(LAST_MODIFIED - 3600);
+
+    // If-Modified-Since is ignored if If-None-Match is present.
+    Assert.assertFalse(notModified(OTHER_ETAG, notModifiedSince));
+    Assert.assertTrue(notModified(ETAG, modifiedSince));
+    Assert.assertTrue(notModified("W/" + ETAG, modifiedSince));
+  } // method ifNoneMatchTakesPrecedence
+
+  private static boolean notModified(String ifNoneMatch, String ifModifiedSince) {
+    return HttpOcspServlet.isNotModified(ifNoneMatch, ifModifiedSince, ETAG, LAST_MODIFIED);
+  }
+
+}
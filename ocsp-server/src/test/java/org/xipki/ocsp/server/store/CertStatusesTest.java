@@ -0,0 +1,128 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.datasource.DataSourceWrapper;
+import org.xipki.ocsp.api.CertStatusInfo;
+import org.xipki.ocsp.api.OcspStore;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.X509Cert;
+import org.xipki.util.Validity;
+
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * JUnit test case of the retrieval of the status of several certificates with
+ * {@link OcspStore#getCertStatuses}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CertStatusesTest {
+
+  /**
+   * Store with only the default implementation of getCertStatuses0. The status of the certificates
+   * with serial number 0 is unknown to the store, the others are good, with nextUpdate in one day.
+   */
+  private static class TestStore extends OcspStore {
+
+    private int numQueries;
+
+    @Override
+    public boolean knowsIssuer(RequestIssuer reqIssuer) {
+      return true;
+    }
+
+    @Override
+    public X509Cert getIssuerCert(RequestIssuer reqIssuer) {
+      return null;
+    }
+
+    @Override
+    protected CertStatusInfo getCertStatus0(
+        Instant time, RequestIssuer reqIssuer, BigInteger serialNumber,
+        boolean includeCertHash, boolean includeRit, boolean inheritCaRevocation) {
+      numQueries++;
+      return serialNumber.signum() == 0 ? null
+          : CertStatusInfo.getGoodCertStatusInfo(time, time.plus(1, ChronoUnit.DAYS));
+    }
+
+    @Override
+    public void init(Map<String, ?> sourceConf, DataSourceWrapper datasource) {
+    }
+
+    @Override
+    public boolean isHealthy() {
+      return true;
+    }
+
+    @Override
+    public void close() {
+    }
+
+  } // class TestStore
+
+  private static final RequestIssuer ISSUER = new RequestIssuer(HashAlgo.SHA1, new byte[40]);
+
+  @Test
+  public void defaultImplementation() throws Exception {
+    TestStore store = new TestStore();
+    Instant now = Instant.now();
+    Map<BigInteger, CertStatusInfo> infos = store.getCertStatuses(now, ISSUER,
+        Arrays.asList(BigInteger.ONE, BigInteger.TWO, BigInteger.TEN), false, false, false);
+
+    Assert.assertEquals(3, store.numQueries);
+    Assert.assertEquals(3, infos.size());
+    for (CertStatusInfo info : infos.values()) {
+      Assert.assertEquals(now.plus(1, ChronoUnit.DAYS), info.getNextUpdate());
+    }
+
+    // only the unknown certificate is not contained, the status of the others is still returned.
+    infos = store.getCertStatuses(now, ISSUER,
+        Arrays.asList(BigInteger.ONE, BigInteger.ZERO, BigInteger.TWO), false, false, false);
+    Assert.assertEquals(2, infos.size());
+    Assert.assertNotNull(infos.get(BigInteger.ONE));
+    Assert.assertNotNull(infos.get(BigInteger.TWO));
+    Assert.assertNull(infos.get(BigInteger.ZERO));
+    Assert.assertNull(store.getCertStatus(now, ISSUER, BigInteger.ZERO, false, false, false));
+  } // method defaultImplementation
+
+  @Test
+  public void nextUpdateLimits() throws Exception {
+    TestStore store = new TestStore();
+    Instant now = Instant.now();
+
+    // the same limits as for the single lookup apply to each certificate.
+    store.setNextUpdatePeriodLimit(null, Validity.getInstance("2h"));
+    for (CertStatusInfo info : store.getCertStatuses(now, ISSUER,
+        Arrays.asList(BigInteger.ONE, BigInteger.TWO), false, false, false).values()) {
+      Assert.assertEquals(now.plus(2, ChronoUnit.HOURS), info.getNextUpdate());
+    }
+    Assert.assertEquals(now.plus(2, ChronoUnit.HOURS),
+        store.getCertStatus(now, ISSUER, BigInteger.ONE, false, false, false).getNextUpdate());
+
+    store.setNextUpdatePeriodLimit(Validity.getInstance("2d"), null);
+    for (CertStatusInfo info : store.getCertStatuses(now, ISSUER,
+        Arrays.asList(BigInteger.ONE, BigInteger.TWO), false, false, false).values()) {
+      Assert.assertEquals(now.plus(2, ChronoUnit.DAYS), info.getNextUpdate());
+    }
+  } // method nextUpdateLimits
+
+  @Test
+  public void sqlWithSerials() {
+    String prefix = "SELECT SN FROM CERT WHERE IID=? AND SN IN ";
+    Assert.assertEquals(prefix + "(?)", DbCertStatusStore.buildSqlWithSerials(prefix, 1));
+    Assert.assertEquals(prefix + "(?,?,?)", DbCertStatusStore.buildSqlWithSerials(prefix, 3));
+
+    String sql = DbCertStatusStore.buildSqlWithSerials(prefix, 100);
+    Assert.assertEquals(101, sql.chars().filter(c -> c == '?').count());
+  } // method sqlWithSerials
+
+}
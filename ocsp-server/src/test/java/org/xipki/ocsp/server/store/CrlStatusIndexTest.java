@@ -0,0 +1,148 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * JUnit test case of {@link CrlStatusIndex}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CrlStatusIndexTest {
+
+  @Test
+  public void singleRunSingleSegment() throws Exception {
+    buildAndFind(1000, 100_000, 1 << 30);
+  }
+
+  @Test
+  public void spilledRunsAndSegments() throws Exception {
+    // 1000 entries in runs of 37 entries, each segment contains only a few records.
+    buildAndFind(1000, 37, 500);
+  }
+
+  @Test
+  public void emptyIndex() throws Exception {
+    File dir = Files.createTempDirectory("crl-status-index").toFile();
+    File file = new File(dir, "issuer.idx");
+    try {
+      CrlStatusIndex index = new CrlStatusIndex.Builder(1, file, 10, 100).build();
+      Assert.assertEquals(0, index.size());
+      Assert.assertEquals(-1, index.find(BigInteger.ONE));
+    } finally {
+      deleteDir(dir);
+    }
+  }
+
+  @Test
+  public void fileDeletedAfterLastRelease() throws Exception {
+    File dir = Files.createTempDirectory("crl-status-index").toFile();
+    File file = new File(dir, "issuer.idx");
+    try {
+      CrlStatusIndex.Builder builder = new CrlStatusIndex.Builder(1, file, 10, 100);
+      builder.add(BigInteger.TEN, true, 1, 2, 3, 4, 5, 6);
+      CrlStatusIndex index = builder.build();
+
+      // a running lookup
+      Assert.assertTrue(index.retain());
+
+      // the index is replaced, the store releases its reference.
+      index.release();
+      Assert.assertFalse(index.isReleased());
+      Assert.assertTrue("index file exists while referenced", file.exists());
+      long record = index.find(BigInteger.TEN);
+      Assert.assertEquals(0, record);
+      Assert.assertEquals(3, index.getRevTime(record));
+
+      // the lookup is completed
+      index.release();
+      Assert.assertTrue(index.isReleased());
+      Assert.assertFalse("index file deleted", file.exists());
+
+      // a released index cannot be used by new lookups.
+      Assert.assertFalse(index.retain());
+    } finally {
+      deleteDir(dir);
+    }
+  } // method fileDeletedAfterLastRelease
+
+  private static void buildAndFind(int numCerts, int runSize, int maxSegmentSize) throws Exception {
+    Random rnd = new Random(numCerts);
+    List<BigInteger> serials = new ArrayList<>(numCerts);
+    for (int i = 0; i < numCerts; i++) {
+      // serial numbers of different lengths, so that the padding is tested too.
+      BigInteger serial = new BigInteger(8 + rnd.nextInt(152), rnd).add(BigInteger.ONE);
+      if (!serials.contains(serial)) {
+        serials.add(serial);
+      }
+    }
+
+    List<BigInteger> shuffled = new ArrayList<>(serials);
+    Collections.shuffle(shuffled, rnd);
+
+    File dir = Files.createTempDirectory("crl-status-index").toFile();
+    File file = new File(dir, "issuer.idx");
+    try {
+      CrlStatusIndex.Builder builder = new CrlStatusIndex.Builder(1, file, runSize, maxSegmentSize);
+      for (BigInteger serial : shuffled) {
+        long v = serial.longValue();
+        boolean revoked = (v & 1) == 1;
+        builder.add(serial, revoked, revoked ? (int) (v & 0x7) : 0, (int) (v & 0xFFFF),
+            revoked ? v : 0, 0, v >>> 1, v >>> 2);
+      }
+
+      CrlStatusIndex index = builder.build();
+      Assert.assertEquals(serials.size(), index.size());
+
+      // the temporary files are deleted.
+      String[] files = dir.list();
+      Assert.assertNotNull(files);
+      Assert.assertEquals("files in the index directory", 1, files.length);
+
+      for (BigInteger serial : serials) {
+        long record = index.find(serial);
+        Assert.assertNotEquals("serial " + serial.toString(16) + " not found", -1, record);
+
+        long v = serial.longValue();
+        boolean revoked = (v & 1) == 1;
+        Assert.assertEquals(revoked, index.isRevoked(record));
+        Assert.assertEquals(revoked ? (int) (v & 0x7) : 0, index.getReason(record));
+        Assert.assertEquals((int) (v & 0xFFFF), index.getCrlId(record));
+        Assert.assertEquals(revoked ? v : 0, index.getRevTime(record));
+        Assert.assertEquals(v >>> 1, index.getNotBefore(record));
+        Assert.assertEquals(v >>> 2, index.getNotAfter(record));
+
+        BigInteger notIncluded = serial.add(BigInteger.ONE);
+        if (!serials.contains(notIncluded)) {
+          Assert.assertEquals(-1, index.find(notIncluded));
+        }
+      }
+
+      Assert.assertEquals(-1, index.find(BigInteger.ONE.shiftLeft(200)));
+    } finally {
+      deleteDir(dir);
+    }
+  }
+
+  private static void deleteDir(File dir) {
+    File[] files = dir.listFiles();
+    if (files != null) {
+      for (File f : files) {
+        f.delete();
+      }
+    }
+    dir.delete();
+  }
+
+}
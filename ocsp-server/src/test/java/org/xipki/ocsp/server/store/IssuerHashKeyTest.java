@@ -0,0 +1,151 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.X509Cert;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * JUnit test case of {@link IssuerHashKey}, the lookup of issuers in {@link IssuerStore} must
+ * return the same issuer as the linear scan with {@link IssuerEntry#matchHash(RequestIssuer)}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class IssuerHashKeyTest {
+
+  private static final List<IssuerEntry> issuers = new ArrayList<>();
+
+  @BeforeClass
+  public static void init() throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    X509Cert cert1 = newCert("CN=issuer-1");
+    X509Cert cert2 = newCert("CN=issuer-2");
+    issuers.add(new IssuerEntry(1, cert1));
+    issuers.add(new IssuerEntry(2, cert2));
+    issuers.add(new IssuerEntry(3, newCert("CN=issuer-3")));
+    // the same certificate as issuer 2, the first one wins.
+    issuers.add(new IssuerEntry(4, cert2));
+  }
+
+  @Test
+  public void sameIssuerAsLinearScan() throws Exception {
+    IssuerStore store = new IssuerStore();
+    store.setIssuers(issuers);
+
+    for (HashAlgo hashAlgo : HashAlgo.values()) {
+      List<byte[]> hashes = new ArrayList<>();
+      for (IssuerEntry issuer : issuers) {
+        hashes.add(issuer.getEncodedHash(hashAlgo));
+      }
+
+      // unknown issuer: the key hash of the last issuer is modified.
+      byte[] unknown = issuers.get(2).getEncodedHash(hashAlgo);
+      unknown[unknown.length - 1]++;
+      hashes.add(unknown);
+
+      for (byte[] hash : hashes) {
+        for (RequestIssuer reqIssuer : newRequestIssuers(hashAlgo, hash)) {
+          Assert.assertSame(hashAlgo.name(), linearScan(reqIssuer), store.getIssuerForFp(reqIssuer));
+        }
+      }
+    }
+
+    Assert.assertEquals(2, store.getIssuerForFp(new RequestIssuer(HashAlgo.SHA256,
+        issuers.get(3).getEncodedHash(HashAlgo.SHA256))).getId());
+  } // method sameIssuerAsLinearScan
+
+  @Test
+  public void addIssuer() throws Exception {
+    IssuerStore store = new IssuerStore();
+    store.setIssuers(issuers.subList(0, 2));
+    RequestIssuer reqIssuer = new RequestIssuer(HashAlgo.SHA1, issuers.get(2).getEncodedHash(HashAlgo.SHA1));
+    Assert.assertNull(store.getIssuerForFp(reqIssuer));
+
+    store.addIssuer(issuers.get(2));
+    Assert.assertSame(issuers.get(2), store.getIssuerForFp(reqIssuer));
+    Assert.assertSame(issuers.get(2), store.getIssuerForId(3));
+  } // method addIssuer
+
+  @Test
+  public void keyEquality() throws Exception {
+    IssuerEntry issuer = issuers.get(0);
+    for (HashAlgo hashAlgo : HashAlgo.values()) {
+      byte[] hash = issuer.getEncodedHash(hashAlgo);
+      IssuerHashKey key = IssuerHashKey.ofIssuer(hashAlgo, hash);
+      for (RequestIssuer reqIssuer : newRequestIssuers(hashAlgo, hash)) {
+        IssuerHashKey reqKey = IssuerHashKey.ofRequest(reqIssuer);
+        Assert.assertEquals(key, reqKey);
+        Assert.assertEquals(key.hashCode(), reqKey.hashCode());
+      }
+    }
+
+    // the same bytes with another hash algorithm.
+    byte[] hash = issuer.getEncodedHash(HashAlgo.SHA256);
+    Assert.assertNotEquals(IssuerHashKey.ofIssuer(HashAlgo.SHA256, hash), IssuerHashKey.ofIssuer(HashAlgo.SHA3_256, hash));
+
+    // the request is too short.
+    byte[] data = new RequestIssuer(HashAlgo.SHA256, hash).getData();
+    Assert.assertNull(IssuerHashKey.ofRequest(new RequestIssuer(data, 0, data.length - 1)));
+  } // method keyEquality
+
+  private static IssuerEntry linearScan(RequestIssuer reqIssuer) {
+    for (IssuerEntry issuer : issuers) {
+      if (issuer.matchHash(reqIssuer)) {
+        return issuer;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the created request issuer, and the request issuer parsed from a CertID within a
+   * request, namely at an offset and followed by the serial number.
+   */
+  private static List<RequestIssuer> newRequestIssuers(HashAlgo hashAlgo, byte[] hash) throws Exception {
+    RequestIssuer created = new RequestIssuer(hashAlgo, hash);
+    byte[] data = created.getData();
+    byte[] request = new byte[11 + data.length + 4];
+    System.arraycopy(data, 0, request, 11, data.length);
+    // serial number
+    System.arraycopy(new byte[]{0x02, 0x02, 0x01, 0x02}, 0, request, 11 + data.length, 4);
+    return Arrays.asList(created, new RequestIssuer(request, 11, data.length));
+  }
+
+  private static X509Cert newCert(String subjectText) throws Exception {
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair kp = kpGen.generateKeyPair();
+
+    X500Name subject = new X500Name(subjectText);
+    Instant now = Instant.now();
+    X509v3CertificateBuilder builder = new X509v3CertificateBuilder(subject, BigInteger.ONE,
+        Date.from(now), Date.from(now.plus(365, ChronoUnit.DAYS)), subject,
+        SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded()));
+    return new X509Cert(builder.build(new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate())));
+  }
+
+}
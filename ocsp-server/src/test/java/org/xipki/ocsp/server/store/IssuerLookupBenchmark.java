@@ -0,0 +1,132 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.SubjectPublicKeyInfo;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.jce.provider.BouncyCastleProvider;
+import org.bouncycastle.operator.ContentSigner;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.xipki.ocsp.api.RequestIssuer;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.X509Cert;
+import org.xipki.util.BenchmarkExecutor;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.Security;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmark of the issuer lookup {@link IssuerStore#getIssuerForFp(RequestIssuer)} against the
+ * linear scan with {@link IssuerEntry#matchHash(RequestIssuer)} used before.
+ * <p>
+ * This is not a JUnit test, run {@link #main(String[])} with the test classpath:
+ * <pre>
+ *   IssuerLookupBenchmark [number of issuers] [hash|linear] [threads] [duration]
+ * </pre>
+ * e.g. with 1, 100 and 10000 issuers.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class IssuerLookupBenchmark extends BenchmarkExecutor {
+
+  private class Tester implements Runnable {
+
+    private static final int BATCH = 1000;
+
+    @Override
+    public void run() {
+      int idx = 0;
+      while (!stop() && getErrorAccount() < 1) {
+        int failed = 0;
+        for (int i = 0; i < BATCH; i++) {
+          RequestIssuer reqIssuer = requests[idx];
+          idx = (idx + 1) % requests.length;
+          IssuerEntry issuer = linear ? linearScan(reqIssuer) : store.getIssuerForFp(reqIssuer);
+          if (issuer == null) {
+            failed++;
+          }
+        }
+        account(BATCH, failed);
+      }
+    }
+
+  } // class Tester
+
+  private static final int NUM_REQUESTS = 1024;
+
+  private final List<IssuerEntry> issuers;
+
+  private final IssuerStore store = new IssuerStore();
+
+  private final RequestIssuer[] requests = new RequestIssuer[NUM_REQUESTS];
+
+  private final boolean linear;
+
+  public IssuerLookupBenchmark(int numIssuers, boolean linear) throws Exception {
+    super("issuer lookup, " + numIssuers + " issuers, " + (linear ? "linear scan" : "hash"));
+    this.linear = linear;
+
+    // all issuers share the key, they differ in the name.
+    KeyPairGenerator kpGen = KeyPairGenerator.getInstance("EC");
+    kpGen.initialize(256);
+    KeyPair kp = kpGen.generateKeyPair();
+    ContentSigner signer = new JcaContentSignerBuilder("SHA256withECDSA").build(kp.getPrivate());
+    SubjectPublicKeyInfo pkInfo = SubjectPublicKeyInfo.getInstance(kp.getPublic().getEncoded());
+
+    Instant now = Instant.now();
+    issuers = new ArrayList<>(numIssuers);
+    for (int i = 0; i < numIssuers; i++) {
+      X500Name subject = new X500Name("CN=issuer-" + i);
+      X509v3CertificateBuilder builder = new X509v3CertificateBuilder(subject, BigInteger.ONE,
+          Date.from(now), Date.from(now.plus(365, ChronoUnit.DAYS)), subject, pkInfo);
+      issuers.add(new IssuerEntry(i + 1, new X509Cert(builder.build(signer))));
+    }
+    store.setIssuers(issuers);
+
+    // requests with SHA-1 CertIDs of random issuers.
+    Random random = new Random(1);
+    for (int i = 0; i < NUM_REQUESTS; i++) {
+      IssuerEntry issuer = issuers.get(random.nextInt(numIssuers));
+      requests[i] = new RequestIssuer(HashAlgo.SHA1, issuer.getEncodedHash(HashAlgo.SHA1));
+    }
+  } // constructor
+
+  @Override
+  protected Runnable getTester() {
+    return new Tester();
+  }
+
+  private IssuerEntry linearScan(RequestIssuer reqIssuer) {
+    for (IssuerEntry issuer : issuers) {
+      if (issuer.matchHash(reqIssuer)) {
+        return issuer;
+      }
+    }
+    return null;
+  }
+
+  public static void main(String[] args) throws Exception {
+    if (Security.getProvider("BC") == null) {
+      Security.addProvider(new BouncyCastleProvider());
+    }
+
+    int numIssuers = args.length < 1 ? 100 : Integer.parseInt(args[0]);
+    boolean linear = args.length >= 2 && "linear".equalsIgnoreCase(args[1]);
+    int threads = args.length < 3 ? 4 : Integer.parseInt(args[2]);
+    String duration = args.length < 4 ? "10s" : args[3];
+
+    new IssuerLookupBenchmark(numIssuers, linear).setThreads(threads).setDuration(duration)
+        .setUnit("lookups").execute();
+  }
+
+}
@@ -0,0 +1,84 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.datasource.DataSourceFactory;
+import org.xipki.ocsp.server.InMemoryDataSource;
+import org.xipki.ocsp.server.OcspRespWithCacheInfo;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.SignAlgo;
+import org.xipki.util.Base64;
+import org.xipki.util.ConfigurableProperties;
+import org.xipki.util.Validity;
+
+import java.math.BigInteger;
+import java.sql.Types;
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * JUnit test case of the column OCSP.RESP of {@link ResponseCacher} in the text and the binary
+ * schema variant.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class ResponseCacherTest {
+
+  private static final byte[] RESPONSE = {0x30, 0x03, 0x0A, 0x01, 0x00, (byte) 0xFF};
+
+  private ResponseCacher responseCacher;
+
+  @After
+  public void close() {
+    if (responseCacher != null) {
+      // closes also the datasource
+      responseCacher.close();
+    }
+    InMemoryDataSource.dropTables();
+  }
+
+  @Test
+  public void binaryColumn() throws Exception {
+    InMemoryDataSource.setColumnType("OCSP", "RESP", Types.VARBINARY);
+    storeAndGet();
+
+    // stored without base64 encoding.
+    List<Object> values = InMemoryDataSource.getColumn("OCSP", "RESP");
+    Assert.assertEquals(1, values.size());
+    Assert.assertArrayEquals(RESPONSE, (byte[]) values.get(0));
+  } // method binaryColumn
+
+  @Test
+  public void textColumn() throws Exception {
+    storeAndGet();
+
+    List<Object> values = InMemoryDataSource.getColumn("OCSP", "RESP");
+    Assert.assertEquals(1, values.size());
+    Assert.assertEquals(Base64.encodeToString(RESPONSE), values.get(0));
+  } // method textColumn
+
+  private void storeAndGet() throws Exception {
+    ConfigurableProperties props = new ConfigurableProperties();
+    props.setProperty("dataSourceClassName", InMemoryDataSource.class.getName());
+    props.setProperty("sql.type", "H2");
+
+    // without memory cache, the response is read from the database.
+    responseCacher = new ResponseCacher(new DataSourceFactory().createDataSource("cache", props),
+        true, Validity.getInstance("1h"));
+    responseCacher.init();
+
+    long now = Instant.now().getEpochSecond();
+    BigInteger serial = BigInteger.valueOf(0x1234);
+    responseCacher.storeOcspResponse(1, serial, now, now + 86400, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, RESPONSE);
+
+    OcspRespWithCacheInfo resp = responseCacher.getOcspResponse(1, serial, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256);
+    Assert.assertNotNull("cached response", resp);
+    Assert.assertArrayEquals(RESPONSE, resp.getResponse());
+    Assert.assertEquals(now, resp.getCacheInfo().getGeneratedAt());
+  } // method storeAndGet
+
+}
@@ -0,0 +1,140 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.ocsp.server.OcspRespWithCacheInfo;
+import org.xipki.security.HashAlgo;
+import org.xipki.security.SignAlgo;
+
+import java.math.BigInteger;
+import java.time.Instant;
+
+/**
+ * JUnit test case of {@link ResponseMemoryCache}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class ResponseMemoryCacheTest {
+
+  @Test
+  public void putAndGet() {
+    ResponseMemoryCache cache = new ResponseMemoryCache(100, 3600, 60);
+    long now = Instant.now().getEpochSecond();
+    byte[] response = {1, 2, 3};
+    cache.put(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, now + 3600, response, "etag-1");
+
+    OcspRespWithCacheInfo resp = cache.get(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256);
+    Assert.assertNotNull(resp);
+    Assert.assertArrayEquals(response, resp.getResponse());
+    Assert.assertEquals(now, resp.getCacheInfo().getGeneratedAt());
+    Assert.assertEquals(Long.valueOf(now + 3600), resp.getCacheInfo().getNextUpdate());
+    Assert.assertEquals("etag-1", resp.getCacheInfo().getEtag());
+
+    // the key consists of issuer, serial number, hash algorithm of the CertID and signature algorithm.
+    Assert.assertNull(cache.get(2, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    Assert.assertNull(cache.get(1, BigInteger.TWO, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    Assert.assertNull(cache.get(1, BigInteger.ONE, HashAlgo.SHA256, SignAlgo.ECDSA_SHA256));
+    Assert.assertNull(cache.get(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA384));
+
+    Assert.assertEquals(1, cache.getHits());
+    Assert.assertEquals(4, cache.getMisses());
+
+    cache.remove(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256);
+    Assert.assertNull(cache.get(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    Assert.assertEquals(0, cache.size());
+  } // method putAndGet
+
+  @Test
+  public void withoutNextUpdate() {
+    ResponseMemoryCache cache = new ResponseMemoryCache(100, 3600, 60);
+    long now = Instant.now().getEpochSecond();
+    cache.put(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+
+    OcspRespWithCacheInfo resp = cache.get(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256);
+    Assert.assertNotNull(resp);
+    Assert.assertNull(resp.getCacheInfo().getNextUpdate());
+  } // method withoutNextUpdate
+
+  @Test
+  public void expiredEntries() {
+    ResponseMemoryCache cache = new ResponseMemoryCache(100, 3600, 60);
+    long now = Instant.now().getEpochSecond();
+    // nextUpdate within the buffer
+    cache.put(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, now + 30, new byte[1], null);
+    // older than the validity
+    cache.put(1, BigInteger.TWO, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now - 7200, 0, new byte[1], null);
+    // valid
+    cache.put(1, BigInteger.TEN, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, now + 3600, new byte[1], null);
+
+    Assert.assertNull(cache.get(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    Assert.assertEquals(1, cache.getEvictions());
+
+    Assert.assertEquals(1, cache.removeExpired());
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(2, cache.getEvictions());
+    Assert.assertNotNull(cache.get(1, BigInteger.TEN, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+  } // method expiredEntries
+
+  @Test
+  public void leastRecentlyUsedIsEvicted() {
+    // one segment with one entry.
+    ResponseMemoryCache cache = new ResponseMemoryCache(1, 3600, 60);
+    long now = Instant.now().getEpochSecond();
+    cache.put(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+    cache.put(1, BigInteger.TWO, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[2], null);
+    Assert.assertEquals(1, cache.size());
+    Assert.assertEquals(1, cache.getEvictions());
+    Assert.assertNull(cache.get(1, BigInteger.ONE, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+
+    cache = new ResponseMemoryCache(3, 3600, 60);
+    for (int i = 1; i <= 3; i++) {
+      cache.put(1, BigInteger.valueOf(i), HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[i], null);
+    }
+    // 3 segments with one entry each: the maximal size is never exceeded.
+    for (int i = 4; i <= 100; i++) {
+      cache.put(1, BigInteger.valueOf(i), HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+      Assert.assertTrue(cache.size() <= 3);
+    }
+  } // method leastRecentlyUsedIsEvicted
+
+  @Test
+  public void accessedEntryIsKept() {
+    // 16 segments with 2 entries each.
+    ResponseMemoryCache cache = new ResponseMemoryCache(32, 3600, 60);
+    long now = Instant.now().getEpochSecond();
+
+    // 3 serial numbers in the same segment.
+    BigInteger[] sns = new BigInteger[3];
+    sns[0] = BigInteger.ONE;
+    int found = 1;
+    for (int i = 2; found < 3; i++) {
+      if (sameSegment(sns[0], BigInteger.valueOf(i))) {
+        sns[found++] = BigInteger.valueOf(i);
+      }
+    }
+
+    cache.put(1, sns[0], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+    cache.put(1, sns[1], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+    // access the first entry, the second one becomes the eldest.
+    Assert.assertNotNull(cache.get(1, sns[0], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    cache.put(1, sns[2], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+
+    Assert.assertEquals(1, cache.getEvictions());
+    Assert.assertNotNull(cache.get(1, sns[0], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    Assert.assertNull(cache.get(1, sns[1], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+    Assert.assertNotNull(cache.get(1, sns[2], HashAlgo.SHA1, SignAlgo.ECDSA_SHA256));
+  } // method accessedEntryIsKept
+
+  private static boolean sameSegment(BigInteger sn1, BigInteger sn2) {
+    // 16 segments with 1 entry each: the second put evicts the first one if in the same segment.
+    ResponseMemoryCache probe = new ResponseMemoryCache(16, 3600, 60);
+    long now = Instant.now().getEpochSecond();
+    probe.put(1, sn1, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+    probe.put(1, sn2, HashAlgo.SHA1, SignAlgo.ECDSA_SHA256, now, 0, new byte[1], null);
+    return probe.getEvictions() == 1;
+  }
+
+}
@@ -0,0 +1,142 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.store;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.datasource.DataAccessException;
+import org.xipki.ocsp.server.store.ResponseCacher.PendingResponse;
+import org.xipki.ocsp.server.store.ResponseCacher.ResponseWriter;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * JUnit test case of the write-behind queue {@link ResponseWriter} of {@link ResponseCacher}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class ResponseWriterTest {
+
+  /**
+   * Records the written responses instead of writing them to the database.
+   */
+  private static class TestWriter extends ResponseWriter {
+
+    private final List<List<PendingResponse>> batches = Collections.synchronizedList(new ArrayList<>());
+
+    private final List<PendingResponse> singles = Collections.synchronizedList(new ArrayList<>());
+
+    // responses which cannot be written one by one.
+    private final List<PendingResponse> failingSingles = new ArrayList<>();
+
+    private volatile boolean failBatch;
+
+    TestWriter(int queueSize, int batchSize, long flushInterval) {
+      super(queueSize, batchSize, flushInterval);
+    }
+
+    @Override
+    int writeBatch(List<PendingResponse> batch) throws DataAccessException {
+      if (failBatch) {
+        throw new DataAccessException("batch failed");
+      }
+      batches.add(new ArrayList<>(batch));
+      return batch.size();
+    }
+
+    @Override
+    boolean writeSingle(PendingResponse resp) {
+      singles.add(resp);
+      return !failingSingles.contains(resp);
+    }
+
+  } // class TestWriter
+
+  @Test
+  public void responsesAreCoalesced() {
+    TestWriter writer = new TestWriter(10, 10, 1000);
+    PendingResponse resp1 = newResponse(1, 10);
+    PendingResponse resp2 = newResponse(1, 20);
+    Assert.assertTrue(writer.offer(resp1));
+    Assert.assertTrue(writer.offer(resp2));
+    Assert.assertSame(resp2, writer.get(1));
+
+    // an older response does not replace the newer one.
+    Assert.assertTrue(writer.offer(newResponse(1, 5)));
+    Assert.assertSame(resp2, writer.get(1));
+    Assert.assertEquals(1, writer.getQueueDepth());
+
+    PendingResponse resp3 = newResponse(1, 30);
+    Assert.assertTrue(writer.replace(resp3));
+    Assert.assertSame(resp3, writer.get(1));
+    Assert.assertFalse(writer.replace(newResponse(2, 30)));
+    Assert.assertNull(writer.get(2));
+  } // method responsesAreCoalesced
+
+  @Test
+  public void fullQueueDropsNewResponses() {
+    TestWriter writer = new TestWriter(2, 10, 1000);
+    Assert.assertTrue(writer.offer(newResponse(1, 10)));
+    Assert.assertTrue(writer.offer(newResponse(2, 10)));
+    Assert.assertFalse(writer.offer(newResponse(3, 10)));
+    Assert.assertEquals(1, writer.getNumDropped());
+
+    // responses for queued IDs are still accepted.
+    Assert.assertTrue(writer.offer(newResponse(2, 20)));
+    Assert.assertEquals(2, writer.getQueueDepth());
+  } // method fullQueueDropsNewResponses
+
+  @Test
+  public void writeInBatches() {
+    TestWriter writer = new TestWriter(100, 3, 50);
+    writer.start();
+    List<PendingResponse> responses = new ArrayList<>();
+    for (int i = 1; i <= 7; i++) {
+      PendingResponse resp = newResponse(i, 10);
+      responses.add(resp);
+      Assert.assertTrue(writer.offer(resp));
+    }
+
+    // the pending responses are written before the writer stops.
+    writer.stop();
+    Assert.assertEquals(0, writer.getQueueDepth());
+    Assert.assertEquals(7, writer.getNumWritten());
+
+    // written in the order of the queue.
+    List<PendingResponse> written = new ArrayList<>();
+    for (List<PendingResponse> batch : writer.batches) {
+      Assert.assertTrue(batch.size() <= 3);
+      written.addAll(batch);
+    }
+    Assert.assertEquals(responses, written);
+    Assert.assertFalse(writer.offer(newResponse(8, 10)));
+  } // method writeInBatches
+
+  @Test
+  public void failedBatchIsWrittenOneByOne() {
+    TestWriter writer = new TestWriter(100, 4, 50);
+    writer.failBatch = true;
+    for (int i = 1; i <= 4; i++) {
+      PendingResponse resp = newResponse(i, 10);
+      if (i % 2 == 1) {
+        writer.failingSingles.add(resp);
+      }
+      writer.offer(resp);
+    }
+    writer.start();
+    writer.stop();
+
+    Assert.assertEquals(4, writer.singles.size());
+    Assert.assertEquals(2, writer.getNumWritten());
+    Assert.assertEquals(2, writer.getNumFailed());
+    Assert.assertEquals(0, writer.getQueueDepth());
+  } // method failedBatchIsWrittenOneByOne
+
+  private static PendingResponse newResponse(long id, long generatedAt) {
+    return new PendingResponse(id, 1, "ident-" + id, generatedAt, 0, new byte[]{(byte) id}, null);
+  }
+
+}
@@ -0,0 +1,126 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.ocsp.server.type;
+
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.ocsp.OCSPObjectIdentifiers;
+import org.bouncycastle.asn1.x509.Extension;
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.security.ObjectIdentifiers;
+import org.xipki.security.SignAlgo;
+
+import java.util.Arrays;
+
+/**
+ * JUnit test case of the in-place scan of the extnValue in {@link ExtendedExtension}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class ExtendedExtensionTest {
+
+  private static final ASN1ObjectIdentifier OTHER_OID = new ASN1ObjectIdentifier("1.2.3.4");
+
+  private static final byte[] ENCODED_BASIC = encoded(OCSPObjectIdentifiers.id_pkix_ocsp_basic);
+
+  private static final byte[][] SIGNER_ALGIDS = {
+      encoded(SignAlgo.ECDSA_SHA256), encoded(SignAlgo.RSA_SHA256)};
+
+  @Test
+  public void acceptableResponses() throws Exception {
+    Assert.assertTrue(containsBasic(oidSequence(OCSPObjectIdentifiers.id_pkix_ocsp_basic)));
+    Assert.assertTrue(containsBasic(oidSequence(OTHER_OID, OCSPObjectIdentifiers.id_pkix_ocsp_basic)));
+    Assert.assertFalse(containsBasic(oidSequence(OTHER_OID)));
+    Assert.assertFalse(containsBasic(oidSequence()));
+
+    // long form of the length
+    ASN1ObjectIdentifier[] oids = new ASN1ObjectIdentifier[100];
+    Arrays.fill(oids, OTHER_OID);
+    Assert.assertFalse(containsBasic(oidSequence(oids)));
+    oids[99] = OCSPObjectIdentifiers.id_pkix_ocsp_basic;
+    Assert.assertTrue(containsBasic(oidSequence(oids)));
+  } // method acceptableResponses
+
+  @Test
+  public void malformedAcceptableResponses() throws Exception {
+    byte[] value = oidSequence(OTHER_OID, OCSPObjectIdentifiers.id_pkix_ocsp_basic);
+    // truncated
+    Assert.assertFalse(containsBasic(Arrays.copyOf(value, value.length - 1)));
+    // no SEQUENCE
+    Assert.assertFalse(containsBasic(new DEROctetString(value).getEncoded()));
+    // the element exceeds the SEQUENCE
+    value[1] -= 1;
+    Assert.assertFalse(containsBasic(value));
+  } // method malformedAcceptableResponses
+
+  @Test
+  public void preferredSignatureAlgorithms() throws Exception {
+    Assert.assertEquals(0, firstPrefSigAlg(algIdSequence(SignAlgo.ECDSA_SHA256, SignAlgo.RSA_SHA256)));
+    Assert.assertEquals(1, firstPrefSigAlg(algIdSequence(SignAlgo.RSA_SHA256, SignAlgo.ECDSA_SHA256)));
+    // only the first one is matched, the others are left to the full parsing.
+    Assert.assertEquals(-1, firstPrefSigAlg(algIdSequence(SignAlgo.ECDSA_SHA384, SignAlgo.ECDSA_SHA256)));
+    Assert.assertEquals(-1, firstPrefSigAlg(algIdSequence()));
+
+    byte[] value = algIdSequence(SignAlgo.RSA_SHA256);
+    Assert.assertEquals(-1, firstPrefSigAlg(Arrays.copyOf(value, value.length - 1)));
+  } // method preferredSignatureAlgorithms
+
+  private static boolean containsBasic(byte[] extnValue) throws Exception {
+    boolean direct = new ExtendedExtension(OID.ID_PKIX_OCSP_RESPONSE, false, extnValue)
+        .extnValueContains(ENCODED_BASIC);
+    // the same result for the extension parsed from a request, with the value at an offset.
+    boolean parsed = parse(OCSPObjectIdentifiers.id_pkix_ocsp_response, extnValue)
+        .extnValueContains(ENCODED_BASIC);
+    Assert.assertEquals(direct, parsed);
+    return direct;
+  }
+
+  private static int firstPrefSigAlg(byte[] extnValue) throws Exception {
+    int direct = new ExtendedExtension(OID.ID_PKIX_OCSP_PREFSIGALGS, false, extnValue)
+        .indexOfFirstExtnValueElement(SIGNER_ALGIDS);
+    int parsed = parse(ObjectIdentifiers.Extn.id_pkix_ocsp_prefSigAlgs, extnValue)
+        .indexOfFirstExtnValueElement(SIGNER_ALGIDS);
+    Assert.assertEquals(direct, parsed);
+    return direct;
+  }
+
+  private static ExtendedExtension parse(ASN1ObjectIdentifier type, byte[] extnValue) throws Exception {
+    byte[] extn = new Extension(type, true, new DEROctetString(extnValue)).getEncoded();
+    byte[] buffer = new byte[7 + extn.length + 5];
+    System.arraycopy(extn, 0, buffer, 7, extn.length);
+    return ExtendedExtension.getInstance(buffer, 7, extn.length);
+  }
+
+  private static byte[] oidSequence(ASN1ObjectIdentifier... oids) throws Exception {
+    return new DERSequence(oids).getEncoded();
+  }
+
+  private static byte[] algIdSequence(SignAlgo... algos) throws Exception {
+    ASN1EncodableVector vec = new ASN1EncodableVector();
+    for (SignAlgo algo : algos) {
+      vec.add(algo.getAlgorithmIdentifier());
+    }
+    return new DERSequence(vec).getEncoded();
+  }
+
+  private static byte[] encoded(ASN1ObjectIdentifier oid) {
+    try {
+      return oid.getEncoded();
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+  private static byte[] encoded(SignAlgo algo) {
+    try {
+      return algo.getAlgorithmIdentifier().getEncoded();
+    } catch (Exception ex) {
+      throw new IllegalStateException(ex);
+    }
+  }
+
+}
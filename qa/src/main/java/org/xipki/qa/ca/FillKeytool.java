@@ -159,6 +159,7 @@ public class FillKeytool implements AutoCloseable {
       ps = null;
 
       sql = "INSERT INTO KEYPOOL (ID,KID,SHARD_ID,ENC_ALG,ENC_META,DATA) VALUES(?,?,?,?,?,?)";
+      boolean binaryData = datasource.isBinaryColumn(conn, "KEYPOOL", "DATA");
 
       SecureRandom rnd = new SecureRandom();
       ps = datasource.prepareStatement(sql);
@@ -225,8 +226,13 @@ public class FillKeytool implements AutoCloseable {
           ps.setInt(idx++, kid);
           ps.setInt(idx++, 0); // SHARD_ID
           ps.setInt(idx++, encAlgCode); // AES128/GCM
-          ps.setString(idx++, Base64.encodeToString(nonce));
-          ps.setString(idx, Base64.encodeToString(encryptedData));
+          if (binaryData) {
+            ps.setBytes(idx++, nonce);
+            ps.setBytes(idx, encryptedData);
+          } else {
+            ps.setString(idx++, Base64.encodeToString(nonce));
+            ps.setString(idx, Base64.encodeToString(encryptedData));
+          }
           ps.addBatch();
 
           if ((i == numKeypairs - 1) || (i % 100 == 0)) {
@@ -0,0 +1,354 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.asn1;
+
+import org.bouncycastle.asn1.ASN1Encodable;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1GeneralizedTime;
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.BERTags;
+import org.bouncycastle.asn1.DEROctetString;
+import org.bouncycastle.asn1.DERSequence;
+import org.bouncycastle.asn1.DERTaggedObject;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.Extensions;
+import org.bouncycastle.asn1.x509.Time;
+import org.xipki.security.XiContentSigner;
+import org.xipki.util.Args;
+import org.xipki.util.IoUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * The counterpart of {@link CrlStreamParser}: BouncyCastle builds the whole ASN.1 structure
+ * of a CRL in memory, the consumed memory is linear to the number of revoked certificates.
+ *
+ * <p>This class writes the encoded revokedCertificates to a temporary file as they are added,
+ * and signs the tbsCertList by streaming it through the signer. The encoded CRL is either
+ * returned as byte array, or written to a stream so that it is not held in memory.
+ *
+ * <p>The entries are encoded in the order they are added. The extensions are encoded
+ * in the same way as by BouncyCastle's X509v2CRLBuilder.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+public class CrlStreamEncoder implements Closeable {
+
+  private static class FixedByteArrayOutputStream extends OutputStream {
+
+    private final byte[] buffer;
+
+    private int count;
+
+    FixedByteArrayOutputStream(int size) {
+      this.buffer = new byte[size];
+    }
+
+    @Override
+    public void write(int b) {
+      buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      System.arraycopy(b, off, buffer, count, len);
+      count += len;
+    }
+
+    byte[] getBuffer() throws IOException {
+      if (count != buffer.length) {
+        throw new IOException("should not reach here, wrote " + count + " bytes, but expected " + buffer.length);
+      }
+      return buffer;
+    }
+
+  } // class FixedByteArrayOutputStream
+
+  /**
+   * The encoded parts of the signed CRL, except the revokedCertificates in the temporary file.
+   */
+  private static class SignedParts {
+
+    private byte[] header;
+
+    private byte[] tbsHeader;
+
+    private byte[] tbsPrefix;
+
+    private byte[] revokedHeader;
+
+    private byte[] encodedExtensions;
+
+    private byte[] algId;
+
+    private byte[] sigHeader;
+
+    private byte[] signature;
+
+    private long totalLength;
+
+  } // class SignedParts
+
+  private static final int TAG_CONSTRUCTED_SEQUENCE = BERTags.CONSTRUCTED | BERTags.SEQUENCE;
+
+  private final X500Name issuer;
+
+  private final Instant thisUpdate;
+
+  private final Instant nextUpdate;
+
+  private final List<Extension> extensions = new ArrayList<>();
+
+  private final File entriesFile;
+
+  private OutputStream entriesOut;
+
+  private long entriesLength;
+
+  private int numEntries;
+
+  public CrlStreamEncoder(X500Name issuer, Instant thisUpdate, Instant nextUpdate) throws IOException {
+    this.issuer = Args.notNull(issuer, "issuer");
+    this.thisUpdate = Args.notNull(thisUpdate, "thisUpdate");
+    this.nextUpdate = nextUpdate;
+    this.entriesFile = File.createTempFile("crl-entries-", ".tmp");
+    this.entriesOut = new BufferedOutputStream(Files.newOutputStream(entriesFile.toPath()));
+  }
+
+  /**
+   * Adds a revoked certificate.
+   *
+   * @param serialNumber the serial number.
+   * @param revocationTime the revocation time.
+   * @param reason the reason code, 0 (unspecified) for no reasonCode extension.
+   * @param invalidityTime the invalidity time, may be {@code null}.
+   * @throws IOException if the entry could not be written.
+   */
+  public void addEntry(BigInteger serialNumber, Instant revocationTime, int reason, Instant invalidityTime)
+      throws IOException {
+    List<Extension> entryExtns = new ArrayList<>(2);
+    if (reason != 0) {
+      entryExtns.add(new Extension(Extension.reasonCode, false,
+          CRLReason.lookup(reason).getEncoded(ASN1Encoding.DER)));
+    }
+
+    if (invalidityTime != null) {
+      entryExtns.add(new Extension(Extension.invalidityDate, false,
+          new ASN1GeneralizedTime(Date.from(invalidityTime)).getEncoded(ASN1Encoding.DER)));
+    }
+
+    addEntry(serialNumber, revocationTime,
+        entryExtns.isEmpty() ? null : new Extensions(entryExtns.toArray(new Extension[0])));
+  } // method addEntry
+
+  /**
+   * Adds a revoked certificate.
+   *
+   * @param serialNumber the serial number.
+   * @param revocationTime the revocation time.
+   * @param entryExtensions the crlEntryExtensions, may be {@code null}.
+   * @throws IOException if the entry could not be written.
+   */
+  public void addEntry(BigInteger serialNumber, Instant revocationTime, Extensions entryExtensions)
+      throws IOException {
+    if (entriesOut == null) {
+      throw new IllegalStateException("CRL has already been built");
+    }
+
+    ASN1EncodableVector v = new ASN1EncodableVector(3);
+    v.add(new ASN1Integer(serialNumber));
+    v.add(new Time(Date.from(revocationTime)));
+    if (entryExtensions != null) {
+      v.add(entryExtensions);
+    }
+
+    byte[] encoded = new DERSequence(v).getEncoded(ASN1Encoding.DER);
+    entriesOut.write(encoded);
+    entriesLength += encoded.length;
+    numEntries++;
+  } // method addEntry
+
+  public int getNumEntries() {
+    return numEntries;
+  }
+
+  public void addExtension(ASN1ObjectIdentifier oid, boolean critical, ASN1Encodable value) throws IOException {
+    byte[] encodedValue = value.toASN1Primitive().getEncoded(ASN1Encoding.DER);
+    extensions.add(new Extension(oid, critical, new DEROctetString(encodedValue)));
+  }
+
+  /**
+   * Builds and signs the CRL. The temporary file will be deleted.
+   *
+   * @param signer the signer.
+   * @return the DER encoded CRL.
+   * @throws IOException if IO error occurs or the CRL is too large.
+   */
+  public byte[] build(XiContentSigner signer) throws IOException {
+    SignedParts parts = sign(signer);
+    if (parts.totalLength > Integer.MAX_VALUE - 8) {
+      throw new IOException("CRL too large: " + parts.totalLength + " bytes");
+    }
+
+    FixedByteArrayOutputStream out = new FixedByteArrayOutputStream((int) parts.totalLength);
+    writeCrl(out, parts);
+    IoUtil.deleteFile(entriesFile);
+    return out.getBuffer();
+  } // method build
+
+  /**
+   * Builds and signs the CRL, and writes the DER encoded CRL to the given stream, so that the
+   * encoded CRL is not held in memory. The temporary file will be deleted.
+   *
+   * @param signer the signer.
+   * @param out the stream to which the DER encoded CRL is written. It will not be closed.
+   * @return the length of the DER encoded CRL.
+   * @throws IOException if IO error occurs.
+   */
+  public long build(XiContentSigner signer, OutputStream out) throws IOException {
+    Args.notNull(out, "out");
+    SignedParts parts = sign(signer);
+    writeCrl(out, parts);
+    IoUtil.deleteFile(entriesFile);
+    return parts.totalLength;
+  } // method build
+
+  private SignedParts sign(XiContentSigner signer) throws IOException {
+    Args.notNull(signer, "signer");
+    if (entriesOut == null) {
+      throw new IllegalStateException("CRL has already been built");
+    }
+
+    entriesOut.close();
+    entriesOut = null;
+
+    SignedParts parts = new SignedParts();
+
+    // version, signature, issuer, thisUpdate, nextUpdate
+    ASN1EncodableVector v = new ASN1EncodableVector(5);
+    v.add(new ASN1Integer(1)); // v2
+    v.add(signer.getAlgorithmIdentifier());
+    v.add(issuer);
+    v.add(new Time(Date.from(thisUpdate)));
+    if (nextUpdate != null) {
+      v.add(new Time(Date.from(nextUpdate)));
+    }
+    parts.tbsPrefix = encodeContent(new DERSequence(v));
+
+    parts.revokedHeader = (numEntries == 0) ? new byte[0]
+        : encodeHeader(TAG_CONSTRUCTED_SEQUENCE, entriesLength);
+
+    parts.encodedExtensions = extensions.isEmpty() ? new byte[0]
+        : new DERTaggedObject(true, 0, new Extensions(extensions.toArray(new Extension[0])))
+            .getEncoded(ASN1Encoding.DER);
+
+    long tbsBodyLength = parts.tbsPrefix.length + parts.revokedHeader.length
+        + (numEntries == 0 ? 0 : entriesLength) + parts.encodedExtensions.length;
+    parts.tbsHeader = encodeHeader(TAG_CONSTRUCTED_SEQUENCE, tbsBodyLength);
+
+    // sign the tbsCertList
+    try (OutputStream signerOut = signer.getOutputStream()) {
+      writeTbsCertList(signerOut, parts);
+    }
+    parts.signature = signer.getSignature();
+
+    parts.algId = signer.getEncodedAlgorithmIdentifier();
+    // BIT STRING: tag, length, number of unused bits, signature value
+    parts.sigHeader = encodeHeader(BERTags.BIT_STRING, 1L + parts.signature.length);
+
+    long bodyLength = parts.tbsHeader.length + tbsBodyLength + parts.algId.length
+        + parts.sigHeader.length + 1 + parts.signature.length;
+    parts.header = encodeHeader(TAG_CONSTRUCTED_SEQUENCE, bodyLength);
+    parts.totalLength = parts.header.length + bodyLength;
+    return parts;
+  } // method sign
+
+  private void writeCrl(OutputStream out, SignedParts parts) throws IOException {
+    out.write(parts.header);
+    writeTbsCertList(out, parts);
+    out.write(parts.algId);
+    out.write(parts.sigHeader);
+    out.write(0);
+    out.write(parts.signature);
+  } // method writeCrl
+
+  @Override
+  public void close() throws IOException {
+    try {
+      if (entriesOut != null) {
+        entriesOut.close();
+        entriesOut = null;
+      }
+    } finally {
+      IoUtil.deleteFile(entriesFile);
+    }
+  } // method close
+
+  private void writeTbsCertList(OutputStream out, SignedParts parts) throws IOException {
+    out.write(parts.tbsHeader);
+    out.write(parts.tbsPrefix);
+    if (numEntries > 0) {
+      out.write(parts.revokedHeader);
+      try (InputStream in = Files.newInputStream(entriesFile.toPath())) {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+          out.write(buffer, 0, read);
+        }
+      }
+    }
+    out.write(parts.encodedExtensions);
+  } // method writeTbsCertList
+
+  /**
+   * Returns the content (without tag and length) of the DER encoded sequence.
+   */
+  private static byte[] encodeContent(DERSequence seq) throws IOException {
+    byte[] encoded = seq.getEncoded(ASN1Encoding.DER);
+    int offset = 1 + lengthBytesSize(encoded[1]);
+    byte[] content = new byte[encoded.length - offset];
+    System.arraycopy(encoded, offset, content, 0, content.length);
+    return content;
+  } // method encodeContent
+
+  private static int lengthBytesSize(byte firstLengthByte) {
+    return ((firstLengthByte & 0x80) == 0) ? 1 : 1 + (firstLengthByte & 0x7F);
+  }
+
+  private static byte[] encodeHeader(int tag, long length) {
+    if (length < 0x80) {
+      return new byte[]{(byte) tag, (byte) length};
+    }
+
+    int numLenBytes = 0;
+    for (long v = length; v > 0; v >>>= 8) {
+      numLenBytes++;
+    }
+
+    byte[] header = new byte[2 + numLenBytes];
+    header[0] = (byte) tag;
+    header[1] = (byte) (0x80 | numLenBytes);
+    for (int i = 0; i < numLenBytes; i++) {
+      header[header.length - 1 - i] = (byte) (length >>> (8 * i));
+    }
+    return header;
+  } // method encodeHeader
+
+}
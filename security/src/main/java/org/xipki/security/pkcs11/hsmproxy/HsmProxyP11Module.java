@@ -21,10 +21,11 @@ import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.KeyIdMessage;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.LongArrayMessage;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ModuleCapsResponse;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.P11KeyResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchRequest;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchResponse;
 import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SlotIdsResponse;
 import org.xipki.util.Args;
 import org.xipki.util.FileOrBinary;
-import org.xipki.util.IoUtil;
 import org.xipki.util.LogUtil;
 import org.xipki.util.StringUtil;
 import org.xipki.util.cbor.CborConstants;
@@ -32,19 +33,12 @@ import org.xipki.util.cbor.CborDecoder;
 import org.xipki.util.cbor.CborType;
 import org.xipki.util.exception.DecodeException;
 import org.xipki.util.exception.ObjectCreationException;
-import org.xipki.util.http.HostnameVerifiers;
+import org.xipki.util.http.HttpRespContent;
 import org.xipki.util.http.SslConf;
 import org.xipki.util.http.SslContextConf;
+import org.xipki.util.http.XiHttpClient;
 
-import javax.net.ssl.HostnameVerifier;
-import javax.net.ssl.HttpsURLConnection;
-import javax.net.ssl.SSLSocketFactory;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
-import java.net.HttpURLConnection;
-import java.net.URL;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -72,6 +66,30 @@ class HsmProxyP11Module extends P11Module {
 
   private static final String PROP_SSL_HOStNAMEVERIFIER = "ssl.hostnameVerifier";
 
+  /**
+   * Transport, either http2 (default) or http1. With http2, all requests share one persistent
+   * TLS connection with multiplexed streams if the server supports HTTP/2, otherwise a pool of
+   * keep-alive HTTP/1.1 connections. With http1, each request opens an HttpURLConnection.
+   */
+  private static final String PROP_HTTP_TRANSPORT = "http.transport";
+
+  /**
+   * Maximal number of concurrent requests of the http2 transport, default 100.
+   */
+  private static final String PROP_HTTP_MAX_CONCURRENT_REQUESTS = "http.maxConcurrentRequests";
+
+  /**
+   * Maximal number of sign requests sent in one signBatch request, values less than 2
+   * (default) disable the batching, values greater than {@link SignBatchRequest#MAX_BATCH_SIZE}
+   * are reduced to it. Requires HSM proxy 6.5.4 or later.
+   */
+  private static final String PROP_SIGN_MAX_BATCH_SIZE = "sign.maxBatchSize";
+
+  /**
+   * Maximal time in microseconds to wait for further sign requests, default 500.
+   */
+  private static final String PROP_SIGN_BATCH_WINDOW = "sign.batchWindowMicros";
+
   private static final Logger LOG = LoggerFactory.getLogger(HsmProxyP11Module.class);
 
   private static final String REQUEST_MIMETYPE = "application/x-xipki-pkcs11";
@@ -84,9 +102,11 @@ class HsmProxyP11Module extends P11Module {
 
   private final String serverUrl;
 
-  private final SSLSocketFactory sslSocketFactory;
+  private final XiHttpClient httpClient;
+
+  private final int signMaxBatchSize;
 
-  private final HostnameVerifier hostnameVerifier;
+  private final long signBatchWindowMicros;
 
   private HsmProxyP11Module(P11ModuleConf moduleConf) throws TokenException {
     super(moduleConf);
@@ -129,15 +149,25 @@ class HsmProxyP11Module extends P11Module {
 
     SslContextConf sslContextConf = SslContextConf.ofSslConf(sslConf);
 
-    try {
-      this.sslSocketFactory = sslContextConf.getSslSocketFactory();
-    } catch (ObjectCreationException ex) {
-      throw new TokenException("could not build SSLSocketFactroy", ex);
+    String str = properties.get(PROP_SIGN_MAX_BATCH_SIZE);
+    int maxBatchSize = str == null ? 1 : Integer.parseInt(str.trim());
+    if (maxBatchSize > SignBatchRequest.MAX_BATCH_SIZE) {
+      LOG.warn("{}={} is too large, use {}", PROP_SIGN_MAX_BATCH_SIZE, maxBatchSize, SignBatchRequest.MAX_BATCH_SIZE);
+      maxBatchSize = SignBatchRequest.MAX_BATCH_SIZE;
     }
+    this.signMaxBatchSize = maxBatchSize;
+    str = properties.get(PROP_SIGN_BATCH_WINDOW);
+    this.signBatchWindowMicros = str == null ? 500 : Long.parseLong(str.trim());
+
+    boolean http1 = "http1".equalsIgnoreCase(properties.get(PROP_HTTP_TRANSPORT));
+    str = properties.get(PROP_HTTP_MAX_CONCURRENT_REQUESTS);
+    int maxConcurrentRequests = str == null ? 100 : Integer.parseInt(str.trim());
+
     try {
-      this.hostnameVerifier = HostnameVerifiers.createHostnameVerifier(sslHostnameVerifier);
+      this.httpClient = http1 ? new XiHttpClient(sslContextConf)
+          : new XiHttpClient(sslContextConf, maxConcurrentRequests);
     } catch (ObjectCreationException ex) {
-      throw new TokenException("could not create HostnameVerifier", ex);
+      throw new TokenException("could not build HTTP client", ex);
     }
 
     ModuleCapsResponse moduleCaps =
@@ -214,6 +244,14 @@ class HsmProxyP11Module extends P11Module {
     return new HsmProxyP11Module(moduleConf);
   }
 
+  int getSignMaxBatchSize() {
+    return signMaxBatchSize;
+  }
+
+  long getSignBatchWindowMicros() {
+    return signBatchWindowMicros;
+  }
+
   @Override
   public String getDescription() {
     return description;
@@ -233,92 +271,13 @@ class HsmProxyP11Module extends P11Module {
   protected byte[] doSend(ProxyAction action, byte[] request) throws IOException {
     Args.notNull(request, "request");
 
-    String thisUrl = serverUrl + "/" + action.getAlias();
-
-    HttpURLConnection httpUrlConnection = IoUtil.openHttpConn(new URL(thisUrl));
-
-    if (httpUrlConnection instanceof HttpsURLConnection) {
-      if (sslSocketFactory != null) {
-        ((HttpsURLConnection) httpUrlConnection).setSSLSocketFactory(sslSocketFactory);
-      }
-
-      if (hostnameVerifier != null) {
-        ((HttpsURLConnection) httpUrlConnection).setHostnameVerifier(hostnameVerifier);
-      }
+    HttpRespContent resp = httpClient.httpPost(serverUrl + "/" + action.getAlias(),
+        REQUEST_MIMETYPE, request, RESPONSE_MIMETYPE);
+    if (!resp.isOK()) {
+      throw new IOException("bad response: code=" + resp.getStatusCode());
     }
-
-    httpUrlConnection.setDoOutput(true);
-    httpUrlConnection.setUseCaches(false);
-
-    int size = request.length;
-
-    httpUrlConnection.setRequestMethod("POST");
-    httpUrlConnection.setRequestProperty("Content-Type", REQUEST_MIMETYPE);
-    httpUrlConnection.setRequestProperty("Content-Length", Integer.toString(size));
-    OutputStream outputstream = httpUrlConnection.getOutputStream();
-    outputstream.write(request);
-    outputstream.flush();
-
-    if (httpUrlConnection.getResponseCode() != HttpURLConnection.HTTP_OK) {
-      try {
-        try {
-          InputStream is = httpUrlConnection.getInputStream();
-          if (is != null) {
-            is.close();
-          }
-        } catch (IOException ex) {
-          InputStream errStream = httpUrlConnection.getErrorStream();
-          if (errStream != null) {
-            errStream.close();
-          }
-        }
-      } catch (Throwable th) {
-        // ignore it
-      }
-
-      throw new IOException("bad response: code=" + httpUrlConnection.getResponseCode()
-          + ", message=" + httpUrlConnection.getResponseMessage());
-    }
-
-    InputStream inputstream;
-    try {
-      inputstream = httpUrlConnection.getInputStream();
-    } catch (IOException ex) {
-      InputStream errStream = httpUrlConnection.getErrorStream();
-      if (errStream != null) {
-        errStream.close();
-      }
-      throw ex;
-    }
-
-    try {
-      String responseContentType = httpUrlConnection.getContentType();
-      boolean isValidContentType = false;
-      if (responseContentType != null) {
-        if (responseContentType.equalsIgnoreCase(RESPONSE_MIMETYPE)) {
-          isValidContentType = true;
-        }
-      }
-      if (!isValidContentType) {
-        throw new IOException("bad response: mime type " + responseContentType
-            + " is not supported!");
-      }
-
-      byte[] buf = new byte[4096];
-      ByteArrayOutputStream bytearrayoutputstream = new ByteArrayOutputStream();
-      do {
-        int readedByte = inputstream.read(buf);
-        if (readedByte == -1) {
-          break;
-        }
-        bytearrayoutputstream.write(buf, 0, readedByte);
-      } while (true);
-
-      return bytearrayoutputstream.toByteArray();
-    } finally {
-      inputstream.close();
-    }
-  } // method send
+    return resp.getContent();
+  } // method doSend
 
   public ProxyMessage sendModuleAction(ProxyAction action) throws TokenException {
     return send(action, SLOT_ID_NULL_CONTENT_NULL_REQUEST.clone());
@@ -356,26 +315,7 @@ class HsmProxyP11Module extends P11Module {
     }
 
     if (errorResp != null) {
-      ErrorResponse.ProxyErrorCode errorCode = errorResp.getErrorCode();
-      String detail = errorResp.getDetail();
-
-      switch (errorCode) {
-        case badRequest:
-        case internalError:
-          throw new TokenException(errorCode + ": " + detail);
-        case pkcs11Exception:
-          long ckrCode;
-          try {
-            ckrCode = detail.startsWith("CKR_") || detail.startsWith("ckr_")
-                ? PKCS11Constants.ckrNameToCode(detail) : Long.parseLong(detail);
-          } catch (Exception ex) {
-            LOG.warn("could not parse CKR code '" + detail + "'");
-            ckrCode = PKCS11Constants.CKR_GENERAL_ERROR;
-          }
-          throw new PKCS11Exception(ckrCode);
-        case tokenException:
-          throw new TokenException(detail);
-      }
+      throw toTokenException(errorResp);
     }
 
     try {
@@ -414,12 +354,36 @@ class HsmProxyP11Module extends P11Module {
         case sign:
         case digestSecretKey:
           return ByteArrayMessage.decode(decoder);
+        case signBatch:
+          return SignBatchResponse.decode(decoder);
         default:
           throw new IllegalStateException("should not reach here, unknown action " + action);
       }
     } catch (DecodeException ex) {
       throw new TokenException("DecodingException while decoding response.", ex);
     }
-  }
+  } // method send
+
+  static TokenException toTokenException(ErrorResponse errorResp) {
+    ErrorResponse.ProxyErrorCode errorCode = errorResp.getErrorCode();
+    String detail = errorResp.getDetail();
+
+    switch (errorCode) {
+      case pkcs11Exception:
+        long ckrCode;
+        try {
+          ckrCode = detail.startsWith("CKR_") || detail.startsWith("ckr_")
+              ? PKCS11Constants.ckrNameToCode(detail) : Long.parseLong(detail);
+        } catch (Exception ex) {
+          LOG.warn("could not parse CKR code '" + detail + "'");
+          ckrCode = PKCS11Constants.CKR_GENERAL_ERROR;
+        }
+        return new PKCS11Exception(ckrCode);
+      case tokenException:
+        return new TokenException(detail);
+      default:
+        return new TokenException(errorCode + ": " + detail);
+    }
+  } // method toTokenException
 
 }
@@ -66,12 +66,19 @@ class HsmProxyP11Slot extends P11Slot {
 
   private final HsmProxyP11Module module;
 
+  /**
+   * Groups the concurrent sign requests, null if the batching is disabled.
+   */
+  private final SignCoalescer signCoalescer;
+
   HsmProxyP11Slot(P11SlotId slotId, boolean readOnly, HsmProxyP11Module module, P11MechanismFilter mechanismFilter,
                   P11NewObjectConf newObjectConf, List<Long> secretKeyTypes, List<Long> keyPairTypes)
       throws TokenException {
     super(module.getName(), slotId, readOnly, secretKeyTypes, keyPairTypes, newObjectConf);
 
     this.module = module;
+    this.signCoalescer = module.getSignMaxBatchSize() < 2 ? null
+        : new SignCoalescer(this::send, module.getSignMaxBatchSize(), module.getSignBatchWindowMicros());
     GetMechanismInfosResponse resp = (GetMechanismInfosResponse) send(ProxyAction.mechInfos, null);
     Map<Long, MechanismInfo> mechanismInfoMap = resp == null ? Collections.emptyMap() : resp.getMechamismInfoMap();
     initMechanisms(mechanismInfoMap, mechanismFilter);
@@ -100,7 +107,7 @@ class HsmProxyP11Slot extends P11Slot {
   public byte[] sign(long mechanism, P11Params params, ExtraParams extraParams,
                      long keyHandle, byte[] content) throws TokenException {
     SignRequest req = new SignRequest(keyHandle, mechanism, params, extraParams, content);
-    return toByteArray(send(ProxyAction.sign, req));
+    return signCoalescer == null ? toByteArray(send(ProxyAction.sign, req)) : signCoalescer.sign(req);
   }
 
   @Override
@@ -47,6 +47,7 @@ public enum ProxyAction {
   genSM2KeypairOtf ("gsm2o"),
   showDetails ("d"),
   sign ("s"),
+  signBatch ("sb"),
   digestSecretKey ("dsk");
 
   private final String alias;
@@ -15,6 +15,7 @@ import org.xipki.security.pkcs11.P11Params;
 import org.xipki.security.pkcs11.P11Slot;
 import org.xipki.security.pkcs11.P11SlotId;
 import org.xipki.util.Args;
+import org.xipki.util.cbor.CborConstants;
 import org.xipki.util.cbor.CborDecoder;
 import org.xipki.util.cbor.CborEncodable;
 import org.xipki.util.cbor.CborEncoder;
@@ -1190,6 +1191,104 @@ public abstract class ProxyMessage implements CborEncodable {
 
   }
 
+  /**
+   * The request to sign several messages at once.
+   */
+  public static class SignBatchRequest extends ProxyMessage {
+
+    /**
+     * Maximal number of sign requests in one batch.
+     */
+    public static final int MAX_BATCH_SIZE = 256;
+
+    private final List<SignRequest> requests;
+
+    public SignBatchRequest(List<SignRequest> requests) {
+      this.requests = Args.notEmpty(requests, "requests");
+      Args.max(requests.size(), "requests.size", MAX_BATCH_SIZE);
+    }
+
+    public List<SignRequest> getRequests() {
+      return requests;
+    }
+
+    @Override
+    protected void encode0(CborEncoder encoder) throws EncodeException, IOException {
+      encoder.writeArrayStart(requests.size());
+      for (SignRequest request : requests) {
+        request.encode0(encoder);
+      }
+    }
+
+    public static SignBatchRequest decode(CborDecoder decoder) throws DecodeException {
+      int arrayLen = Optional.ofNullable(decoder.readNullOrArrayLength()).orElseThrow(
+          () -> new DecodeException("SignBatchRequest shall not be null"));
+      if (arrayLen == 0) {
+        throw new DecodeException("SignBatchRequest shall not be empty");
+      } else if (arrayLen > MAX_BATCH_SIZE) {
+        throw new DecodeException("SignBatchRequest shall not contain more than " + MAX_BATCH_SIZE + " requests");
+      }
+
+      List<SignRequest> list = new ArrayList<>(arrayLen);
+      for (int i = 0; i < arrayLen; i++) {
+        list.add(SignRequest.decode(decoder));
+      }
+      return new SignBatchRequest(list);
+    }
+
+  }
+
+  /**
+   * The response to {@link SignBatchRequest}. Each result is either the signature or the error,
+   * in the same order as the requests.
+   */
+  public static class SignBatchResponse extends ProxyMessage {
+
+    private final List<ProxyMessage> results;
+
+    /**
+     * Constructor.
+     * @param results the results, each is either a {@link ByteArrayMessage} or {@link ErrorResponse}.
+     */
+    public SignBatchResponse(List<ProxyMessage> results) {
+      this.results = Args.notNull(results, "results");
+    }
+
+    public List<ProxyMessage> getResults() {
+      return results;
+    }
+
+    @Override
+    protected void encode0(CborEncoder encoder) throws EncodeException, IOException {
+      encoder.writeArrayStart(results.size());
+      for (ProxyMessage result : results) {
+        if (result instanceof ErrorResponse) {
+          encoder.writeTag(ErrorResponse.CBOR_TAG_ERROR_RESPONSE);
+        } else if (!(result instanceof ByteArrayMessage)) {
+          throw new EncodeException("unknown result " + result.getClass().getName());
+        }
+        result.encode0(encoder);
+      }
+    }
+
+    public static SignBatchResponse decode(CborDecoder decoder) throws DecodeException {
+      int arrayLen = Optional.ofNullable(decoder.readNullOrArrayLength()).orElseThrow(
+          () -> new DecodeException("SignBatchResponse shall not be null"));
+
+      List<ProxyMessage> list = new ArrayList<>(arrayLen);
+      for (int i = 0; i < arrayLen; i++) {
+        if (decoder.peekType().getMajorType() == CborConstants.TYPE_TAG) {
+          decoder.readTag(ErrorResponse.CBOR_TAG_ERROR_RESPONSE);
+          list.add(ErrorResponse.decode(decoder));
+        } else {
+          list.add(ByteArrayMessage.decode(decoder));
+        }
+      }
+      return new SignBatchResponse(list);
+    }
+
+  }
+
   /**
    * The request to sign message.
    */
@@ -0,0 +1,158 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.pkcs11.hsmproxy;
+
+import org.xipki.pkcs11.wrapper.TokenException;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ByteArrayMessage;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ErrorResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchRequest;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignRequest;
+import org.xipki.util.Args;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Groups the concurrent sign requests of a slot into one {@link ProxyAction#signBatch} request.
+ * <p>
+ * The first caller of a batch waits at most the batch window for further requests, then sends
+ * the batch. A caller which fills the batch up to the maximal size sends it immediately. The other
+ * callers wait for their signatures.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+class SignCoalescer {
+
+  interface Sender {
+
+    ProxyMessage send(ProxyAction action, ProxyMessage request) throws TokenException;
+
+  } // interface Sender
+
+  private static class Pending {
+
+    private final SignRequest request;
+
+    private final CompletableFuture<byte[]> result = new CompletableFuture<>();
+
+    Pending(SignRequest request) {
+      this.request = request;
+    }
+
+  } // class Pending
+
+  private final Sender sender;
+
+  private final int maxBatchSize;
+
+  private final long windowNanos;
+
+  private List<Pending> current = new ArrayList<>();
+
+  SignCoalescer(Sender sender, int maxBatchSize, long windowMicros) {
+    this.sender = Args.notNull(sender, "sender");
+    this.maxBatchSize = Args.range(maxBatchSize, "maxBatchSize", 2, SignBatchRequest.MAX_BATCH_SIZE);
+    this.windowNanos = TimeUnit.MICROSECONDS.toNanos(Args.notNegative(windowMicros, "windowMicros"));
+  }
+
+  byte[] sign(SignRequest request) throws TokenException {
+    Pending pending = new Pending(request);
+    List<Pending> toSend = null;
+
+    synchronized (this) {
+      List<Pending> batch = current;
+      batch.add(pending);
+
+      if (batch.size() >= maxBatchSize) {
+        toSend = batch;
+        current = new ArrayList<>();
+        // wake up the first caller, the batch has been taken.
+        notifyAll();
+      } else if (batch.size() == 1) {
+        long deadline = System.nanoTime() + windowNanos;
+        try {
+          for (long remaining = windowNanos; remaining > 0 && current == batch;
+               remaining = deadline - System.nanoTime()) {
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+          }
+        } catch (InterruptedException ex) {
+          Thread.currentThread().interrupt();
+        }
+
+        if (current == batch) {
+          toSend = batch;
+          current = new ArrayList<>();
+        }
+      }
+    }
+
+    if (toSend != null) {
+      send(toSend);
+    }
+
+    try {
+      return pending.result.get();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new TokenException("interrupted", ex);
+    } catch (ExecutionException ex) {
+      Throwable cause = ex.getCause();
+      if (cause instanceof TokenException) {
+        throw (TokenException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new TokenException(cause.getMessage(), (Exception) cause);
+      }
+    }
+  } // method sign
+
+  private void send(List<Pending> batch) {
+    try {
+      if (batch.size() == 1) {
+        Pending pending = batch.get(0);
+        ProxyMessage resp = sender.send(ProxyAction.sign, pending.request);
+        pending.result.complete(resp == null ? null : ((ByteArrayMessage) resp).getValue());
+        return;
+      }
+
+      List<SignRequest> requests = new ArrayList<>(batch.size());
+      for (Pending pending : batch) {
+        requests.add(pending.request);
+      }
+
+      ProxyMessage resp = sender.send(ProxyAction.signBatch, new SignBatchRequest(requests));
+      if (!(resp instanceof SignBatchResponse)) {
+        throw new TokenException("response is not a SignBatchResponse");
+      }
+
+      List<ProxyMessage> results = ((SignBatchResponse) resp).getResults();
+      if (results.size() != batch.size()) {
+        throw new TokenException("expected " + batch.size() + " results, but received " + results.size());
+      }
+
+      for (int i = 0; i < results.size(); i++) {
+        ProxyMessage result = results.get(i);
+        CompletableFuture<byte[]> future = batch.get(i).result;
+        if (result instanceof ErrorResponse) {
+          ErrorResponse error = (ErrorResponse) result;
+          future.completeExceptionally(HsmProxyP11Module.toTokenException(error));
+        } else {
+          future.complete(((ByteArrayMessage) result).getValue());
+        }
+      }
+    } catch (Throwable t) {
+      for (Pending pending : batch) {
+        // no effect on the completed ones
+        pending.result.completeExceptionally(t);
+      }
+    }
+  } // method send
+
+}
@@ -0,0 +1,156 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.util;
+
+import org.bouncycastle.crypto.digests.SHA512Digest;
+import org.bouncycastle.crypto.prng.SP800SecureRandom;
+import org.bouncycastle.crypto.prng.SP800SecureRandomBuilder;
+import org.bouncycastle.util.Pack;
+import org.xipki.util.Args;
+
+import java.security.SecureRandom;
+import java.util.Arrays;
+
+/**
+ * Shared source of random bytes for serial numbers, nonces and tokens.
+ * <p>
+ * The random bytes are generated by several Hash-DRBG (NIST SP 800-90A, SHA-512) instances. A
+ * thread uses the instance selected by its thread id, so that the threads do not contend for one
+ * lock. Each instance is seeded from the system's {@link SecureRandom}, reseeded after every
+ * {@value #RESEED_INTERVAL} bytes, and generates the random bytes in blocks of
+ * {@value #BUFFER_SIZE} bytes in advance.
+ * <p>
+ * This class is thread-safe.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+public final class DrbgRandom {
+
+  private static final class Stripe {
+
+    private final SP800SecureRandom drbg;
+
+    private final byte[] buffer;
+
+    private final long reseedInterval;
+
+    private int offset;
+
+    private long generatedSinceReseed;
+
+    Stripe(SecureRandom entropySource, int index, int bufferSize, long reseedInterval) {
+      this.buffer = new byte[bufferSize];
+      this.offset = bufferSize;
+      this.reseedInterval = reseedInterval;
+
+      byte[] nonce = new byte[16];
+      entropySource.nextBytes(nonce);
+
+      byte[] personalization = new byte[16];
+      Pack.longToBigEndian(System.nanoTime(), personalization, 0);
+      Pack.intToBigEndian(index, personalization, 8);
+      Pack.intToBigEndian(System.identityHashCode(this), personalization, 12);
+
+      this.drbg = new SP800SecureRandomBuilder(entropySource, false)
+          .setPersonalizationString(personalization)
+          .buildHash(new SHA512Digest(), nonce, false);
+    }
+
+    synchronized void nextBytes(byte[] bytes, int off, int len) {
+      while (len > 0) {
+        if (offset == buffer.length) {
+          fill();
+        }
+
+        int n = Math.min(len, buffer.length - offset);
+        System.arraycopy(buffer, offset, bytes, off, n);
+        // the bytes are used only once.
+        Arrays.fill(buffer, offset, offset + n, (byte) 0);
+        offset += n;
+        off += n;
+        len -= n;
+      }
+    } // method nextBytes
+
+    private void fill() {
+      if (generatedSinceReseed >= reseedInterval) {
+        drbg.reseed((byte[]) null);
+        generatedSinceReseed = 0;
+      }
+
+      drbg.nextBytes(buffer);
+      generatedSinceReseed += buffer.length;
+      offset = 0;
+    } // method fill
+
+  } // class Stripe
+
+  private static final int BUFFER_SIZE = 4096;
+
+  private static final long RESEED_INTERVAL = 1L << 24;
+
+  private static final DrbgRandom INSTANCE = new DrbgRandom(new SecureRandom(),
+      2 * Runtime.getRuntime().availableProcessors(), BUFFER_SIZE, RESEED_INTERVAL);
+
+  private final Stripe[] stripes;
+
+  private final int mask;
+
+  DrbgRandom(SecureRandom entropySource, int minStripes, int bufferSize, long reseedInterval) {
+    Args.notNull(entropySource, "entropySource");
+    Args.positive(bufferSize, "bufferSize");
+    // power of 2, at most 64.
+    int n = 1;
+    while (n < minStripes && n < 64) {
+      n <<= 1;
+    }
+
+    this.stripes = new Stripe[n];
+    for (int i = 0; i < n; i++) {
+      stripes[i] = new Stripe(entropySource, i, bufferSize, reseedInterval);
+    }
+    this.mask = n - 1;
+  } // constructor
+
+  public static DrbgRandom getInstance() {
+    return INSTANCE;
+  }
+
+  public void nextBytes(byte[] bytes) {
+    nextBytes(bytes, 0, Args.notNull(bytes, "bytes").length);
+  }
+
+  public void nextBytes(byte[] bytes, int off, int len) {
+    stripe().nextBytes(bytes, off, len);
+  }
+
+  public byte[] nextBytes(int len) {
+    byte[] bytes = new byte[len];
+    stripe().nextBytes(bytes, 0, len);
+    return bytes;
+  }
+
+  public int nextInt() {
+    byte[] bytes = new byte[4];
+    stripe().nextBytes(bytes, 0, 4);
+    return Pack.bigEndianToInt(bytes, 0);
+  }
+
+  public long nextLong() {
+    byte[] bytes = new byte[8];
+    stripe().nextBytes(bytes, 0, 8);
+    return Pack.bigEndianToLong(bytes, 0);
+  }
+
+  int getNumStripes() {
+    return stripes.length;
+  }
+
+  private Stripe stripe() {
+    long id = Thread.currentThread().getId();
+    return stripes[(int) (id ^ (id >>> 16)) & mask];
+  }
+
+}
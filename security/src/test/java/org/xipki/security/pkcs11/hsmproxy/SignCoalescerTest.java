@@ -0,0 +1,165 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.pkcs11.hsmproxy;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.pkcs11.wrapper.PKCS11Constants;
+import org.xipki.pkcs11.wrapper.PKCS11Exception;
+import org.xipki.pkcs11.wrapper.TokenException;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ByteArrayMessage;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ErrorResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ProxyErrorCode;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchRequest;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignRequest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JUnit test case of {@link SignCoalescer}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class SignCoalescerTest {
+
+  /**
+   * Simulates the HSM proxy, the signature of a request is its content with the first byte
+   * incremented. Requests whose content starts with 0 fail.
+   */
+  private static class TestSender implements SignCoalescer.Sender {
+
+    private final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean failBatch;
+
+    @Override
+    public ProxyMessage send(ProxyAction action, ProxyMessage request) throws TokenException {
+      if (action == ProxyAction.sign) {
+        batchSizes.add(1);
+        return sign((SignRequest) request);
+      }
+
+      Assert.assertEquals(ProxyAction.signBatch, action);
+      List<SignRequest> requests = ((SignBatchRequest) request).getRequests();
+      batchSizes.add(requests.size());
+      if (failBatch) {
+        throw new TokenException("batch failed");
+      }
+
+      List<ProxyMessage> results = new ArrayList<>(requests.size());
+      for (SignRequest r : requests) {
+        results.add(r.getContent()[0] == 0
+            ? new ErrorResponse(ProxyErrorCode.pkcs11Exception, "CKR_KEY_HANDLE_INVALID") : sign(r));
+      }
+      return new SignBatchResponse(results);
+    }
+
+    private static ByteArrayMessage sign(SignRequest request) {
+      byte[] signature = request.getContent().clone();
+      signature[0]++;
+      return new ByteArrayMessage(signature);
+    }
+
+  } // class TestSender
+
+  @Test
+  public void concurrentRequestsAreCoalesced() throws Exception {
+    TestSender sender = new TestSender();
+    // the batch is sent by the 4-th caller, long before the window expires.
+    SignCoalescer coalescer = new SignCoalescer(sender, 4, TimeUnit.SECONDS.toMicros(10));
+
+    List<Object> results = signConcurrently(coalescer, 1, 2, 3, 4);
+    Assert.assertEquals(Collections.singletonList(4), sender.batchSizes);
+    for (int i = 0; i < 4; i++) {
+      // each caller receives the signature of its own request.
+      Assert.assertArrayEquals(new byte[]{(byte) (i + 2), (byte) (i + 1)}, (byte[]) results.get(i));
+    }
+  }
+
+  @Test
+  public void batchWindowExpires() throws Exception {
+    TestSender sender = new TestSender();
+    SignCoalescer coalescer = new SignCoalescer(sender, 10, 1000);
+
+    // a single caller waits at most the window and uses the sign action.
+    Assert.assertArrayEquals(new byte[]{6, 5}, coalescer.sign(newRequest(5)));
+    Assert.assertEquals(Collections.singletonList(1), sender.batchSizes);
+  }
+
+  @Test
+  public void partialFailure() throws Exception {
+    TestSender sender = new TestSender();
+    SignCoalescer coalescer = new SignCoalescer(sender, 3, TimeUnit.SECONDS.toMicros(10));
+
+    List<Object> results = signConcurrently(coalescer, 1, 0, 3);
+    Assert.assertEquals(Collections.singletonList(3), sender.batchSizes);
+    Assert.assertArrayEquals(new byte[]{2, 1}, (byte[]) results.get(0));
+    Assert.assertEquals(PKCS11Constants.CKR_KEY_HANDLE_INVALID, ((PKCS11Exception) results.get(1)).getErrorCode());
+    Assert.assertArrayEquals(new byte[]{4, 3}, (byte[]) results.get(2));
+  }
+
+  @Test
+  public void failedBatchFailsAllRequests() throws Exception {
+    TestSender sender = new TestSender();
+    sender.failBatch = true;
+    SignCoalescer coalescer = new SignCoalescer(sender, 2, TimeUnit.SECONDS.toMicros(10));
+
+    List<Object> results = signConcurrently(coalescer, 1, 2);
+    for (Object result : results) {
+      Assert.assertEquals("batch failed", ((TokenException) result).getMessage());
+    }
+  }
+
+  @Test
+  public void batchSizeIsCapped() {
+    TestSender sender = new TestSender();
+    new SignCoalescer(sender, SignBatchRequest.MAX_BATCH_SIZE, 0);
+    try {
+      new SignCoalescer(sender, SignBatchRequest.MAX_BATCH_SIZE + 1, 0);
+      Assert.fail("IllegalArgumentException expected");
+    } catch (IllegalArgumentException ex) {
+      // expected
+    }
+  }
+
+  /**
+   * Signs the requests in parallel, each in its own thread.
+   * @return for each request the signature or the exception, in the order of the requests.
+   */
+  private static List<Object> signConcurrently(SignCoalescer coalescer, int... contents) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(contents.length);
+    try {
+      List<Future<Object>> futures = new ArrayList<>(contents.length);
+      for (int content : contents) {
+        futures.add(executor.submit(() -> {
+          try {
+            return coalescer.sign(newRequest(content));
+          } catch (TokenException ex) {
+            return ex;
+          }
+        }));
+      }
+
+      List<Object> results = new ArrayList<>(contents.length);
+      for (Future<Object> future : futures) {
+        results.add(future.get(10, TimeUnit.SECONDS));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  private static SignRequest newRequest(int content) {
+    return new SignRequest(1, PKCS11Constants.CKM_ECDSA, null, null, new byte[]{(byte) content, (byte) content});
+  }
+
+}
@@ -0,0 +1,145 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.test;
+
+import org.bouncycastle.asn1.ASN1Integer;
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.CRLReason;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.cert.X509CRLHolder;
+import org.bouncycastle.cert.X509v2CRLBuilder;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.xipki.security.ConcurrentContentSigner;
+import org.xipki.security.Securities;
+import org.xipki.security.SignatureAlgoControl;
+import org.xipki.security.SignerConf;
+import org.xipki.security.X509Cert;
+import org.xipki.security.XiContentSigner;
+import org.xipki.security.asn1.CrlStreamEncoder;
+import org.xipki.security.asn1.CrlStreamParser;
+import org.xipki.util.ConfPairs;
+import org.xipki.util.IoUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+
+/**
+ * CRL Stream Encoder test.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class CrlStreamEncoderTest {
+
+  private static Securities securities;
+
+  private static ConcurrentContentSigner csigner;
+
+  @BeforeClass
+  public static void init() throws Exception {
+    securities = new Securities();
+    securities.init();
+
+    ConfPairs conf = new ConfPairs()
+        .putPair("parallelism", Integer.toString(1))
+        .putPair("password", "1234")
+        .putPair("keystore", "file:src/test/resources/crls/ca.p12");
+
+    SignerConf sconf = new SignerConf(conf.getEncoded(), new SignatureAlgoControl());
+    csigner = securities.getSecurityFactory().createSigner("PKCS12", sconf, (X509Cert) null);
+  }
+
+  @AfterClass
+  public static void shutdown() throws Exception {
+    if (securities != null) {
+      securities.close();
+    }
+  }
+
+  @Test
+  public void encodeCrl_noRevokedCerts() throws Exception {
+    encodeAndCompare(false, false);
+  }
+
+  @Test
+  public void encodeCrl_revokedCerts() throws Exception {
+    encodeAndCompare(true, false);
+  }
+
+  @Test
+  public void encodeCrl_toStream() throws Exception {
+    encodeAndCompare(true, true);
+  }
+
+  private void encodeAndCompare(boolean withRevokedCerts, boolean toStream) throws Exception {
+    X509Cert caCert = csigner.getCertificate();
+    Instant thisUpdate = Instant.now();
+    Instant nextUpdate = thisUpdate.plus(7, ChronoUnit.DAYS);
+    Instant revokedDate = thisUpdate.minus(1, ChronoUnit.DAYS);
+    Instant invalidityDate = thisUpdate.minus(2, ChronoUnit.DAYS);
+    AuthorityKeyIdentifier aki = new AuthorityKeyIdentifier(caCert.getSubjectKeyId());
+
+    X509v2CRLBuilder builder = new X509v2CRLBuilder(caCert.getSubject(), Date.from(thisUpdate));
+    builder.setNextUpdate(Date.from(nextUpdate));
+
+    X509CRLHolder expected;
+    byte[] encoded;
+
+    XiContentSigner signer = csigner.borrowSigner();
+    try (CrlStreamEncoder encoder = new CrlStreamEncoder(caCert.getSubject(), thisUpdate, nextUpdate)) {
+      if (withRevokedCerts) {
+        // a serial number with more than 127 entries requires the long form of the length.
+        for (int i = 1; i <= 200; i++) {
+          BigInteger serial = BigInteger.valueOf(i).shiftLeft(150);
+          int reason = i % 2 == 0 ? CRLReason.unspecified : CRLReason.keyCompromise;
+          Instant invDate = i % 3 == 0 ? invalidityDate : null;
+          if (invDate == null) {
+            builder.addCRLEntry(serial, Date.from(revokedDate), reason);
+          } else {
+            builder.addCRLEntry(serial, Date.from(revokedDate), reason, Date.from(invDate));
+          }
+          encoder.addEntry(serial, revokedDate, reason, invDate);
+        }
+      }
+
+      builder.addExtension(Extension.authorityKeyIdentifier, false, aki);
+      builder.addExtension(Extension.cRLNumber, false, new ASN1Integer(BigInteger.TEN));
+      encoder.addExtension(Extension.authorityKeyIdentifier, false, aki);
+      encoder.addExtension(Extension.cRLNumber, false, new ASN1Integer(BigInteger.TEN));
+
+      expected = builder.build(signer);
+      if (toStream) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long length = encoder.build(signer, out);
+        encoded = out.toByteArray();
+        Assert.assertEquals("length", encoded.length, length);
+      } else {
+        encoded = encoder.build(signer);
+      }
+    } finally {
+      csigner.requiteSigner(signer);
+    }
+
+    X509CRLHolder crl = new X509CRLHolder(encoded);
+    Assert.assertArrayEquals("tbsCertList", expected.toASN1Structure().getTBSCertList().getEncoded(),
+        crl.toASN1Structure().getTBSCertList().getEncoded());
+
+    File crlFile = File.createTempFile("crl-", ".crl");
+    try {
+      IoUtil.save(crlFile, encoded);
+      CrlStreamParser parser = new CrlStreamParser(crlFile);
+      Assert.assertEquals("CRL number", BigInteger.TEN, parser.getCrlNumber());
+      Assert.assertTrue("signature", parser.verifySignature(caCert.getPublicKey()));
+    } finally {
+      IoUtil.deleteFile(crlFile);
+    }
+  }
+
+}
@@ -0,0 +1,86 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.test;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.pkcs11.wrapper.PKCS11Constants;
+import org.xipki.pkcs11.wrapper.params.ExtraParams;
+import org.xipki.security.pkcs11.P11Params;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ByteArrayMessage;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ErrorResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.ProxyErrorCode;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchRequest;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignBatchResponse;
+import org.xipki.security.pkcs11.hsmproxy.ProxyMessage.SignRequest;
+import org.xipki.util.cbor.ByteArrayCborEncoder;
+import org.xipki.util.cbor.CborDecoder;
+import org.xipki.util.exception.DecodeException;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Encoding and decoding of the HSM proxy signBatch messages.
+ *
+ * @author Lijun Liao (xipki)
+ * @since 6.5.4
+ */
+public class HsmProxySignBatchTest {
+
+  @Test
+  public void encodeDecodeRequest() throws Exception {
+    SignRequest r1 = new SignRequest(1, PKCS11Constants.CKM_ECDSA, null,
+        new ExtraParams().ecOrderBitSize(256), new byte[]{1, 2, 3});
+    SignRequest r2 = new SignRequest(2, PKCS11Constants.CKM_RSA_PKCS_PSS,
+        new P11Params.P11RSAPkcsPssParams(PKCS11Constants.CKM_SHA256, PKCS11Constants.CKG_MGF1_SHA256, 32),
+        null, new byte[]{4, 5});
+
+    ByteArrayCborEncoder encoder = new ByteArrayCborEncoder();
+    new SignBatchRequest(Arrays.asList(r1, r2)).encode(encoder);
+
+    List<SignRequest> decoded = SignBatchRequest.decode(new CborDecoder(encoder.toByteArray())).getRequests();
+    Assert.assertEquals(2, decoded.size());
+    Assert.assertEquals(1, decoded.get(0).getKeyHandle());
+    Assert.assertEquals(256, decoded.get(0).getExtraParams().ecOrderBitSize());
+    Assert.assertArrayEquals(new byte[]{1, 2, 3}, decoded.get(0).getContent());
+    Assert.assertEquals(PKCS11Constants.CKM_RSA_PKCS_PSS, decoded.get(1).getMechanism());
+    Assert.assertEquals(32, ((P11Params.P11RSAPkcsPssParams) decoded.get(1).getP11params()).getSaltLength());
+  }
+
+  @Test
+  public void encodeDecodeResponse() throws Exception {
+    ByteArrayCborEncoder encoder = new ByteArrayCborEncoder();
+    new SignBatchResponse(Arrays.asList(new ByteArrayMessage(new byte[]{1}),
+        new ErrorResponse(ProxyErrorCode.pkcs11Exception, "CKR_KEY_HANDLE_INVALID"),
+        new ByteArrayMessage(new byte[]{2, 3}))).encode(encoder);
+
+    List<ProxyMessage> results = SignBatchResponse.decode(new CborDecoder(encoder.toByteArray())).getResults();
+    Assert.assertEquals(3, results.size());
+    Assert.assertArrayEquals(new byte[]{1}, ((ByteArrayMessage) results.get(0)).getValue());
+    ErrorResponse error = (ErrorResponse) results.get(1);
+    Assert.assertEquals(ProxyErrorCode.pkcs11Exception, error.getErrorCode());
+    Assert.assertEquals("CKR_KEY_HANDLE_INVALID", error.getDetail());
+    Assert.assertArrayEquals(new byte[]{2, 3}, ((ByteArrayMessage) results.get(2)).getValue());
+  }
+
+  @Test
+  public void rejectTooLargeRequest() throws Exception {
+    SignRequest r = new SignRequest(1, PKCS11Constants.CKM_ECDSA, null, null, new byte[]{1});
+    ByteArrayCborEncoder encoder = new ByteArrayCborEncoder();
+    encoder.writeArrayStart(SignBatchRequest.MAX_BATCH_SIZE + 1);
+    for (int i = 0; i <= SignBatchRequest.MAX_BATCH_SIZE; i++) {
+      r.encode(encoder);
+    }
+
+    try {
+      SignBatchRequest.decode(new CborDecoder(encoder.toByteArray()));
+      Assert.fail("DecodeException expected");
+    } catch (DecodeException ex) {
+      // expected
+    }
+  }
+
+}
@@ -0,0 +1,71 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.util;
+
+import org.xipki.util.BenchmarkExecutor;
+
+import java.security.SecureRandom;
+
+/**
+ * Benchmark of the contended {@link DrbgRandom#nextBytes(byte[])} against a {@link SecureRandom}
+ * shared by all threads.
+ * <p>
+ * This is not a JUnit test, run {@link #main(String[])} with the test classpath:
+ * <pre>
+ *   DrbgRandomBenchmark [drbg|securerandom] [bytes per call] [threads] [duration]
+ * </pre>
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class DrbgRandomBenchmark extends BenchmarkExecutor {
+
+  private class Tester implements Runnable {
+
+    private static final int BATCH = 1000;
+
+    private final byte[] bytes = new byte[size];
+
+    @Override
+    public void run() {
+      while (!stop() && getErrorAccount() < 1) {
+        for (int i = 0; i < BATCH; i++) {
+          if (drbg) {
+            DrbgRandom.getInstance().nextBytes(bytes);
+          } else {
+            secureRandom.nextBytes(bytes);
+          }
+        }
+        account(BATCH, 0);
+      }
+    }
+
+  } // class Tester
+
+  private final boolean drbg;
+
+  private final int size;
+
+  private final SecureRandom secureRandom = new SecureRandom();
+
+  public DrbgRandomBenchmark(boolean drbg, int size) {
+    super("nextBytes of " + size + " bytes, " + (drbg ? "DrbgRandom" : "shared SecureRandom"));
+    this.drbg = drbg;
+    this.size = size;
+  }
+
+  @Override
+  protected Runnable getTester() {
+    return new Tester();
+  }
+
+  public static void main(String[] args) {
+    boolean drbg = args.length < 1 || !"securerandom".equalsIgnoreCase(args[0]);
+    int size = args.length < 2 ? 20 : Integer.parseInt(args[1]);
+    int threads = args.length < 3 ? 16 : Integer.parseInt(args[2]);
+    String duration = args.length < 4 ? "10s" : args[3];
+
+    new DrbgRandomBenchmark(drbg, size).setThreads(threads).setDuration(duration).setUnit("calls").execute();
+  }
+
+}
@@ -0,0 +1,115 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.security.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.xipki.util.Hex;
+
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit test case of {@link DrbgRandom}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class DrbgRandomTest {
+
+  /**
+   * Counts the requests of the DRBGs for entropy, one for the instantiation on the first fill of
+   * the buffer and one for each reseed.
+   */
+  private static class CountingEntropySource extends SecureRandom {
+
+    private final AtomicInteger seedRequests = new AtomicInteger();
+
+    @Override
+    public byte[] generateSeed(int numBytes) {
+      seedRequests.incrementAndGet();
+      return super.generateSeed(numBytes);
+    }
+
+  } // class CountingEntropySource
+
+  @Test
+  public void numberOfStripes() {
+    Assert.assertEquals(1, newRandom(0).getNumStripes());
+    Assert.assertEquals(1, newRandom(1).getNumStripes());
+    Assert.assertEquals(4, newRandom(3).getNumStripes());
+    Assert.assertEquals(8, newRandom(8).getNumStripes());
+    Assert.assertEquals(64, newRandom(1000).getNumStripes());
+  }
+
+  @Test
+  public void reseedAfterInterval() {
+    CountingEntropySource entropySource = new CountingEntropySource();
+    // one stripe with a buffer of 64 bytes, reseeded after 128 bytes.
+    DrbgRandom random = new DrbgRandom(entropySource, 1, 64, 128);
+    Assert.assertEquals(0, entropySource.seedRequests.get());
+
+    random.nextBytes(new byte[64]);
+    Assert.assertEquals(1, entropySource.seedRequests.get());
+
+    // the buffer is filled 4 more times, the DRBG is reseeded before the 3rd and 5th fill.
+    random.nextBytes(new byte[4 * 64]);
+    Assert.assertEquals(3, entropySource.seedRequests.get());
+  }
+
+  @Test
+  public void smallRequestsAreBuffered() {
+    CountingEntropySource entropySource = new CountingEntropySource();
+    DrbgRandom random = new DrbgRandom(entropySource, 1, 64, 128);
+
+    // the same number of bytes requested byte by byte results in the same number of fills.
+    byte[] bytes = new byte[5 * 64];
+    for (int i = 0; i < bytes.length; i++) {
+      random.nextBytes(bytes, i, 1);
+    }
+    Assert.assertEquals(3, entropySource.seedRequests.get());
+
+    // requests crossing the buffer boundary
+    for (int i = 0; i < 10; i++) {
+      Assert.assertEquals(100, random.nextBytes(100).length);
+    }
+  }
+
+  @Test
+  public void noRepeatedOutput() throws Exception {
+    DrbgRandom random = new DrbgRandom(new SecureRandom(), 4, 64, 256);
+    Set<String> values = ConcurrentHashMap.newKeySet();
+    AtomicInteger duplicates = new AtomicInteger();
+
+    // threads share the stripes, the bytes of a buffer are returned only once.
+    List<Thread> threads = new ArrayList<>();
+    for (int t = 0; t < 8; t++) {
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 2000; i++) {
+          if (!values.add(Hex.encode(random.nextBytes(16)))) {
+            duplicates.incrementAndGet();
+          }
+        }
+      }));
+    }
+
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    Assert.assertEquals(0, duplicates.get());
+    Assert.assertEquals(8 * 2000, values.size());
+  }
+
+  private static DrbgRandom newRandom(int minStripes) {
+    return new DrbgRandom(new SecureRandom(), minStripes, 64, 1024);
+  }
+
+}
@@ -180,9 +180,31 @@ public class DefaultCurl implements Curl {
 
   private boolean initialized;
 
+  private int connectTimeoutMs;
+
+  private int readTimeoutMs;
+
   public DefaultCurl() {
   }
 
+  /**
+   * Sets the connect timeout.
+   * @param connectTimeoutMs the timeout in milliseconds, 0 for infinite timeout.
+   * @since 6.5.4
+   */
+  public void setConnectTimeout(int connectTimeoutMs) {
+    this.connectTimeoutMs = connectTimeoutMs;
+  }
+
+  /**
+   * Sets the read timeout.
+   * @param readTimeoutMs the timeout in milliseconds, 0 for infinite timeout.
+   * @since 6.5.4
+   */
+  public void setReadTimeout(int readTimeoutMs) {
+    this.readTimeoutMs = readTimeoutMs;
+  }
+
   public void setUseSslConf(boolean useSslConf) {
     this.useSslConf = useSslConf;
   }
@@ -317,6 +339,13 @@ public class DefaultCurl implements Curl {
       }
     }
 
+    if (connectTimeoutMs > 0) {
+      httpConn.setConnectTimeout(connectTimeoutMs);
+    }
+    if (readTimeoutMs > 0) {
+      httpConn.setReadTimeout(readTimeoutMs);
+    }
+
     try {
       httpConn.setRequestMethod(post ? "POST" : "GET");
       httpConn.setUseCaches(false);
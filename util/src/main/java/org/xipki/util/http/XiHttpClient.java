@@ -3,6 +3,8 @@
 
 package org.xipki.util.http;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.xipki.util.Args;
 import org.xipki.util.Base64;
 import org.xipki.util.IoUtil;
@@ -10,42 +12,161 @@ import org.xipki.util.exception.ObjectCreationException;
 
 import javax.net.ssl.HostnameVerifier;
 import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLContext;
 import javax.net.ssl.SSLSocketFactory;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.HttpURLConnection;
+import java.net.URI;
 import java.net.URL;
 import java.net.URLConnection;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse.BodyHandlers;
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
 
 /**
  * The HTTP client.
+ * <p>
+ * Two transports are supported: {@link HttpURLConnection} (one connection per request if the
+ * server does not keep it alive), and, since 6.5.4, {@link HttpClient} which keeps the connections
+ * alive, reuses the TLS sessions and multiplexes the requests over HTTP/2 if supported by the
+ * server. The number of concurrent requests of the latter is bounded.
  *
  * @author Lijun Liao (xipki)
  */
 
 public class XiHttpClient {
 
+  private static class PendingRequest {
+
+    private final HttpRequest request;
+
+    private final CompletableFuture<HttpRespContent> future = new CompletableFuture<>();
+
+    PendingRequest(HttpRequest request) {
+      this.request = request;
+    }
+
+  } // class PendingRequest
+
+  /**
+   * Default timeout to establish a connection of the pooled transport.
+   */
+  public static final Duration DFLT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+  /**
+   * Default timeout to receive the response of the pooled transport.
+   */
+  public static final Duration DFLT_REQUEST_TIMEOUT = Duration.ofSeconds(60);
+
+  private static final Logger LOG = LoggerFactory.getLogger(XiHttpClient.class);
+
   private final SSLSocketFactory sslSocketFactory;
 
   private final HostnameVerifier hostnameVerifier;
 
+  private final HttpClient httpClient;
+
+  private final Semaphore permits;
+
+  /**
+   * The asynchronous requests waiting for a free permit.
+   */
+  private final Queue<PendingRequest> pendingRequests = new ConcurrentLinkedQueue<>();
+
+  private final Duration requestTimeout;
+
   public XiHttpClient() {
     this.sslSocketFactory = null;
     this.hostnameVerifier = null;
+    this.httpClient = null;
+    this.permits = null;
+    this.requestTimeout = null;
+  }
+
+  /**
+   * Creates a client with the pooled HTTP/2-capable transport. Since {@link HttpClient} does not
+   * support custom hostname verifiers, the {@link HttpURLConnection} transport is used if a
+   * non-default hostname verifier is configured.
+   *
+   * @param sslContextConf the SSL context configuration, may be {@code null}.
+   * @param maxConcurrentRequests the maximal number of concurrent requests.
+   * @throws ObjectCreationException if the SSL context could not be built.
+   * @since 6.5.4
+   */
+  public XiHttpClient(SslContextConf sslContextConf, int maxConcurrentRequests) throws ObjectCreationException {
+    this(sslContextConf, maxConcurrentRequests, DFLT_CONNECT_TIMEOUT, DFLT_REQUEST_TIMEOUT);
+  }
+
+  /**
+   * Creates a client with the pooled HTTP/2-capable transport.
+   *
+   * @param sslContextConf the SSL context configuration, may be {@code null}.
+   * @param maxConcurrentRequests the maximal number of concurrent requests.
+   * @param connectTimeout timeout to establish a connection.
+   * @param requestTimeout timeout to receive the response of a request.
+   * @throws ObjectCreationException if the SSL context could not be built.
+   * @since 6.5.4
+   */
+  public XiHttpClient(SslContextConf sslContextConf, int maxConcurrentRequests,
+                      Duration connectTimeout, Duration requestTimeout) throws ObjectCreationException {
+    Args.positive(maxConcurrentRequests, "maxConcurrentRequests");
+    Args.notNull(connectTimeout, "connectTimeout");
+    Args.notNull(requestTimeout, "requestTimeout");
+    SSLContext sslContext = null;
+    if (sslContextConf == null) {
+      this.sslSocketFactory = null;
+      this.hostnameVerifier = null;
+    } else {
+      sslContext = sslContextConf.getSslContext();
+      this.sslSocketFactory = sslContextConf.getSslSocketFactory();
+      this.hostnameVerifier = sslContextConf.getHostnameVerifier();
+    }
+
+    if (hostnameVerifier != null) {
+      LOG.warn("custom hostname verifier is configured, use the HttpURLConnection transport");
+      this.httpClient = null;
+      this.permits = null;
+      this.requestTimeout = null;
+    } else {
+      HttpClient.Builder builder = HttpClient.newBuilder().version(HttpClient.Version.HTTP_2)
+          .connectTimeout(connectTimeout);
+      if (sslContext != null) {
+        builder.sslContext(sslContext);
+      }
+      this.httpClient = builder.build();
+      this.permits = new Semaphore(maxConcurrentRequests);
+      this.requestTimeout = requestTimeout;
+    }
   }
 
   public XiHttpClient(SslContextConf sslContextConf) throws ObjectCreationException {
     this.sslSocketFactory = sslContextConf.getSslSocketFactory();
     this.hostnameVerifier = sslContextConf.getHostnameVerifier();
+    this.httpClient = null;
+    this.permits = null;
+    this.requestTimeout = null;
   }
 
   public XiHttpClient(SSLSocketFactory sslSocketFactory, HostnameVerifier hostnameVerifier) {
     this.sslSocketFactory = sslSocketFactory;
     this.hostnameVerifier = hostnameVerifier;
+    this.httpClient = null;
+    this.permits = null;
+    this.requestTimeout = null;
   }
 
   public HttpRespContent httpGet(String url) throws IOException {
+    if (httpClient != null) {
+      return send(HttpRequest.newBuilder(toUri(url)).timeout(requestTimeout).GET().build());
+    }
+
     try {
       HttpURLConnection httpConn = openHttpConn(new URL(Args.notNull(url, "url")));
       httpConn.setRequestMethod("GET");
@@ -78,6 +199,10 @@ public class XiHttpClient {
   }
 
   public HttpRespContent httpPost(String url, String requestContentType, byte[] request) throws IOException {
+    if (httpClient != null) {
+      return send(buildPostRequest(url, requestContentType, request));
+    }
+
     try {
       HttpURLConnection httpConn = openHttpConn(new URL(Args.notNull(url, "url")));
       httpConn.setRequestMethod("POST");
@@ -101,6 +226,132 @@ public class XiHttpClient {
     }
   } // method httpPost
 
+  /**
+   * Sends the POST request asynchronously. If the concurrent requests are exhausted, the request
+   * is queued and sent as soon as one of them completes, the caller is never blocked. With the
+   * {@link HttpURLConnection} transport, the request is sent synchronously and a completed future
+   * is returned.
+   *
+   * @param url the URL.
+   * @param requestContentType the content type of the request, may be {@code null}.
+   * @param request the request, may be {@code null}.
+   * @return the future of the response.
+   * @since 6.5.4
+   */
+  public CompletableFuture<HttpRespContent> httpPostAsync(String url, String requestContentType, byte[] request) {
+    if (httpClient == null) {
+      try {
+        return CompletableFuture.completedFuture(httpPost(url, requestContentType, request));
+      } catch (IOException ex) {
+        return CompletableFuture.failedFuture(ex);
+      }
+    }
+
+    PendingRequest pending;
+    try {
+      pending = new PendingRequest(buildPostRequest(url, requestContentType, request));
+    } catch (IOException ex) {
+      return CompletableFuture.failedFuture(ex);
+    }
+
+    pendingRequests.add(pending);
+    sendPendingRequests();
+    return pending.future;
+  } // method httpPostAsync
+
+  /**
+   * Sends the queued requests as long as permits are available. Called after a request is
+   * queued and after a permit is released, so that no request remains in the queue while a
+   * permit is free.
+   */
+  private void sendPendingRequests() {
+    while (!pendingRequests.isEmpty() && permits.tryAcquire()) {
+      PendingRequest pending = pendingRequests.poll();
+      if (pending == null) {
+        // taken by another thread.
+        permits.release();
+        continue;
+      }
+
+      try {
+        httpClient.sendAsync(pending.request, BodyHandlers.ofByteArray()).whenComplete((resp, ex) -> {
+          permits.release();
+          sendPendingRequests();
+
+          if (ex != null) {
+            pending.future.completeExceptionally(ex);
+          } else {
+            try {
+              pending.future.complete(parseResponse(resp));
+            } catch (RuntimeException ex2) {
+              pending.future.completeExceptionally(ex2);
+            }
+          }
+        });
+      } catch (RuntimeException ex) {
+        permits.release();
+        pending.future.completeExceptionally(ex);
+      }
+    }
+  } // method sendPendingRequests
+
+  private HttpRequest buildPostRequest(String url, String requestContentType, byte[] request) throws IOException {
+    HttpRequest.Builder builder = HttpRequest.newBuilder(toUri(url)).timeout(requestTimeout);
+    if (request == null) {
+      builder.POST(HttpRequest.BodyPublishers.noBody());
+    } else {
+      if (requestContentType != null) {
+        builder.header("Content-Type", requestContentType);
+      }
+      builder.POST(HttpRequest.BodyPublishers.ofByteArray(request));
+    }
+    return builder.build();
+  }
+
+  private HttpRespContent send(HttpRequest request) throws IOException {
+    acquirePermit();
+    try {
+      return parseResponse(httpClient.send(request, BodyHandlers.ofByteArray()));
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted", ex);
+    } finally {
+      permits.release();
+      sendPendingRequests();
+    }
+  } // method send
+
+  private void acquirePermit() throws IOException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException ex) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for a free connection", ex);
+    }
+  }
+
+  private static URI toUri(String url) throws IOException {
+    try {
+      return URI.create(Args.notNull(url, "url"));
+    } catch (IllegalArgumentException ex) {
+      throw new IOException("invalid URL " + url, ex);
+    }
+  }
+
+  private static HttpRespContent parseResponse(java.net.http.HttpResponse<byte[]> resp) {
+    byte[] content = resp.body() == null ? new byte[0] : resp.body();
+    if (content.length > 0) {
+      String encoding = resp.headers().firstValue("content-transfer-encoding").orElse(null);
+      if (encoding != null && "base64".equalsIgnoreCase(encoding.trim())) {
+        content = Base64.decode(content);
+      }
+    }
+
+    String contentType = resp.headers().firstValue("Content-Type").orElse(null);
+    return resp.statusCode() == HttpURLConnection.HTTP_OK ? HttpRespContent.ofOk(contentType, content)
+        : HttpRespContent.of(resp.statusCode(), contentType, content);
+  } // method parseResponse
+
   private HttpRespContent parseResponse(HttpURLConnection conn) throws XiHttpClientException {
     try {
       int respCode = Args.notNull(conn, "conn").getResponseCode();
@@ -0,0 +1,126 @@
+// Copyright (c) 2013-2024 xipki. All rights reserved.
+// License Apache License 2.0
+
+package org.xipki.common.test;
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.xipki.util.http.HttpRespContent;
+import org.xipki.util.http.XiHttpClient;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JUnit test case of the pooled transport of {@link XiHttpClient}.
+ *
+ * @author Lijun Liao (xipki)
+ */
+public class XiHttpClientTest {
+
+  private HttpServer server;
+
+  private String url;
+
+  private volatile CountDownLatch release;
+
+  private final AtomicInteger maxActive = new AtomicInteger();
+
+  private final AtomicInteger active = new AtomicInteger();
+
+  @Before
+  public void startServer() throws Exception {
+    server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.createContext("/echo", exchange -> {
+      maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+      try {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        if (release != null && !release.await(10, TimeUnit.SECONDS)) {
+          throw new IllegalStateException("timeout");
+        }
+
+        exchange.getResponseHeaders().add("Content-Type", "application/octet-stream");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream os = exchange.getResponseBody()) {
+          os.write(body);
+        }
+      } catch (InterruptedException ex) {
+        Thread.currentThread().interrupt();
+      } finally {
+        active.decrementAndGet();
+        exchange.close();
+      }
+    });
+    server.start();
+    url = "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort() + "/echo";
+  }
+
+  @After
+  public void stopServer() {
+    if (release != null) {
+      release.countDown();
+    }
+    server.stop(0);
+  }
+
+  @Test
+  public void asyncRequestsDoNotBlock() throws Exception {
+    XiHttpClient client = new XiHttpClient(null, 1);
+    release = new CountDownLatch(1);
+
+    // only one request is sent at a time, the others are queued without blocking the caller.
+    List<CompletableFuture<HttpRespContent>> futures = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      futures.add(client.httpPostAsync(url, "application/octet-stream", new byte[]{(byte) i}));
+    }
+
+    for (CompletableFuture<HttpRespContent> future : futures) {
+      Assert.assertFalse(future.isDone());
+    }
+
+    release.countDown();
+    for (int i = 0; i < 5; i++) {
+      HttpRespContent resp = futures.get(i).get(10, TimeUnit.SECONDS);
+      Assert.assertTrue(resp.isOK());
+      Assert.assertArrayEquals(new byte[]{(byte) i}, resp.getContent());
+    }
+    Assert.assertEquals(1, maxActive.get());
+  }
+
+  @Test
+  public void syncRequestReleasesPermitForAsyncRequests() throws Exception {
+    XiHttpClient client = new XiHttpClient(null, 1);
+    Assert.assertTrue(client.httpPost(url, null, new byte[]{1}).isOK());
+    HttpRespContent resp = client.httpPostAsync(url, null, new byte[]{2}).get(10, TimeUnit.SECONDS);
+    Assert.assertArrayEquals(new byte[]{2}, resp.getContent());
+  }
+
+  @Test
+  public void requestTimeout() throws Exception {
+    XiHttpClient client = new XiHttpClient(null, 1, Duration.ofSeconds(10), Duration.ofMillis(200));
+    release = new CountDownLatch(1);
+
+    try {
+      client.httpPostAsync(url, null, new byte[]{1}).get(10, TimeUnit.SECONDS);
+      Assert.fail("ExecutionException expected");
+    } catch (ExecutionException ex) {
+      Assert.assertTrue(ex.getCause() instanceof HttpTimeoutException);
+    }
+  }
+
+}